@@ -22,7 +22,7 @@ public class CorsConfig {
         corsConfig.setAllowedOrigins(List.of("http://localhost:3000", "http://localhost:3001"));
         corsConfig.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         corsConfig.setAllowedHeaders(List.of("*"));
-        corsConfig.setExposedHeaders(List.of("Authorization", "X-User-Id", "X-User-Email", "X-User-Role"));
+        corsConfig.setExposedHeaders(List.of("Authorization", "X-User-Id", "X-User-Email", "X-User-Role", "ETag"));
         corsConfig.setAllowCredentials(true);
         corsConfig.setMaxAge(3600L);
 
@@ -0,0 +1,136 @@
+package com.cabservice.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Baseline Report - Compares a JMH JSON result file with the baseline stored in the repository.
+ * <p>
+ * Benchmarks are matched by name and parameters. A change counts as a regression only when it is
+ * worse than the threshold and larger than the two runs' combined error, so run-to-run noise is
+ * not flagged. Lower is better for time modes, higher for throughput. Prints a Markdown table and
+ * exits with status 1 if anything regressed, so a build can fail on it.
+ * <p>
+ * Usage: {@code BaselineReport <baseline.json> <result.json> [threshold-percent] [report.md]}
+ */
+public final class BaselineReport {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    private BaselineReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineReport <baseline.json> <result.json> [threshold-percent] [report.md]");
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        Path resultFile = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; record one with -rf json -rff " + baselineFile);
+            return;
+        }
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> current = read(resultFile);
+
+        StringBuilder report = new StringBuilder();
+        int regressions = compare(baseline, current, threshold, report);
+        System.out.print(report);
+        if (args.length > 3) {
+            Files.writeString(Path.of(args[3]), report, StandardCharsets.UTF_8);
+        }
+        if (regressions > 0) {
+            System.out.println();
+            System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Append the comparison table; returns the number of regressions
+     */
+    static int compare(Map<String, Score> baseline, Map<String, Score> current, double threshold, StringBuilder report) {
+        report.append("| Benchmark | Mode | Baseline | Current | Change | Status |\n");
+        report.append("|---|---|---:|---:|---:|---|\n");
+        int regressions = 0;
+        List<String> names = new ArrayList<>(current.keySet());
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                names.add(name);
+            }
+        }
+        for (String name : names) {
+            Score before = baseline.get(name);
+            Score after = current.get(name);
+            if (before == null || after == null) {
+                Score only = before != null ? before : after;
+                report.append(String.format("| %s | %s | %s | %s | | %s |%n", name, only.mode(),
+                        before != null ? before.format() : "", after != null ? after.format() : "",
+                        before == null ? "new" : "missing"));
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean beyondNoise = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            String status;
+            if (worse > threshold && beyondNoise) {
+                status = "REGRESSION";
+                regressions++;
+            } else if (-worse > threshold && beyondNoise) {
+                status = "improved";
+            } else {
+                status = "ok";
+            }
+            report.append(String.format("| %s | %s | %s | %s | %+.1f%% | %s |%n", name, after.mode(),
+                    before.format(), after.format(), change, status));
+        }
+        return regressions;
+    }
+
+    static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asText());
+            JsonNode params = run.get("params");
+            if (params != null) {
+                // Sorted so the key does not depend on the order JMH wrote them in
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    sorted.put(param.getKey(), param.getValue().asText());
+                }
+                name.append(sorted);
+            }
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            scores.put(name.toString(), new Score(run.get("mode").asText(), metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    record Score(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+
+        String format() {
+            return String.format("%.3f +/- %.3f %s", score, error, unit);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cabservice.benchmarks;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.RideRepository;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.MySQLContainer;
+
+/**
+ * Ride Database - ride-service's JPA layer on a throwaway MySQL container, for the benchmarks
+ * whose cost is in the database: guarded updates and claims racing each other. Requires Docker.
+ * <p>
+ * Only the datasource, JPA and transactions are started, so ride-service's Kafka, Feign and
+ * discovery setup stays out. The connection pool is sized for the benchmark threads.
+ */
+public final class RideDatabase implements AutoCloseable {
+
+    private static final int POOL_SIZE = 32;
+
+    private final MySQLContainer<?> mysql;
+    private final ConfigurableApplicationContext context;
+
+    private RideDatabase(MySQLContainer<?> mysql, ConfigurableApplicationContext context) {
+        this.mysql = mysql;
+        this.context = context;
+    }
+
+    public static RideDatabase start() {
+        MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+        mysql.start();
+        try {
+            // Arguments rather than default properties, so they win over ride-service's application.yml
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(JpaConfig.class)
+                    .web(WebApplicationType.NONE)
+                    .bannerMode(Banner.Mode.OFF)
+                    .run("--spring.datasource.url=" + mysql.getJdbcUrl() + "?rewriteBatchedStatements=true",
+                            "--spring.datasource.username=" + mysql.getUsername(),
+                            "--spring.datasource.password=" + mysql.getPassword(),
+                            "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                            "--spring.jpa.hibernate.ddl-auto=create",
+                            "--spring.jpa.show-sql=false");
+            return new RideDatabase(mysql, context);
+        } catch (RuntimeException e) {
+            mysql.stop();
+            throw e;
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public PlatformTransactionManager transactionManager() {
+        return context.getBean(PlatformTransactionManager.class);
+    }
+
+    public JdbcTemplate jdbc() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        mysql.stop();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Ride.class)
+    @EnableJpaRepositories(basePackageClasses = RideRepository.class)
+    static class JpaConfig {
+    }
+}
@@ -0,0 +1,49 @@
+package com.cabservice.benchmarks;
+
+import com.cabservice.ride.entity.Ride;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Rides - A fully populated ride shared by the ride-service benchmarks
+ */
+public final class Rides {
+
+    private Rides() {
+    }
+
+    public static Ride completed() {
+        LocalDateTime requested = LocalDateTime.of(2024, 1, 15, 9, 30);
+        return Ride.builder()
+                .id(123_456L)
+                .customerId(1001L)
+                .driverId(42L)
+                .vehicleId(7L)
+                .vehicleType("SEDAN")
+                .pickupLatitude(18.5204)
+                .pickupLongitude(73.8567)
+                .pickupAddress("Shivaji Nagar, Pune")
+                .dropoffLatitude(18.5679)
+                .dropoffLongitude(73.9143)
+                .dropoffAddress("Viman Nagar, Pune")
+                .seats(1)
+                .status(Ride.RideStatus.COMPLETED)
+                .requestedAt(requested)
+                .acceptedAt(requested.plusMinutes(2))
+                .driverArrivedAt(requested.plusMinutes(9))
+                .startedAt(requested.plusMinutes(11))
+                .completedAt(requested.plusMinutes(38))
+                .estimatedFare(BigDecimal.valueOf(245.50))
+                .actualFare(BigDecimal.valueOf(262.00))
+                .distanceKm(BigDecimal.valueOf(9.42))
+                .durationMinutes(27)
+                .movingMinutes(22)
+                .settlementStatus(Ride.SettlementStatus.SETTLED)
+                .customerRating(BigDecimal.valueOf(5))
+                .driverRating(BigDecimal.valueOf(4.5))
+                .rideOtp("4821")
+                .version(6L)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.cabservice.benchmarks;
+
+import com.cabservice.routing.graph.RoadGraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic City - A reproducible road grid and GPS tracks driven on it, so the routing
+ * benchmarks need no map data and give the same inputs on every run.
+ * <p>
+ * Nodes sit 0.001 degrees apart (about 110 m). Every tenth street is an arterial and every fiftieth
+ * a highway, with faster travel times, so the contraction hierarchy sees a realistic hierarchy.
+ */
+public final class SyntheticCity {
+
+    public static final double ORIGIN_LATITUDE = 18.5;
+    public static final double ORIGIN_LONGITUDE = 73.8;
+    public static final double SPACING_DEGREES = 0.001;
+
+    private static final int LATITUDE_EDGE_METERS = 111;
+    private static final int LONGITUDE_EDGE_METERS = 105;
+
+    private SyntheticCity() {
+    }
+
+    /**
+     * A square grid of {@code side * side} nodes with two-way streets
+     */
+    public static RoadGraph grid(int side, long seed) {
+        Random random = new Random(seed);
+        RoadGraph.Builder builder = RoadGraph.builder();
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                builder.addNode(latitude(row), longitude(column));
+            }
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int node = row * side + column;
+                if (column + 1 < side) {
+                    int millis = streetMillis(row, random);
+                    builder.addEdge(node, node + 1, LONGITUDE_EDGE_METERS, millis);
+                    builder.addEdge(node + 1, node, LONGITUDE_EDGE_METERS, millis);
+                }
+                if (row + 1 < side) {
+                    int millis = streetMillis(column, random);
+                    builder.addEdge(node, node + side, LATITUDE_EDGE_METERS, millis);
+                    builder.addEdge(node + side, node, LATITUDE_EDGE_METERS, millis);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * A drive of {@code blocks} blocks from the middle of the grid, turning at random, sampled
+     * every {@code spacingMeters} with Gaussian GPS noise. Returns latitudes then longitudes.
+     */
+    public static double[][] track(int side, int blocks, double spacingMeters, double noiseMeters, long seed) {
+        Random random = new Random(seed);
+        int capacity = (int) (blocks * (LATITUDE_EDGE_METERS / spacingMeters + 1));
+        double[] latitudes = new double[capacity];
+        double[] longitudes = new double[capacity];
+        int points = 0;
+        int row = side / 2;
+        int column = side / 2;
+        int direction = random.nextInt(4);
+        for (int block = 0; block < blocks; ) {
+            if (random.nextInt(4) == 0) {
+                direction = random.nextInt(4);
+            }
+            int nextRow = row + (direction == 0 ? 1 : direction == 1 ? -1 : 0);
+            int nextColumn = column + (direction == 2 ? 1 : direction == 3 ? -1 : 0);
+            if (nextRow < 0 || nextColumn < 0 || nextRow >= side || nextColumn >= side) {
+                direction = (direction + 1) % 4;
+                continue;
+            }
+            double meters = direction < 2 ? LATITUDE_EDGE_METERS : LONGITUDE_EDGE_METERS;
+            for (double fraction = 0; fraction < 1 && points < capacity; fraction += spacingMeters / meters) {
+                latitudes[points] = latitude(row + fraction * (nextRow - row)) + random.nextGaussian() * noiseMeters / 111_320.0;
+                longitudes[points] = longitude(column + fraction * (nextColumn - column)) + random.nextGaussian() * noiseMeters / 105_600.0;
+                points++;
+            }
+            row = nextRow;
+            column = nextColumn;
+            block++;
+        }
+        return new double[][]{Arrays.copyOf(latitudes, points), Arrays.copyOf(longitudes, points)};
+    }
+
+    public static double latitude(double row) {
+        return ORIGIN_LATITUDE + row * SPACING_DEGREES;
+    }
+
+    public static double longitude(double column) {
+        return ORIGIN_LONGITUDE + column * SPACING_DEGREES;
+    }
+
+    private static int streetMillis(int street, Random random) {
+        int base = street % 50 == 0 ? 3000 : street % 10 == 0 ? 6000 : 14000;
+        return base + random.nextInt(2000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.cabservice.billing.service;
+
+import com.cabservice.billing.dto.FareCalculationRequest;
+import com.cabservice.billing.dto.FareEstimateResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Billing Service Benchmark - Fare estimates without a promo code, which touch no repository
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BillingServiceBenchmark {
+
+    private static final int REQUESTS = 1024;
+    private static final String[] VEHICLE_TYPES = {"MINI", "SEDAN", "SUV", "PREMIUM"};
+
+    private BillingService billingService;
+    private final FareCalculationRequest[] requests = new FareCalculationRequest[REQUESTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        billingService = new BillingService(null, null);
+        Random random = new Random(42);
+        for (int i = 0; i < REQUESTS; i++) {
+            requests[i] = FareCalculationRequest.builder()
+                    .pickupLatitude(18.4 + random.nextDouble() * 0.2)
+                    .pickupLongitude(73.7 + random.nextDouble() * 0.2)
+                    .dropoffLatitude(18.4 + random.nextDouble() * 0.2)
+                    .dropoffLongitude(73.7 + random.nextDouble() * 0.2)
+                    .vehicleType(VEHICLE_TYPES[i % VEHICLE_TYPES.length])
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public FareEstimateResponse calculateFare() {
+        return billingService.calculateFare(requests[next++ & (REQUESTS - 1)]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.cabservice.cab.mapper;
+
+import com.cabservice.cab.dto.DriverDto;
+import com.cabservice.cab.entity.Driver;
+import com.cabservice.cab.entity.Vehicle;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver Mapper Benchmark - Mapping a driver with a vehicle, as every nearby-driver search does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DriverMapperBenchmark {
+
+    private final DriverMapper driverMapper = new DriverMapper();
+    private Driver driver;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime created = LocalDateTime.of(2024, 1, 15, 9, 30);
+        Vehicle vehicle = Vehicle.builder()
+                .id(7L)
+                .vehicleNumber("MH12AB1234")
+                .vehicleType(Vehicle.VehicleType.SEDAN)
+                .vehicleModel("Dzire")
+                .vehicleColor("White")
+                .capacity(4)
+                .registrationNumber("REG-1234")
+                .insuranceExpiry(LocalDate.of(2027, 3, 31))
+                .active(true)
+                .createdAt(created)
+                .build();
+        driver = Driver.builder()
+                .id(42L)
+                .userId(1042L)
+                .licenseNumber("DL-0420110012345")
+                .licenseExpiry(LocalDate.of(2030, 6, 30))
+                .status(Driver.DriverStatus.AVAILABLE)
+                .currentLatitude(18.5204)
+                .currentLongitude(73.8567)
+                .lastLocationUpdate(created.plusHours(2))
+                .rating(BigDecimal.valueOf(4.8))
+                .totalTrips(1250)
+                .totalEarnings(BigDecimal.valueOf(254_300.50))
+                .verified(true)
+                .createdAt(created)
+                .vehicle(vehicle)
+                .build();
+    }
+
+    @Benchmark
+    public DriverDto toDriverDto() {
+        return driverMapper.toDriverDto(driver);
+    }
+}
@@ -0,0 +1,67 @@
+package com.cabservice.gateway.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT Util Benchmark - The gateway's per-request token work: validation, then claim extraction
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtUtilBenchmark {
+
+    // Fixed test key; never used outside this benchmark
+    private static final String SECRET = "Y2FiLXNlcnZpY2UtYmVuY2htYXJrLXNpZ25pbmcta2V5LTAxMjM0NTY3ODk=";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        jwtUtil = new JwtUtil();
+        Field secret = JwtUtil.class.getDeclaredField("secret");
+        secret.setAccessible(true);
+        secret.set(jwtUtil, SECRET);
+
+        long now = System.currentTimeMillis();
+        token = Jwts.builder()
+                .subject("rider@example.com")
+                .claim("userId", "1001")
+                .claim("role", "CUSTOMER")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + TimeUnit.DAYS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String extractUserId() {
+        return jwtUtil.extractUserId(token);
+    }
+
+    /**
+     * What the gateway filter does for an authenticated request
+     */
+    @Benchmark
+    public String validateAndExtractClaims() {
+        if (!jwtUtil.validateToken(token)) {
+            return null;
+        }
+        return jwtUtil.extractUserId(token) + jwtUtil.extractEmail(token) + jwtUtil.extractRole(token);
+    }
+}
@@ -0,0 +1,50 @@
+package com.cabservice.ride.kafka;
+
+import com.cabservice.benchmarks.Rides;
+import com.cabservice.ride.entity.Ride;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride Event Producer Benchmark - Building a ride event and serialising it with the JSON
+ * serializer the producer is configured with; no broker is involved
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RideEventProducerBenchmark {
+
+    private static final String TOPIC = "ride-events";
+
+    private RideEventProducer rideEventProducer;
+    private JsonSerializer<Object> serializer;
+    private Ride ride;
+
+    @Setup
+    public void setUp() {
+        rideEventProducer = new RideEventProducer(null);
+        serializer = new JsonSerializer<>();
+        ride = Rides.completed();
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> toEvent() {
+        return rideEventProducer.toEvent("RIDE_COMPLETED", ride);
+    }
+
+    @Benchmark
+    public byte[] serialiseEvent() {
+        return serializer.serialize(TOPIC, rideEventProducer.toEvent("RIDE_COMPLETED", ride));
+    }
+}
@@ -0,0 +1,146 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.benchmarks.RideDatabase;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.service.RideTransition;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ride Transition Benchmark - Drivers racing to accept the same ride while its customer cancels it,
+ * on MySQL. Every operation is one guarded UPDATE in its own transaction, as RideService issues it;
+ * the attempt that matches the guard moves the race on to the next ride, and the others lose on
+ * the row lock or the status. {@code won} and {@code lost} count both kinds of attempt, so the
+ * conflict rate is {@code lost / (won + lost)}. {@code uncontended} is the same accept with no one
+ * racing it. Needs Docker.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RideTransitionBenchmark {
+
+    private static final int RIDES = 100_000;
+    private static final int INSERT_BATCH = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class Race {
+
+        private RideDatabase database;
+        private RideRepository rideRepository;
+        private TransactionTemplate transactions;
+        private long[] rideIds;
+        private final AtomicInteger round = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void start() {
+            database = RideDatabase.start();
+            rideRepository = database.bean(RideRepository.class);
+            transactions = new TransactionTemplate(database.transactionManager());
+            List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+            for (int i = 0; i < RIDES; i++) {
+                rows.add(new Object[]{1000L + i, LocalDateTime.now()});
+                if (rows.size() == INSERT_BATCH || i == RIDES - 1) {
+                    database.jdbc().batchUpdate("""
+                            INSERT INTO rides (customer_id, vehicle_type, pickup_latitude, pickup_longitude,
+                                dropoff_latitude, dropoff_longitude, status, requested_at, version)
+                            VALUES (?, 'SEDAN', 18.5204, 73.8567, 18.5679, 73.9143, 'SEARCHING_DRIVER', ?, 0)
+                            """, rows);
+                    rows.clear();
+                }
+            }
+            rideIds = database.jdbc().queryForList("SELECT id FROM rides ORDER BY id", Long.class)
+                    .stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            database.jdbc().update("""
+                    UPDATE rides SET status = 'SEARCHING_DRIVER', driver_id = NULL, accepted_at = NULL,
+                        cancelled_at = NULL, cancellation_reason = NULL, cancelled_by = NULL
+                    WHERE id <= ?
+                    """, rideIds[Math.min(round.get(), rideIds.length - 1)]);
+            round.set(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            database.close();
+        }
+
+        int current() {
+            int current = round.get();
+            if (current >= rideIds.length) {
+                throw new IllegalStateException("All " + RIDES + " rides were used in one iteration; raise RIDES");
+            }
+            return current;
+        }
+
+        int accept(int ride, long driverId) {
+            return transactions.execute(status -> rideRepository.markAccepted(rideIds[ride], driverId,
+                    LocalDateTime.now(), RideTransition.ACCEPT.target(), RideTransition.ACCEPT.sources()));
+        }
+
+        int cancel(int ride) {
+            return transactions.execute(status -> rideRepository.markCancelled(rideIds[ride], LocalDateTime.now(),
+                    "Changed plans", "CUSTOMER", RideTransition.CANCEL.target(), RideTransition.CANCEL.sources()));
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Attempts {
+
+        private static final AtomicLong DRIVERS = new AtomicLong();
+
+        private final long driverId = DRIVERS.incrementAndGet();
+        public long won;
+        public long lost;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            won = 0;
+            lost = 0;
+        }
+
+        int record(Race race, int ride, int updated) {
+            if (updated > 0) {
+                won++;
+                race.round.compareAndSet(ride, ride + 1);
+            } else {
+                lost++;
+            }
+            return updated;
+        }
+    }
+
+    @Benchmark
+    @Group("race")
+    @GroupThreads(6)
+    public int accept(Race race, Attempts attempts) {
+        int ride = race.current();
+        return attempts.record(race, ride, race.accept(ride, attempts.driverId));
+    }
+
+    @Benchmark
+    @Group("race")
+    @GroupThreads(2)
+    public int cancel(Race race, Attempts attempts) {
+        int ride = race.current();
+        return attempts.record(race, ride, race.cancel(ride));
+    }
+
+    @Benchmark
+    public int uncontended(Race race, Attempts attempts) {
+        int ride = race.current();
+        return attempts.record(race, ride, race.accept(ride, attempts.driverId));
+    }
+}
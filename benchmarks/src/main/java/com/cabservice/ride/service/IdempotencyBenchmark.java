@@ -0,0 +1,121 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.benchmarks.RideDatabase;
+import com.cabservice.ride.exception.IdempotencyConflictException;
+import com.cabservice.ride.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency Benchmark - Clients retrying the same Idempotency-Keys against two service instances
+ * sharing one MySQL. Each key is sent {@code retries} times back to back by different threads, so
+ * the attempts overlap the way client retries do. {@code executed}, {@code replayed} and
+ * {@code conflicts} count attempts that ran the action, got a stored result, or got 409 while the
+ * first attempt was running. An iteration fails if any key ran twice. Needs Docker.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Threads(8)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IdempotencyBenchmark {
+
+    private static final TypeReference<Long> RESPONSE = new TypeReference<>() {
+    };
+
+    @State(Scope.Benchmark)
+    public static class Instances {
+
+        // 1 is a first attempt only; 20 is a client stuck retrying
+        @Param({"1", "20"})
+        public int retries;
+
+        private RideDatabase database;
+        private IdempotencyService[] instances;
+        private final AtomicLong next = new AtomicLong();
+        private final Set<String> ran = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger ranTwice = new AtomicInteger();
+        private String prefix;
+
+        @Setup(Level.Trial)
+        public void start() {
+            database = RideDatabase.start();
+            IdempotencyRecordRepository repository = database.bean(IdempotencyRecordRepository.class);
+            ObjectMapper objectMapper = new ObjectMapper();
+            instances = new IdempotencyService[]{
+                    new IdempotencyService(repository, objectMapper, database.transactionManager(), 10_000, 24, 30),
+                    new IdempotencyService(repository, objectMapper, database.transactionManager(), 10_000, 24, 30)};
+        }
+
+        @Setup(Level.Iteration)
+        public void newKeys() {
+            prefix = UUID.randomUUID().toString();
+            next.set(0);
+            ran.clear();
+        }
+
+        @TearDown(Level.Iteration)
+        public void check() {
+            if (ranTwice.get() > 0) {
+                throw new IllegalStateException(ranTwice.get() + " idempotency keys executed more than once");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            database.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+
+        public long executed;
+        public long replayed;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            executed = 0;
+            replayed = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public Long booking(Instances instances, Outcomes outcomes) {
+        long attempt = instances.next.getAndIncrement();
+        String key = instances.prefix + "-" + attempt / instances.retries;
+        IdempotencyService instance = instances.instances[(int) (attempt & 1)];
+        boolean[] executed = new boolean[1];
+        try {
+            Long rideId = instance.execute("book", 1001L, key, Map.of("key", key), RESPONSE, () -> {
+                executed[0] = true;
+                if (!instances.ran.add(key)) {
+                    instances.ranTwice.incrementAndGet();
+                }
+                return attempt;
+            });
+            if (executed[0]) {
+                outcomes.executed++;
+            } else {
+                outcomes.replayed++;
+            }
+            return rideId;
+        } catch (IdempotencyConflictException e) {
+            outcomes.conflicts++;
+            return null;
+        }
+    }
+}
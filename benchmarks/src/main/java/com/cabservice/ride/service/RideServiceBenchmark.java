@@ -0,0 +1,35 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.benchmarks.Rides;
+import com.cabservice.ride.dto.RideDto;
+import com.cabservice.ride.entity.Ride;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride Service Benchmark - Building the ride view published to the read model on every transition
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RideServiceBenchmark {
+
+    private RideService rideService;
+    private Ride ride;
+
+    @Setup
+    public void setUp() {
+        // toRideDto uses none of the collaborators
+        rideService = new RideService(null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+        ride = Rides.completed();
+    }
+
+    @Benchmark
+    public RideDto toRideDto() {
+        return rideService.toRideDto(ride);
+    }
+}
@@ -0,0 +1,103 @@
+package com.cabservice.routing.geocoding;
+
+import com.cabservice.benchmarks.SyntheticCity;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Address Index Benchmark - Autocomplete and reverse geocoding over a generated dataset of house
+ * numbers on synthetic street names, mapped from a temporary file. Queries are prefixes of one to
+ * twenty characters of random addresses, starting at one of their first words.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AddressIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ba", "ker", "mar", "ly", "vi", "man", "na", "gar", "ko", "reg",
+            "aon", "pun", "ri", "shi", "va", "ji", "de", "cca", "sa", "to"};
+    private static final String[] KINDS = {"Road", "Street", "Lane", "Marg", "Chowk"};
+    private static final String[] AREAS = {"Kothrud", "Baner", "Aundh", "Viman Nagar", "Hadapsar", "Wakad"};
+    private static final int QUERIES = 1024;
+
+    @Param({"1000000"})
+    public int addresses;
+
+    private Path directory;
+    private AddressIndex index;
+    private String[] queries;
+    private double[][] points;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        String[] streets = new String[addresses / 100 + 1];
+        for (int i = 0; i < streets.length; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int syllable = 2 + random.nextInt(3); syllable > 0; syllable--) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            streets[i] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        directory = Files.createTempDirectory("address-index");
+        Path csv = directory.resolve("addresses.csv");
+        String[] labels = new String[QUERIES];
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < addresses; i++) {
+                String label = (1 + random.nextInt(300)) + ", " + streets[random.nextInt(streets.length)] + " "
+                        + KINDS[random.nextInt(KINDS.length)] + ", " + AREAS[random.nextInt(AREAS.length)] + ", Pune";
+                double latitude = SyntheticCity.ORIGIN_LATITUDE + random.nextDouble() * 0.2;
+                double longitude = SyntheticCity.ORIGIN_LONGITUDE + random.nextDouble() * 0.2;
+                out.write(latitude + "," + longitude + "," + (random.nextInt(4) == 0 ? random.nextInt(1000) : "")
+                        + ",\"" + label + "\"\n");
+                if (i < QUERIES) {
+                    labels[i] = label;
+                }
+            }
+        }
+        Path file = directory.resolve("addresses.idx");
+        new AddressIndexWriter(100, 4).write(csv, file);
+        index = AddressIndex.map(file);
+
+        queries = new String[QUERIES];
+        points = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            String[] words = labels[i].split("[ ,]+");
+            String rest = String.join(" ", Arrays.copyOfRange(words, random.nextInt(3), words.length));
+            queries[i] = rest.substring(0, 1 + random.nextInt(Math.min(20, rest.length())));
+            points[i] = new double[]{SyntheticCity.ORIGIN_LATITUDE + random.nextDouble() * 0.2,
+                    SyntheticCity.ORIGIN_LONGITUDE + random.nextDouble() * 0.2};
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("addresses.csv"));
+        Files.deleteIfExists(directory.resolve("addresses.idx"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public String autocomplete() {
+        int[] found = index.autocomplete(queries[next++ & (QUERIES - 1)], 5);
+        return found.length == 0 ? null : index.label(found[0]);
+    }
+
+    @Benchmark
+    public int reverse() {
+        double[] point = points[next++ & (QUERIES - 1)];
+        return index.nearest(point[0], point[1], 250);
+    }
+}
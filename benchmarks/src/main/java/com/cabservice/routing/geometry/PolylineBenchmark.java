@@ -0,0 +1,70 @@
+package com.cabservice.routing.geometry;
+
+import com.cabservice.benchmarks.SyntheticCity;
+import com.cabservice.routing.dto.RouteResponse;
+import com.cabservice.routing.graph.ContractionHierarchy;
+import com.cabservice.routing.graph.RoadGraph;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polyline Benchmark - Simplifying a road route for a zoom level and serialising the route
+ * response as coordinates or as an encoded polyline. The returned byte count is the response size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PolylineBenchmark {
+
+    private static final int SIDE = 300;
+
+    // -1 keeps every point
+    @Param({"-1", "12", "16"})
+    public int zoom;
+
+    @Param({"COORDINATES", "ENCODED"})
+    public String format;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup
+    public void setUp() {
+        RoadGraph graph = SyntheticCity.grid(SIDE, 42);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, 500);
+        // Corner to corner, a few hundred nodes long
+        int[] nodes = hierarchy.route(5 * SIDE + 5, (SIDE - 5) * SIDE - 5, true).nodes();
+        latitudes = new double[nodes.length];
+        longitudes = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            latitudes[i] = graph.latitude(nodes[i]);
+            longitudes[i] = graph.longitude(nodes[i]);
+        }
+    }
+
+    @Benchmark
+    public int serialiseRoute() throws Exception {
+        int[] points = zoom >= 0
+                ? Polylines.simplify(latitudes, longitudes, Polylines.toleranceMeters(zoom, latitudes[0]))
+                : Polylines.identity(latitudes.length);
+        RouteResponse.RouteResponseBuilder response = RouteResponse.builder();
+        if ("ENCODED".equals(format)) {
+            response.encodedPolyline(Polylines.encode(latitudes, longitudes, points));
+        } else {
+            List<RouteResponse.Coordinate> coordinates = new ArrayList<>(points.length);
+            for (int point : points) {
+                coordinates.add(new RouteResponse.Coordinate(latitudes[point], longitudes[point]));
+            }
+            response.polyline(coordinates);
+        }
+        return objectMapper.writeValueAsBytes(response.build()).length;
+    }
+}
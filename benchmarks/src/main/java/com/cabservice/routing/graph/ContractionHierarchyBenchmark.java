@@ -0,0 +1,84 @@
+package com.cabservice.routing.graph;
+
+import com.cabservice.benchmarks.SyntheticCity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contraction Hierarchy Benchmark - Point-to-point queries and many-to-many matrices on a
+ * 300 x 300 synthetic grid, against the per-pair queries a matrix replaces
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContractionHierarchyBenchmark {
+
+    private static final int SIDE = 300;
+    private static final int QUERIES = 1024;
+    private static final int MATRIX_SOURCES = 200;
+    private static final int MATRIX_TARGETS = 150;
+
+    private ContractionHierarchy hierarchy;
+    private final int[] sources = new int[QUERIES];
+    private final int[] targets = new int[QUERIES];
+    private final int[] matrixSources = new int[MATRIX_SOURCES];
+    private final int[] matrixTargets = new int[MATRIX_TARGETS];
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        RoadGraph graph = SyntheticCity.grid(SIDE, 42);
+        hierarchy = ContractionHierarchy.build(graph, 500);
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            sources[i] = random.nextInt(graph.nodeCount());
+            targets[i] = random.nextInt(graph.nodeCount());
+        }
+        for (int i = 0; i < MATRIX_SOURCES; i++) {
+            matrixSources[i] = random.nextInt(graph.nodeCount());
+        }
+        for (int i = 0; i < MATRIX_TARGETS; i++) {
+            matrixTargets[i] = random.nextInt(graph.nodeCount());
+        }
+    }
+
+    @Benchmark
+    public ContractionHierarchy.Path route(Cursor cursor) {
+        int query = cursor.next++ & (QUERIES - 1);
+        return hierarchy.route(sources[query], targets[query], false);
+    }
+
+    @Benchmark
+    public ContractionHierarchy.Path routeWithGeometry(Cursor cursor) {
+        int query = cursor.next++ & (QUERIES - 1);
+        return hierarchy.route(sources[query], targets[query], true);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ContractionHierarchy.Matrix matrix() {
+        return hierarchy.matrix(matrixSources, matrixTargets, false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long pairwiseMatrix() {
+        long total = 0;
+        for (int source : matrixSources) {
+            for (int target : matrixTargets) {
+                ContractionHierarchy.Path path = hierarchy.route(source, target, false);
+                total += path != null ? path.timeMillis() : 0;
+            }
+        }
+        return total;
+    }
+}
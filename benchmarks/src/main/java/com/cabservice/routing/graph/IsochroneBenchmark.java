@@ -0,0 +1,43 @@
+package com.cabservice.routing.graph;
+
+import com.cabservice.benchmarks.SyntheticCity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Isochrone Benchmark - Reachable area from the middle of the synthetic grid, without congestion,
+ * over the forward and the reversed adjacency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IsochroneBenchmark {
+
+    private static final int SIDE = 300;
+
+    @Param({"5", "15"})
+    public int minutes;
+
+    private Isochrone isochrone;
+    private int origin;
+
+    @Setup
+    public void setUp() {
+        isochrone = new Isochrone(SyntheticCity.grid(SIDE, 42), 200);
+        origin = (SIDE / 2) * SIDE + SIDE / 2;
+    }
+
+    @Benchmark
+    public Isochrone.Area outbound() {
+        return isochrone.reach(origin, minutes * 60_000, false, node -> 1.0);
+    }
+
+    @Benchmark
+    public Isochrone.Area inbound() {
+        return isochrone.reach(origin, minutes * 60_000, true, node -> 1.0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.cabservice.routing.graph;
+
+import com.cabservice.benchmarks.SyntheticCity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map Matcher Benchmark - Matching a noisy track on the synthetic grid. Tracks are sampled every
+ * 25 m with 8 m of GPS noise; points per millisecond is {@code points / score}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapMatcherBenchmark {
+
+    private static final int SIDE = 300;
+
+    // A city ride and a long shift of driving
+    @Param({"60", "2000"})
+    public int blocks;
+
+    private MapMatcher matcher;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup
+    public void setUp() {
+        RoadGraph graph = SyntheticCity.grid(SIDE, 42);
+        matcher = new MapMatcher(new EdgeIndex(graph, 100), 10, 10, 50, 8, 64);
+        double[][] track = SyntheticCity.track(SIDE, blocks, 25, 8, 7);
+        latitudes = track[0];
+        longitudes = track[1];
+    }
+
+    @Benchmark
+    public MapMatcher.Match match() {
+        return matcher.match(latitudes, longitudes, false);
+    }
+
+    @Benchmark
+    public MapMatcher.Match matchWithGeometry() {
+        return matcher.match(latitudes, longitudes, true);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cabservice.routing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route Cache Benchmark - Replays a request trace through a fresh cache per cell size.
+ * <p>
+ * Requests start and end around a few hundred popular places, picked with a skewed distribution
+ * and jittered by GPS noise, as pickups and drop-offs cluster in practice. Each shot replays the
+ * whole trace; the {@code loads} counter is the number of misses, so the hit ratio is
+ * {@code 1 - loads / lookups}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class RouteCacheBenchmark {
+
+    private static final int PLACES = 300;
+    private static final int REQUESTS = 100_000;
+    private static final double NOISE_METERS = 20;
+
+    @Param({"10", "50", "100"})
+    public double cellMeters;
+
+    private final double[] trace = new double[REQUESTS * 4];
+    private RouteCache cache;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long lookups;
+        public long loads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lookups = 0;
+            loads = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void buildTrace() {
+        Random random = new Random(42);
+        double[] places = new double[PLACES * 2];
+        for (int i = 0; i < places.length; i += 2) {
+            places[i] = 18.4 + random.nextDouble() * 0.2;
+            places[i + 1] = 73.7 + random.nextDouble() * 0.2;
+        }
+        for (int i = 0; i < trace.length; i += 2) {
+            // Squaring skews picks towards the first places
+            int place = (int) (Math.pow(random.nextDouble(), 2) * PLACES) * 2;
+            trace[i] = places[place] + random.nextGaussian() * NOISE_METERS / 111_320.0;
+            trace[i + 1] = places[place + 1] + random.nextGaussian() * NOISE_METERS / 105_600.0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newCache() {
+        cache = new RouteCache(new SimpleMeterRegistry(), cellMeters, 32, 60);
+    }
+
+    @Benchmark
+    public double replayTrace(Counters counters) {
+        double total = 0;
+        for (int i = 0; i < trace.length; i += 4) {
+            RouteCache.RouteKey key = cache.key(trace[i], trace[i + 1], trace[i + 2], trace[i + 3]);
+            total += cache.distanceKm(key, k -> {
+                counters.loads++;
+                return 1.0;
+            });
+            counters.lookups++;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cabservice.routing.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing Service Benchmark - The straight-line distance every routing fallback starts from
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoutingServiceBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    private RoutingService routingService;
+    private final double[] coordinates = new double[PAIRS * 4];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // haversineDistance uses none of the collaborators
+        routingService = new RoutingService(null, null, null, null);
+        Random random = new Random(42);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            coordinates[i] = 18.4 + random.nextDouble() * 0.2;
+            coordinates[i + 1] = 73.7 + random.nextDouble() * 0.2;
+        }
+    }
+
+    @Benchmark
+    public double haversineDistance() {
+        int pair = (next++ & (PAIRS - 1)) * 4;
+        return routingService.haversineDistance(coordinates[pair], coordinates[pair + 1],
+                coordinates[pair + 2], coordinates[pair + 3]);
+    }
+}
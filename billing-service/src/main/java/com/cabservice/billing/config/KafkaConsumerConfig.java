@@ -0,0 +1,56 @@
+package com.cabservice.billing.config;
+
+import com.cabservice.billing.kafka.BillingEventProducer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.util.Map;
+
+/**
+ * Kafka Consumer Configuration - retries failed events with backoff. When retries are exhausted
+ * the event is dead-lettered to {@code <topic>.DLT} and, for completed rides, an INVOICE_FAILED
+ * event compensates by flagging the ride's settlement as failed in ride-service.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerConfig.class);
+
+    @Value("${kafka.consumer.retry.initial-interval-ms:500}")
+    private long initialIntervalMs;
+
+    @Value("${kafka.consumer.retry.max-elapsed-ms:30000}")
+    private long maxElapsedMs;
+
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(KafkaTemplate<Object, Object> kafkaTemplate,
+                                                BillingEventProducer billingEventProducer) {
+        DeadLetterPublishingRecoverer deadLetter = new DeadLetterPublishingRecoverer(kafkaTemplate);
+        ExponentialBackOff backOff = new ExponentialBackOff(initialIntervalMs, 2.0);
+        backOff.setMaxElapsedTime(maxElapsedMs);
+
+        return new DefaultErrorHandler((record, ex) -> {
+            deadLetter.accept(record, ex);
+            compensate(record, ex, billingEventProducer);
+        }, backOff);
+    }
+
+    private void compensate(ConsumerRecord<?, ?> record, Exception ex, BillingEventProducer billingEventProducer) {
+        if (record.value() instanceof Map<?, ?> event
+                && "RIDE_COMPLETED".equals(event.get("eventType"))
+                && event.get("rideId") != null) {
+            Long rideId = Long.valueOf(event.get("rideId").toString());
+            logger.error("Invoice generation failed for ride {} after retries: {}", rideId, ex.getMessage());
+            billingEventProducer.sendInvoiceFailedEvent(rideId, ex.getMessage());
+        }
+    }
+}
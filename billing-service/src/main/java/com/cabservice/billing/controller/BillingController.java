@@ -2,7 +2,9 @@ package com.cabservice.billing.controller;
 
 import com.cabservice.billing.dto.*;
 import com.cabservice.billing.service.BillingService;
+import com.cabservice.billing.service.IdempotencyService;
 import com.cabservice.billing.service.PaymentService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,10 +26,13 @@ public class BillingController {
 
     private final BillingService billingService;
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
 
-    public BillingController(BillingService billingService, PaymentService paymentService) {
+    public BillingController(BillingService billingService, PaymentService paymentService,
+                             IdempotencyService idempotencyService) {
         this.billingService = billingService;
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/calculate-fare")
@@ -82,8 +87,10 @@ public class BillingController {
     @Operation(summary = "Process payment")
     public ResponseEntity<Map<String, Object>> processPayment(
             @RequestHeader("X-User-Id") Long customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody PaymentRequest request) {
-        Map<String, Object> result = paymentService.processPayment(customerId, request);
+        Map<String, Object> result = idempotencyService.execute("payment", customerId, idempotencyKey, request,
+                new TypeReference<Map<String, Object>>() {}, () -> paymentService.processPayment(customerId, request));
         return ResponseEntity.ok(result);
     }
 
@@ -0,0 +1,55 @@
+package com.cabservice.billing.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * IdempotencyRecord Entity - Outcome of a request made with an Idempotency-Key header
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_created", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    // Scope, user and client key, e.g. "payment:42:7f3c..."
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String key;
+
+    // SHA-256 of the request body, to reject reuse of a key for a different request
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    // Instance running the request, and until when it has promised to be alive; renewed by heartbeat
+    @Column(name = "owner_id", length = 36)
+    private String ownerId;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
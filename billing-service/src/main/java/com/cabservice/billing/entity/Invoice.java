@@ -26,7 +26,7 @@ public class Invoice {
     @Column(name = "invoice_number", nullable = false, unique = true)
     private String invoiceNumber;
 
-    @Column(name = "ride_id", nullable = false)
+    @Column(name = "ride_id", nullable = false, unique = true)
     private Long rideId;
 
     @Column(name = "customer_id", nullable = false)
@@ -0,0 +1,56 @@
+package com.cabservice.billing.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka Producer for Billing Events
+ */
+@Component
+public class BillingEventProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingEventProducer.class);
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topic.billing-events:billing-events}")
+    private String billingEventsTopic;
+
+    public BillingEventProducer(KafkaTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public void sendInvoiceGeneratedEvent(Long rideId, Long invoiceId, BigDecimal totalAmount, Object rideCompletedAt) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("invoiceId", invoiceId);
+        event.put("totalAmount", totalAmount);
+        event.put("rideCompletedAt", rideCompletedAt);
+        sendEvent("INVOICE_GENERATED", rideId, event);
+    }
+
+    public void sendInvoiceFailedEvent(Long rideId, String reason) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("reason", reason);
+        sendEvent("INVOICE_FAILED", rideId, event);
+    }
+
+    private void sendEvent(String eventType, Long rideId, Map<String, Object> event) {
+        event.put("eventType", eventType);
+        event.put("rideId", rideId);
+        event.put("timestamp", System.currentTimeMillis());
+
+        try {
+            kafkaTemplate.send(billingEventsTopic, rideId.toString(), event);
+            logger.info("Billing event sent: {} for ride: {}", eventType, rideId);
+        } catch (Exception e) {
+            logger.error("Failed to send billing event: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cabservice.billing.kafka;
+
+import com.cabservice.billing.dto.InvoiceDto;
+import com.cabservice.billing.service.BillingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Kafka Consumer for ride events - generates the invoice once a ride is completed, and re-prices
+ * it when ride-service later corrects the ride's distance from its map-matched track. Both bill
+ * the actualFare ride-service priced the ride at, so the invoice matches the fare the rider saw.
+ * Invoice generation is idempotent per ride, so redelivered events are harmless. Exceptions are
+ * rethrown so the container's error handler can retry and finally compensate.
+ */
+@Component
+public class RideEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideEventConsumer.class);
+
+    private final BillingService billingService;
+    private final BillingEventProducer billingEventProducer;
+
+    public RideEventConsumer(BillingService billingService, BillingEventProducer billingEventProducer) {
+        this.billingService = billingService;
+        this.billingEventProducer = billingEventProducer;
+    }
+
+    @KafkaListener(topics = "${kafka.topic.ride-events:ride-events}", groupId = "billing-service-group")
+    public void handleRideEvents(Map<String, Object> event) {
+        String eventType = (String) event.get("eventType");
+        switch (eventType) {
+            case "RIDE_COMPLETED" -> handleRideCompleted(event);
+            case "RIDE_DISTANCE_CORRECTED" -> handleDistanceCorrected(event);
+            default -> logger.debug("Unhandled ride event type: {}", eventType);
+        }
+    }
+
+    private void handleRideCompleted(Map<String, Object> event) {
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        Long customerId = Long.valueOf(event.get("customerId").toString());
+        Long driverId = event.get("driverId") != null ? Long.valueOf(event.get("driverId").toString()) : null;
+        BigDecimal distanceKm = new BigDecimal(event.getOrDefault("distanceKm", "0").toString());
+        Integer durationMinutes = Integer.valueOf(event.getOrDefault("durationMinutes", "0").toString());
+        String vehicleType = event.getOrDefault("vehicleType", "SEDAN").toString();
+
+        InvoiceDto invoice = billingService.generateInvoiceIfAbsent(rideId, customerId, driverId,
+                distanceKm, durationMinutes, vehicleType, rideFare(event));
+        billingEventProducer.sendInvoiceGeneratedEvent(rideId, invoice.getId(), invoice.getTotalAmount(),
+                event.get("completedAt"));
+    }
+
+    private void handleDistanceCorrected(Map<String, Object> event) {
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        BigDecimal distanceKm = new BigDecimal(event.get("distanceKm").toString());
+        billingService.correctInvoiceDistance(rideId, distanceKm, rideFare(event));
+    }
+
+    private static BigDecimal rideFare(Map<String, Object> event) {
+        Object fare = event.get("actualFare");
+        return fare != null ? new BigDecimal(fare.toString()) : null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cabservice.billing.repository;
+
+import com.cabservice.billing.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * IdempotencyRecord Repository
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Claim a key for an in-flight request. Returns 0 if the key is already taken.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT IGNORE INTO idempotency_keys (idempotency_key, request_hash, status, owner_id, lease_expires_at, created_at)
+        VALUES (:key, :requestHash, 'IN_PROGRESS', :ownerId, :leaseExpiresAt, :createdAt)
+        """, nativeQuery = true)
+    int tryClaim(@Param("key") String key,
+                 @Param("requestHash") String requestHash,
+                 @Param("ownerId") String ownerId,
+                 @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+                 @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Store the result of a claim this owner still holds. Joins the caller's transaction, so the
+     * record and the request's own changes commit together; 0 means the claim was lost.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IdempotencyRecord r SET r.status = :status, r.responseBody = :responseBody,
+            r.completedAt = :completedAt, r.leaseExpiresAt = NULL
+        WHERE r.key = :key AND r.ownerId = :ownerId AND r.status = :inProgress
+        """)
+    int complete(@Param("key") String key,
+                 @Param("ownerId") String ownerId,
+                 @Param("responseBody") String responseBody,
+                 @Param("completedAt") LocalDateTime completedAt,
+                 @Param("status") IdempotencyRecord.Status status,
+                 @Param("inProgress") IdempotencyRecord.Status inProgress);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.ownerId = :ownerId AND r.status = :status")
+    int release(@Param("key") String key,
+                @Param("ownerId") String ownerId,
+                @Param("status") IdempotencyRecord.Status status);
+
+    /**
+     * Extend the leases of the requests an owner is still running
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IdempotencyRecord r SET r.leaseExpiresAt = :leaseExpiresAt
+        WHERE r.key IN :keys AND r.ownerId = :ownerId AND r.status = :status
+        """)
+    int renewLeases(@Param("keys") Collection<String> keys,
+                    @Param("ownerId") String ownerId,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+                    @Param("status") IdempotencyRecord.Status status);
+
+    /**
+     * Drop an in-flight claim whose owner stopped renewing its lease. Conditional on the lease, so
+     * two instances reclaiming the same key cannot delete each other's fresh claim.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        DELETE FROM IdempotencyRecord r
+        WHERE r.key = :key AND r.status = :status AND (r.leaseExpiresAt IS NULL OR r.leaseExpiresAt < :now)
+        """)
+    int releaseExpired(@Param("key") String key,
+                       @Param("status") IdempotencyRecord.Status status,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
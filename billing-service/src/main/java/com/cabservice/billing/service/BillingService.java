@@ -129,6 +129,17 @@ public class BillingService {
     public InvoiceDto generateInvoice(Long rideId, Long customerId, Long driverId,
                                       BigDecimal distanceKm, Integer durationMinutes,
                                       String vehicleType, String promoCode) {
+        return generateInvoice(rideId, customerId, driverId, distanceKm, durationMinutes, vehicleType, promoCode, null);
+    }
+
+    /**
+     * Generate invoice for a completed ride. When ride-service has priced the ride, the invoice
+     * charges that fare as its base and adds only discount and tax; the rate card is used only for
+     * rides without a fare.
+     */
+    private InvoiceDto generateInvoice(Long rideId, Long customerId, Long driverId,
+                                       BigDecimal distanceKm, Integer durationMinutes,
+                                       String vehicleType, String promoCode, BigDecimal rideFare) {
         logger.info("Generating invoice for ride: {}", rideId);
 
         // Check if invoice already exists
@@ -154,6 +165,11 @@ public class BillingService {
 
         BigDecimal distanceCharge = distanceKm.multiply(perKmRate).setScale(2, RoundingMode.HALF_UP);
         BigDecimal timeCharge = BigDecimal.valueOf(durationMinutes).multiply(perMinuteRate).setScale(2, RoundingMode.HALF_UP);
+        if (rideFare != null) {
+            baseFare = rideFare.setScale(2, RoundingMode.HALF_UP);
+            distanceCharge = BigDecimal.ZERO;
+            timeCharge = BigDecimal.ZERO;
+        }
         BigDecimal surgeMultiplier = BigDecimal.ONE;
         BigDecimal surgeCharge = BigDecimal.ZERO;
         BigDecimal discount = BigDecimal.ZERO;
@@ -194,6 +210,61 @@ public class BillingService {
         return toInvoiceDto(invoice);
     }
 
+    /**
+     * Generate invoice for a completed ride at the fare ride-service charged, unless one already
+     * exists (idempotent). A null fare falls back to the rate card.
+     */
+    public InvoiceDto generateInvoiceIfAbsent(Long rideId, Long customerId, Long driverId,
+                                              BigDecimal distanceKm, Integer durationMinutes,
+                                              String vehicleType, BigDecimal rideFare) {
+        return invoiceRepository.findByRideId(rideId)
+                .map(this::toInvoiceDto)
+                .orElseGet(() -> generateInvoice(rideId, customerId, driverId,
+                        distanceKm, durationMinutes, vehicleType, null, rideFare));
+    }
+
+    /**
+     * Re-price the invoice of a ride on a corrected distance and the fare ride-service re-priced it
+     * at. Only unpaid invoices change; a paid one is left for a manual adjustment. A null fare
+     * re-prices the distance charge from the rate card.
+     */
+    public void correctInvoiceDistance(Long rideId, BigDecimal distanceKm, BigDecimal rideFare) {
+        Invoice invoice = invoiceRepository.findByRideId(rideId).orElse(null);
+        if (invoice == null) {
+            logger.warn("No invoice to correct for ride: {}", rideId);
+            return;
+        }
+        if (invoice.getDistanceKm() != null && invoice.getDistanceKm().compareTo(distanceKm) == 0) {
+            return;
+        }
+        if (invoice.getStatus() != Invoice.InvoiceStatus.PENDING) {
+            logger.warn("Invoice {} is {}; distance correction to {} km not applied",
+                    invoice.getInvoiceNumber(), invoice.getStatus(), distanceKm);
+            return;
+        }
+
+        BigDecimal baseFare = invoice.getBaseFare();
+        BigDecimal distanceCharge;
+        if (rideFare != null) {
+            baseFare = rideFare.setScale(2, RoundingMode.HALF_UP);
+            distanceCharge = BigDecimal.ZERO;
+        } else {
+            BigDecimal perKmRate = PER_KM_RATES.getOrDefault(invoice.getVehicleType().toUpperCase(), BigDecimal.valueOf(12));
+            distanceCharge = distanceKm.multiply(perKmRate).setScale(2, RoundingMode.HALF_UP);
+        }
+        BigDecimal subtotal = baseFare.add(distanceCharge).add(invoice.getTimeCharge())
+                .subtract(invoice.getDiscount());
+        BigDecimal tax = subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+
+        invoice.setBaseFare(baseFare);
+        invoice.setDistanceKm(distanceKm);
+        invoice.setDistanceCharge(distanceCharge);
+        invoice.setTax(tax);
+        invoice.setTotalAmount(subtotal.add(tax));
+        invoiceRepository.save(invoice);
+        logger.info("Invoice {} corrected to {} km", invoice.getInvoiceNumber(), distanceKm);
+    }
+
     /**
      * Get invoice by ID
      */
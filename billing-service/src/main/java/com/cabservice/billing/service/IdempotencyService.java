@@ -0,0 +1,208 @@
+package com.cabservice.billing.service;
+
+import com.cabservice.billing.entity.IdempotencyRecord;
+import com.cabservice.billing.exception.IdempotencyConflictException;
+import com.cabservice.billing.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency Service - Executes a request at most once per Idempotency-Key.
+ * <p>
+ * A key is claimed in {@code idempotency_keys} before the action runs, under this instance's owner
+ * id and a lease that a heartbeat renews while the action is running. The serialised result is
+ * stored in the action's own transaction, conditional on the claim still being ours, so the
+ * request's changes and its COMPLETED record commit together or not at all. Retries with the same
+ * key get the stored result without re-executing; retries that arrive while the first attempt is
+ * still running get 409. A claim is taken over only once its lease has expired, meaning its owner
+ * stopped heartbeating; should that owner still be running, its completion finds the claim gone
+ * and rolls back. Completed results are also held in a bounded in-memory cache so hot retries
+ * never reach the database. If the action fails, the claim is released so the client can retry.
+ * <p>
+ * ride-service has an identical copy, as each service owns its tables and exception types.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final TransactionTemplate transactionTemplate;
+    private final String ownerId = UUID.randomUUID().toString();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final long retentionHours;
+    private final long leaseSeconds;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${idempotency.lease-seconds:30}") long leaseSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionHours = retentionHours;
+        this.leaseSeconds = leaseSeconds;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(retentionHours))
+                .build();
+    }
+
+    /**
+     * Run the action once for the given key, or return the stored result of an earlier run.
+     * Requests without a key are executed directly.
+     */
+    public <T> T execute(String scope, Long userId, String idempotencyKey, Object request,
+                         TypeReference<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = scope + ":" + userId + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        IdempotencyRecord cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        if (!claim(key, requestHash)) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(key)
+                    .orElseThrow(() -> new IdempotencyConflictException("Request with this Idempotency-Key failed concurrently, please retry"));
+            if (existing.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+                throw new IdempotencyConflictException("Request with this Idempotency-Key is still being processed");
+            }
+            completed.put(key, existing);
+            return replay(existing, requestHash, responseType);
+        }
+
+        inFlight.add(key);
+        Outcome<T> outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                T response = action.get();
+                String body = serialize(response);
+                LocalDateTime completedAt = LocalDateTime.now();
+                if (idempotencyRecordRepository.complete(key, ownerId, body, completedAt,
+                        IdempotencyRecord.Status.COMPLETED, IdempotencyRecord.Status.IN_PROGRESS) == 0) {
+                    throw new IdempotencyConflictException("Request with this Idempotency-Key was taken over, please retry");
+                }
+                return new Outcome<>(response, body, completedAt);
+            });
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(key, ownerId, IdempotencyRecord.Status.IN_PROGRESS);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+
+        completed.put(key, IdempotencyRecord.builder()
+                .key(key)
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.Status.COMPLETED)
+                .responseBody(outcome.body())
+                .completedAt(outcome.completedAt())
+                .build());
+        return outcome.response();
+    }
+
+    /**
+     * Keep the claims of running requests alive
+     */
+    @Scheduled(fixedDelayString = "${idempotency.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        try {
+            idempotencyRecordRepository.renewLeases(List.copyOf(inFlight), ownerId,
+                    LocalDateTime.now().plusSeconds(leaseSeconds), IdempotencyRecord.Status.IN_PROGRESS);
+        } catch (Exception e) {
+            logger.warn("Failed to renew {} idempotency leases: {}", inFlight.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private boolean claim(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseExpiresAt = now.plusSeconds(leaseSeconds);
+        if (idempotencyRecordRepository.tryClaim(key, requestHash, ownerId, leaseExpiresAt, now) > 0) {
+            return true;
+        }
+
+        // Take over a claim whose owner stopped heartbeating, e.g. an instance that died mid-request
+        if (idempotencyRecordRepository.releaseExpired(key, IdempotencyRecord.Status.IN_PROGRESS, now) > 0) {
+            logger.warn("Reclaiming in-flight idempotency key with an expired lease: {}", key);
+            return idempotencyRecordRepository.tryClaim(key, requestHash, ownerId, leaseExpiresAt, now) > 0;
+        }
+        return false;
+    }
+
+    private <T> T replay(IdempotencyRecord record, String requestHash, TypeReference<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used for a different request");
+        }
+        try {
+            return objectMapper.readValue(record.getResponseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response could not be read", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response could not be stored for idempotent replay", e);
+        }
+    }
+
+    private record Outcome<T>(T response, String body, LocalDateTime completedAt) {
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(serialize(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cabservice.cab.kafka;
+
+import com.cabservice.cab.service.DriverService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Kafka Consumer for ride events - frees the driver once a ride is completed or cancelled.
+ * Exceptions are rethrown so the container's error handler can retry and dead-letter the event.
+ */
+@Component
+public class RideEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideEventConsumer.class);
+
+    private final DriverService driverService;
+    private final Timer releaseLatency;
+
+    public RideEventConsumer(DriverService driverService, MeterRegistry meterRegistry) {
+        this.driverService = driverService;
+        this.releaseLatency = Timer.builder("ride.saga.driver.release.latency")
+                .description("Time from the ride event to the driver being released")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "${kafka.topic.ride-events:ride-events}", groupId = "cab-service-group")
+    public void handleRideEvents(Map<String, Object> event) {
+        String eventType = (String) event.get("eventType");
+        switch (eventType) {
+            case "RIDE_COMPLETED", "RIDE_CANCELLED" -> handleRideFinished(event);
+            default -> logger.debug("Unhandled ride event type: {}", eventType);
+        }
+    }
+
+    private void handleRideFinished(Map<String, Object> event) {
+        Object driverId = event.get("driverId");
+        // Drivers of pooled trips stay busy until their last rider is finished
+        if (driverId == null || Boolean.FALSE.equals(event.get("releaseDriver"))) {
+            return;
+        }
+
+        if (driverService.releaseDriver(Long.valueOf(driverId.toString()))) {
+            long sentAt = Long.parseLong(event.get("timestamp").toString());
+            releaseLatency.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - sentAt)));
+        }
+    }
+}
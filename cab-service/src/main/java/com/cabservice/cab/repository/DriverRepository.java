@@ -2,6 +2,7 @@ package com.cabservice.cab.repository;
 
 import com.cabservice.cab.entity.Driver;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -82,4 +83,14 @@ public interface DriverRepository extends JpaRepository<Driver, Long> {
             @Param("longitude") Double longitude,
             @Param("vehicleType") String vehicleType
     );
+
+    /**
+     * Conditionally move a driver between statuses (e.g. BUSY -> AVAILABLE).
+     * Returns 0 if the driver was not in the expected status, which makes redelivered events harmless.
+     */
+    @Modifying
+    @Query("UPDATE Driver d SET d.status = :to WHERE d.id = :id AND d.status = :from")
+    int updateStatusIf(@Param("id") Long id,
+                       @Param("from") Driver.DriverStatus from,
+                       @Param("to") Driver.DriverStatus to);
 }
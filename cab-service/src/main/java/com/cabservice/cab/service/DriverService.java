@@ -132,6 +132,18 @@ public class DriverService {
         return driverMapper.toDriverDto(driver);
     }
 
+    /**
+     * Release a driver after their ride completed or was cancelled (idempotent)
+     */
+    public boolean releaseDriver(Long id) {
+        boolean released = driverRepository.updateStatusIf(
+                id, Driver.DriverStatus.BUSY, Driver.DriverStatus.AVAILABLE) > 0;
+        if (released) {
+            logger.info("Driver {} released and AVAILABLE", id);
+        }
+        return released;
+    }
+
     /**
      * Update driver location
      */
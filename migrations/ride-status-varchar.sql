@@ -0,0 +1,15 @@
+-- Store ride status as text instead of a MySQL ENUM, so new statuses such as SCHEDULED can be
+-- written. Hibernate's ddl-auto: update never alters an existing column type, so databases
+-- created before scheduled rides need this once:
+--   mysql -u root -p < migrations/ride-status-varchar.sql
+USE cab_ride_db;
+
+ALTER TABLE rides MODIFY status VARCHAR(32) NOT NULL;
+
+-- Only present once archival has run; created LIKE rides, so it has the same ENUM column
+SET @archive = (SELECT COUNT(*) FROM information_schema.TABLES
+                WHERE TABLE_SCHEMA = 'cab_ride_db' AND TABLE_NAME = 'rides_archive');
+SET @sql = IF(@archive > 0, 'ALTER TABLE rides_archive MODIFY status VARCHAR(32) NOT NULL', 'DO 0');
+PREPARE statement FROM @sql;
+EXECUTE statement;
+DEALLOCATE PREPARE statement;
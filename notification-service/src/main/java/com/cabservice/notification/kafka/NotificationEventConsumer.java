@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -55,6 +56,8 @@ public class NotificationEventConsumer {
         try {
             switch (eventType) {
                 case "RIDE_REQUESTED" -> handleRideRequested(event);
+                case "RIDE_SCHEDULED" -> handleRideScheduled(event);
+                case "RIDE_OFFERED" -> handleRideOffered(event);
                 case "RIDE_ACCEPTED" -> handleRideAccepted(event);
                 case "DRIVER_ARRIVED" -> handleDriverArrived(event);
                 case "RIDE_STARTED" -> handleRideStarted(event);
@@ -93,6 +96,30 @@ public class NotificationEventConsumer {
                 "Looking for nearby drivers...", Map.of("type", "RIDE_REQUESTED", "rideId", rideId));
     }
 
+    private void handleRideScheduled(Map<String, Object> event) {
+        Long customerId = Long.valueOf(event.get("customerId").toString());
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+
+        // Send push notification to customer
+        pushNotificationService.sendPushNotification(customerId, "Ride Scheduled",
+                "We'll start looking for a driver shortly before your pickup time",
+                Map.of("type", "RIDE_SCHEDULED", "rideId", rideId));
+    }
+
+    private void handleRideOffered(Map<String, Object> event) {
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        Object driverIds = event.get("driverIds");
+        if (!(driverIds instanceof List<?> drivers)) {
+            return;
+        }
+
+        // Send push notification to every driver in this offer wave
+        for (Object driverId : drivers) {
+            pushNotificationService.sendPushNotification(Long.valueOf(driverId.toString()), "New Ride Request",
+                    "A rider nearby is looking for a driver", Map.of("type", "RIDE_OFFERED", "rideId", rideId));
+        }
+    }
+
     private void handleRideAccepted(Map<String, Object> event) {
         Long customerId = Long.valueOf(event.get("customerId").toString());
         pushNotificationService.sendDriverAssignedNotification(customerId, "Driver", "5 mins");
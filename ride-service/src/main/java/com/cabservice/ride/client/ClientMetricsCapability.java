@@ -0,0 +1,65 @@
+package com.cabservice.ride.client;
+
+import feign.Capability;
+import feign.Client;
+import feign.RequestTemplate;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign capability that times every call made through the Billing, Cab and Routing service clients.
+ * <p>
+ * Records {@code ride.client.requests} tagged by client, client method and outcome
+ * ({@code success}, {@code client_error}, {@code server_error}, or {@code io_error} when no
+ * response arrived). Spring Cloud OpenFeign applies every {@link Capability} bean to all clients.
+ */
+@Component
+public class ClientMetricsCapability implements Capability {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ClientMetricsCapability(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            long started = System.nanoTime();
+            String outcome = "io_error";
+            try {
+                Response response = client.execute(request, options);
+                outcome = outcomeOf(response.status());
+                return response;
+            } finally {
+                timer(request.requestTemplate(), outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private Timer timer(RequestTemplate template, String outcome) {
+        String clientName = template != null && template.feignTarget() != null
+                ? template.feignTarget().name() : "unknown";
+        String method = template != null && template.methodMetadata() != null
+                ? template.methodMetadata().method().getName() : "unknown";
+        return timers.computeIfAbsent(clientName + "|" + method + "|" + outcome, key -> Timer.builder("ride.client.requests")
+                .description("Latency of calls to other services")
+                .tags("client", clientName, "method", method, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String outcomeOf(int status) {
+        if (status >= 500) {
+            return "server_error";
+        }
+        return status >= 400 ? "client_error" : "success";
+    }
+}
@@ -16,4 +16,10 @@ public interface RoutingServiceClient {
 
     @PostMapping("/estimate-duration")
     Map<String, Object> estimateDuration(@RequestBody Map<String, Object> request);
+
+    @PostMapping("/map-match")
+    Map<String, Object> matchTrack(@RequestBody Map<String, Object> track);
+
+    @PostMapping("/speed-samples")
+    void recordSpeedSamples(@RequestBody Map<String, Object> samples);
 }
@@ -0,0 +1,65 @@
+package com.cabservice.ride.controller;
+
+import com.cabservice.ride.dto.ReplayJobDto;
+import com.cabservice.ride.dto.ReplayRequest;
+import com.cabservice.ride.replay.RideReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Replay Controller - Admin endpoints for replaying ride events into projections
+ */
+@RestController
+@RequestMapping("/api/rides/replay")
+@Tag(name = "Ride Event Replay", description = "Rebuild ride event consumers from history (admin)")
+public class ReplayController {
+
+    private final RideReplayService rideReplayService;
+
+    public ReplayController(RideReplayService rideReplayService) {
+        this.rideReplayService = rideReplayService;
+    }
+
+    @GetMapping("/projections")
+    @Operation(summary = "List available projections")
+    public ResponseEntity<List<String>> getProjections() {
+        return ResponseEntity.ok(rideReplayService.getProjections());
+    }
+
+    @PostMapping("/jobs")
+    @Operation(summary = "Start a replay job")
+    public ResponseEntity<ReplayJobDto> startReplay(@Valid @RequestBody ReplayRequest request) {
+        ReplayJobDto job = rideReplayService.startReplay(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/jobs")
+    @Operation(summary = "List recent replay jobs")
+    public ResponseEntity<List<ReplayJobDto>> getRecentJobs() {
+        return ResponseEntity.ok(rideReplayService.getRecentJobs());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get replay job progress")
+    public ResponseEntity<ReplayJobDto> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(rideReplayService.getJob(jobId));
+    }
+
+    @PostMapping("/jobs/{jobId}/cancel")
+    @Operation(summary = "Stop a replay job; it can be resumed later")
+    public ResponseEntity<ReplayJobDto> cancelReplay(@PathVariable String jobId) {
+        return ResponseEntity.ok(rideReplayService.cancelReplay(jobId));
+    }
+
+    @PostMapping("/jobs/{jobId}/resume")
+    @Operation(summary = "Resume a replay job from its checkpoints")
+    public ResponseEntity<ReplayJobDto> resumeReplay(@PathVariable String jobId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(rideReplayService.resumeReplay(jobId));
+    }
+}
@@ -2,14 +2,25 @@ package com.cabservice.ride.controller;
 
 import com.cabservice.ride.dto.*;
 import com.cabservice.ride.entity.RideLocation;
+import com.cabservice.ride.service.ActiveRideFeed;
+import com.cabservice.ride.service.DriverOfferEngine;
+import com.cabservice.ride.service.IdempotencyService;
 import com.cabservice.ride.service.RideService;
+import com.cabservice.ride.service.RideView;
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -23,25 +34,48 @@ import java.util.Map;
 public class RideController {
 
     private final RideService rideService;
+    private final IdempotencyService idempotencyService;
+    private final ActiveRideFeed activeRideFeed;
+    private final DriverOfferEngine driverOfferEngine;
 
-    public RideController(RideService rideService) {
+    public RideController(RideService rideService, IdempotencyService idempotencyService,
+                          ActiveRideFeed activeRideFeed, DriverOfferEngine driverOfferEngine) {
         this.rideService = rideService;
+        this.idempotencyService = idempotencyService;
+        this.activeRideFeed = activeRideFeed;
+        this.driverOfferEngine = driverOfferEngine;
     }
 
     @PostMapping("/book")
-    @Operation(summary = "Book a new ride")
+    @Operation(summary = "Book a new ride", description = "Set scheduledPickupAt to book for later")
     public ResponseEntity<RideDto> bookRide(
             @RequestHeader("X-User-Id") Long customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody RideBookingRequest request) {
-        RideDto ride = rideService.bookRide(customerId, request);
+        RideDto ride = idempotencyService.execute("book-ride", customerId, idempotencyKey, request,
+                new TypeReference<RideDto>() {}, () -> {
+                    RideDto booked = rideService.bookRide(customerId, request);
+                    driverOfferEngine.startSearch(booked);
+                    return booked;
+                });
         return ResponseEntity.status(HttpStatus.CREATED).body(ride);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get ride details")
-    public ResponseEntity<RideDto> getRideById(@PathVariable Long id) {
-        RideDto ride = rideService.getRideById(id);
-        return ResponseEntity.ok(ride);
+    @Operation(summary = "Get ride details", description = "Supports If-None-Match; unchanged rides return 304",
+            responses = @ApiResponse(responseCode = "200",
+                    content = @Content(schema = @Schema(implementation = RideDto.class))))
+    public ResponseEntity<byte[]> getRideById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        RideView view = rideService.getRideView(id);
+        if (view.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(view.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(view.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(view.body());
     }
 
     @PatchMapping("/{id}/accept")
@@ -114,6 +148,15 @@ public class RideController {
         return ResponseEntity.ok(Map.of("message", "Location updated"));
     }
 
+    @PostMapping("/{id}/locations")
+    @Operation(summary = "Update ride location with multiple points during trip")
+    public ResponseEntity<Map<String, Object>> updateLocations(
+            @PathVariable Long id,
+            @Valid @RequestBody RideLocationBatchRequest request) {
+        rideService.updateRideLocations(id, request);
+        return ResponseEntity.ok(Map.of("message", "Locations updated", "accepted", request.getPoints().size()));
+    }
+
     @GetMapping("/{id}/track")
     @Operation(summary = "Get ride tracking data")
     public ResponseEntity<List<RideLocation>> getRideTrack(@PathVariable Long id) {
@@ -141,10 +184,30 @@ public class RideController {
         return ResponseEntity.ok(rides);
     }
 
-    @GetMapping("/active")
-    @Operation(summary = "Get all active rides (admin)")
-    public ResponseEntity<List<RideDto>> getActiveRides() {
-        List<RideDto> rides = rideService.getActiveRides();
-        return ResponseEntity.ok(rides);
+    @GetMapping("/customer/{customerId}/history")
+    @Operation(summary = "Get customer ride history (cursor-based)")
+    public ResponseEntity<RideHistoryPage> getCustomerRideHistory(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(rideService.getCustomerRideHistory(customerId, cursor, size));
+    }
+
+    @GetMapping("/driver/{driverId}/history")
+    @Operation(summary = "Get driver ride history (cursor-based)")
+    public ResponseEntity<RideHistoryPage> getDriverRideHistory(
+            @PathVariable Long driverId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(rideService.getDriverRideHistory(driverId, cursor, size));
+    }
+
+    @GetMapping(value = "/active", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream active rides (admin)",
+            description = "Server-sent events: 'snapshot' pages of active rides, 'snapshot-complete', "
+                    + "then a 'ride' event per state change. Keep the highest version per ride id; "
+                    + "on 'resync' reconnect for a fresh snapshot.")
+    public SseEmitter streamActiveRides() {
+        return activeRideFeed.subscribe();
     }
 }
@@ -0,0 +1,29 @@
+package com.cabservice.ride.dto;
+
+import com.cabservice.ride.entity.Ride.RideStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Active Ride DTO - One ride on the ops-dashboard feed, from the snapshot or a live change.
+ * Clients keep the entry with the highest version per ride id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ActiveRideDto {
+
+    private Long id;
+    private Long customerId;
+    private Long driverId;
+    private String vehicleType;
+    private RideStatus status;
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropoffLatitude;
+    private Double dropoffLongitude;
+    private LocalDateTime requestedAt;
+    private Long version;
+}
@@ -0,0 +1,45 @@
+package com.cabservice.ride.dto;
+
+import com.cabservice.ride.entity.ReplayJob;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Replay Job DTO - Status and per-partition progress of a replay job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayJobDto {
+
+    private String id;
+    private ReplayJob.Source source;
+    private String projection;
+    private String target;
+    private ReplayJob.ReplayStatus status;
+    private Integer eventsPerSecond;
+    private Integer batchSize;
+    private Long processedEvents;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private List<Partition> partitions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Partition {
+
+        private Integer partitionNo;
+        private String streamName;
+        private Integer streamPartition;
+        private Long position;
+        private Long endPosition;
+        private Long processedEvents;
+        private Boolean completed;
+    }
+}
@@ -0,0 +1,47 @@
+package com.cabservice.ride.dto;
+
+import com.cabservice.ride.entity.ReplayJob;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+/**
+ * Replay Request DTO - Starts a replay of historical ride events through a projection
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayRequest {
+
+    @NotNull(message = "Source is required")
+    private ReplayJob.Source source;
+
+    @NotBlank(message = "Projection is required")
+    private String projection;
+
+    // Projection-specific destination; the projection's default is used when absent
+    private String target;
+
+    // DATABASE source: id ranges read in parallel per table, and optional ride id bounds
+    @Min(value = 1, message = "At least one partition is required")
+    @Max(value = 32, message = "At most 32 partitions per table")
+    private Integer partitions;
+
+    private Long fromRideId;
+    private Long toRideId;
+
+    // KAFKA source: topic and offset range applied to every partition of it
+    private String topic;
+    private Long fromOffset;
+    private Long toOffset;
+
+    @Min(value = 1, message = "Rate must be positive")
+    private Integer eventsPerSecond;
+
+    @Min(value = 1, message = "Batch size must be positive")
+    @Max(value = 5000, message = "Batch size must be at most 5000")
+    private Integer batchSize;
+}
@@ -1,8 +1,13 @@
 package com.cabservice.ride.dto;
 
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 /**
  * Ride Booking Request DTO
  */
@@ -30,4 +35,15 @@ public class RideBookingRequest {
 
     @NotNull(message = "Vehicle type is required")
     private String vehicleType;
+
+    // Share the vehicle with other riders heading the same way
+    private Boolean pooled;
+
+    @Min(value = 1, message = "At least one seat is required")
+    @Max(value = 2, message = "At most two seats can be booked on a shared ride")
+    private Integer seats;
+
+    // Book for later; leave empty to ride now
+    @Future(message = "Scheduled pickup time must be in the future")
+    private LocalDateTime scheduledPickupAt;
 }
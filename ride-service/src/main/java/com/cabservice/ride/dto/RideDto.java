@@ -1,6 +1,7 @@
 package com.cabservice.ride.dto;
 
 import com.cabservice.ride.entity.Ride.RideStatus;
+import com.cabservice.ride.entity.Ride.SettlementStatus;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -30,8 +31,11 @@ public class RideDto {
     private String dropoffAddress;
 
     private RideStatus status;
+    private Long pooledTripId;
+    private Integer seats;
 
     private LocalDateTime requestedAt;
+    private LocalDateTime scheduledPickupAt;
     private LocalDateTime acceptedAt;
     private LocalDateTime driverArrivedAt;
     private LocalDateTime startedAt;
@@ -43,6 +47,8 @@ public class RideDto {
     private BigDecimal actualFare;
     private BigDecimal distanceKm;
     private Integer durationMinutes;
+    private Integer movingMinutes;
+    private SettlementStatus settlementStatus;
 
     private BigDecimal customerRating;
     private BigDecimal driverRating;
@@ -0,0 +1,20 @@
+package com.cabservice.ride.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Ride History Page DTO - One keyset page of ride history.
+ * Pass {@code nextCursor} back as {@code cursor} to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideHistoryPage {
+
+    private List<RideSummaryDto> rides;
+    private String nextCursor;
+    private boolean hasMore;
+}
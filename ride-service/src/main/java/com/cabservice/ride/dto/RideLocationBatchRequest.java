@@ -0,0 +1,42 @@
+package com.cabservice.ride.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ride Location Batch Request DTO - Multiple in-trip location points in one call
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideLocationBatchRequest {
+
+    @NotEmpty(message = "At least one location point is required")
+    @Size(max = 500, message = "At most 500 location points per request")
+    private List<@Valid Point> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Point {
+
+        @NotNull(message = "Latitude is required")
+        private Double latitude;
+
+        @NotNull(message = "Longitude is required")
+        private Double longitude;
+
+        private Double speed;
+
+        // Device time of the fix; defaults to the time the point is received
+        private LocalDateTime timestamp;
+    }
+}
@@ -0,0 +1,30 @@
+package com.cabservice.ride.dto;
+
+import com.cabservice.ride.entity.Ride.RideStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ride Summary DTO - Slim projection used by ride history listings
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideSummaryDto {
+
+    private Long id;
+    private Long customerId;
+    private Long driverId;
+    private String vehicleType;
+    private String pickupAddress;
+    private String dropoffAddress;
+    private RideStatus status;
+    private LocalDateTime requestedAt;
+    private LocalDateTime completedAt;
+    private BigDecimal estimatedFare;
+    private BigDecimal actualFare;
+    private BigDecimal distanceKm;
+}
@@ -0,0 +1,66 @@
+package com.cabservice.ride.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * PooledTrip Entity - One vehicle's shared trip, linking the pooled rides of several customers.
+ * The rides point at the trip; the trip holds the planned order of their remaining stops.
+ */
+@Entity
+@Table(name = "pooled_trips", indexes = {
+    @Index(name = "idx_pooled_trip_status", columnList = "status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PooledTrip {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "vehicle_type", nullable = false)
+    private String vehicleType;
+
+    @Column(name = "driver_id")
+    private Long driverId;
+
+    // Seats the trip may fill at any one time
+    @Column(nullable = false)
+    private Integer capacity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PoolStatus status;
+
+    // Remaining pickups and dropoffs in visiting order, as JSON
+    @Lob
+    @Column(name = "stop_plan", nullable = false, columnDefinition = "TEXT")
+    private String stopPlan;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Optimistic locking; plan changes are conditional updates on this column
+    @Version
+    @Column(nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
+    public enum PoolStatus {
+        OPEN,
+        CLOSED
+    }
+}
@@ -0,0 +1,61 @@
+package com.cabservice.ride.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReplayCheckpoint Entity - Progress of one partition of a replay job.
+ * <p>
+ * For database partitions the positions are ride ids (exclusive start, inclusive end) within one
+ * table; for Kafka partitions they are offsets (next offset to read, exclusive end).
+ */
+@Entity
+@Table(name = "replay_checkpoints", indexes = {
+    @Index(name = "idx_replay_checkpoint_job", columnList = "job_id, partition_no")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayCheckpoint {
+
+    // Job id and partition number, e.g. "3f1c...:2"
+    @Id
+    @Column(length = 48)
+    private String id;
+
+    @Column(name = "job_id", nullable = false, length = 36)
+    private String jobId;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    // Table name or topic of this partition
+    @Column(name = "stream_name", nullable = false)
+    private String streamName;
+
+    // Kafka partition; null for database partitions
+    @Column(name = "stream_partition")
+    private Integer streamPartition;
+
+    @Column(name = "end_position", nullable = false)
+    private Long endPosition;
+
+    @Column(nullable = false)
+    private Long position;
+
+    @Column(name = "processed_events", nullable = false)
+    @Builder.Default
+    private Long processedEvents = 0L;
+
+    @Builder.Default
+    private Boolean completed = false;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
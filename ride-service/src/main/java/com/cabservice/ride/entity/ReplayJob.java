@@ -0,0 +1,71 @@
+package com.cabservice.ride.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * ReplayJob Entity - A run that streams historical ride events through a projection
+ */
+@Entity
+@Table(name = "replay_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplayJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Source source;
+
+    @Column(nullable = false)
+    private String projection;
+
+    // Projection-specific destination, e.g. the topic the replayed events are written to
+    private String target;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReplayStatus status;
+
+    @Column(name = "events_per_second", nullable = false)
+    private Integer eventsPerSecond;
+
+    @Column(name = "batch_size", nullable = false)
+    private Integer batchSize;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public enum Source {
+        DATABASE,
+        KAFKA
+    }
+
+    public enum ReplayStatus {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+}
@@ -12,9 +12,12 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "rides", indexes = {
-    @Index(name = "idx_customer_id", columnList = "customer_id"),
-    @Index(name = "idx_driver_id", columnList = "driver_id"),
-    @Index(name = "idx_status", columnList = "status")
+    @Index(name = "idx_customer_requested", columnList = "customer_id, requested_at, id"),
+    @Index(name = "idx_driver_requested", columnList = "driver_id, requested_at, id"),
+    @Index(name = "idx_status_requested", columnList = "status, requested_at"),
+    @Index(name = "idx_status_id", columnList = "status, id"),
+    @Index(name = "idx_status_dispatch", columnList = "status, dispatch_at, id"),
+    @Index(name = "idx_pooled_trip", columnList = "pooled_trip_id")
 })
 @Getter
 @Setter
@@ -59,9 +62,16 @@ public class Ride {
     @Column(name = "dropoff_address")
     private String dropoffAddress;
 
-    // Ride status
+    // Shared rides: the pooled trip this ride is part of, and the seats it takes
+    @Column(name = "pooled_trip_id")
+    private Long pooledTripId;
+
+    @Column(name = "seats")
+    private Integer seats;
+
+    // Ride status; varchar rather than a MySQL ENUM so adding a status needs no ALTER
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "varchar(32)")
     private RideStatus status;
 
     // Timestamps
@@ -69,6 +79,13 @@ public class Ride {
     @Column(name = "requested_at", updatable = false)
     private LocalDateTime requestedAt;
 
+    // Scheduled rides: requested pickup time, and when the ride enters (or entered) dispatch
+    @Column(name = "scheduled_pickup_at")
+    private LocalDateTime scheduledPickupAt;
+
+    @Column(name = "dispatch_at")
+    private LocalDateTime dispatchAt;
+
     @Column(name = "accepted_at")
     private LocalDateTime acceptedAt;
 
@@ -103,6 +120,14 @@ public class Ride {
     @Column(name = "duration_minutes")
     private Integer durationMinutes;
 
+    @Column(name = "moving_minutes")
+    private Integer movingMinutes;
+
+    // Asynchronous settlement (driver release + invoice) after completion
+    @Enumerated(EnumType.STRING)
+    @Column(name = "settlement_status")
+    private SettlementStatus settlementStatus;
+
     // Rating and feedback
     @Column(name = "customer_rating", precision = 2, scale = 1)
     private BigDecimal customerRating;
@@ -120,7 +145,14 @@ public class Ride {
     @Column(name = "ride_otp")
     private String rideOtp;
 
+    // Optimistic locking
+    @Version
+    @Column(nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
     public enum RideStatus {
+        SCHEDULED,
         REQUESTED,
         SEARCHING_DRIVER,
         ACCEPTED,
@@ -129,4 +161,10 @@ public class Ride {
         COMPLETED,
         CANCELLED
     }
+
+    public enum SettlementStatus {
+        PENDING,
+        SETTLED,
+        FAILED
+    }
 }
@@ -0,0 +1,62 @@
+package com.cabservice.ride.kafka;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.service.RideService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Kafka Consumer for billing events - closes the ride completion saga.
+ * Records the end-to-end settlement latency from ride completion to invoice generation.
+ */
+@Component
+public class BillingEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingEventConsumer.class);
+
+    private final RideService rideService;
+    private final Timer settlementLatency;
+    private final Counter settlementFailures;
+
+    public BillingEventConsumer(RideService rideService, MeterRegistry meterRegistry) {
+        this.rideService = rideService;
+        this.settlementLatency = Timer.builder("ride.settlement.latency")
+                .description("Time from ride completion to invoice generation")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.settlementFailures = Counter.builder("ride.settlement.failures")
+                .description("Completed rides whose invoice could not be generated")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "${kafka.topic.billing-events:billing-events}", groupId = "ride-service-group")
+    public void handleBillingEvents(Map<String, Object> event) {
+        String eventType = (String) event.get("eventType");
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+
+        switch (eventType) {
+            case "INVOICE_GENERATED" -> {
+                if (rideService.updateSettlementStatus(rideId, Ride.SettlementStatus.SETTLED)
+                        && event.get("rideCompletedAt") != null) {
+                    long completedAt = Long.parseLong(event.get("rideCompletedAt").toString());
+                    settlementLatency.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - completedAt)));
+                }
+            }
+            case "INVOICE_FAILED" -> {
+                if (rideService.updateSettlementStatus(rideId, Ride.SettlementStatus.FAILED)) {
+                    settlementFailures.increment();
+                    logger.error("Settlement failed for ride {}: {}", rideId, event.get("reason"));
+                }
+            }
+            default -> logger.debug("Unhandled billing event type: {}", eventType);
+        }
+    }
+}
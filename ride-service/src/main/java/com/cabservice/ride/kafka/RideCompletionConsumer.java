@@ -0,0 +1,36 @@
+package com.cabservice.ride.kafka;
+
+import com.cabservice.ride.service.RideDistanceCorrector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Kafka Consumer for ride completions - corrects the billed distance from the map-matched track.
+ * Uses a group shared by all instances, unlike the read-model consumer, so each completed ride
+ * is matched once, and its own listener so a slow match never delays the live feed.
+ */
+@Component
+public class RideCompletionConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideCompletionConsumer.class);
+
+    private final RideDistanceCorrector rideDistanceCorrector;
+
+    public RideCompletionConsumer(RideDistanceCorrector rideDistanceCorrector) {
+        this.rideDistanceCorrector = rideDistanceCorrector;
+    }
+
+    @KafkaListener(topics = "${kafka.topic.ride-events:ride-events}", groupId = "ride-map-matching-group")
+    public void handleRideEvents(Map<String, Object> event) {
+        if (!"RIDE_COMPLETED".equals(event.get("eventType")) || event.get("rideId") == null) {
+            return;
+        }
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        rideDistanceCorrector.correct(rideId);
+        logger.debug("Distance checked for completed ride {}", rideId);
+    }
+}
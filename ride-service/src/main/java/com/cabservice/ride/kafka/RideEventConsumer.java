@@ -0,0 +1,73 @@
+package com.cabservice.ride.kafka;
+
+import com.cabservice.ride.pool.RidePoolingService;
+import com.cabservice.ride.service.ActiveRideFeed;
+import com.cabservice.ride.service.DriverOfferEngine;
+import com.cabservice.ride.service.RideDeadlineScheduler;
+import com.cabservice.ride.service.RideLocationIngestionService;
+import com.cabservice.ride.service.RideReadModel;
+import com.cabservice.ride.service.ScheduledRideDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Kafka Consumer for ride events - keeps this instance's read model in step with transitions
+ * made on other instances, forwards every change to the active ride feed, stops driver
+ * searches for rides that were accepted or cancelled elsewhere, re-arms ride deadlines,
+ * picks up rides scheduled for the current dispatch window, refreshes the pooled trip index and
+ * drops tracking state of rides that finished elsewhere.
+ * Every instance uses its own consumer group so each one sees every event, and starts from the
+ * latest offset since older events are irrelevant to a fresh cache or a live feed (deadlines
+ * are rebuilt from the database on startup).
+ */
+@Component
+public class RideEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideEventConsumer.class);
+
+    private final RideReadModel rideReadModel;
+    private final ActiveRideFeed activeRideFeed;
+    private final DriverOfferEngine driverOfferEngine;
+    private final RideDeadlineScheduler rideDeadlineScheduler;
+    private final ScheduledRideDispatcher scheduledRideDispatcher;
+    private final RidePoolingService ridePoolingService;
+    private final RideLocationIngestionService rideLocationIngestionService;
+
+    public RideEventConsumer(RideReadModel rideReadModel, ActiveRideFeed activeRideFeed,
+                             DriverOfferEngine driverOfferEngine, RideDeadlineScheduler rideDeadlineScheduler,
+                             ScheduledRideDispatcher scheduledRideDispatcher,
+                             RidePoolingService ridePoolingService,
+                             RideLocationIngestionService rideLocationIngestionService) {
+        this.rideReadModel = rideReadModel;
+        this.activeRideFeed = activeRideFeed;
+        this.driverOfferEngine = driverOfferEngine;
+        this.rideDeadlineScheduler = rideDeadlineScheduler;
+        this.scheduledRideDispatcher = scheduledRideDispatcher;
+        this.ridePoolingService = ridePoolingService;
+        this.rideLocationIngestionService = rideLocationIngestionService;
+    }
+
+    @KafkaListener(topics = "${kafka.topic.ride-events:ride-events}",
+                   groupId = "ride-read-model-${random.uuid}",
+                   properties = "auto.offset.reset=latest")
+    public void handleRideEvents(Map<String, Object> event) {
+        activeRideFeed.publish(event);
+        driverOfferEngine.onRideEvent(event);
+        rideDeadlineScheduler.onRideEvent(event);
+        scheduledRideDispatcher.onRideEvent(event);
+        ridePoolingService.onRideEvent(event);
+        rideLocationIngestionService.onRideEvent(event);
+
+        Object version = event.get("version");
+        if (event.get("rideId") == null || version == null) {
+            return;
+        }
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        rideReadModel.evictOlderThan(rideId, Long.parseLong(version.toString()));
+        logger.debug("Read model checked for ride {} at version {}", rideId, version);
+    }
+}
@@ -6,8 +6,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,6 +37,10 @@ public class RideEventProducer {
         sendEvent("RIDE_REQUESTED", ride);
     }
 
+    public void sendRideScheduledEvent(Ride ride) {
+        sendEvent("RIDE_SCHEDULED", ride);
+    }
+
     public void sendRideAcceptedEvent(Ride ride) {
         sendEvent("RIDE_ACCEPTED", ride);
     }
@@ -43,31 +53,139 @@ public class RideEventProducer {
         sendEvent("RIDE_STARTED", ride);
     }
 
-    public void sendRideCompletedEvent(Ride ride) {
-        sendEvent("RIDE_COMPLETED", ride);
+    /**
+     * @param releaseDriver false while the driver still carries other riders of a pooled trip
+     */
+    public void sendRideCompletedEvent(Ride ride, boolean releaseDriver) {
+        sendEvent("RIDE_COMPLETED", ride, releaseDriver);
     }
 
-    public void sendRideCancelledEvent(Ride ride) {
-        sendEvent("RIDE_CANCELLED", ride);
+    public void sendRideCancelledEvent(Ride ride, boolean releaseDriver) {
+        sendEvent("RIDE_CANCELLED", ride, releaseDriver);
     }
 
-    private void sendEvent(String eventType, Ride ride) {
+    /**
+     * A completed ride re-billed on its map-matched distance; carries the distance it replaced
+     */
+    public void sendRideDistanceCorrectedEvent(Ride ride, BigDecimal previousDistanceKm) {
+        Map<String, Object> event = toEvent("RIDE_DISTANCE_CORRECTED", ride);
+        event.put("previousDistanceKm", previousDistanceKm);
+        sendAfterCommit("RIDE_DISTANCE_CORRECTED", ride.getId(), event);
+    }
+
+    /**
+     * Offer a searching ride to a wave of nearby drivers. Offers are advisory: the first driver to
+     * accept wins the conditional update on the ride and the rest are rejected.
+     */
+    public void sendRideOfferedEvent(Long rideId, Long customerId, List<Long> driverIds,
+                                     int wave, double radiusKm, long expiresAt) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", "RIDE_OFFERED");
+        event.put("rideId", rideId);
+        event.put("customerId", customerId);
+        event.put("driverIds", driverIds);
+        event.put("wave", wave);
+        event.put("radiusKm", radiusKm);
+        event.put("expiresAt", expiresAt);
+        event.put("timestamp", System.currentTimeMillis());
+        publish("RIDE_OFFERED", rideId, event);
+    }
+
+    /**
+     * Event type that announces a ride reaching the given status
+     */
+    public static String eventTypeFor(Ride.RideStatus status) {
+        return switch (status) {
+            case SCHEDULED -> "RIDE_SCHEDULED";
+            case REQUESTED, SEARCHING_DRIVER -> "RIDE_REQUESTED";
+            case ACCEPTED -> "RIDE_ACCEPTED";
+            case DRIVER_ARRIVED -> "DRIVER_ARRIVED";
+            case IN_PROGRESS -> "RIDE_STARTED";
+            case COMPLETED -> "RIDE_COMPLETED";
+            case CANCELLED -> "RIDE_CANCELLED";
+        };
+    }
+
+    /**
+     * Build the payload published for a ride event
+     */
+    public Map<String, Object> toEvent(String eventType, Ride ride) {
         Map<String, Object> event = new HashMap<>();
         event.put("eventType", eventType);
         event.put("rideId", ride.getId());
         event.put("customerId", ride.getCustomerId());
         event.put("driverId", ride.getDriverId());
         event.put("status", ride.getStatus().name());
+        event.put("version", ride.getVersion());
+        event.put("vehicleType", ride.getVehicleType());
+        if (ride.getPooledTripId() != null) {
+            event.put("pooledTripId", ride.getPooledTripId());
+        }
         event.put("pickupLatitude", ride.getPickupLatitude());
         event.put("pickupLongitude", ride.getPickupLongitude());
         event.put("dropoffLatitude", ride.getDropoffLatitude());
         event.put("dropoffLongitude", ride.getDropoffLongitude());
         event.put("estimatedFare", ride.getEstimatedFare());
+        event.put("actualFare", ride.getActualFare());
+        event.put("distanceKm", ride.getDistanceKm());
+        event.put("durationMinutes", ride.getDurationMinutes());
+        if (ride.getRequestedAt() != null) {
+            event.put("requestedAt", epochMillis(ride.getRequestedAt()));
+        }
+        if (ride.getScheduledPickupAt() != null) {
+            event.put("scheduledPickupAt", epochMillis(ride.getScheduledPickupAt()));
+        }
+        if (ride.getDispatchAt() != null) {
+            event.put("dispatchAt", epochMillis(ride.getDispatchAt()));
+        }
+        if (ride.getAcceptedAt() != null) {
+            event.put("acceptedAt", epochMillis(ride.getAcceptedAt()));
+        }
+        if (ride.getCompletedAt() != null) {
+            event.put("completedAt", epochMillis(ride.getCompletedAt()));
+        }
         event.put("timestamp", System.currentTimeMillis());
+        return event;
+    }
+
+    /**
+     * Ride timestamps are local wall-clock times; events carry them as real instants, comparable
+     * with System.currentTimeMillis() and with the event's own timestamp
+     */
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void sendEvent(String eventType, Ride ride) {
+        sendEvent(eventType, ride, true);
+    }
+
+    private void sendEvent(String eventType, Ride ride, boolean releaseDriver) {
+        Map<String, Object> event = toEvent(eventType, ride);
+        if (!releaseDriver) {
+            event.put("releaseDriver", false);
+        }
+        sendAfterCommit(eventType, ride.getId(), event);
+    }
+
+    private void sendAfterCommit(String eventType, Long rideId, Map<String, Object> event) {
+        // Consumers act on these events, so never publish a state change that may still roll back
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(eventType, rideId, event);
+                }
+            });
+        } else {
+            publish(eventType, rideId, event);
+        }
+    }
 
+    private void publish(String eventType, Long rideId, Map<String, Object> event) {
         try {
-            kafkaTemplate.send(rideEventsTopic, ride.getId().toString(), event);
-            logger.info("Ride event sent: {} for ride: {}", eventType, ride.getId());
+            kafkaTemplate.send(rideEventsTopic, rideId.toString(), event);
+            logger.info("Ride event sent: {} for ride: {}", eventType, rideId);
         } catch (Exception e) {
             logger.error("Failed to send ride event: {}", e.getMessage());
         }
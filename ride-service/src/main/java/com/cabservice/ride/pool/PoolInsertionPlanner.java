@@ -0,0 +1,151 @@
+package com.cabservice.ride.pool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Pool Insertion Planner - Finds the cheapest place to insert a new rider into a trip's stop plan.
+ * <p>
+ * Every pickup position i and dropoff position j >= i is tried (O(n^2) candidates over a plan of
+ * at most a few stops), and a candidate is kept only if
+ * <ul>
+ *   <li>the seats in use never exceed the trip capacity,</li>
+ *   <li>every rider with both stops in the plan travels at most {@code maxDetourRatio} times their
+ *       direct distance,</li>
+ *   <li>every rider already on board reaches their dropoff within {@code maxDetourRatio} of the
+ *       distance the current plan gives them, and</li>
+ *   <li>the trip gets at most {@code maxAddedKm} longer.</li>
+ * </ul>
+ * Distances are great-circle distances; the plan is measured from its first remaining stop.
+ */
+public class PoolInsertionPlanner {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final double maxDetourRatio;
+    private final double maxAddedKm;
+
+    public PoolInsertionPlanner(double maxDetourRatio, double maxAddedKm) {
+        this.maxDetourRatio = maxDetourRatio;
+        this.maxAddedKm = maxAddedKm;
+    }
+
+    /**
+     * A feasible insertion: the new plan and how much longer it makes the trip
+     */
+    public record Insertion(List<PoolStop> plan, double addedKm) {
+    }
+
+    public Optional<Insertion> bestInsertion(List<PoolStop> plan, PoolStop pickup, PoolStop dropoff, int capacity) {
+        double currentKm = length(plan);
+        Map<Long, Double> onboardKm = onboardDistances(plan);
+        int onboardSeats = 0;
+        for (PoolStop stop : plan) {
+            if (!stop.isPickup() && onboardKm.containsKey(stop.rideId())) {
+                onboardSeats += stop.seats();
+            }
+        }
+        if (pickup.seats() > capacity) {
+            return Optional.empty();
+        }
+
+        Insertion best = null;
+        int n = plan.size();
+        for (int i = 0; i <= n; i++) {
+            for (int j = i; j <= n; j++) {
+                List<PoolStop> candidate = new ArrayList<>(n + 2);
+                candidate.addAll(plan.subList(0, i));
+                candidate.add(pickup);
+                candidate.addAll(plan.subList(i, j));
+                candidate.add(dropoff);
+                candidate.addAll(plan.subList(j, n));
+
+                double addedKm = length(candidate) - currentKm;
+                if (addedKm > maxAddedKm || (best != null && addedKm >= best.addedKm())) {
+                    continue;
+                }
+                if (feasible(candidate, capacity, onboardSeats, onboardKm)) {
+                    best = new Insertion(candidate, addedKm);
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private boolean feasible(List<PoolStop> plan, int capacity, int onboardSeats, Map<Long, Double> onboardKm) {
+        int seats = onboardSeats;
+        double travelled = 0;
+        Map<Long, Double> pickedUpAt = new HashMap<>();
+        for (int k = 0; k < plan.size(); k++) {
+            PoolStop stop = plan.get(k);
+            if (k > 0) {
+                travelled += leg(plan.get(k - 1), stop);
+            }
+            if (stop.isPickup()) {
+                seats += stop.seats();
+                if (seats > capacity) {
+                    return false;
+                }
+                pickedUpAt.put(stop.rideId(), travelled);
+            } else {
+                seats -= stop.seats();
+                Double pickupKm = pickedUpAt.get(stop.rideId());
+                if (pickupKm != null) {
+                    if (travelled - pickupKm > stop.directKm() * maxDetourRatio) {
+                        return false;
+                    }
+                } else if (travelled > onboardKm.get(stop.rideId()) * maxDetourRatio) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distance from the start of the plan to each on-board rider's dropoff
+     */
+    private static Map<Long, Double> onboardDistances(List<PoolStop> plan) {
+        Set<Long> waiting = new HashSet<>();
+        Map<Long, Double> distances = new HashMap<>();
+        double travelled = 0;
+        for (int k = 0; k < plan.size(); k++) {
+            PoolStop stop = plan.get(k);
+            if (k > 0) {
+                travelled += leg(plan.get(k - 1), stop);
+            }
+            if (stop.isPickup()) {
+                waiting.add(stop.rideId());
+            } else if (!waiting.contains(stop.rideId())) {
+                distances.put(stop.rideId(), travelled);
+            }
+        }
+        return distances;
+    }
+
+    private static double length(List<PoolStop> plan) {
+        double total = 0;
+        for (int k = 1; k < plan.size(); k++) {
+            total += leg(plan.get(k - 1), plan.get(k));
+        }
+        return total;
+    }
+
+    private static double leg(PoolStop from, PoolStop to) {
+        return distanceKm(from.latitude(), from.longitude(), to.latitude(), to.longitude());
+    }
+}
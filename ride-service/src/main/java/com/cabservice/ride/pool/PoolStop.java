@@ -0,0 +1,17 @@
+package com.cabservice.ride.pool;
+
+/**
+ * One stop in a pooled trip's plan: a rider's pickup or dropoff. {@code directKm} is the rider's
+ * straight pickup-to-dropoff distance, the baseline their detour is measured against.
+ */
+public record PoolStop(Long rideId, Type type, double latitude, double longitude, int seats, double directKm) {
+
+    public enum Type {
+        PICKUP,
+        DROPOFF
+    }
+
+    public boolean isPickup() {
+        return type == Type.PICKUP;
+    }
+}
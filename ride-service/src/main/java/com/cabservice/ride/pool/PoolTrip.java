@@ -0,0 +1,9 @@
+package com.cabservice.ride.pool;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of an open pooled trip as seen by the matcher
+ */
+public record PoolTrip(Long id, long version, String vehicleType, int capacity, Long driverId, List<PoolStop> stops) {
+}
@@ -0,0 +1,140 @@
+package com.cabservice.ride.pool;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool Trip Index - Uniform grid over the remaining routes of open pooled trips.
+ * <p>
+ * A trip is registered in every cell its remaining stops and the straight legs between them pass
+ * through, so a lookup around a new pickup only touches a handful of cells and the trips that
+ * actually run nearby. Reads are lock-free; writes replace a trip's snapshot and cells together.
+ */
+public class PoolTripIndex {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final double cellDegrees;
+    private final Map<Long, PoolTrip> trips = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> tripCells = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public PoolTripIndex(double cellKm) {
+        this.cellDegrees = cellKm / KM_PER_DEGREE;
+    }
+
+    public synchronized void put(PoolTrip trip) {
+        PoolTrip current = trips.get(trip.id());
+        if (current != null && current.version() > trip.version()) {
+            return;
+        }
+        removeCells(trip.id());
+        Set<Long> covered = coveredCells(trip.stops());
+        for (Long cell : covered) {
+            cells.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(trip.id());
+        }
+        tripCells.put(trip.id(), covered);
+        trips.put(trip.id(), trip);
+    }
+
+    public synchronized void remove(Long tripId) {
+        removeCells(tripId);
+        trips.remove(tripId);
+    }
+
+    public PoolTrip get(Long tripId) {
+        return trips.get(tripId);
+    }
+
+    public int size() {
+        return trips.size();
+    }
+
+    /**
+     * Trips whose remaining route passes within roughly {@code radiusKm} of the point
+     */
+    public List<PoolTrip> near(double latitude, double longitude, double radiusKm, int limit) {
+        int latCells = (int) Math.ceil(radiusKm / KM_PER_DEGREE / cellDegrees);
+        double lonDegreesPerKm = 1 / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        int lonCells = (int) Math.ceil(radiusKm * lonDegreesPerKm / cellDegrees);
+        long row = row(latitude);
+        long column = column(longitude);
+
+        Set<Long> found = new LinkedHashSet<>();
+        for (long r = row - latCells; r <= row + latCells; r++) {
+            for (long c = column - lonCells; c <= column + lonCells; c++) {
+                Set<Long> tripIds = cells.get(key(r, c));
+                if (tripIds != null) {
+                    found.addAll(tripIds);
+                }
+            }
+        }
+
+        List<PoolTrip> result = new ArrayList<>(Math.min(found.size(), limit));
+        for (Long tripId : found) {
+            PoolTrip trip = trips.get(tripId);
+            if (trip != null) {
+                result.add(trip);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeCells(Long tripId) {
+        Set<Long> covered = tripCells.remove(tripId);
+        if (covered == null) {
+            return;
+        }
+        for (Long cell : covered) {
+            Set<Long> tripIds = cells.get(cell);
+            if (tripIds != null) {
+                tripIds.remove(tripId);
+                if (tripIds.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        }
+    }
+
+    private Set<Long> coveredCells(List<PoolStop> stops) {
+        Set<Long> covered = new HashSet<>();
+        for (int k = 0; k < stops.size(); k++) {
+            PoolStop stop = stops.get(k);
+            covered.add(key(row(stop.latitude()), column(stop.longitude())));
+            if (k == 0) {
+                continue;
+            }
+            // Sample the straight leg from the previous stop at half-cell steps
+            PoolStop previous = stops.get(k - 1);
+            double latSpan = stop.latitude() - previous.latitude();
+            double lonSpan = stop.longitude() - previous.longitude();
+            int steps = (int) Math.ceil(Math.max(Math.abs(latSpan), Math.abs(lonSpan)) / (cellDegrees / 2));
+            for (int s = 1; s < steps; s++) {
+                double fraction = (double) s / steps;
+                covered.add(key(row(previous.latitude() + latSpan * fraction),
+                        column(previous.longitude() + lonSpan * fraction)));
+            }
+        }
+        return covered;
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,267 @@
+package com.cabservice.ride.pool;
+
+import com.cabservice.ride.entity.PooledTrip;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.PooledTripRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Ride Pooling Service - Groups pooled ride requests heading the same way onto one vehicle.
+ * <p>
+ * Open pooled trips are kept in an in-memory grid index. A new pooled request looks up the trips
+ * whose remaining route passes near its pickup, evaluates the cheapest feasible insertion of its
+ * pickup and dropoff into each trip's stop plan under capacity and detour limits, and joins the
+ * best one; if none fits it starts a new trip. Matching is pure in-memory work over a handful of
+ * candidates. The trip row is the source of truth: every plan change is a conditional update on
+ * its version, so concurrent bookings on any instance cannot both take the last seat. Other
+ * instances refresh their index from the ride events of pooled rides.
+ */
+@Service
+public class RidePoolingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RidePoolingService.class);
+    private static final TypeReference<List<PoolStop>> PLAN_TYPE = new TypeReference<>() {};
+    private static final int MAX_PLAN_ATTEMPTS = 3;
+
+    private final PooledTripRepository pooledTripRepository;
+    private final ObjectMapper objectMapper;
+    private final PoolTripIndex index;
+    private final PoolInsertionPlanner planner;
+    private final Timer matchTimer;
+
+    @Value("${ride.pool.capacity:3}")
+    private int capacity;
+
+    @Value("${ride.pool.search-radius-km:2.0}")
+    private double searchRadiusKm;
+
+    @Value("${ride.pool.max-candidates:20}")
+    private int maxCandidates;
+
+    public RidePoolingService(PooledTripRepository pooledTripRepository,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${ride.pool.cell-km:1.0}") double cellKm,
+                              @Value("${ride.pool.max-detour-ratio:1.5}") double maxDetourRatio,
+                              @Value("${ride.pool.max-added-km:5.0}") double maxAddedKm) {
+        this.pooledTripRepository = pooledTripRepository;
+        this.objectMapper = objectMapper;
+        this.index = new PoolTripIndex(cellKm);
+        this.planner = new PoolInsertionPlanner(maxDetourRatio, maxAddedKm);
+        this.matchTimer = Timer.builder("ride.pool.match")
+                .description("Time to find the best pooled trip for a request")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("ride.pool.open-trips", index, PoolTripIndex::size);
+    }
+
+    /**
+     * Assignment of a pooled ride to a trip, and the trip's driver if it already has one
+     */
+    public record PoolAssignment(Long tripId, Long driverId) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenTrips() {
+        try {
+            List<PooledTrip> trips = pooledTripRepository.findByStatus(PooledTrip.PoolStatus.OPEN);
+            trips.forEach(trip -> index.put(toPoolTrip(trip)));
+            logger.info("Indexed {} open pooled trips", trips.size());
+        } catch (Exception e) {
+            logger.error("Failed to load open pooled trips: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Put a freshly saved pooled ride on the best matching trip, or on a new trip of its own.
+     * Runs inside the booking transaction.
+     */
+    public PoolAssignment join(Ride ride) {
+        int seats = seatsOf(ride);
+        double directKm = PoolInsertionPlanner.distanceKm(ride.getPickupLatitude(), ride.getPickupLongitude(),
+                ride.getDropoffLatitude(), ride.getDropoffLongitude());
+        PoolStop pickup = new PoolStop(ride.getId(), PoolStop.Type.PICKUP,
+                ride.getPickupLatitude(), ride.getPickupLongitude(), seats, directKm);
+        PoolStop dropoff = new PoolStop(ride.getId(), PoolStop.Type.DROPOFF,
+                ride.getDropoffLatitude(), ride.getDropoffLongitude(), seats, directKm);
+
+        long started = System.nanoTime();
+        PoolTrip bestTrip = null;
+        PoolInsertionPlanner.Insertion best = null;
+        for (PoolTrip trip : index.near(ride.getPickupLatitude(), ride.getPickupLongitude(), searchRadiusKm, maxCandidates)) {
+            if (!trip.vehicleType().equals(ride.getVehicleType())) {
+                continue;
+            }
+            Optional<PoolInsertionPlanner.Insertion> insertion =
+                    planner.bestInsertion(trip.stops(), pickup, dropoff, trip.capacity());
+            if (insertion.isPresent() && (best == null || insertion.get().addedKm() < best.addedKm())) {
+                best = insertion.get();
+                bestTrip = trip;
+            }
+        }
+        matchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        if (best != null && applyPlan(bestTrip.id(), bestTrip.version(), bestTrip.vehicleType(), bestTrip.capacity(),
+                best.plan())) {
+            // Re-read after the update: the driver may have been assigned since the index snapshot
+            Long driverId = pooledTripRepository.findById(bestTrip.id()).map(PooledTrip::getDriverId).orElse(null);
+            logger.info("Ride {} joined pooled trip {} adding {} km", ride.getId(), bestTrip.id(),
+                    String.format("%.2f", best.addedKm()));
+            return new PoolAssignment(bestTrip.id(), driverId);
+        }
+
+        PooledTrip trip = pooledTripRepository.save(PooledTrip.builder()
+                .vehicleType(ride.getVehicleType())
+                .capacity(capacity)
+                .status(PooledTrip.PoolStatus.OPEN)
+                .stopPlan(write(List.of(pickup, dropoff)))
+                .build());
+        PoolTrip snapshot = toPoolTrip(trip);
+        afterCommit(() -> index.put(snapshot));
+        logger.info("Ride {} started pooled trip {}", ride.getId(), trip.getId());
+        return new PoolAssignment(trip.getId(), null);
+    }
+
+    /**
+     * Claim the trip for the driver who accepted one of its rides. Returns false if another driver
+     * already holds the trip, in which case the ride is taken out of it.
+     */
+    public boolean claimForDriver(Ride ride, Long driverId) {
+        if (pooledTripRepository.assignDriver(ride.getPooledTripId(), driverId, LocalDateTime.now()) > 0) {
+            return true;
+        }
+        leave(ride);
+        return false;
+    }
+
+    /**
+     * The rider was picked up: their pickup is no longer part of the plan
+     */
+    public void pickedUp(Ride ride) {
+        updatePlan(ride, stop -> stop.isPickup() && Objects.equals(stop.rideId(), ride.getId()));
+    }
+
+    /**
+     * The ride completed or was cancelled: drop all its stops, closing the trip once it is empty
+     */
+    public void leave(Ride ride) {
+        updatePlan(ride, stop -> Objects.equals(stop.rideId(), ride.getId()));
+    }
+
+    /**
+     * Refresh this instance's index from a pooled ride's event
+     */
+    public void onRideEvent(Map<String, Object> event) {
+        Object tripId = event.get("pooledTripId");
+        if (tripId == null) {
+            return;
+        }
+        Long id = Long.valueOf(tripId.toString());
+        pooledTripRepository.findById(id).ifPresentOrElse(trip -> {
+            if (trip.getStatus() == PooledTrip.PoolStatus.OPEN) {
+                index.put(toPoolTrip(trip));
+            } else {
+                index.remove(id);
+            }
+        }, () -> index.remove(id));
+    }
+
+    private void updatePlan(Ride ride, Predicate<PoolStop> remove) {
+        if (ride.getPooledTripId() == null) {
+            return;
+        }
+        for (int attempt = 0; attempt < MAX_PLAN_ATTEMPTS; attempt++) {
+            PooledTrip trip = pooledTripRepository.findById(ride.getPooledTripId()).orElse(null);
+            if (trip == null || trip.getStatus() == PooledTrip.PoolStatus.CLOSED) {
+                return;
+            }
+            List<PoolStop> plan = new ArrayList<>(read(trip.getStopPlan()));
+            if (!plan.removeIf(remove)) {
+                return;
+            }
+            if (applyPlan(trip.getId(), trip.getVersion(), trip.getVehicleType(), trip.getCapacity(), plan)) {
+                return;
+            }
+        }
+        logger.warn("Could not update plan of pooled trip {} for ride {}", ride.getPooledTripId(), ride.getId());
+    }
+
+    /**
+     * Conditionally replace a trip's plan; an empty plan closes the trip
+     */
+    private boolean applyPlan(Long tripId, long version, String vehicleType, int tripCapacity, List<PoolStop> plan) {
+        PooledTrip.PoolStatus status = plan.isEmpty() ? PooledTrip.PoolStatus.CLOSED : PooledTrip.PoolStatus.OPEN;
+        if (pooledTripRepository.updatePlan(tripId, version, write(plan), status, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        if (status == PooledTrip.PoolStatus.CLOSED) {
+            afterCommit(() -> index.remove(tripId));
+        } else {
+            // Driver is refreshed from the ride events; the snapshot only needs the plan
+            PoolTrip current = index.get(tripId);
+            PoolTrip snapshot = new PoolTrip(tripId, version + 1, vehicleType, tripCapacity,
+                    current != null ? current.driverId() : null, List.copyOf(plan));
+            afterCommit(() -> index.put(snapshot));
+        }
+        return true;
+    }
+
+    private PoolTrip toPoolTrip(PooledTrip trip) {
+        return new PoolTrip(trip.getId(), trip.getVersion(), trip.getVehicleType(), trip.getCapacity(),
+                trip.getDriverId(), read(trip.getStopPlan()));
+    }
+
+    private static int seatsOf(Ride ride) {
+        return ride.getSeats() != null ? ride.getSeats() : 1;
+    }
+
+    private List<PoolStop> read(String plan) {
+        try {
+            return List.copyOf(objectMapper.readValue(plan, PLAN_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Pooled trip plan could not be read", e);
+        }
+    }
+
+    private String write(List<PoolStop> plan) {
+        try {
+            return objectMapper.writeValueAsString(plan);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Pooled trip plan could not be written", e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
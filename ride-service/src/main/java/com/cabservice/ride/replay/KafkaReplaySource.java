@@ -0,0 +1,128 @@
+package com.cabservice.ride.replay;
+
+import com.cabservice.ride.dto.ReplayRequest;
+import com.cabservice.ride.entity.ReplayCheckpoint;
+import com.cabservice.ride.entity.ReplayJob;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Kafka Replay Source - Replays an offset range of a ride event topic.
+ * <p>
+ * Each topic partition is one replay partition with its own manually assigned consumer, so
+ * partitions are read in parallel and offsets are tracked only in the replay checkpoints,
+ * never committed to a consumer group.
+ */
+@Component
+public class KafkaReplaySource implements ReplaySource {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+
+    @Value("${kafka.topic.ride-events:ride-events}")
+    private String rideEventsTopic;
+
+    public KafkaReplaySource(ConsumerFactory<String, Object> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    @Override
+    public ReplayJob.Source type() {
+        return ReplayJob.Source.KAFKA;
+    }
+
+    @Override
+    public List<ReplayCheckpoint> plan(String jobId, ReplayRequest request) {
+        String topic = request.getTopic() != null ? request.getTopic() : rideEventsTopic;
+        List<ReplayCheckpoint> checkpoints = new ArrayList<>();
+
+        try (Consumer<String, Object> consumer = createConsumer(jobId, 1)) {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic);
+            if (infos == null || infos.isEmpty()) {
+                throw new IllegalArgumentException("Unknown topic: " + topic);
+            }
+            List<TopicPartition> partitions = infos.stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            for (TopicPartition partition : partitions) {
+                long start = Math.max(beginning.get(partition),
+                        request.getFromOffset() != null ? request.getFromOffset() : 0);
+                long stop = Math.min(end.get(partition),
+                        request.getToOffset() != null ? request.getToOffset() : Long.MAX_VALUE);
+                if (start >= stop) {
+                    continue;
+                }
+                int partitionNo = checkpoints.size();
+                checkpoints.add(ReplayCheckpoint.builder()
+                        .id(jobId + ":" + partitionNo)
+                        .jobId(jobId)
+                        .partitionNo(partitionNo)
+                        .streamName(topic)
+                        .streamPartition(partition.partition())
+                        .position(start)
+                        .endPosition(stop)
+                        .build());
+            }
+        }
+        return checkpoints;
+    }
+
+    @Override
+    public ReplayCursor open(ReplayCheckpoint checkpoint, int batchSize) {
+        TopicPartition partition = new TopicPartition(checkpoint.getStreamName(), checkpoint.getStreamPartition());
+        long end = checkpoint.getEndPosition();
+        Consumer<String, Object> consumer = createConsumer(checkpoint.getJobId(), batchSize);
+        consumer.assign(List.of(partition));
+        consumer.seek(partition, checkpoint.getPosition());
+
+        return new ReplayCursor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public ReplayBatch next() {
+                List<Map<String, Object>> events = new ArrayList<>();
+                for (ConsumerRecord<String, Object> record : consumer.poll(POLL_TIMEOUT).records(partition)) {
+                    if (record.offset() >= end) {
+                        break;
+                    }
+                    if (record.value() instanceof Map<?, ?> value) {
+                        Map<String, Object> event = new HashMap<>((Map<String, Object>) value);
+                        event.put("replay", true);
+                        events.add(event);
+                    }
+                }
+                // Position also moves past transaction markers and compacted gaps that yield no records
+                long position = Math.min(consumer.position(partition), end);
+                return new ReplayBatch(events, position, position >= end);
+            }
+
+            @Override
+            public void close() {
+                consumer.close();
+            }
+        };
+    }
+
+    private Consumer<String, Object> createConsumer(String jobId, int batchSize) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchSize));
+        return consumerFactory.createConsumer("ride-replay-" + jobId, null, null, properties);
+    }
+}
@@ -0,0 +1,55 @@
+package com.cabservice.ride.replay;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Republishes replayed events to a separate topic. A consumer that needs rebuilding (notifications,
+ * billing, analytics) reads that topic with a fresh consumer group; the live topic is never
+ * written to, so current consumers do not act on history twice.
+ */
+@Component
+public class KafkaRepublishProjection implements RideProjection {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topic.ride-events:ride-events}")
+    private String rideEventsTopic;
+
+    @Value("${ride.replay.default-target-topic:ride-events-replay}")
+    private String defaultTargetTopic;
+
+    public KafkaRepublishProjection(KafkaTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Override
+    public String name() {
+        return "kafka-republish";
+    }
+
+    @Override
+    public String resolveTarget(String requestedTarget) {
+        String target = requestedTarget != null && !requestedTarget.isBlank() ? requestedTarget : defaultTargetTopic;
+        if (target.equals(rideEventsTopic)) {
+            throw new IllegalArgumentException("Replaying into the live topic " + rideEventsTopic + " is not allowed");
+        }
+        return target;
+    }
+
+    @Override
+    public void apply(String target, List<Map<String, Object>> events) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            Map<String, Object> event = events.get(i);
+            sends[i] = kafkaTemplate.send(target, String.valueOf(event.get("rideId")), event);
+        }
+        // Checkpoints may only move once the whole batch is acknowledged
+        CompletableFuture.allOf(sends).join();
+    }
+}
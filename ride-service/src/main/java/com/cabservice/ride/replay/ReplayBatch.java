@@ -0,0 +1,9 @@
+package com.cabservice.ride.replay;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One batch read from a replay partition, with the position to checkpoint after applying it
+ */
+public record ReplayBatch(List<Map<String, Object>> events, long position, boolean exhausted) {}
@@ -0,0 +1,12 @@
+package com.cabservice.ride.replay;
+
+/**
+ * Sequential reader over one replay partition, starting at its checkpointed position
+ */
+public interface ReplayCursor extends AutoCloseable {
+
+    ReplayBatch next();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,22 @@
+package com.cabservice.ride.replay;
+
+import com.cabservice.ride.dto.ReplayRequest;
+import com.cabservice.ride.entity.ReplayCheckpoint;
+import com.cabservice.ride.entity.ReplayJob;
+
+import java.util.List;
+
+/**
+ * Where replayed ride events are read from
+ */
+public interface ReplaySource {
+
+    ReplayJob.Source type();
+
+    /**
+     * Split the requested range into partitions that can be read independently
+     */
+    List<ReplayCheckpoint> plan(String jobId, ReplayRequest request);
+
+    ReplayCursor open(ReplayCheckpoint checkpoint, int batchSize);
+}
@@ -0,0 +1,42 @@
+package com.cabservice.ride.replay;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by all partitions of a replay job, so the job as a whole never exceeds
+ * its configured event rate. Up to one second of unused rate can be saved up as burst.
+ */
+public class ReplayThrottle {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    public ReplayThrottle(int eventsPerSecond) {
+        this.permitsPerNano = eventsPerSecond / 1e9;
+        this.maxPermits = eventsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Block until the given number of events may be processed
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        availablePermits = Math.min(maxPermits, availablePermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        // Go into debt so later callers wait for this reservation too
+        availablePermits -= permits;
+        return availablePermits >= 0 ? 0 : (long) (-availablePermits / permitsPerNano);
+    }
+}
@@ -0,0 +1,28 @@
+package com.cabservice.ride.replay;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A consumer of ride events whose state can be rebuilt by replaying history.
+ * <p>
+ * Replay is at-least-once: after a restart the batch in flight at the last checkpoint is applied
+ * again, so implementations must tolerate seeing the same event twice.
+ */
+public interface RideProjection {
+
+    /**
+     * Name used to select this projection in a replay request
+     */
+    String name();
+
+    /**
+     * Validate the requested destination and return the one to use
+     */
+    String resolveTarget(String requestedTarget);
+
+    /**
+     * Apply a batch of events in order. Must not return before the batch is durable.
+     */
+    void apply(String target, List<Map<String, Object>> events);
+}
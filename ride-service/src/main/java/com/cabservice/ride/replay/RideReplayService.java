@@ -0,0 +1,279 @@
+package com.cabservice.ride.replay;
+
+import com.cabservice.ride.dto.ReplayJobDto;
+import com.cabservice.ride.dto.ReplayRequest;
+import com.cabservice.ride.entity.ReplayCheckpoint;
+import com.cabservice.ride.entity.ReplayJob;
+import com.cabservice.ride.exception.ResourceNotFoundException;
+import com.cabservice.ride.repository.ReplayCheckpointRepository;
+import com.cabservice.ride.repository.ReplayJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ride Replay Service - Streams historical ride events through a projection to rebuild its state.
+ * <p>
+ * A job is split into partitions (id ranges per table, or topic partitions) that run in parallel
+ * on a small dedicated pool shared by all jobs, so replays cannot crowd out request handling.
+ * Each partition checkpoints its position after every applied batch; a failed or interrupted job
+ * is resumed from those checkpoints. A per-job token bucket caps the total event rate.
+ */
+@Service
+public class RideReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideReplayService.class);
+
+    private final ReplayJobRepository replayJobRepository;
+    private final ReplayCheckpointRepository replayCheckpointRepository;
+    private final Map<String, RideProjection> projections;
+    private final Map<ReplayJob.Source, ReplaySource> sources = new EnumMap<>(ReplayJob.Source.class);
+    private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    @Value("${ride.replay.default-events-per-second:2000}")
+    private int defaultEventsPerSecond;
+
+    @Value("${ride.replay.default-batch-size:500}")
+    private int defaultBatchSize;
+
+    public RideReplayService(ReplayJobRepository replayJobRepository,
+                             ReplayCheckpointRepository replayCheckpointRepository,
+                             List<RideProjection> projections,
+                             List<ReplaySource> sources,
+                             @Value("${ride.replay.max-workers:4}") int maxWorkers) {
+        this.replayJobRepository = replayJobRepository;
+        this.replayCheckpointRepository = replayCheckpointRepository;
+        this.projections = projections.stream()
+                .collect(Collectors.toMap(RideProjection::name, Function.identity()));
+        sources.forEach(source -> this.sources.put(source.type(), source));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "ride-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<String> getProjections() {
+        return projections.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Plan and start a new replay job
+     */
+    public ReplayJobDto startReplay(ReplayRequest request) {
+        RideProjection projection = getProjection(request.getProjection());
+        ReplaySource source = sources.get(request.getSource());
+        String jobId = UUID.randomUUID().toString();
+
+        ReplayJob job = ReplayJob.builder()
+                .id(jobId)
+                .source(request.getSource())
+                .projection(projection.name())
+                .target(projection.resolveTarget(request.getTarget()))
+                .status(ReplayJob.ReplayStatus.RUNNING)
+                .eventsPerSecond(request.getEventsPerSecond() != null ? request.getEventsPerSecond() : defaultEventsPerSecond)
+                .batchSize(request.getBatchSize() != null ? request.getBatchSize() : defaultBatchSize)
+                .build();
+        List<ReplayCheckpoint> checkpoints = source.plan(jobId, request);
+
+        job = replayJobRepository.save(job);
+        replayCheckpointRepository.saveAll(checkpoints);
+
+        logger.info("Starting replay job {} of {} through {} with {} partitions",
+                jobId, job.getSource(), job.getProjection(), checkpoints.size());
+        launch(job, checkpoints);
+        return getJob(jobId);
+    }
+
+    /**
+     * Continue a failed or cancelled job from its last checkpoints
+     */
+    public ReplayJobDto resumeReplay(String jobId) {
+        ReplayJob job = findJob(jobId);
+        if (running.containsKey(jobId)) {
+            throw new IllegalStateException("Replay job is already running");
+        }
+        if (job.getStatus() == ReplayJob.ReplayStatus.COMPLETED) {
+            throw new IllegalStateException("Replay job has already completed");
+        }
+
+        job.setStatus(ReplayJob.ReplayStatus.RUNNING);
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        job = replayJobRepository.save(job);
+
+        logger.info("Resuming replay job {}", jobId);
+        launch(job, replayCheckpointRepository.findByJobIdOrderByPartitionNo(jobId));
+        return getJob(jobId);
+    }
+
+    /**
+     * Stop a running job after the batches in flight; it can be resumed later
+     */
+    public ReplayJobDto cancelReplay(String jobId) {
+        ReplayJob job = findJob(jobId);
+        RunningJob run = running.get(jobId);
+        if (run != null) {
+            run.stop(null);
+        } else if (job.getStatus() == ReplayJob.ReplayStatus.RUNNING) {
+            // Left running by an instance that went away
+            finish(jobId, ReplayJob.ReplayStatus.CANCELLED, null);
+        }
+        return getJob(jobId);
+    }
+
+    public ReplayJobDto getJob(String jobId) {
+        return toReplayJobDto(findJob(jobId));
+    }
+
+    public List<ReplayJobDto> getRecentJobs() {
+        return replayJobRepository.findTop20ByOrderByCreatedAtDesc().stream()
+                .map(this::toReplayJobDto)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.values().forEach(run -> run.stop(null));
+        workers.shutdown();
+    }
+
+    private void launch(ReplayJob job, List<ReplayCheckpoint> checkpoints) {
+        RunningJob run = new RunningJob(new ReplayThrottle(job.getEventsPerSecond()));
+        running.put(job.getId(), run);
+
+        RideProjection projection = getProjection(job.getProjection());
+        ReplaySource source = sources.get(job.getSource());
+        CompletableFuture<?>[] partitions = checkpoints.stream()
+                .filter(checkpoint -> !checkpoint.getCompleted())
+                .map(checkpoint -> CompletableFuture.runAsync(
+                        () -> replayPartition(job, checkpoint, source, projection, run), workers))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(partitions).whenComplete((result, error) -> {
+            running.remove(job.getId());
+            if (run.failure.get() != null) {
+                finish(job.getId(), ReplayJob.ReplayStatus.FAILED, run.failure.get().getMessage());
+            } else if (run.stopped) {
+                finish(job.getId(), ReplayJob.ReplayStatus.CANCELLED, null);
+            } else {
+                finish(job.getId(), ReplayJob.ReplayStatus.COMPLETED, null);
+            }
+        });
+    }
+
+    private void replayPartition(ReplayJob job, ReplayCheckpoint checkpoint, ReplaySource source,
+                                 RideProjection projection, RunningJob run) {
+        try (ReplayCursor cursor = source.open(checkpoint, job.getBatchSize())) {
+            while (!run.stopped) {
+                ReplayBatch batch = cursor.next();
+                if (!batch.events().isEmpty()) {
+                    run.throttle.acquire(batch.events().size());
+                    projection.apply(job.getTarget(), batch.events());
+                }
+                replayCheckpointRepository.advance(checkpoint.getId(), batch.position(),
+                        batch.events().size(), batch.exhausted(), LocalDateTime.now());
+                if (batch.exhausted()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.stop(null);
+        } catch (Exception e) {
+            logger.error("Replay job {} failed on partition {}: {}", job.getId(), checkpoint.getPartitionNo(), e.getMessage());
+            run.stop(e);
+        }
+    }
+
+    private void finish(String jobId, ReplayJob.ReplayStatus status, String errorMessage) {
+        replayJobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(status);
+            job.setErrorMessage(errorMessage != null && errorMessage.length() > 255
+                    ? errorMessage.substring(0, 255) : errorMessage);
+            job.setFinishedAt(LocalDateTime.now());
+            replayJobRepository.save(job);
+            logger.info("Replay job {} finished: {}", jobId, status);
+        });
+    }
+
+    private RideProjection getProjection(String name) {
+        RideProjection projection = projections.get(name);
+        if (projection == null) {
+            throw new IllegalArgumentException("Unknown projection: " + name + ", available: " + getProjections());
+        }
+        return projection;
+    }
+
+    private ReplayJob findJob(String jobId) {
+        return replayJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Replay job", "id", jobId));
+    }
+
+    private ReplayJobDto toReplayJobDto(ReplayJob job) {
+        List<ReplayJobDto.Partition> partitions = replayCheckpointRepository.findByJobIdOrderByPartitionNo(job.getId())
+                .stream()
+                .map(checkpoint -> ReplayJobDto.Partition.builder()
+                        .partitionNo(checkpoint.getPartitionNo())
+                        .streamName(checkpoint.getStreamName())
+                        .streamPartition(checkpoint.getStreamPartition())
+                        .position(checkpoint.getPosition())
+                        .endPosition(checkpoint.getEndPosition())
+                        .processedEvents(checkpoint.getProcessedEvents())
+                        .completed(checkpoint.getCompleted())
+                        .build())
+                .toList();
+
+        return ReplayJobDto.builder()
+                .id(job.getId())
+                .source(job.getSource())
+                .projection(job.getProjection())
+                .target(job.getTarget())
+                .status(job.getStatus())
+                .eventsPerSecond(job.getEventsPerSecond())
+                .batchSize(job.getBatchSize())
+                .processedEvents(partitions.stream().mapToLong(ReplayJobDto.Partition::getProcessedEvents).sum())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .partitions(partitions)
+                .build();
+    }
+
+    private static class RunningJob {
+
+        private final ReplayThrottle throttle;
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private volatile boolean stopped;
+
+        RunningJob(ReplayThrottle throttle) {
+            this.throttle = throttle;
+        }
+
+        void stop(Exception cause) {
+            if (cause != null) {
+                failure.compareAndSet(null, cause);
+            }
+            stopped = true;
+        }
+    }
+}
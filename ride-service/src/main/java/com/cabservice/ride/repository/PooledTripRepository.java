@@ -0,0 +1,48 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.entity.PooledTrip;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PooledTrip Repository
+ */
+@Repository
+public interface PooledTripRepository extends JpaRepository<PooledTrip, Long> {
+
+    List<PooledTrip> findByStatus(PooledTrip.PoolStatus status);
+
+    /**
+     * Replace the stop plan if nobody changed the trip since it was read at the given version.
+     * Returns 0 when another booking or transition got there first.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE PooledTrip t SET t.stopPlan = :stopPlan, t.status = :status,
+            t.updatedAt = :at, t.version = t.version + 1
+        WHERE t.id = :id AND t.version = :version
+        """)
+    int updatePlan(@Param("id") Long id,
+                   @Param("version") Long version,
+                   @Param("stopPlan") String stopPlan,
+                   @Param("status") PooledTrip.PoolStatus status,
+                   @Param("at") LocalDateTime at);
+
+    /**
+     * Assign the trip's driver; only the first driver to accept any of its rides wins
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE PooledTrip t SET t.driverId = :driverId, t.updatedAt = :at, t.version = t.version + 1
+        WHERE t.id = :id AND (t.driverId IS NULL OR t.driverId = :driverId)
+        """)
+    int assignDriver(@Param("id") Long id,
+                     @Param("driverId") Long driverId,
+                     @Param("at") LocalDateTime at);
+}
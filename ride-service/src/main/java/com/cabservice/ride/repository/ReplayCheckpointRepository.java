@@ -0,0 +1,37 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.entity.ReplayCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ReplayCheckpoint Repository
+ */
+@Repository
+public interface ReplayCheckpointRepository extends JpaRepository<ReplayCheckpoint, String> {
+
+    List<ReplayCheckpoint> findByJobIdOrderByPartitionNo(String jobId);
+
+    /**
+     * Record that a partition has been projected up to the given position
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE ReplayCheckpoint c SET c.position = :position, c.processedEvents = c.processedEvents + :processed,
+            c.completed = :completed, c.updatedAt = :at
+        WHERE c.id = :id
+        """)
+    int advance(@Param("id") String id,
+                @Param("position") long position,
+                @Param("processed") long processed,
+                @Param("completed") boolean completed,
+                @Param("at") LocalDateTime at);
+}
@@ -0,0 +1,16 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.entity.ReplayJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * ReplayJob Repository
+ */
+@Repository
+public interface ReplayJobRepository extends JpaRepository<ReplayJob, String> {
+
+    List<ReplayJob> findTop20ByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,127 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.dto.RideDto;
+import com.cabservice.ride.dto.RideSummaryDto;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Ride Archive Repository - Cold storage for finished rides.
+ * <p>
+ * {@code rides_archive} is created with {@code CREATE TABLE ... LIKE rides}, so it carries the
+ * same columns and indexes. It is not a JPA entity: rows are moved with INSERT ... SELECT and
+ * read back through JDBC row mappers.
+ */
+@Repository
+public class RideArchiveRepository {
+
+    private static final String SUMMARY_COLUMNS = """
+            id, customer_id, driver_id, vehicle_type, pickup_address, dropoff_address, status,
+            requested_at, completed_at, estimated_fare, actual_fare, distance_km
+            """;
+
+    private static final RowMapper<RideSummaryDto> SUMMARY_MAPPER = new BeanPropertyRowMapper<>(RideSummaryDto.class);
+    private static final RowMapper<RideDto> RIDE_MAPPER = new BeanPropertyRowMapper<>(RideDto.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String columnList;
+
+    public RideArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Create the archive table if needed and add any columns that {@code rides} has gained since
+     */
+    public void prepareArchiveTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS rides_archive LIKE rides");
+
+        List<ColumnDefinition> missing = jdbcTemplate.query("""
+                SELECT c.COLUMN_NAME, c.COLUMN_TYPE FROM information_schema.COLUMNS c
+                WHERE c.TABLE_SCHEMA = DATABASE() AND c.TABLE_NAME = 'rides'
+                AND c.COLUMN_NAME NOT IN (
+                    SELECT a.COLUMN_NAME FROM information_schema.COLUMNS a
+                    WHERE a.TABLE_SCHEMA = DATABASE() AND a.TABLE_NAME = 'rides_archive'
+                )
+                ORDER BY c.ORDINAL_POSITION
+                """, (rs, rowNum) -> new ColumnDefinition(rs.getString(1), rs.getString(2)));
+        for (ColumnDefinition column : missing) {
+            jdbcTemplate.execute("ALTER TABLE rides_archive ADD COLUMN `" + column.name() + "` " + column.type() + " NULL");
+        }
+
+        List<String> columns = jdbcTemplate.queryForList("""
+                SELECT COLUMN_NAME FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rides'
+                ORDER BY ORDINAL_POSITION
+                """, String.class);
+        columnList = columns.stream().map(c -> "`" + c + "`").collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Lock a batch of finished rides older than the cutoff. Must run inside a transaction;
+     * SKIP LOCKED lets several instances archive concurrently without colliding.
+     */
+    public List<Long> lockArchivableIds(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT id FROM rides
+                WHERE status IN ('COMPLETED', 'CANCELLED') AND requested_at < ?
+                ORDER BY id LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """, Long.class, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * Copy the given rides into the archive and delete them from the hot table
+     */
+    public int moveToArchive(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update("INSERT INTO rides_archive (" + columnList + ") SELECT " + columnList
+                + " FROM rides WHERE id IN (" + placeholders + ")", args);
+        return jdbcTemplate.update("DELETE FROM rides WHERE id IN (" + placeholders + ")", args);
+    }
+
+    public Optional<ArchivedRide> findById(Long id) {
+        return jdbcTemplate.query("SELECT * FROM rides_archive WHERE id = ?",
+                        (rs, rowNum) -> new ArchivedRide(RIDE_MAPPER.mapRow(rs, rowNum), rs.getLong("version")), id)
+                .stream().findFirst();
+    }
+
+    public List<RideSummaryDto> findCustomerHistory(Long customerId, LocalDateTime requestedAt, Long id, int limit) {
+        return findHistory("customer_id", customerId, requestedAt, id, limit);
+    }
+
+    public List<RideSummaryDto> findDriverHistory(Long driverId, LocalDateTime requestedAt, Long id, int limit) {
+        return findHistory("driver_id", driverId, requestedAt, id, limit);
+    }
+
+    private List<RideSummaryDto> findHistory(String ownerColumn, Long ownerId,
+                                             LocalDateTime requestedAt, Long id, int limit) {
+        if (requestedAt == null) {
+            return jdbcTemplate.query("SELECT " + SUMMARY_COLUMNS + " FROM rides_archive WHERE " + ownerColumn
+                    + " = ? ORDER BY requested_at DESC, id DESC LIMIT ?", SUMMARY_MAPPER, ownerId, limit);
+        }
+        Timestamp position = Timestamp.valueOf(requestedAt);
+        return jdbcTemplate.query("SELECT " + SUMMARY_COLUMNS + " FROM rides_archive WHERE " + ownerColumn
+                        + " = ? AND (requested_at < ? OR (requested_at = ? AND id < ?))"
+                        + " ORDER BY requested_at DESC, id DESC LIMIT ?",
+                SUMMARY_MAPPER, ownerId, position, position, id, limit);
+    }
+
+    public record ArchivedRide(RideDto ride, long version) {}
+
+    private record ColumnDefinition(String name, String type) {}
+}
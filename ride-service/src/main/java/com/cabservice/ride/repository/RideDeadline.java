@@ -0,0 +1,23 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.entity.Ride;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the ride fields that decide its dispatch and expiry deadlines
+ */
+public interface RideDeadline {
+
+    Long getId();
+
+    Ride.RideStatus getStatus();
+
+    LocalDateTime getRequestedAt();
+
+    LocalDateTime getDispatchAt();
+
+    LocalDateTime getAcceptedAt();
+
+    Long getVersion();
+}
@@ -1,12 +1,19 @@
 package com.cabservice.ride.repository;
 
+import com.cabservice.ride.dto.ActiveRideDto;
+import com.cabservice.ride.dto.RideSummaryDto;
 import com.cabservice.ride.entity.Ride;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,9 +32,293 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
     @Query("SELECT r FROM Ride r WHERE r.status IN ('REQUESTED', 'SEARCHING_DRIVER', 'ACCEPTED', 'DRIVER_ARRIVED', 'IN_PROGRESS')")
     List<Ride> findActiveRides();
 
+    @Query("SELECT r.id AS id, r.version AS version FROM Ride r WHERE r.customerId = :customerId")
+    Page<RideVersion> findVersionsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Query("SELECT r.id AS id, r.version AS version FROM Ride r WHERE r.driverId = :driverId")
+    Page<RideVersion> findVersionsByDriverId(@Param("driverId") Long driverId, Pageable pageable);
+
     @Query("SELECT r FROM Ride r WHERE r.customerId = :customerId AND r.status IN ('REQUESTED', 'SEARCHING_DRIVER', 'ACCEPTED', 'DRIVER_ARRIVED', 'IN_PROGRESS')")
     Optional<Ride> findActiveRideByCustomerId(Long customerId);
 
+    // A driver on a pooled trip has several active rides at once
     @Query("SELECT r FROM Ride r WHERE r.driverId = :driverId AND r.status IN ('ACCEPTED', 'DRIVER_ARRIVED', 'IN_PROGRESS')")
-    Optional<Ride> findActiveRideByDriverId(Long driverId);
+    List<Ride> findActiveRidesByDriverId(Long driverId);
+
+    List<Ride> findByPooledTripIdAndStatusIn(Long pooledTripId, Collection<Ride.RideStatus> statuses);
+
+    /**
+     * One keyset page of rides in the given status, in id order. Served by the (status, id) index.
+     */
+    @Query("""
+        SELECT new com.cabservice.ride.dto.ActiveRideDto(r.id, r.customerId, r.driverId, r.vehicleType, r.status,
+            r.pickupLatitude, r.pickupLongitude, r.dropoffLatitude, r.dropoffLongitude, r.requestedAt, r.version)
+        FROM Ride r WHERE r.status = :status AND r.id > :afterId
+        ORDER BY r.id
+        """)
+    List<ActiveRideDto> findFeedPage(@Param("status") Ride.RideStatus status,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    /*
+     * Keyset (seek) pagination over ride history, newest first. Served by the
+     * (customer_id, requested_at, id) and (driver_id, requested_at, id) indexes and
+     * never issues a count query. The page size comes from the Pageable.
+     */
+
+    @Query("""
+        SELECT new com.cabservice.ride.dto.RideSummaryDto(r.id, r.customerId, r.driverId, r.vehicleType,
+            r.pickupAddress, r.dropoffAddress, r.status, r.requestedAt, r.completedAt,
+            r.estimatedFare, r.actualFare, r.distanceKm)
+        FROM Ride r WHERE r.customerId = :customerId
+        ORDER BY r.requestedAt DESC, r.id DESC
+        """)
+    List<RideSummaryDto> findCustomerHistory(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Query("""
+        SELECT new com.cabservice.ride.dto.RideSummaryDto(r.id, r.customerId, r.driverId, r.vehicleType,
+            r.pickupAddress, r.dropoffAddress, r.status, r.requestedAt, r.completedAt,
+            r.estimatedFare, r.actualFare, r.distanceKm)
+        FROM Ride r WHERE r.customerId = :customerId
+        AND (r.requestedAt < :requestedAt OR (r.requestedAt = :requestedAt AND r.id < :id))
+        ORDER BY r.requestedAt DESC, r.id DESC
+        """)
+    List<RideSummaryDto> findCustomerHistoryBefore(@Param("customerId") Long customerId,
+                                                   @Param("requestedAt") LocalDateTime requestedAt,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    @Query("""
+        SELECT new com.cabservice.ride.dto.RideSummaryDto(r.id, r.customerId, r.driverId, r.vehicleType,
+            r.pickupAddress, r.dropoffAddress, r.status, r.requestedAt, r.completedAt,
+            r.estimatedFare, r.actualFare, r.distanceKm)
+        FROM Ride r WHERE r.driverId = :driverId
+        ORDER BY r.requestedAt DESC, r.id DESC
+        """)
+    List<RideSummaryDto> findDriverHistory(@Param("driverId") Long driverId, Pageable pageable);
+
+    @Query("""
+        SELECT new com.cabservice.ride.dto.RideSummaryDto(r.id, r.customerId, r.driverId, r.vehicleType,
+            r.pickupAddress, r.dropoffAddress, r.status, r.requestedAt, r.completedAt,
+            r.estimatedFare, r.actualFare, r.distanceKm)
+        FROM Ride r WHERE r.driverId = :driverId
+        AND (r.requestedAt < :requestedAt OR (r.requestedAt = :requestedAt AND r.id < :id))
+        ORDER BY r.requestedAt DESC, r.id DESC
+        """)
+    List<RideSummaryDto> findDriverHistoryBefore(@Param("driverId") Long driverId,
+                                                 @Param("requestedAt") LocalDateTime requestedAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    /**
+     * One keyset page of rides in the given status, in request order. Served by the
+     * (status, requested_at) index; used to rebuild ride deadlines on startup.
+     */
+    @Query("""
+        SELECT r.id AS id, r.status AS status, r.requestedAt AS requestedAt, r.dispatchAt AS dispatchAt,
+            r.acceptedAt AS acceptedAt, r.version AS version
+        FROM Ride r WHERE r.status = :status
+            AND (r.requestedAt > :afterRequestedAt OR (r.requestedAt = :afterRequestedAt AND r.id > :afterId))
+        ORDER BY r.requestedAt, r.id
+        """)
+    List<RideDeadline> findDeadlinePage(@Param("status") Ride.RideStatus status,
+                                        @Param("afterRequestedAt") LocalDateTime afterRequestedAt,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    /**
+     * One keyset page of scheduled rides due for dispatch before the given time, in dispatch order.
+     * Served by the (status, dispatch_at, id) index.
+     */
+    @Query("""
+        SELECT r.id AS id, r.status AS status, r.requestedAt AS requestedAt, r.dispatchAt AS dispatchAt,
+            r.acceptedAt AS acceptedAt, r.version AS version
+        FROM Ride r WHERE r.status = com.cabservice.ride.entity.Ride.RideStatus.SCHEDULED
+            AND r.dispatchAt < :dispatchBefore
+            AND (r.dispatchAt > :afterDispatchAt OR (r.dispatchAt = :afterDispatchAt AND r.id > :afterId))
+        ORDER BY r.dispatchAt, r.id
+        """)
+    List<RideDeadline> findScheduledPage(@Param("dispatchBefore") LocalDateTime dispatchBefore,
+                                         @Param("afterDispatchAt") LocalDateTime afterDispatchAt,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Lock the given scheduled rides that are due for dispatch. Must run inside a transaction;
+     * SKIP LOCKED lets every instance activate the same batch without waiting on each other.
+     */
+    @Query(value = """
+        SELECT id FROM rides
+        WHERE id IN (:ids) AND status = 'SCHEDULED' AND dispatch_at <= :now
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Long> lockDueScheduledRideIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("""
+        SELECT DISTINCT r.customerId FROM Ride r WHERE r.customerId IN :customerIds
+        AND r.status IN ('REQUESTED', 'SEARCHING_DRIVER', 'ACCEPTED', 'DRIVER_ARRIVED', 'IN_PROGRESS')
+        """)
+    List<Long> findCustomersWithActiveRide(@Param("customerIds") Collection<Long> customerIds);
+
+    /**
+     * Lock the given rides that are still past their deadline. Must run inside a transaction;
+     * SKIP LOCKED lets every instance expire the same batch without waiting on each other.
+     */
+    @Query(value = """
+        SELECT id FROM rides
+        WHERE id IN (:ids) AND (
+            (status IN ('REQUESTED', 'SEARCHING_DRIVER') AND COALESCE(dispatch_at, requested_at) <= :searchCutoff)
+            OR (status = 'ACCEPTED' AND accepted_at <= :acceptCutoff))
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Long> lockExpiredRideIds(@Param("ids") Collection<Long> ids,
+                                  @Param("searchCutoff") LocalDateTime searchCutoff,
+                                  @Param("acceptCutoff") LocalDateTime acceptCutoff);
+
+    /*
+     * Conditional status transitions. Each one is a single UPDATE guarded by the allowed
+     * source statuses, so concurrent transitions cannot overwrite each other. The version
+     * column is bumped explicitly because bulk updates bypass Hibernate's @Version handling.
+     * Returns the number of rows updated (0 if the guard did not match).
+     */
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.driverId = :driverId, r.acceptedAt = :at,
+            r.version = r.version + 1
+        WHERE r.id = :id AND r.status IN :from
+        """)
+    int markAccepted(@Param("id") Long id,
+                     @Param("driverId") Long driverId,
+                     @Param("at") LocalDateTime at,
+                     @Param("to") Ride.RideStatus to,
+                     @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.driverArrivedAt = :at, r.version = r.version + 1
+        WHERE r.id = :id AND r.driverId = :driverId AND r.status IN :from
+        """)
+    int markDriverArrived(@Param("id") Long id,
+                          @Param("driverId") Long driverId,
+                          @Param("at") LocalDateTime at,
+                          @Param("to") Ride.RideStatus to,
+                          @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.startedAt = :at, r.version = r.version + 1
+        WHERE r.id = :id AND r.driverId = :driverId AND r.rideOtp = :otp AND r.status IN :from
+        """)
+    int markStarted(@Param("id") Long id,
+                    @Param("driverId") Long driverId,
+                    @Param("otp") String otp,
+                    @Param("at") LocalDateTime at,
+                    @Param("to") Ride.RideStatus to,
+                    @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.completedAt = :at, r.distanceKm = :distanceKm,
+            r.durationMinutes = :durationMinutes, r.movingMinutes = :movingMinutes, r.actualFare = :actualFare,
+            r.settlementStatus = :settlementStatus, r.version = r.version + 1
+        WHERE r.id = :id AND r.driverId = :driverId AND r.status IN :from
+        """)
+    int markCompleted(@Param("id") Long id,
+                      @Param("driverId") Long driverId,
+                      @Param("at") LocalDateTime at,
+                      @Param("distanceKm") BigDecimal distanceKm,
+                      @Param("durationMinutes") Integer durationMinutes,
+                      @Param("movingMinutes") Integer movingMinutes,
+                      @Param("actualFare") BigDecimal actualFare,
+                      @Param("settlementStatus") Ride.SettlementStatus settlementStatus,
+                      @Param("to") Ride.RideStatus to,
+                      @Param("from") Collection<Ride.RideStatus> from);
+
+    /**
+     * Apply a corrected distance and fare to a completed ride, only if it is still billed on
+     * {@code expected}
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.distanceKm = :distanceKm, r.actualFare = :actualFare, r.version = r.version + 1
+        WHERE r.id = :id AND r.status = :status AND r.distanceKm = :expected
+        """)
+    int markDistanceCorrected(@Param("id") Long id,
+                              @Param("expected") BigDecimal expected,
+                              @Param("distanceKm") BigDecimal distanceKm,
+                              @Param("actualFare") BigDecimal actualFare,
+                              @Param("status") Ride.RideStatus status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.cancelledAt = :at, r.cancellationReason = :reason,
+            r.cancelledBy = :cancelledBy, r.version = r.version + 1
+        WHERE r.id = :id AND r.status IN :from
+        """)
+    int markCancelled(@Param("id") Long id,
+                      @Param("at") LocalDateTime at,
+                      @Param("reason") String reason,
+                      @Param("cancelledBy") String cancelledBy,
+                      @Param("to") Ride.RideStatus to,
+                      @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.dispatchAt = :at, r.version = r.version + 1
+        WHERE r.id IN :ids AND r.status IN :from
+        """)
+    int markActivated(@Param("ids") Collection<Long> ids,
+                      @Param("at") LocalDateTime at,
+                      @Param("to") Ride.RideStatus to,
+                      @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.status = :to, r.cancelledAt = :at, r.cancellationReason = :reason,
+            r.cancelledBy = :cancelledBy, r.version = r.version + 1
+        WHERE r.id IN :ids AND r.status IN :from
+        """)
+    int markCancelledAll(@Param("ids") Collection<Long> ids,
+                         @Param("at") LocalDateTime at,
+                         @Param("reason") String reason,
+                         @Param("cancelledBy") String cancelledBy,
+                         @Param("to") Ride.RideStatus to,
+                         @Param("from") Collection<Ride.RideStatus> from);
+
+    /**
+     * Take a ride out of its pooled trip after another driver claimed the trip
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.pooledTripId = NULL, r.version = r.version + 1 WHERE r.id = :id")
+    int detachFromPool(@Param("id") Long id);
+
+    /**
+     * Cancel a batch of expired rides. The reason is assigned before the status because
+     * MySQL evaluates SET assignments left to right.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET
+            r.cancellationReason = CASE WHEN r.status = com.cabservice.ride.entity.Ride.RideStatus.ACCEPTED
+                THEN :acceptReason ELSE :searchReason END,
+            r.status = :to, r.cancelledAt = :at, r.cancelledBy = :cancelledBy, r.version = r.version + 1
+        WHERE r.id IN :ids AND r.status IN :from
+        """)
+    int markExpired(@Param("ids") Collection<Long> ids,
+                    @Param("at") LocalDateTime at,
+                    @Param("searchReason") String searchReason,
+                    @Param("acceptReason") String acceptReason,
+                    @Param("cancelledBy") String cancelledBy,
+                    @Param("to") Ride.RideStatus to,
+                    @Param("from") Collection<Ride.RideStatus> from);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Ride r SET r.settlementStatus = :to, r.version = r.version + 1
+        WHERE r.id = :id AND r.settlementStatus = :from
+        """)
+    int markSettlement(@Param("id") Long id,
+                       @Param("from") Ride.SettlementStatus from,
+                       @Param("to") Ride.SettlementStatus to);
 }
@@ -0,0 +1,11 @@
+package com.cabservice.ride.repository;
+
+/**
+ * Projection of a ride's id and version, used to check read-model views without loading the entity
+ */
+public interface RideVersion {
+
+    Long getId();
+
+    Long getVersion();
+}
@@ -0,0 +1,250 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.dto.ActiveRideDto;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.RideRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Active Ride Feed - Server-sent event stream of active rides for the ops dashboard.
+ * <p>
+ * A subscriber first receives a snapshot of every active ride, read status by status in keyset
+ * pages over the (status, id) index, so memory stays constant regardless of fleet size. Ride
+ * events arriving meanwhile are queued and delivered as live changes once the snapshot is done.
+ * Each subscriber's queue is bounded; a client that falls too far behind is marked overflowed, and
+ * the sender pool sends it {@code resync} and disconnects it so it can reconnect for a fresh
+ * snapshot instead of growing the heap. Publishing never writes to a client itself.
+ */
+@Service
+public class ActiveRideFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveRideFeed.class);
+    private static final List<Ride.RideStatus> ACTIVE_STATUSES = List.of(
+            Ride.RideStatus.REQUESTED,
+            Ride.RideStatus.SEARCHING_DRIVER,
+            Ride.RideStatus.ACCEPTED,
+            Ride.RideStatus.DRIVER_ARRIVED,
+            Ride.RideStatus.IN_PROGRESS);
+
+    private final RideRepository rideRepository;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+
+    @Value("${ride.active-feed.page-size:500}")
+    private int pageSize;
+
+    @Value("${ride.active-feed.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${ride.active-feed.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public ActiveRideFeed(RideRepository rideRepository,
+                          @Value("${ride.active-feed.sender-threads:4}") int senderThreads) {
+        this.rideRepository = rideRepository;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "active-ride-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a new feed: snapshot first, then live changes
+     */
+    public SseEmitter subscribe() {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs));
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+
+        // Registered before the snapshot is read so no change in between is lost
+        subscribers.add(subscriber);
+        senders.execute(() -> streamSnapshot(subscriber));
+        return subscriber.emitter;
+    }
+
+    /**
+     * Forward a ride event to every subscriber, including terminal states so dashboards can drop the ride
+     */
+    public void publish(Map<String, Object> event) {
+        if (subscribers.isEmpty() || event.get("rideId") == null || event.get("status") == null) {
+            return;
+        }
+        ActiveRideDto change = toActiveRideDto(event);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().name("ride").data(change, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ride.active-feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    private void streamSnapshot(Subscriber subscriber) {
+        Pageable page = PageRequest.of(0, pageSize);
+        long total = 0;
+        try {
+            for (Ride.RideStatus status : ACTIVE_STATUSES) {
+                long afterId = 0;
+                while (!subscriber.closed && !subscriber.overflowed) {
+                    List<ActiveRideDto> rides = rideRepository.findFeedPage(status, afterId, page);
+                    if (rides.isEmpty()) {
+                        break;
+                    }
+                    subscriber.send(SseEmitter.event().name("snapshot").data(rides, MediaType.APPLICATION_JSON));
+                    total += rides.size();
+                    afterId = rides.get(rides.size() - 1).getId();
+                    if (rides.size() < pageSize) {
+                        break;
+                    }
+                }
+            }
+            if (!subscriber.overflowed) {
+                subscriber.send(SseEmitter.event().name("snapshot-complete").data(Map.of("rides", total)));
+            }
+            subscriber.goLive();
+        } catch (Exception e) {
+            logger.warn("Active ride snapshot failed: {}", e.getMessage());
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private ActiveRideDto toActiveRideDto(Map<String, Object> event) {
+        return ActiveRideDto.builder()
+                .id(toLong(event.get("rideId")))
+                .customerId(toLong(event.get("customerId")))
+                .driverId(toLong(event.get("driverId")))
+                .vehicleType((String) event.get("vehicleType"))
+                .status(Ride.RideStatus.valueOf(event.get("status").toString()))
+                .pickupLatitude(toDouble(event.get("pickupLatitude")))
+                .pickupLongitude(toDouble(event.get("pickupLongitude")))
+                .dropoffLatitude(toDouble(event.get("dropoffLatitude")))
+                .dropoffLongitude(toDouble(event.get("dropoffLongitude")))
+                .requestedAt(event.get("requestedAt") != null
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(toLong(event.get("requestedAt"))), ZoneId.systemDefault())
+                        : null)
+                .version(toLong(event.get("version")))
+                .build();
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean live;
+        private volatile boolean closed;
+        private volatile boolean overflowed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed || overflowed) {
+                return;
+            }
+            if (!pending.offer(event)) {
+                // The resync is sent by the next drain, off the publishing thread
+                overflowed = true;
+                subscribers.remove(this);
+                pending.clear();
+                if (live) {
+                    scheduleDrain();
+                }
+                return;
+            }
+            if (live) {
+                scheduleDrain();
+            }
+        }
+
+        void goLive() {
+            live = true;
+            scheduleDrain();
+        }
+
+        void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            pending.clear();
+            subscribers.remove(this);
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && !overflowed && (event = pending.poll()) != null) {
+                    send(event);
+                }
+                if (!closed && overflowed) {
+                    logger.warn("Active ride feed subscriber fell behind, asking it to resync");
+                    send(SseEmitter.event().name("resync").data("queue overflow"));
+                    emitter.complete();
+                    close();
+                }
+            } finally {
+                draining.set(false);
+                if (!closed && (overflowed || !pending.isEmpty())) {
+                    scheduleDrain();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.client.CabServiceClient;
+import com.cabservice.ride.dto.RideDto;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.kafka.RideEventProducer;
+import com.cabservice.ride.util.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Driver Offer Engine - Offers newly booked rides to nearby drivers in waves.
+ * <p>
+ * Each wave asks cab-service for available drivers within the current radius (nearest first),
+ * offers the ride to the top-k drivers not offered before, and waits for the offer timeout; the
+ * radius widens with every wave. Offers are announced as RIDE_OFFERED events. Drivers accept
+ * through the normal accept endpoint, whose conditional update on the ride is the CAS that lets
+ * exactly one driver win; the search stops as soon as any instance reports the ride left
+ * SEARCHING_DRIVER. If no driver accepts after the last wave the ride is cancelled.
+ * <p>
+ * Timeouts live on a hashed timing wheel and cab-service lookups run on a small bounded pool, so
+ * thousands of concurrent searches cost one small state object and one wheel entry each.
+ */
+@Service
+public class DriverOfferEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverOfferEngine.class);
+
+    private final CabServiceClient cabServiceClient;
+    private final RideEventProducer rideEventProducer;
+    private final RideService rideService;
+    private final TimingWheel timingWheel;
+    private final ThreadPoolExecutor searchExecutor;
+    private final Map<Long, Search> searches = new ConcurrentHashMap<>();
+    private final int maxConcurrentSearches;
+
+    @Value("${ride.offer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ride.offer.top-k:5}")
+    private int topK;
+
+    @Value("${ride.offer.initial-radius-km:2.0}")
+    private double initialRadiusKm;
+
+    @Value("${ride.offer.radius-growth:1.5}")
+    private double radiusGrowth;
+
+    @Value("${ride.offer.max-radius-km:10.0}")
+    private double maxRadiusKm;
+
+    @Value("${ride.offer.max-waves:4}")
+    private int maxWaves;
+
+    @Value("${ride.offer.offer-timeout-ms:15000}")
+    private long offerTimeoutMs;
+
+    @Value("${ride.offer.empty-wave-delay-ms:5000}")
+    private long emptyWaveDelayMs;
+
+    public DriverOfferEngine(CabServiceClient cabServiceClient,
+                             RideEventProducer rideEventProducer,
+                             RideService rideService,
+                             @Value("${ride.offer.search-threads:16}") int searchThreads,
+                             @Value("${ride.offer.tick-ms:100}") long tickMs,
+                             @Value("${ride.offer.wheel-size:512}") int wheelSize,
+                             @Value("${ride.offer.max-concurrent-searches:10000}") int maxConcurrentSearches) {
+        this.cabServiceClient = cabServiceClient;
+        this.rideEventProducer = rideEventProducer;
+        this.rideService = rideService;
+        this.maxConcurrentSearches = maxConcurrentSearches;
+        this.timingWheel = new TimingWheel("driver-offer-wheel", tickMs, wheelSize, maxConcurrentSearches);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.searchExecutor = new ThreadPoolExecutor(searchThreads, searchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentSearches), runnable -> {
+                    Thread thread = new Thread(runnable, "driver-offer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Start offering a freshly booked ride to nearby drivers; called inside a transaction, the
+     * search starts only once it has committed
+     */
+    public void startSearch(RideDto ride) {
+        if (!enabled || ride.getStatus() != Ride.RideStatus.SEARCHING_DRIVER) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    beginSearch(ride);
+                }
+            });
+        } else {
+            beginSearch(ride);
+        }
+    }
+
+    private void beginSearch(RideDto ride) {
+        if (searches.size() >= maxConcurrentSearches) {
+            logger.warn("Driver search capacity reached, ride {} waits for a direct accept", ride.getId());
+            return;
+        }
+        Search search = new Search(ride);
+        if (searches.putIfAbsent(ride.getId(), search) == null) {
+            submit(search, () -> runWave(search));
+        }
+    }
+
+    /**
+     * Stop searching once a ride has left SEARCHING_DRIVER (accepted or cancelled anywhere)
+     */
+    public void onRideEvent(Map<String, Object> event) {
+        Object status = event.get("status");
+        if (status == null || event.get("rideId") == null
+                || Ride.RideStatus.SEARCHING_DRIVER.name().equals(status.toString())) {
+            return;
+        }
+        stopSearch(Long.valueOf(event.get("rideId").toString()));
+    }
+
+    public void stopSearch(Long rideId) {
+        Search search = searches.remove(rideId);
+        if (search != null) {
+            synchronized (search) {
+                search.finished = true;
+                if (search.timeout != null) {
+                    search.timeout.cancel();
+                }
+            }
+        }
+    }
+
+    public int activeSearches() {
+        return searches.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+        searchExecutor.shutdownNow();
+    }
+
+    private void runWave(Search search) {
+        int wave;
+        synchronized (search) {
+            if (search.finished) {
+                return;
+            }
+            wave = ++search.wave;
+        }
+        double radiusKm = Math.min(maxRadiusKm, initialRadiusKm * Math.pow(radiusGrowth, wave - 1));
+        List<Long> candidates = findCandidates(search, radiusKm);
+
+        List<Long> offered = new ArrayList<>(topK);
+        synchronized (search) {
+            if (search.finished) {
+                return;
+            }
+            for (Long driverId : candidates) {
+                if (offered.size() < topK && search.offeredDrivers.add(driverId)) {
+                    offered.add(driverId);
+                }
+            }
+        }
+
+        long waitMs = offered.isEmpty() ? emptyWaveDelayMs : offerTimeoutMs;
+        if (!offered.isEmpty()) {
+            rideEventProducer.sendRideOfferedEvent(search.rideId, search.customerId, offered,
+                    wave, radiusKm, System.currentTimeMillis() + waitMs);
+            logger.debug("Ride {} wave {} offered to {} drivers within {} km", search.rideId, wave, offered.size(), radiusKm);
+        }
+        schedule(search, waitMs);
+    }
+
+    private List<Long> findCandidates(Search search, double radiusKm) {
+        try {
+            Object[] drivers = cabServiceClient.findNearbyCabs(search.latitude, search.longitude,
+                    radiusKm, search.vehicleType);
+            List<Long> driverIds = new ArrayList<>(drivers.length);
+            for (Object driver : drivers) {
+                // Drivers act on rides with their user id (X-User-Id), so offers are addressed by it
+                if (driver instanceof Map<?, ?> details && details.get("userId") != null) {
+                    driverIds.add(Long.valueOf(details.get("userId").toString()));
+                }
+            }
+            return driverIds;
+        } catch (Exception e) {
+            logger.warn("Failed to find nearby drivers for ride {}: {}", search.rideId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Wait for the current wave, then widen the search or give up
+     */
+    private void schedule(Search search, long delayMs) {
+        synchronized (search) {
+            if (search.finished) {
+                return;
+            }
+            try {
+                search.timeout = timingWheel.schedule(() -> onWaveTimeout(search), delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.warn("No timer capacity for ride {}, stopping its driver search", search.rideId);
+                stopSearch(search.rideId);
+            }
+        }
+    }
+
+    // Runs on the timing wheel thread: only decide and hand off
+    private void onWaveTimeout(Search search) {
+        boolean lastWave;
+        synchronized (search) {
+            if (search.finished) {
+                return;
+            }
+            lastWave = search.wave >= maxWaves;
+        }
+        if (lastWave) {
+            submit(search, () -> giveUp(search));
+        } else {
+            submit(search, () -> runWave(search));
+        }
+    }
+
+    private void giveUp(Search search) {
+        stopSearch(search.rideId);
+        try {
+            rideService.cancelRide(search.rideId, null, "No drivers available", "SYSTEM");
+            logger.info("No driver accepted ride {} after {} waves, ride cancelled", search.rideId, search.wave);
+        } catch (IllegalStateException e) {
+            // Accepted or cancelled in the meantime
+            logger.debug("Ride {} left driver search before give-up: {}", search.rideId, e.getMessage());
+        }
+    }
+
+    private void submit(Search search, Runnable step) {
+        try {
+            searchExecutor.execute(step);
+        } catch (RejectedExecutionException e) {
+            // Pool saturated: retry this step a little later instead of queueing without bound
+            schedule(search, emptyWaveDelayMs);
+        }
+    }
+
+    private static final class Search {
+
+        private final Long rideId;
+        private final Long customerId;
+        private final double latitude;
+        private final double longitude;
+        private final String vehicleType;
+        private final Set<Long> offeredDrivers = new HashSet<>();
+
+        private int wave;
+        private boolean finished;
+        private TimingWheel.Timeout timeout;
+
+        Search(RideDto ride) {
+            this.rideId = ride.getId();
+            this.customerId = ride.getCustomerId();
+            this.latitude = ride.getPickupLatitude();
+            this.longitude = ride.getPickupLongitude();
+            this.vehicleType = ride.getVehicleType();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.repository.RideArchiveRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ride Archive Service - Moves finished rides from the hot {@code rides} table to cold storage.
+ * <p>
+ * Completed and cancelled rides older than the retention window are moved in bounded batches,
+ * each in its own short transaction, so active-ride queries only ever scan the small hot set.
+ */
+@Service
+public class RideArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideArchiveService.class);
+
+    private final RideArchiveRepository rideArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean ready;
+
+    @Value("${ride.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ride.archive.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${ride.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ride.archive.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    public RideArchiveService(RideArchiveRepository rideArchiveRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.rideArchiveRepository = rideArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        try {
+            rideArchiveRepository.prepareArchiveTable();
+            ready = true;
+        } catch (Exception e) {
+            logger.error("Failed to prepare rides_archive table, archival disabled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Oldest request time that is guaranteed to still be in the hot table
+     */
+    public LocalDateTime hotHorizon() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    @Scheduled(fixedDelayString = "${ride.archive.interval-ms:300000}",
+               initialDelayString = "${ride.archive.initial-delay-ms:60000}")
+    public void archiveFinishedRides() {
+        if (!enabled || !ready) {
+            return;
+        }
+
+        LocalDateTime cutoff = hotHorizon();
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer moved = transactionTemplate.execute(status -> {
+                List<Long> ids = rideArchiveRepository.lockArchivableIds(cutoff, batchSize);
+                return rideArchiveRepository.moveToArchive(ids);
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            total += moved;
+        }
+
+        if (total > 0) {
+            logger.info("Archived {} finished rides requested before {}", total, cutoff);
+        }
+    }
+}
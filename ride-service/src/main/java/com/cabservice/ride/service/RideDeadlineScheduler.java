@@ -0,0 +1,220 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.RideDeadline;
+import com.cabservice.ride.repository.RideRepository;
+import com.cabservice.ride.util.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride Deadline Scheduler - Expires rides stuck waiting for a driver or for the driver to arrive.
+ * <p>
+ * Every ride in REQUESTED, SEARCHING_DRIVER or ACCEPTED has one timer on a hashed timing wheel,
+ * counted from when it entered dispatch (or was requested) and from acceptance respectively.
+ * Timers are re-armed on each ride event from the broadcast consumer and cleared when the ride
+ * moves on.
+ * On startup the timers are rebuilt by paging the (status, requested_at) index, so the
+ * {@code rides} table is never scanned periodically. Expired rides are queued and cancelled in
+ * batches; every instance tracks every ride, and SKIP LOCKED plus the status guard make sure each
+ * ride is cancelled, and its RIDE_CANCELLED event published, exactly once.
+ */
+@Service
+public class RideDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideDeadlineScheduler.class);
+    private static final List<Ride.RideStatus> EXPIRING_STATUSES = List.of(
+            Ride.RideStatus.REQUESTED,
+            Ride.RideStatus.SEARCHING_DRIVER,
+            Ride.RideStatus.ACCEPTED);
+
+    private final RideRepository rideRepository;
+    private final RideService rideService;
+    private final TimingWheel timingWheel;
+    private final Map<Long, Armed> armed = new ConcurrentHashMap<>();
+    private final Queue<Long> expired = new ConcurrentLinkedQueue<>();
+
+    @Value("${ride.deadline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ride.deadline.search-timeout-seconds:300}")
+    private long searchTimeoutSeconds;
+
+    @Value("${ride.deadline.accept-timeout-seconds:1800}")
+    private long acceptTimeoutSeconds;
+
+    @Value("${ride.deadline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ride.deadline.rebuild-page-size:1000}")
+    private int rebuildPageSize;
+
+    public RideDeadlineScheduler(RideRepository rideRepository,
+                                 RideService rideService,
+                                 @Value("${ride.deadline.tick-ms:1000}") long tickMs,
+                                 @Value("${ride.deadline.wheel-size:1024}") int wheelSize,
+                                 @Value("${ride.deadline.max-pending:1000000}") int maxPending) {
+        this.rideRepository = rideRepository;
+        this.rideService = rideService;
+        this.timingWheel = new TimingWheel("ride-deadline-wheel", tickMs, wheelSize, maxPending);
+    }
+
+    /**
+     * Rebuild every ride's timer from the (status, requested_at) index
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Pageable page = PageRequest.of(0, rebuildPageSize);
+        int total = 0;
+        try {
+            for (Ride.RideStatus status : EXPIRING_STATUSES) {
+                LocalDateTime afterRequestedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+                long afterId = 0;
+                while (true) {
+                    List<RideDeadline> rides = rideRepository.findDeadlinePage(status, afterRequestedAt, afterId, page);
+                    for (RideDeadline ride : rides) {
+                        arm(ride.getId(), ride.getStatus(), ride.getVersion(), toMillis(ride.getRequestedAt()),
+                                toMillis(ride.getDispatchAt()), toMillis(ride.getAcceptedAt()));
+                    }
+                    total += rides.size();
+                    if (rides.size() < rebuildPageSize) {
+                        break;
+                    }
+                    RideDeadline last = rides.get(rides.size() - 1);
+                    afterRequestedAt = last.getRequestedAt();
+                    afterId = last.getId();
+                }
+            }
+            logger.info("Armed deadlines for {} open rides", total);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild ride deadlines after {} rides: {}", total, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-arm or clear a ride's timer from a ride event
+     */
+    public void onRideEvent(Map<String, Object> event) {
+        if (!enabled || event.get("rideId") == null || event.get("status") == null || event.get("version") == null) {
+            return;
+        }
+        arm(Long.valueOf(event.get("rideId").toString()),
+                Ride.RideStatus.valueOf(event.get("status").toString()),
+                Long.parseLong(event.get("version").toString()),
+                toLong(event.get("requestedAt")),
+                toLong(event.get("dispatchAt")),
+                toLong(event.get("acceptedAt")));
+    }
+
+    public int armedRides() {
+        return armed.size();
+    }
+
+    /**
+     * Cancel expired rides in batches, each batch in its own transaction
+     */
+    @Scheduled(fixedDelayString = "${ride.deadline.flush-interval-ms:1000}")
+    public void expireRides() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        Long rideId;
+        while ((rideId = expired.poll()) != null) {
+            batch.add(rideId);
+            if (batch.size() == batchSize) {
+                expireBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            expireBatch(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+    }
+
+    private void expireBatch(List<Long> rideIds) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            rideService.expireRides(rideIds, now.minusSeconds(searchTimeoutSeconds), now.minusSeconds(acceptTimeoutSeconds));
+        } catch (Exception e) {
+            // Retried on the next flush
+            logger.warn("Failed to expire {} rides: {}", rideIds.size(), e.getMessage());
+            expired.addAll(rideIds);
+        }
+    }
+
+    private void arm(Long rideId, Ride.RideStatus status, long version, Long requestedAt, Long dispatchAt,
+                     Long acceptedAt) {
+        Long deadline = deadlineFor(status, dispatchAt != null ? dispatchAt : requestedAt, acceptedAt);
+        armed.compute(rideId, (id, current) -> {
+            if (current != null) {
+                if (current.version() >= version) {
+                    return current;
+                }
+                current.timeout().cancel();
+            }
+            if (deadline == null) {
+                return null;
+            }
+            long delayMs = Math.max(0, deadline - System.currentTimeMillis());
+            try {
+                return new Armed(version, timingWheel.schedule(() -> onExpired(rideId, version), delayMs, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException e) {
+                logger.warn("No deadline capacity for ride {}, it is armed again on restart", rideId);
+                return null;
+            }
+        });
+    }
+
+    // Runs on the timing wheel thread: only hand the ride to the next batch
+    private void onExpired(Long rideId, long version) {
+        armed.computeIfPresent(rideId, (id, current) -> current.version() == version ? null : current);
+        expired.add(rideId);
+    }
+
+    private Long deadlineFor(Ride.RideStatus status, Long searchStartedAt, Long acceptedAt) {
+        return switch (status) {
+            case REQUESTED, SEARCHING_DRIVER -> searchStartedAt != null
+                    ? searchStartedAt + TimeUnit.SECONDS.toMillis(searchTimeoutSeconds) : null;
+            case ACCEPTED -> acceptedAt != null
+                    ? acceptedAt + TimeUnit.SECONDS.toMillis(acceptTimeoutSeconds) : null;
+            default -> null;
+        };
+    }
+
+    // Ride timestamps are stored as local LocalDateTime and travel in events as epoch millis
+    private static Long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private record Armed(long version, TimingWheel.Timeout timeout) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.client.RoutingServiceClient;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.entity.RideLocation;
+import com.cabservice.ride.repository.RideLocationRepository;
+import com.cabservice.ride.repository.RideRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ride Distance Corrector - Matches the GPS track of a completed ride to routing-service's road
+ * network and re-bills the ride when the matched distance differs from the odometer distance it
+ * was completed with.
+ * <p>
+ * Runs as a step of the completion saga, after the completing transaction has committed, so the
+ * track is read and routing-service is called without holding a database connection or row lock.
+ * Correction is best effort: a ride whose track cannot be matched stays billed on its odometer.
+ */
+@Service
+public class RideDistanceCorrector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideDistanceCorrector.class);
+
+    private final RideRepository rideRepository;
+    private final RideLocationRepository rideLocationRepository;
+    private final RoutingServiceClient routingServiceClient;
+    private final RideService rideService;
+
+    @Value("${ride.map-matching.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ride.map-matching.min-correction-km:0.05}")
+    private BigDecimal minCorrectionKm;
+
+    public RideDistanceCorrector(RideRepository rideRepository,
+                                 RideLocationRepository rideLocationRepository,
+                                 RoutingServiceClient routingServiceClient,
+                                 RideService rideService) {
+        this.rideRepository = rideRepository;
+        this.rideLocationRepository = rideLocationRepository;
+        this.routingServiceClient = routingServiceClient;
+        this.rideService = rideService;
+    }
+
+    /**
+     * Match the track of a completed ride and apply the matched distance if it differs enough
+     */
+    public void correct(Long rideId) {
+        if (!enabled) {
+            return;
+        }
+        Ride ride = rideRepository.findById(rideId).orElse(null);
+        if (ride == null || ride.getStatus() != Ride.RideStatus.COMPLETED || ride.getDistanceKm() == null) {
+            return;
+        }
+        BigDecimal matched = matchedDistance(rideId);
+        if (matched == null || matched.subtract(ride.getDistanceKm()).abs().compareTo(minCorrectionKm) < 0) {
+            return;
+        }
+        rideService.correctDistance(rideId, ride.getDistanceKm(), matched);
+    }
+
+    /**
+     * Distance of the recorded track matched to the road network, or null if the track is too
+     * short, or routing-service has no road network to match against
+     */
+    private BigDecimal matchedDistance(Long rideId) {
+        try {
+            List<RideLocation> track = rideLocationRepository.findByRideIdOrderByTimestampAsc(rideId);
+            if (track.size() < 2) {
+                return null;
+            }
+            double[] latitudes = new double[track.size()];
+            double[] longitudes = new double[track.size()];
+            for (int i = 0; i < track.size(); i++) {
+                latitudes[i] = track.get(i).getLatitude();
+                longitudes[i] = track.get(i).getLongitude();
+            }
+            Map<String, Object> response = routingServiceClient.matchTrack(Map.of(
+                    "latitudes", latitudes,
+                    "longitudes", longitudes
+            ));
+            if (!"ROAD".equals(response.get("model"))) {
+                return null;
+            }
+            return new BigDecimal(response.get("distanceKm").toString()).setScale(2, RoundingMode.HALF_UP);
+        } catch (Exception e) {
+            logger.warn("Failed to map-match ride {}: {}", rideId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.entity.RideLocation;
+import com.cabservice.ride.exception.ResourceNotFoundException;
+import com.cabservice.ride.repository.RideLocationRepository;
+import com.cabservice.ride.repository.RideRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ride Location Ingestion Service - Buffers in-trip location pings and writes them in batches.
+ * <p>
+ * Pings are validated against a cache of in-progress rides instead of loading the ride on every
+ * call, accumulated per ride, and flushed periodically (or when the buffer fills) as JDBC batches.
+ * With {@code rewriteBatchedStatements} enabled on the MySQL URL each batch becomes a multi-row
+ * INSERT, and ids are still assigned by the existing auto-increment column.
+ * <p>
+ * Every accepted point is also folded into the ride's {@link TripOdometer}, so the trip distance
+ * and moving time are ready at completion without re-reading the track.
+ * <p>
+ * A batch that fails to write is kept and retried on the next flushes, up to
+ * {@code ride.tracking.max-write-attempts}; only then are its points dropped and counted in
+ * {@code ride.tracking.points.dropped}.
+ */
+@Service
+public class RideLocationIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideLocationIngestionService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ride_locations (ride_id, latitude, longitude, speed, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RideRepository rideRepository;
+    private final RideLocationRepository rideLocationRepository;
+
+    private final Set<Long> inProgressRides = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, List<RideLocation>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TripOdometer> odometers = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<FailedBatch> failedBatches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedPoints = new AtomicInteger();
+    private final Counter droppedPoints;
+
+    @Value("${ride.tracking.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ride.tracking.max-buffered-points:50000}")
+    private int maxBufferedPoints;
+
+    @Value("${ride.tracking.max-write-attempts:3}")
+    private int maxWriteAttempts;
+
+    @Value("${ride.tracking.max-speed-kmh:160}")
+    private double maxSpeedKmh;
+
+    @Value("${ride.tracking.min-segment-meters:10}")
+    private double minSegmentMeters;
+
+    @Value("${ride.tracking.min-moving-speed-kmh:3}")
+    private double minMovingSpeedKmh;
+
+    public RideLocationIngestionService(JdbcTemplate jdbcTemplate,
+                                        RideRepository rideRepository,
+                                        RideLocationRepository rideLocationRepository,
+                                        MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rideRepository = rideRepository;
+        this.rideLocationRepository = rideLocationRepository;
+        this.droppedPoints = Counter.builder("ride.tracking.points.dropped")
+                .description("Location points discarded after repeated write failures")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register a ride that has just started so its pings are accepted without a lookup
+     */
+    public void markInProgress(Long rideId) {
+        odometers.put(rideId, newOdometer());
+        inProgressRides.add(rideId);
+    }
+
+    /**
+     * Stop accepting pings for a ride and write out whatever is still buffered for it
+     */
+    public void markFinished(Long rideId) {
+        inProgressRides.remove(rideId);
+        odometers.remove(rideId);
+        flush(rideId);
+    }
+
+    /**
+     * Forget a ride that finished on another instance. Its buffered points, if any, are still
+     * written by the next flush.
+     */
+    public void onRideEvent(Map<String, Object> event) {
+        Object status = event.get("status");
+        if (event.get("rideId") == null
+                || !(Ride.RideStatus.COMPLETED.name().equals(status) || Ride.RideStatus.CANCELLED.name().equals(status))) {
+            return;
+        }
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        inProgressRides.remove(rideId);
+        odometers.remove(rideId);
+    }
+
+    /**
+     * Running distance and moving time of an in-progress ride. Only after a restart does this
+     * need to replay the recorded track once.
+     */
+    public TripOdometer currentTrip(Long rideId) {
+        return odometers.computeIfAbsent(rideId, this::rebuildOdometer);
+    }
+
+    /**
+     * Buffer a single location ping
+     */
+    public void record(Long rideId, Double latitude, Double longitude, Double speed) {
+        record(rideId, List.of(RideLocation.builder()
+                .rideId(rideId)
+                .latitude(latitude)
+                .longitude(longitude)
+                .speed(speed)
+                .timestamp(LocalDateTime.now())
+                .build()));
+    }
+
+    /**
+     * Buffer a group of location pings for one ride
+     */
+    public void record(Long rideId, List<RideLocation> points) {
+        ensureInProgress(rideId);
+
+        // May be gone if the ride finished concurrently; the points are still stored
+        TripOdometer odometer = odometers.get(rideId);
+        if (odometer != null) {
+            for (RideLocation point : points) {
+                odometer.accept(point.getLatitude(), point.getLongitude(), point.getTimestamp());
+            }
+        }
+
+        pending.compute(rideId, (id, buffered) -> {
+            List<RideLocation> list = buffered != null ? buffered : new ArrayList<>();
+            list.addAll(points);
+            return list;
+        });
+
+        if (bufferedPoints.addAndGet(points.size()) >= maxBufferedPoints) {
+            flushAll();
+        }
+    }
+
+    /**
+     * Write buffered points of a single ride (e.g. before reading its track)
+     */
+    public void flush(Long rideId) {
+        List<RideLocation> points = pending.remove(rideId);
+        if (points != null) {
+            write(points, 1);
+        }
+    }
+
+    /**
+     * Write all buffered points in batches
+     */
+    @Scheduled(fixedDelayString = "${ride.tracking.flush-interval-ms:1000}")
+    public void flushAll() {
+        retryFailed();
+        List<RideLocation> batch = new ArrayList<>(batchSize);
+        for (Long rideId : pending.keySet()) {
+            List<RideLocation> points = pending.remove(rideId);
+            if (points == null) {
+                continue;
+            }
+            batch.addAll(points);
+            if (batch.size() >= batchSize) {
+                write(batch, 1);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, 1);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    private void ensureInProgress(Long rideId) {
+        if (inProgressRides.contains(rideId)) {
+            return;
+        }
+
+        // Cache miss (e.g. after a restart): check the ride once and remember it
+        Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+
+        if (ride.getStatus() != Ride.RideStatus.IN_PROGRESS) {
+            throw new IllegalStateException("Can only track in-progress rides");
+        }
+        odometers.computeIfAbsent(rideId, this::rebuildOdometer);
+        inProgressRides.add(rideId);
+    }
+
+    private TripOdometer newOdometer() {
+        return new TripOdometer(maxSpeedKmh, minSegmentMeters, minMovingSpeedKmh);
+    }
+
+    private TripOdometer rebuildOdometer(Long rideId) {
+        flush(rideId);
+        TripOdometer odometer = newOdometer();
+        for (RideLocation point : rideLocationRepository.findByRideIdOrderByTimestampAsc(rideId)) {
+            odometer.accept(point.getLatitude(), point.getLongitude(), point.getTimestamp());
+        }
+        logger.debug("Rebuilt odometer for ride {} from {} recorded points", rideId, odometer.getAcceptedPoints());
+        return odometer;
+    }
+
+    /**
+     * Write again the batches that failed before, once each; a batch failing again is re-queued
+     * by {@link #write}
+     */
+    private void retryFailed() {
+        for (int i = failedBatches.size(); i > 0; i--) {
+            FailedBatch failed = failedBatches.poll();
+            if (failed == null) {
+                return;
+            }
+            write(failed.points(), failed.attempt() + 1);
+        }
+    }
+
+    private void write(List<RideLocation> points, int attempt) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, points, batchSize, (ps, point) -> {
+                ps.setLong(1, point.getRideId());
+                ps.setDouble(2, point.getLatitude());
+                ps.setDouble(3, point.getLongitude());
+                if (point.getSpeed() != null) {
+                    ps.setDouble(4, point.getSpeed());
+                } else {
+                    ps.setNull(4, Types.DOUBLE);
+                }
+                ps.setTimestamp(5, Timestamp.valueOf(point.getTimestamp()));
+            });
+            logger.debug("Flushed {} ride location points", points.size());
+        } catch (Exception e) {
+            if (attempt < maxWriteAttempts) {
+                // Still counted as buffered, so a failing database also slows down intake
+                failedBatches.add(new FailedBatch(points, attempt));
+                logger.warn("Failed to write {} ride location points (attempt {}), will retry: {}",
+                        points.size(), attempt, e.getMessage());
+                return;
+            }
+            droppedPoints.increment(points.size());
+            logger.error("Dropped {} ride location points after {} attempts: {}",
+                    points.size(), attempt, e.getMessage());
+        }
+        bufferedPoints.addAndGet(-points.size());
+    }
+
+    private record FailedBatch(List<RideLocation> points, int attempt) {
+    }
+}
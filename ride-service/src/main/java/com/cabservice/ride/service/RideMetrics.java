@@ -0,0 +1,119 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ride Metrics - Latency of ride lifecycle transitions and of the ride itself.
+ * <p>
+ * {@code ride.transition} times each {@link RideService} transition including its commit, tagged
+ * by transition and outcome ({@code success}, {@code rejected} when a business rule refused it,
+ * {@code error}); see {@link TransitionTimingAspect}. {@code ride.time-to-accept},
+ * {@code ride.time-to-arrive} and {@code ride.trip-duration} are derived from the ride's own
+ * timestamps, tagged by vehicle type, and recorded only once the transition has committed, so
+ * rolled-back transitions never reach the histograms. All timers publish
+ * percentile histograms and are created once per tag combination, so recording is a map lookup
+ * and a lock-free histogram update.
+ */
+@Component
+public class RideMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public RideMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run a transition and record how long it took and how it ended
+     */
+    public Object timeTransition(String transition, Transition action) throws Throwable {
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = action.run();
+            outcome = "success";
+            return result;
+        } catch (IllegalStateException | IllegalArgumentException | ResourceNotFoundException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            timer("ride.transition", "Time spent in a ride lifecycle transition",
+                    "transition", transition, "outcome", outcome)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Time from entering driver search (or booking) to a driver accepting
+     */
+    public void recordAccepted(Ride ride) {
+        LocalDateTime searchStartedAt = ride.getDispatchAt() != null ? ride.getDispatchAt() : ride.getRequestedAt();
+        recordAfterCommit("ride.time-to-accept", "Time from driver search start to acceptance", ride,
+                searchStartedAt, ride.getAcceptedAt());
+    }
+
+    /**
+     * Time from acceptance to the driver arriving at pickup
+     */
+    public void recordArrived(Ride ride) {
+        recordAfterCommit("ride.time-to-arrive", "Time from acceptance to driver arrival", ride,
+                ride.getAcceptedAt(), ride.getDriverArrivedAt());
+    }
+
+    /**
+     * Time from pickup to dropoff
+     */
+    public void recordCompleted(Ride ride) {
+        recordAfterCommit("ride.trip-duration", "Time from ride start to completion", ride,
+                ride.getStartedAt(), ride.getCompletedAt());
+    }
+
+    private void recordAfterCommit(String name, String description, Ride ride, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            return;
+        }
+        String vehicleType = ride.getVehicleType() != null ? ride.getVehicleType() : "UNKNOWN";
+        Duration elapsed = Duration.between(from, to);
+        Runnable record = () -> timer(name, description, "vehicleType", vehicleType)
+                .record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return timers.computeIfAbsent(name + "|" + String.join("|", tags), key -> Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * A transition method invocation
+     */
+    @FunctionalInterface
+    public interface Transition {
+        Object run() throws Throwable;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.dto.RideDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ride Read Model - Query-side view of rides, kept apart from the JPA write model.
+ * <p>
+ * Each lifecycle transition publishes the finished {@link RideDto} together with its JSON bytes
+ * and an ETag derived from the ride version. Polling reads are then served straight from this
+ * bounded cache without loading the entity or building the DTO again. A view is only replaced by
+ * one with a higher version, so a late lazy load can never overwrite a newer transition. Other
+ * instances drop their copy when they see the ride event for a newer version; changes that emit no
+ * event (ratings, settlement) are evicted locally and bounded elsewhere by the time-to-live.
+ */
+@Component
+public class RideReadModel {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, RideView> views;
+
+    public RideReadModel(ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${ride.read-model.cache-size:50000}") long cacheSize,
+                         @Value("${ride.read-model.ttl-minutes:10}") long ttlMinutes) {
+        this.objectMapper = objectMapper;
+        this.views = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, views, "ride.read-model");
+    }
+
+    public Optional<RideView> find(Long rideId) {
+        return Optional.ofNullable(views.getIfPresent(rideId));
+    }
+
+    public Map<Long, RideView> findAll(Collection<Long> rideIds) {
+        return views.getAllPresent(rideIds);
+    }
+
+    /**
+     * Build the view of a ride and store it once the surrounding transaction has committed
+     */
+    public RideView publish(RideDto ride, long version) {
+        RideView view = toView(ride, version);
+        afterCommit(() -> store(view));
+        return view;
+    }
+
+    /**
+     * Drop the view of a ride once the surrounding transaction has committed
+     */
+    public void evict(Long rideId) {
+        afterCommit(() -> views.invalidate(rideId));
+    }
+
+    /**
+     * Drop the view of a ride if it is older than the given version (e.g. changed on another instance)
+     */
+    public void evictOlderThan(Long rideId, long version) {
+        views.asMap().computeIfPresent(rideId, (id, current) -> current.version() < version ? null : current);
+    }
+
+    private void store(RideView view) {
+        views.asMap().merge(view.ride().getId(), view,
+                (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+    }
+
+    private RideView toView(RideDto ride, long version) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(ride);
+            return new RideView(ride, body, "\"" + ride.getId() + "-" + version + "\"", version);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ride view could not be serialised", e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
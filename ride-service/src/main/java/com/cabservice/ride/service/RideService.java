@@ -8,22 +8,40 @@ import com.cabservice.ride.entity.Ride;
 import com.cabservice.ride.entity.RideLocation;
 import com.cabservice.ride.exception.ResourceNotFoundException;
 import com.cabservice.ride.kafka.RideEventProducer;
+import com.cabservice.ride.pool.RidePoolingService;
+import com.cabservice.ride.repository.RideArchiveRepository;
 import com.cabservice.ride.repository.RideLocationRepository;
 import com.cabservice.ride.repository.RideRepository;
+import com.cabservice.ride.repository.RideVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Ride Service - Handles ride booking and lifecycle management
@@ -33,6 +51,11 @@ import java.util.Random;
 public class RideService {
 
     private static final Logger logger = LoggerFactory.getLogger(RideService.class);
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final Comparator<RideSummaryDto> HISTORY_ORDER = Comparator
+            .comparing(RideSummaryDto::getRequestedAt)
+            .thenComparing(RideSummaryDto::getId)
+            .reversed();
 
     private final RideRepository rideRepository;
     private final RideLocationRepository rideLocationRepository;
@@ -40,29 +63,71 @@ public class RideService {
     private final BillingServiceClient billingServiceClient;
     private final RoutingServiceClient routingServiceClient;
     private final RideEventProducer rideEventProducer;
+    private final RideLocationIngestionService rideLocationIngestionService;
+    private final RideArchiveRepository rideArchiveRepository;
+    private final RideArchiveService rideArchiveService;
+    private final RideReadModel rideReadModel;
+    private final RidePoolingService ridePoolingService;
+    private final RideMetrics rideMetrics;
+    private final SpeedSampleReporter speedSampleReporter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${ride.scheduled.lead-time-minutes:15}")
+    private long scheduledLeadTimeMinutes;
+
+    @Value("${ride.scheduled.min-advance-minutes:30}")
+    private long scheduledMinAdvanceMinutes;
+
+    @Value("${ride.scheduled.max-advance-days:7}")
+    private long scheduledMaxAdvanceDays;
 
     public RideService(RideRepository rideRepository,
                        RideLocationRepository rideLocationRepository,
                        CabServiceClient cabServiceClient,
                        BillingServiceClient billingServiceClient,
                        RoutingServiceClient routingServiceClient,
-                       RideEventProducer rideEventProducer) {
+                       RideEventProducer rideEventProducer,
+                       RideLocationIngestionService rideLocationIngestionService,
+                       RideArchiveRepository rideArchiveRepository,
+                       RideArchiveService rideArchiveService,
+                       RideReadModel rideReadModel,
+                       RidePoolingService ridePoolingService,
+                       RideMetrics rideMetrics,
+                       SpeedSampleReporter speedSampleReporter,
+                       PlatformTransactionManager transactionManager) {
         this.rideRepository = rideRepository;
         this.rideLocationRepository = rideLocationRepository;
         this.cabServiceClient = cabServiceClient;
         this.billingServiceClient = billingServiceClient;
         this.routingServiceClient = routingServiceClient;
         this.rideEventProducer = rideEventProducer;
+        this.rideLocationIngestionService = rideLocationIngestionService;
+        this.rideArchiveRepository = rideArchiveRepository;
+        this.rideArchiveService = rideArchiveService;
+        this.rideReadModel = rideReadModel;
+        this.ridePoolingService = ridePoolingService;
+        this.rideMetrics = rideMetrics;
+        this.speedSampleReporter = speedSampleReporter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
      * Book a new ride
      */
+    @TimedTransition("book")
     public RideDto bookRide(Long customerId, RideBookingRequest request) {
         logger.info("Booking ride for customer: {}", customerId);
 
-        // Check if customer has an active ride
-        if (rideRepository.findActiveRideByCustomerId(customerId).isPresent()) {
+        // Check if customer has an active ride; booking for later is allowed meanwhile
+        LocalDateTime scheduledPickupAt = request.getScheduledPickupAt();
+        boolean pooled = Boolean.TRUE.equals(request.getPooled());
+        if (pooled && scheduledPickupAt != null) {
+            throw new IllegalArgumentException("Scheduled rides cannot be pooled");
+        }
+        if (scheduledPickupAt != null) {
+            validateScheduledPickup(scheduledPickupAt);
+        } else if (rideRepository.findActiveRideByCustomerId(customerId).isPresent()) {
             throw new IllegalStateException("Customer already has an active ride");
         }
 
@@ -82,42 +147,76 @@ public class RideService {
                 .dropoffLatitude(request.getDropoffLatitude())
                 .dropoffLongitude(request.getDropoffLongitude())
                 .dropoffAddress(request.getDropoffAddress())
-                .status(Ride.RideStatus.SEARCHING_DRIVER)
+                .status(scheduledPickupAt != null ? Ride.RideStatus.SCHEDULED : Ride.RideStatus.SEARCHING_DRIVER)
+                .scheduledPickupAt(scheduledPickupAt)
+                .dispatchAt(scheduledPickupAt != null ? scheduledPickupAt.minusMinutes(scheduledLeadTimeMinutes) : null)
+                .seats(request.getSeats() != null ? request.getSeats() : 1)
                 .estimatedFare(estimatedFare)
                 .rideOtp(rideOtp)
                 .build();
 
         ride = rideRepository.save(ride);
 
-        // Publish ride requested event
-        rideEventProducer.sendRideRequestedEvent(ride);
+        // A pooled ride joining a trip that already has a driver is accepted by that driver right away
+        if (pooled) {
+            RidePoolingService.PoolAssignment assignment = ridePoolingService.join(ride);
+            ride.setPooledTripId(assignment.tripId());
+            if (assignment.driverId() != null) {
+                ride.setDriverId(assignment.driverId());
+                ride.setStatus(Ride.RideStatus.ACCEPTED);
+                ride.setAcceptedAt(LocalDateTime.now());
+            }
+            ride = rideRepository.saveAndFlush(ride);
+        }
+
+        // Publish ride requested (or scheduled) event
+        if (scheduledPickupAt != null) {
+            rideEventProducer.sendRideScheduledEvent(ride);
+        } else if (ride.getStatus() == Ride.RideStatus.ACCEPTED) {
+            rideEventProducer.sendRideAcceptedEvent(ride);
+            rideMetrics.recordAccepted(ride);
+        } else {
+            rideEventProducer.sendRideRequestedEvent(ride);
+        }
 
         logger.info("Ride booked successfully: {}", ride.getId());
-        return toRideDto(ride);
+        return publishView(ride);
     }
 
     /**
-     * Accept ride by driver
+     * Accept ride by driver. Three statements when it succeeds, plus the trip's riders for a pooled
+     * ride: the ride, the driver's active rides and the guarded UPDATE. The ride read first is
+     * brought up to date rather than read again.
      */
+    @TimedTransition("accept")
     public RideDto acceptRide(Long rideId, Long driverId) {
-        Ride ride = rideRepository.findById(rideId)
+        Ride requested = rideRepository.findById(rideId)
                 .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
 
-        if (ride.getStatus() != Ride.RideStatus.SEARCHING_DRIVER && 
-            ride.getStatus() != Ride.RideStatus.REQUESTED) {
-            throw new IllegalStateException("Ride cannot be accepted in current status: " + ride.getStatus());
-        }
-
-        // Check if driver already has an active ride
-        if (rideRepository.findActiveRideByDriverId(driverId).isPresent()) {
+        // Check if driver already has an active ride; riders of the same pooled trip may share one
+        boolean busy = rideRepository.findActiveRidesByDriverId(driverId).stream()
+                .anyMatch(active -> active.getPooledTripId() == null
+                        || !active.getPooledTripId().equals(requested.getPooledTripId()));
+        if (busy) {
             throw new IllegalStateException("Driver already has an active ride");
         }
 
+        LocalDateTime acceptedAt = LocalDateTime.now();
+        int updated = rideRepository.markAccepted(rideId, driverId, acceptedAt,
+                RideTransition.ACCEPT.target(), RideTransition.ACCEPT.sources());
+        if (updated == 0) {
+            throw rejected(rideId, driverId, RideTransition.ACCEPT);
+        }
+        // The UPDATE cleared the persistence context, so this copy is detached and only feeds the
+        // response and the event
+        Ride ride = requested;
+        ride.setStatus(RideTransition.ACCEPT.target());
         ride.setDriverId(driverId);
-        ride.setStatus(Ride.RideStatus.ACCEPTED);
-        ride.setAcceptedAt(LocalDateTime.now());
-
-        ride = rideRepository.save(ride);
+        ride.setAcceptedAt(acceptedAt);
+        ride.setVersion(ride.getVersion() + 1);
+        if (ride.getPooledTripId() != null) {
+            ride = claimPooledTrip(ride, driverId);
+        }
 
         // Update driver status to BUSY
         try {
@@ -127,122 +226,187 @@ public class RideService {
         }
 
         rideEventProducer.sendRideAcceptedEvent(ride);
+        rideMetrics.recordAccepted(ride);
 
         logger.info("Ride {} accepted by driver {}", rideId, driverId);
-        return toRideDto(ride);
+        return publishView(ride);
     }
 
     /**
      * Driver arrived at pickup
      */
+    @TimedTransition("arrive")
     public RideDto driverArrived(Long rideId, Long driverId) {
-        Ride ride = getAndValidateRide(rideId, driverId, Ride.RideStatus.ACCEPTED);
-
-        ride.setStatus(Ride.RideStatus.DRIVER_ARRIVED);
-        ride.setDriverArrivedAt(LocalDateTime.now());
-        ride = rideRepository.save(ride);
+        int updated = rideRepository.markDriverArrived(rideId, driverId, LocalDateTime.now(),
+                RideTransition.ARRIVE.target(), RideTransition.ARRIVE.sources());
+        Ride ride = loadTransitioned(updated, rideId, driverId, RideTransition.ARRIVE);
 
         rideEventProducer.sendDriverArrivedEvent(ride);
+        rideMetrics.recordArrived(ride);
 
         logger.info("Driver arrived for ride: {}", rideId);
-        return toRideDto(ride);
+        return publishView(ride);
     }
 
     /**
      * Start the ride
      */
+    @TimedTransition("start")
     public RideDto startRide(Long rideId, Long driverId, String otp) {
-        Ride ride = getAndValidateRide(rideId, driverId, Ride.RideStatus.DRIVER_ARRIVED);
-
-        // Verify OTP
-        if (!ride.getRideOtp().equals(otp)) {
-            throw new IllegalStateException("Invalid OTP");
-        }
-
-        ride.setStatus(Ride.RideStatus.IN_PROGRESS);
-        ride.setStartedAt(LocalDateTime.now());
-        ride = rideRepository.save(ride);
+        // OTP is verified as part of the conditional update
+        int updated = rideRepository.markStarted(rideId, driverId, otp, LocalDateTime.now(),
+                RideTransition.START.target(), RideTransition.START.sources());
+        Ride ride = loadTransitioned(updated, rideId, driverId, RideTransition.START);
+        rideLocationIngestionService.markInProgress(rideId);
+        ridePoolingService.pickedUp(ride);
 
         rideEventProducer.sendRideStartedEvent(ride);
 
         logger.info("Ride started: {}", rideId);
-        return toRideDto(ride);
+        return publishView(ride);
     }
 
     /**
-     * Complete the ride
+     * Complete the ride. Three statements: the ride, read once to validate and price it, the guarded
+     * UPDATE, and the driver's remaining active rides for the event. The read copy is brought up to
+     * date rather than read again.
      */
+    @TimedTransition("complete")
     public RideDto completeRide(Long rideId, Long driverId) {
-        Ride ride = getAndValidateRide(rideId, driverId, Ride.RideStatus.IN_PROGRESS);
-
-        // Calculate actual fare and distance
-        BigDecimal distance = calculateActualDistance(ride);
-        int duration = (int) java.time.Duration.between(ride.getStartedAt(), LocalDateTime.now()).toMinutes();
-
-        ride.setStatus(Ride.RideStatus.COMPLETED);
-        ride.setCompletedAt(LocalDateTime.now());
+        Ride ride = getAndValidateRide(rideId, driverId, RideTransition.COMPLETE);
+
+        // Calculate actual fare and distance from the running GPS odometer; the track is matched
+        // to the roads after commit and any difference applied as a correction
+        LocalDateTime completedAt = LocalDateTime.now();
+        TripOdometer trip = rideLocationIngestionService.currentTrip(rideId);
+        BigDecimal distance = trip.getDistanceKm() > 0
+                ? BigDecimal.valueOf(trip.getDistanceKm()).setScale(2, RoundingMode.HALF_UP)
+                : calculateActualDistance(ride);
+        int duration = (int) java.time.Duration.between(ride.getStartedAt(), completedAt).toMinutes();
+        int movingMinutes = (int) (trip.getMovingSeconds() / 60);
+        BigDecimal actualFare = calculateActualFare(distance, duration);
+
+        // Guarded on IN_PROGRESS so a concurrent cancel is never overwritten
+        int updated = rideRepository.markCompleted(rideId, driverId, completedAt, distance, duration, movingMinutes,
+                actualFare, Ride.SettlementStatus.PENDING,
+                RideTransition.COMPLETE.target(), RideTransition.COMPLETE.sources());
+        if (updated == 0) {
+            throw rejected(rideId, driverId, RideTransition.COMPLETE);
+        }
+        // Detached by the UPDATE, as in acceptRide
+        ride.setStatus(RideTransition.COMPLETE.target());
+        ride.setCompletedAt(completedAt);
         ride.setDistanceKm(distance);
         ride.setDurationMinutes(duration);
-        ride.setActualFare(calculateActualFare(ride));
-
-        ride = rideRepository.save(ride);
-
-        // Update driver status to AVAILABLE
-        try {
-            cabServiceClient.updateDriverStatus(driverId, Map.of("status", "AVAILABLE"));
-        } catch (Exception e) {
-            logger.warn("Failed to update driver status: {}", e.getMessage());
-        }
-
-        // Generate invoice
-        try {
-            billingServiceClient.generateInvoice(Map.of(
-                    "rideId", ride.getId(),
-                    "customerId", ride.getCustomerId(),
-                    "amount", ride.getActualFare()
-            ));
-        } catch (Exception e) {
-            logger.warn("Failed to generate invoice: {}", e.getMessage());
-        }
-
-        rideEventProducer.sendRideCompletedEvent(ride);
+        ride.setMovingMinutes(movingMinutes);
+        ride.setActualFare(actualFare);
+        ride.setSettlementStatus(Ride.SettlementStatus.PENDING);
+        ride.setVersion(ride.getVersion() + 1);
+        rideLocationIngestionService.markFinished(rideId);
+        ridePoolingService.leave(ride);
+        speedSampleReporter.report(rideId, trip);
+
+        // Driver release and invoicing happen asynchronously in cab-service and billing-service,
+        // which consume RIDE_COMPLETED once this transaction has committed
+        rideEventProducer.sendRideCompletedEvent(ride, isDriverFreed(ride));
+        rideMetrics.recordCompleted(ride);
 
         logger.info("Ride completed: {}", rideId);
-        return toRideDto(ride);
+        return publishView(ride);
     }
 
     /**
      * Cancel the ride
      */
+    @TimedTransition("cancel")
     public RideDto cancelRide(Long rideId, Long userId, String reason, String cancelledBy) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+        int updated = rideRepository.markCancelled(rideId, LocalDateTime.now(), reason, cancelledBy,
+                RideTransition.CANCEL.target(), RideTransition.CANCEL.sources());
+        Ride ride = loadTransitioned(updated, rideId, null, RideTransition.CANCEL);
+        rideLocationIngestionService.markFinished(rideId);
+        ridePoolingService.leave(ride);
+
+        // cab-service frees the assigned driver when it consumes RIDE_CANCELLED
+        rideEventProducer.sendRideCancelledEvent(ride, isDriverFreed(ride));
 
-        if (ride.getStatus() == Ride.RideStatus.COMPLETED || 
-            ride.getStatus() == Ride.RideStatus.CANCELLED) {
-            throw new IllegalStateException("Ride cannot be cancelled in current status");
+        logger.info("Ride cancelled: {} by {}", rideId, cancelledBy);
+        return publishView(ride);
+    }
+
+    /**
+     * Move the given scheduled rides that are due into driver search, as one batch. A ride whose
+     * customer already has an active ride is cancelled instead, since a customer has at most one.
+     */
+    @TimedTransition("activate")
+    public List<RideDto> activateScheduledRides(Collection<Long> rideIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = rideRepository.lockDueScheduledRideIds(rideIds, now);
+        if (dueIds.isEmpty()) {
+            return List.of();
         }
 
-        ride.setStatus(Ride.RideStatus.CANCELLED);
-        ride.setCancelledAt(LocalDateTime.now());
-        ride.setCancellationReason(reason);
-        ride.setCancelledBy(cancelledBy);
+        List<Ride> due = rideRepository.findAllById(dueIds);
+        Set<Long> busyCustomers = new HashSet<>(rideRepository.findCustomersWithActiveRide(
+                due.stream().map(Ride::getCustomerId).collect(Collectors.toSet())));
+        List<Long> activateIds = new ArrayList<>();
+        List<Long> conflictIds = new ArrayList<>();
+        for (Ride ride : due) {
+            // Also keeps only one of several rides the same customer scheduled for the same time
+            if (busyCustomers.add(ride.getCustomerId())) {
+                activateIds.add(ride.getId());
+            } else {
+                conflictIds.add(ride.getId());
+            }
+        }
 
-        ride = rideRepository.save(ride);
+        if (!activateIds.isEmpty()) {
+            rideRepository.markActivated(activateIds, now,
+                    RideTransition.ACTIVATE.target(), RideTransition.ACTIVATE.sources());
+        }
+        if (!conflictIds.isEmpty()) {
+            rideRepository.markCancelledAll(conflictIds, now, "Customer had another active ride", "SYSTEM",
+                    RideTransition.CANCEL.target(), Set.of(Ride.RideStatus.SCHEDULED));
+        }
 
-        // Update driver status if assigned
-        if (ride.getDriverId() != null) {
-            try {
-                cabServiceClient.updateDriverStatus(ride.getDriverId(), Map.of("status", "AVAILABLE"));
-            } catch (Exception e) {
-                logger.warn("Failed to update driver status: {}", e.getMessage());
+        List<RideDto> activated = new ArrayList<>(activateIds.size());
+        for (Ride ride : rideRepository.findAllById(dueIds)) {
+            if (ride.getStatus() == Ride.RideStatus.SEARCHING_DRIVER) {
+                rideEventProducer.sendRideRequestedEvent(ride);
+                activated.add(publishView(ride));
+            } else {
+                rideEventProducer.sendRideCancelledEvent(ride, true);
+                publishView(ride);
             }
         }
+        logger.info("Activated {} scheduled rides, cancelled {} conflicting", activated.size(), conflictIds.size());
+        return activated;
+    }
 
-        rideEventProducer.sendRideCancelledEvent(ride);
+    /**
+     * Cancel the given rides that are still past their deadline, as one batch. Rides that moved on
+     * in the meantime, or are being expired by another instance, are skipped.
+     */
+    @TimedTransition("expire")
+    public List<RideDto> expireRides(Collection<Long> rideIds, LocalDateTime searchCutoff, LocalDateTime acceptCutoff) {
+        List<Long> expiredIds = rideRepository.lockExpiredRideIds(rideIds, searchCutoff, acceptCutoff);
+        if (expiredIds.isEmpty()) {
+            return List.of();
+        }
 
-        logger.info("Ride cancelled: {} by {}", rideId, cancelledBy);
-        return toRideDto(ride);
+        rideRepository.markExpired(expiredIds, LocalDateTime.now(), "No driver found in time",
+                "Driver did not arrive in time", "SYSTEM",
+                RideTransition.CANCEL.target(), RideTransition.CANCEL.sources());
+
+        List<RideDto> cancelled = new ArrayList<>(expiredIds.size());
+        for (Ride ride : rideRepository.findAllById(expiredIds)) {
+            rideLocationIngestionService.markFinished(ride.getId());
+            ridePoolingService.leave(ride);
+            // cab-service frees the assigned driver when it consumes RIDE_CANCELLED
+            rideEventProducer.sendRideCancelledEvent(ride, isDriverFreed(ride));
+            cancelled.add(publishView(ride));
+        }
+        logger.info("Expired {} stuck rides", cancelled.size());
+        return cancelled;
     }
 
     /**
@@ -273,83 +437,333 @@ public class RideService {
         }
 
         rideRepository.save(ride);
+        rideReadModel.evict(rideId);
         logger.info("Ride {} rated by {}", rideId, isCustomer ? "customer" : "driver");
     }
 
+    /**
+     * Record the outcome of the asynchronous settlement of a completed ride
+     */
+    public boolean updateSettlementStatus(Long rideId, Ride.SettlementStatus status) {
+        if (rideRepository.markSettlement(rideId, Ride.SettlementStatus.PENDING, status) == 0) {
+            return false;
+        }
+        rideReadModel.evict(rideId);
+        return true;
+    }
+
+    /**
+     * Replace the billed distance of a completed ride with the distance of its track matched to the
+     * roads. Guarded on the distance the caller compared against, so a correction is applied once
+     * and never over a newer one.
+     */
+    public boolean correctDistance(Long rideId, BigDecimal billedDistance, BigDecimal matchedDistance) {
+        Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+        BigDecimal actualFare = calculateActualFare(matchedDistance, ride.getDurationMinutes());
+        if (rideRepository.markDistanceCorrected(rideId, billedDistance, matchedDistance, actualFare,
+                Ride.RideStatus.COMPLETED) == 0) {
+            return false;
+        }
+        ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+        rideEventProducer.sendRideDistanceCorrectedEvent(ride, billedDistance);
+        publishView(ride);
+        logger.info("Ride {} distance corrected from {} to {} km", rideId, billedDistance, matchedDistance);
+        return true;
+    }
+
     /**
      * Get ride by ID
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public RideDto getRideById(Long rideId) {
-        Ride ride = rideRepository.findById(rideId)
+        return getRideView(rideId).ride();
+    }
+
+    /**
+     * Get the precomputed view of a ride. A read-model hit needs no transaction or connection; only
+     * a miss opens a read-only transaction to build the view.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RideView getRideView(Long rideId) {
+        return rideReadModel.find(rideId)
+                .or(() -> Optional.ofNullable(readOnlyTransaction.execute(status -> loadRideView(rideId))))
                 .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
-        return toRideDto(ride);
     }
 
     /**
      * Get customer ride history
      */
+    @Transactional(readOnly = true)
     public Page<RideDto> getCustomerRides(Long customerId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "requestedAt"));
-        return rideRepository.findByCustomerId(customerId, pageable).map(this::toRideDto);
+        Page<RideVersion> versions = rideRepository.findVersionsByCustomerId(customerId, pageable);
+        Map<Long, RideView> views = resolveViews(versions.getContent());
+        return versions.map(version -> views.get(version.getId()).ride());
     }
 
     /**
      * Get driver ride history
      */
+    @Transactional(readOnly = true)
     public Page<RideDto> getDriverRides(Long driverId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "requestedAt"));
-        return rideRepository.findByDriverId(driverId, pageable).map(this::toRideDto);
+        Page<RideVersion> versions = rideRepository.findVersionsByDriverId(driverId, pageable);
+        Map<Long, RideView> views = resolveViews(versions.getContent());
+        return versions.map(version -> views.get(version.getId()).ride());
     }
 
     /**
-     * Get all active rides (admin)
+     * Get customer ride history page using keyset pagination
      */
-    public List<RideDto> getActiveRides() {
-        return rideRepository.findActiveRides().stream().map(this::toRideDto).toList();
+    @Transactional(readOnly = true)
+    public RideHistoryPage getCustomerRideHistory(Long customerId, String cursor, int size) {
+        int pageSize = clampHistorySize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        RideHistoryCursor position = cursor != null ? RideHistoryCursor.decode(cursor) : null;
+        List<RideSummaryDto> rides = position == null
+                ? rideRepository.findCustomerHistory(customerId, limit)
+                : rideRepository.findCustomerHistoryBefore(customerId, position.requestedAt(), position.id(), limit);
+        if (mayReachArchive(rides, pageSize)) {
+            rides = mergeHistory(rides, rideArchiveRepository.findCustomerHistory(customerId,
+                    position != null ? position.requestedAt() : null,
+                    position != null ? position.id() : null, pageSize + 1));
+        }
+        return toHistoryPage(rides, pageSize);
+    }
+
+    /**
+     * Get driver ride history page using keyset pagination
+     */
+    @Transactional(readOnly = true)
+    public RideHistoryPage getDriverRideHistory(Long driverId, String cursor, int size) {
+        int pageSize = clampHistorySize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        RideHistoryCursor position = cursor != null ? RideHistoryCursor.decode(cursor) : null;
+        List<RideSummaryDto> rides = position == null
+                ? rideRepository.findDriverHistory(driverId, limit)
+                : rideRepository.findDriverHistoryBefore(driverId, position.requestedAt(), position.id(), limit);
+        if (mayReachArchive(rides, pageSize)) {
+            rides = mergeHistory(rides, rideArchiveRepository.findDriverHistory(driverId,
+                    position != null ? position.requestedAt() : null,
+                    position != null ? position.id() : null, pageSize + 1));
+        }
+        return toHistoryPage(rides, pageSize);
     }
 
     /**
      * Update ride location during trip
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updateRideLocation(Long rideId, Double latitude, Double longitude) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
-
-        if (ride.getStatus() != Ride.RideStatus.IN_PROGRESS) {
-            throw new IllegalStateException("Can only track in-progress rides");
-        }
+        rideLocationIngestionService.record(rideId, latitude, longitude, null);
+    }
 
-        RideLocation location = RideLocation.builder()
-                .rideId(rideId)
-                .latitude(latitude)
-                .longitude(longitude)
-                .build();
-        rideLocationRepository.save(location);
+    /**
+     * Update ride location with multiple points during trip
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateRideLocations(Long rideId, RideLocationBatchRequest request) {
+        LocalDateTime receivedAt = LocalDateTime.now();
+        List<RideLocation> points = request.getPoints().stream()
+                .map(point -> RideLocation.builder()
+                        .rideId(rideId)
+                        .latitude(point.getLatitude())
+                        .longitude(point.getLongitude())
+                        .speed(point.getSpeed())
+                        .timestamp(point.getTimestamp() != null ? point.getTimestamp() : receivedAt)
+                        .build())
+                .toList();
+        rideLocationIngestionService.record(rideId, points);
     }
 
     /**
      * Get ride track (location history)
      */
     public List<RideLocation> getRideTrack(Long rideId) {
+        rideLocationIngestionService.flush(rideId);
         return rideLocationRepository.findByRideIdOrderByTimestampAsc(rideId);
     }
 
     // Helper methods
-    private Ride getAndValidateRide(Long rideId, Long driverId, Ride.RideStatus expectedStatus) {
+    /**
+     * Claim the ride's pooled trip for the accepting driver and hand them the trip's other waiting
+     * riders. If another driver got the trip first, the ride continues on its own.
+     */
+    private Ride claimPooledTrip(Ride ride, Long driverId) {
+        if (!ridePoolingService.claimForDriver(ride, driverId)) {
+            rideRepository.detachFromPool(ride.getId());
+            return rideRepository.findById(ride.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", ride.getId()));
+        }
+
+        List<Ride> waiting = rideRepository.findByPooledTripIdAndStatusIn(ride.getPooledTripId(),
+                RideTransition.ACCEPT.sources());
+        LocalDateTime now = LocalDateTime.now();
+        for (Ride rider : waiting) {
+            if (rideRepository.markAccepted(rider.getId(), driverId, now,
+                    RideTransition.ACCEPT.target(), RideTransition.ACCEPT.sources()) > 0) {
+                rideRepository.findById(rider.getId()).ifPresent(accepted -> {
+                    rideEventProducer.sendRideAcceptedEvent(accepted);
+                    rideMetrics.recordAccepted(accepted);
+                    publishView(accepted);
+                });
+            }
+        }
+        logger.info("Pooled trip {} claimed by driver {} with {} more riders", ride.getPooledTripId(), driverId,
+                waiting.size());
+        return ride;
+    }
+
+    /**
+     * Whether the ride's driver has no other active ride once it finishes, i.e. no pooled riders left
+     */
+    private boolean isDriverFreed(Ride ride) {
+        return ride.getDriverId() == null || rideRepository.findActiveRidesByDriverId(ride.getDriverId()).isEmpty();
+    }
+
+    private Ride getAndValidateRide(Long rideId, Long driverId, RideTransition transition) {
         Ride ride = rideRepository.findById(rideId)
                 .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
 
-        if (!ride.getDriverId().equals(driverId)) {
+        if (!Objects.equals(ride.getDriverId(), driverId)) {
             throw new IllegalStateException("Driver not assigned to this ride");
         }
 
-        if (ride.getStatus() != expectedStatus) {
+        if (!transition.allowsFrom(ride.getStatus())) {
             throw new IllegalStateException("Invalid ride status: " + ride.getStatus());
         }
 
         return ride;
     }
 
+    /**
+     * Load the ride after a conditional transition, for callers that have no copy of it: the
+     * guarded UPDATE plus this read make two statements. When the UPDATE matched no row, the
+     * current state is inspected to report why the transition was rejected.
+     */
+    private Ride loadTransitioned(int updated, Long rideId, Long driverId, RideTransition transition) {
+        if (updated == 0) {
+            throw rejected(rideId, driverId, transition);
+        }
+        return rideRepository.findById(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+    }
+
+    /**
+     * Why a guarded UPDATE matched no row, from the ride's current state
+     */
+    private RuntimeException rejected(Long rideId, Long driverId, RideTransition transition) {
+        Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ride", "id", rideId));
+
+        return switch (transition) {
+            case ACCEPT -> new IllegalStateException("Ride cannot be accepted in current status: " + ride.getStatus());
+            case CANCEL -> new IllegalStateException("Ride cannot be cancelled in current status");
+            default -> {
+                if (!Objects.equals(ride.getDriverId(), driverId)) {
+                    yield new IllegalStateException("Driver not assigned to this ride");
+                }
+                if (transition == RideTransition.START && transition.allowsFrom(ride.getStatus())) {
+                    yield new IllegalStateException("Invalid OTP");
+                }
+                yield new IllegalStateException("Invalid ride status: " + ride.getStatus());
+            }
+        };
+    }
+
+    private RideView loadRideView(Long rideId) {
+        return rideRepository.findById(rideId)
+                .map(ride -> rideReadModel.publish(toRideDto(ride), ride.getVersion()))
+                .or(() -> rideArchiveRepository.findById(rideId)
+                        .map(archived -> rideReadModel.publish(archived.ride(), archived.version())))
+                .orElse(null);
+    }
+
+    private RideDto publishView(Ride ride) {
+        return rideReadModel.publish(toRideDto(ride), ride.getVersion()).ride();
+    }
+
+    /**
+     * Views for the given rides. Only rides with no view at their current version are loaded
+     * and rebuilt; everything else comes straight from the read model.
+     */
+    private Map<Long, RideView> resolveViews(List<RideVersion> versions) {
+        Map<Long, RideView> views = new HashMap<>(
+                rideReadModel.findAll(versions.stream().map(RideVersion::getId).toList()));
+        List<Long> stale = versions.stream()
+                .filter(version -> {
+                    RideView view = views.get(version.getId());
+                    return view == null || view.version() != version.getVersion();
+                })
+                .map(RideVersion::getId)
+                .toList();
+        if (!stale.isEmpty()) {
+            views.putAll(rideRepository.findAllById(stale).stream()
+                    .map(ride -> rideReadModel.publish(toRideDto(ride), ride.getVersion()))
+                    .collect(Collectors.toMap(view -> view.ride().getId(), Function.identity())));
+            // Archived between the version query and the reload
+            stale.stream()
+                    .filter(id -> !views.containsKey(id))
+                    .forEach(id -> rideArchiveRepository.findById(id).ifPresent(archived ->
+                            views.put(id, rideReadModel.publish(archived.ride(), archived.version()))));
+        }
+        return views;
+    }
+
+    private void validateScheduledPickup(LocalDateTime scheduledPickupAt) {
+        LocalDateTime now = LocalDateTime.now();
+        if (scheduledPickupAt.isBefore(now.plusMinutes(scheduledMinAdvanceMinutes))) {
+            throw new IllegalArgumentException(
+                    "Scheduled rides must be booked at least " + scheduledMinAdvanceMinutes + " minutes ahead");
+        }
+        if (scheduledPickupAt.isAfter(now.plusDays(scheduledMaxAdvanceDays))) {
+            throw new IllegalArgumentException(
+                    "Scheduled rides can be booked at most " + scheduledMaxAdvanceDays + " days ahead");
+        }
+    }
+
+    private int clampHistorySize(int size) {
+        return Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+    }
+
+    /**
+     * Archived rides are all older than the hot horizon, so the archive only needs to be read
+     * when the hot page is short or already reaches past that horizon.
+     */
+    private boolean mayReachArchive(List<RideSummaryDto> hotRides, int pageSize) {
+        return hotRides.size() <= pageSize
+                || hotRides.get(hotRides.size() - 1).getRequestedAt().isBefore(rideArchiveService.hotHorizon());
+    }
+
+    private List<RideSummaryDto> mergeHistory(List<RideSummaryDto> hotRides, List<RideSummaryDto> archivedRides) {
+        if (archivedRides.isEmpty()) {
+            return hotRides;
+        }
+        List<RideSummaryDto> merged = new ArrayList<>(hotRides.size() + archivedRides.size());
+        merged.addAll(hotRides);
+        merged.addAll(archivedRides);
+        merged.sort(HISTORY_ORDER);
+        return merged;
+    }
+
+    private RideHistoryPage toHistoryPage(List<RideSummaryDto> rides, int size) {
+        // One extra row was fetched to learn whether another page exists
+        boolean hasMore = rides.size() > size;
+        List<RideSummaryDto> page = hasMore ? rides.subList(0, size) : rides;
+        String nextCursor = null;
+        if (hasMore) {
+            RideSummaryDto last = page.get(page.size() - 1);
+            nextCursor = new RideHistoryCursor(last.getRequestedAt(), last.getId()).encode();
+        }
+        return RideHistoryPage.builder()
+                .rides(page)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
     private BigDecimal calculateEstimatedFare(RideBookingRequest request) {
         try {
             Map<String, Object> fareRequest = Map.of(
@@ -367,6 +781,9 @@ public class RideService {
         }
     }
 
+    /**
+     * Planned pickup-to-dropoff distance, used only when no GPS track was recorded
+     */
     private BigDecimal calculateActualDistance(Ride ride) {
         try {
             Map<String, Object> request = Map.of(
@@ -383,19 +800,19 @@ public class RideService {
         }
     }
 
-    private BigDecimal calculateActualFare(Ride ride) {
+    private BigDecimal calculateActualFare(BigDecimal distanceKm, int durationMinutes) {
         // Base fare + per km rate
         BigDecimal baseFare = BigDecimal.valueOf(50);
         BigDecimal perKmRate = BigDecimal.valueOf(15);
         BigDecimal perMinRate = BigDecimal.valueOf(2);
 
-        BigDecimal distanceCharge = ride.getDistanceKm().multiply(perKmRate);
-        BigDecimal timeCharge = BigDecimal.valueOf(ride.getDurationMinutes()).multiply(perMinRate);
+        BigDecimal distanceCharge = distanceKm.multiply(perKmRate);
+        BigDecimal timeCharge = BigDecimal.valueOf(durationMinutes).multiply(perMinRate);
 
         return baseFare.add(distanceCharge).add(timeCharge);
     }
 
-    private RideDto toRideDto(Ride ride) {
+    RideDto toRideDto(Ride ride) {
         return RideDto.builder()
                 .id(ride.getId())
                 .customerId(ride.getCustomerId())
@@ -410,6 +827,9 @@ public class RideService {
                 .dropoffAddress(ride.getDropoffAddress())
                 .status(ride.getStatus())
                 .requestedAt(ride.getRequestedAt())
+                .scheduledPickupAt(ride.getScheduledPickupAt())
+                .pooledTripId(ride.getPooledTripId())
+                .seats(ride.getSeats())
                 .acceptedAt(ride.getAcceptedAt())
                 .driverArrivedAt(ride.getDriverArrivedAt())
                 .startedAt(ride.getStartedAt())
@@ -420,6 +840,8 @@ public class RideService {
                 .actualFare(ride.getActualFare())
                 .distanceKm(ride.getDistanceKm())
                 .durationMinutes(ride.getDurationMinutes())
+                .movingMinutes(ride.getMovingMinutes())
+                .settlementStatus(ride.getSettlementStatus())
                 .customerRating(ride.getCustomerRating())
                 .driverRating(ride.getDriverRating())
                 .rideOtp(ride.getRideOtp())
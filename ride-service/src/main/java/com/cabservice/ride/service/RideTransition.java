@@ -0,0 +1,43 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.entity.Ride.RideStatus;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Ride Transition - Explicit state machine for the ride lifecycle.
+ * Each transition names its target status and the statuses it may be applied from,
+ * which are used as the guard of the conditional UPDATE in {@code RideRepository}.
+ */
+public enum RideTransition {
+
+    ACTIVATE(RideStatus.SEARCHING_DRIVER, RideStatus.SCHEDULED),
+    ACCEPT(RideStatus.ACCEPTED, RideStatus.REQUESTED, RideStatus.SEARCHING_DRIVER),
+    ARRIVE(RideStatus.DRIVER_ARRIVED, RideStatus.ACCEPTED),
+    START(RideStatus.IN_PROGRESS, RideStatus.DRIVER_ARRIVED),
+    COMPLETE(RideStatus.COMPLETED, RideStatus.IN_PROGRESS),
+    CANCEL(RideStatus.CANCELLED, RideStatus.SCHEDULED, RideStatus.REQUESTED, RideStatus.SEARCHING_DRIVER,
+            RideStatus.ACCEPTED, RideStatus.DRIVER_ARRIVED, RideStatus.IN_PROGRESS);
+
+    private final RideStatus target;
+    private final Set<RideStatus> sources;
+
+    RideTransition(RideStatus target, RideStatus first, RideStatus... rest) {
+        this.target = target;
+        this.sources = Collections.unmodifiableSet(EnumSet.of(first, rest));
+    }
+
+    public RideStatus target() {
+        return target;
+    }
+
+    public Set<RideStatus> sources() {
+        return sources;
+    }
+
+    public boolean allowsFrom(RideStatus status) {
+        return sources.contains(status);
+    }
+}
@@ -0,0 +1,29 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.dto.RideDto;
+
+/**
+ * Precomputed read-side view of a ride: the DTO, its serialised JSON and its ETag.
+ * The DTO is shared between requests and must not be modified.
+ */
+public record RideView(RideDto ride, byte[] body, String etag, long version) {
+
+    /**
+     * Whether an If-None-Match header value names this view
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,261 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.dto.RideDto;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.RideDeadline;
+import com.cabservice.ride.repository.RideRepository;
+import com.cabservice.ride.util.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled Ride Dispatcher - Moves book-for-later rides into driver search at their dispatch time.
+ * <p>
+ * Works as a two-level hierarchical timing wheel. The outer level is durable: scheduled rides
+ * sit in the {@code rides} table ordered by the (status, dispatch_at, id) index, one window of
+ * dispatch times per slot. The inner level is an in-memory hashed timing wheel holding only the
+ * rides due in the current window. Shortly before a window ends the next one is cascaded in with
+ * a single index range read, so millions of future bookings cost nothing in memory and there is
+ * no per-booking thread. Bookings made inside the loaded window arrive through the broadcast ride
+ * event consumer and go straight onto the inner wheel. Because a ride event can be lost or late,
+ * the loaded window is also re-read on a slow interval; rides already on the wheel are skipped, so
+ * the re-scan only picks up bookings the events missed.
+ * <p>
+ * Due rides are activated in batches. Every instance tracks every ride; SKIP LOCKED plus the
+ * status guard make sure each ride is activated, and offered to drivers, exactly once.
+ */
+@Service
+public class ScheduledRideDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledRideDispatcher.class);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final RideRepository rideRepository;
+    private final RideService rideService;
+    private final DriverOfferEngine driverOfferEngine;
+    private final TimingWheel timingWheel;
+    private final Set<Long> tracked = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> due = new ConcurrentLinkedQueue<>();
+
+    // End of the dispatch window cascaded into the in-memory wheel; null until the first load
+    private LocalDateTime loadedUntil;
+
+    @Value("${ride.scheduled.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ride.scheduled.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${ride.scheduled.cascade-ahead-seconds:60}")
+    private long cascadeAheadSeconds;
+
+    @Value("${ride.scheduled.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ride.scheduled.load-page-size:1000}")
+    private int loadPageSize;
+
+    public ScheduledRideDispatcher(RideRepository rideRepository,
+                                   RideService rideService,
+                                   DriverOfferEngine driverOfferEngine,
+                                   @Value("${ride.scheduled.tick-ms:1000}") long tickMs,
+                                   @Value("${ride.scheduled.wheel-size:4096}") int wheelSize,
+                                   @Value("${ride.scheduled.max-pending:500000}") int maxPending) {
+        this.rideRepository = rideRepository;
+        this.rideService = rideService;
+        this.driverOfferEngine = driverOfferEngine;
+        this.timingWheel = new TimingWheel("scheduled-ride-wheel", tickMs, wheelSize, maxPending);
+    }
+
+    /**
+     * Load the first window, including rides whose dispatch time passed while no instance was running
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            cascade();
+        }
+    }
+
+    /**
+     * Put a ride scheduled inside the loaded window onto the wheel; later ones wait for their window
+     */
+    public void onRideEvent(Map<String, Object> event) {
+        if (!enabled || event.get("rideId") == null || event.get("dispatchAt") == null
+                || !Ride.RideStatus.SCHEDULED.name().equals(String.valueOf(event.get("status")))) {
+            return;
+        }
+        Long rideId = Long.valueOf(event.get("rideId").toString());
+        LocalDateTime dispatchAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(((Number) event.get("dispatchAt")).longValue()), ZoneId.systemDefault());
+        // Synchronized with cascade() so a booking is either read by the window load or armed here
+        synchronized (this) {
+            if (loadedUntil != null && dispatchAt.isBefore(loadedUntil)) {
+                arm(rideId, dispatchAt);
+            }
+        }
+    }
+
+    public int trackedRides() {
+        return tracked.size();
+    }
+
+    /**
+     * Activate due rides in batches and cascade the next window in when the current one runs out
+     */
+    @Scheduled(fixedDelayString = "${ride.scheduled.flush-interval-ms:1000}")
+    public void dispatchDueRides() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>(batchSize);
+        Long rideId;
+        while ((rideId = due.poll()) != null) {
+            batch.add(rideId);
+            if (batch.size() == batchSize) {
+                activateBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            activateBatch(batch);
+        }
+
+        LocalDateTime current;
+        synchronized (this) {
+            current = loadedUntil;
+        }
+        if (current == null || !LocalDateTime.now().plusSeconds(cascadeAheadSeconds).isBefore(current)) {
+            cascade();
+        }
+    }
+
+    /**
+     * Re-read the loaded window so a booking whose ride event was lost or delayed is still dispatched.
+     * A ride re-armed between firing and activation is queued twice; the status guard in
+     * activateScheduledRides drops the repeat.
+     */
+    @Scheduled(fixedDelayString = "${ride.scheduled.rescan-interval-ms:60000}",
+            initialDelayString = "${ride.scheduled.rescan-interval-ms:60000}")
+    public void rescanLoadedWindow() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime until;
+        synchronized (this) {
+            until = loadedUntil;
+        }
+        if (until == null) {
+            return;
+        }
+        int before = tracked.size();
+        try {
+            load(EPOCH, until);
+        } catch (Exception e) {
+            logger.warn("Failed to re-scan scheduled rides due before {}: {}", until, e.getMessage());
+            return;
+        }
+        int missed = tracked.size() - before;
+        if (missed > 0) {
+            logger.info("Re-scan armed {} scheduled rides missed by ride events", missed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+    }
+
+    /**
+     * Read the next window of scheduled rides from the dispatch index onto the wheel
+     */
+    private synchronized void cascade() {
+        LocalDateTime from = loadedUntil;
+        LocalDateTime until = (from != null ? from : LocalDateTime.now()).plusMinutes(windowMinutes);
+        // Advanced before reading so bookings committed during the read are armed by onRideEvent
+        loadedUntil = until;
+
+        try {
+            int loaded = load(from != null ? from.minusNanos(1) : EPOCH, until);
+            logger.info("Loaded {} scheduled rides due before {}", loaded, until);
+        } catch (Exception e) {
+            // Retried on the next flush; rides armed so far stay tracked and are not armed twice
+            logger.error("Failed to load scheduled rides due before {}: {}", until, e.getMessage());
+            loadedUntil = from;
+        }
+    }
+
+    /**
+     * Arm every scheduled ride dispatching after {@code after} and before {@code until}, paging
+     * along the dispatch index; rides already tracked are skipped by arm()
+     */
+    private int load(LocalDateTime after, LocalDateTime until) {
+        Pageable page = PageRequest.of(0, loadPageSize);
+        LocalDateTime afterDispatchAt = after;
+        long afterId = 0;
+        int loaded = 0;
+        while (true) {
+            List<RideDeadline> rides = rideRepository.findScheduledPage(until, afterDispatchAt, afterId, page);
+            for (RideDeadline ride : rides) {
+                arm(ride.getId(), ride.getDispatchAt());
+            }
+            loaded += rides.size();
+            if (rides.size() < loadPageSize) {
+                return loaded;
+            }
+            RideDeadline last = rides.get(rides.size() - 1);
+            afterDispatchAt = last.getDispatchAt();
+            afterId = last.getId();
+        }
+    }
+
+    private void arm(Long rideId, LocalDateTime dispatchAt) {
+        if (!tracked.add(rideId)) {
+            return;
+        }
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), dispatchAt).toMillis());
+        try {
+            timingWheel.schedule(() -> {
+                tracked.remove(rideId);
+                due.add(rideId);
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            tracked.remove(rideId);
+            logger.warn("No dispatch capacity for scheduled ride {}, it is retried on the next re-scan", rideId);
+        }
+    }
+
+    private void activateBatch(List<Long> rideIds) {
+        try {
+            for (RideDto ride : rideService.activateScheduledRides(rideIds)) {
+                driverOfferEngine.startSearch(ride);
+            }
+        } catch (Exception e) {
+            // Retried on the next flush
+            logger.warn("Failed to activate {} scheduled rides: {}", rideIds.size(), e.getMessage());
+            due.addAll(rideIds);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.client.RoutingServiceClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speed Sample Reporter - Sends the travel observed on completed trips to routing-service, which
+ * learns its traffic speed profile from it.
+ * <p>
+ * Samples are taken from the trip odometer at completion and sent once the transaction has
+ * committed, from one background thread with a bounded queue. Reporting is best effort: if
+ * routing-service is unavailable or the queue is full the samples are dropped, since the profile
+ * learns from the aggregate of many trips.
+ */
+@Component
+public class SpeedSampleReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeedSampleReporter.class);
+
+    private final RoutingServiceClient routingServiceClient;
+    private final ThreadPoolExecutor sender;
+    private final boolean enabled;
+
+    public SpeedSampleReporter(RoutingServiceClient routingServiceClient,
+                               @Value("${ride.speed-samples.enabled:true}") boolean enabled,
+                               @Value("${ride.speed-samples.queue-capacity:1000}") int queueCapacity) {
+        this.routingServiceClient = routingServiceClient;
+        this.enabled = enabled;
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "speed-sample-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Report a completed trip's samples once the surrounding transaction has committed
+     */
+    public void report(Long rideId, TripOdometer trip) {
+        if (!enabled) {
+            return;
+        }
+        TripOdometer.SpeedSamples samples = trip.speedSamples();
+        if (samples.size() == 0) {
+            return;
+        }
+        afterCommit(() -> sender.execute(() -> send(rideId, samples)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+
+    private void send(Long rideId, TripOdometer.SpeedSamples samples) {
+        try {
+            routingServiceClient.recordSpeedSamples(Map.of(
+                    "latitudes", samples.latitudes(),
+                    "longitudes", samples.longitudes(),
+                    "timestamps", samples.timestamps(),
+                    "distancesMeters", samples.distancesMeters(),
+                    "durationsSeconds", samples.durationsSeconds()));
+        } catch (Exception e) {
+            logger.warn("Could not report speed samples of ride {}: {}", rideId, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
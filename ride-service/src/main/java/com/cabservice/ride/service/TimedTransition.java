@@ -0,0 +1,19 @@
+package com.cabservice.ride.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a ride lifecycle transition timed as {@code ride.transition} by {@link TransitionTimingAspect}
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimedTransition {
+
+    /**
+     * Transition tag, e.g. {@code accept}
+     */
+    String value();
+}
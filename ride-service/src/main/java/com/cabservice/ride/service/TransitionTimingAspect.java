@@ -0,0 +1,32 @@
+package com.cabservice.ride.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transition Timing Aspect - Times {@link TimedTransition} methods from outside their transaction.
+ * <p>
+ * Ordered ahead of the transaction interceptor, which runs at the lowest precedence, so the timing
+ * includes the commit, and a transition whose commit fails is recorded as an error rather than a
+ * success.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TransitionTimingAspect {
+
+    private final RideMetrics rideMetrics;
+
+    public TransitionTimingAspect(RideMetrics rideMetrics) {
+        this.rideMetrics = rideMetrics;
+    }
+
+    @Around("@annotation(timedTransition)")
+    public Object time(ProceedingJoinPoint joinPoint, TimedTransition timedTransition) throws Throwable {
+        return rideMetrics.timeTransition(timedTransition.value(), joinPoint::proceed);
+    }
+}
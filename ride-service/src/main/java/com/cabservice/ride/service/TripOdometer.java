@@ -0,0 +1,175 @@
+package com.cabservice.ride.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Trip Odometer - Running GPS distance and moving time of one in-progress ride.
+ * <p>
+ * Each location point is folded in with O(1) work. Points that arrive out of order or imply an
+ * impossible speed (GPS jumps) are dropped; movements shorter than the jitter threshold are
+ * held back until the vehicle has really moved. If several consecutive points are rejected as
+ * jumps, the odometer re-anchors on the latest one so a single bad fix cannot stall it.
+ * <p>
+ * Accepted stretches are also kept as speed samples (midpoint, start time, length, duration) for
+ * routing-service's traffic profile. Time spent standing still is folded into the next stretch,
+ * so waits at junctions count against the speed of the road where they happen.
+ */
+public class TripOdometer {
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    private static final int MAX_CONSECUTIVE_REJECTS = 3;
+    // Longer stretches (tracking gaps) span too much road to say anything about one place
+    private static final double MAX_SAMPLE_METERS = 1000;
+    private static final int MAX_SAMPLES = 5000;
+
+    private final double maxSpeedMps;
+    private final double minSegmentMeters;
+    private final double minMovingSpeedMps;
+
+    private boolean anchored;
+    private double anchorLatitude;
+    private double anchorLongitude;
+    private long anchorMillis;
+    private LocalDateTime anchorTimestamp;
+
+    private double distanceMeters;
+    private long movingMillis;
+    private int acceptedPoints;
+    private int rejectedPoints;
+    private int consecutiveRejects;
+
+    private double[] sampleLatitudes = new double[0];
+    private double[] sampleLongitudes = new double[0];
+    private long[] sampleTimestamps = new long[0];
+    private double[] sampleMeters = new double[0];
+    private double[] sampleSeconds = new double[0];
+    private int sampleCount;
+
+    public TripOdometer(double maxSpeedKmh, double minSegmentMeters, double minMovingSpeedKmh) {
+        this.maxSpeedMps = maxSpeedKmh / 3.6;
+        this.minSegmentMeters = minSegmentMeters;
+        this.minMovingSpeedMps = minMovingSpeedKmh / 3.6;
+    }
+
+    /**
+     * Fold a location point into the running totals
+     */
+    public synchronized void accept(double latitude, double longitude, LocalDateTime timestamp) {
+        long millis = timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        if (!anchored) {
+            anchor(latitude, longitude, millis, timestamp);
+            acceptedPoints++;
+            return;
+        }
+
+        long elapsedMillis = millis - anchorMillis;
+        if (elapsedMillis <= 0) {
+            rejectedPoints++;
+            return;
+        }
+
+        double segmentMeters = distanceMeters(anchorLatitude, anchorLongitude, latitude, longitude);
+        if (segmentMeters < minSegmentMeters) {
+            // Stationary jitter: keep the anchor until the vehicle has really moved
+            return;
+        }
+
+        double speedMps = segmentMeters / (elapsedMillis / 1000.0);
+        if (speedMps > maxSpeedMps) {
+            rejectedPoints++;
+            if (++consecutiveRejects >= MAX_CONSECUTIVE_REJECTS) {
+                anchor(latitude, longitude, millis, timestamp);
+            }
+            return;
+        }
+
+        distanceMeters += segmentMeters;
+        if (speedMps >= minMovingSpeedMps) {
+            movingMillis += elapsedMillis;
+        }
+        if (segmentMeters <= MAX_SAMPLE_METERS) {
+            addSample((anchorLatitude + latitude) / 2, (anchorLongitude + longitude) / 2,
+                    segmentMeters, elapsedMillis / 1000.0);
+        }
+        anchor(latitude, longitude, millis, timestamp);
+        acceptedPoints++;
+    }
+
+    /**
+     * Copy of the speed samples collected so far
+     */
+    public synchronized SpeedSamples speedSamples() {
+        return new SpeedSamples(Arrays.copyOf(sampleLatitudes, sampleCount), Arrays.copyOf(sampleLongitudes, sampleCount),
+                Arrays.copyOf(sampleTimestamps, sampleCount), Arrays.copyOf(sampleMeters, sampleCount),
+                Arrays.copyOf(sampleSeconds, sampleCount));
+    }
+
+    public synchronized double getDistanceKm() {
+        return distanceMeters / 1000.0;
+    }
+
+    public synchronized long getMovingSeconds() {
+        return movingMillis / 1000;
+    }
+
+    public synchronized int getAcceptedPoints() {
+        return acceptedPoints;
+    }
+
+    public synchronized int getRejectedPoints() {
+        return rejectedPoints;
+    }
+
+    private void anchor(double latitude, double longitude, long millis, LocalDateTime timestamp) {
+        anchored = true;
+        anchorLatitude = latitude;
+        anchorLongitude = longitude;
+        anchorMillis = millis;
+        anchorTimestamp = timestamp;
+        consecutiveRejects = 0;
+    }
+
+    private void addSample(double latitude, double longitude, double meters, double seconds) {
+        if (sampleCount == MAX_SAMPLES) {
+            return;
+        }
+        if (sampleCount == sampleLatitudes.length) {
+            int capacity = Math.max(32, sampleCount * 2);
+            sampleLatitudes = Arrays.copyOf(sampleLatitudes, capacity);
+            sampleLongitudes = Arrays.copyOf(sampleLongitudes, capacity);
+            sampleTimestamps = Arrays.copyOf(sampleTimestamps, capacity);
+            sampleMeters = Arrays.copyOf(sampleMeters, capacity);
+            sampleSeconds = Arrays.copyOf(sampleSeconds, capacity);
+        }
+        sampleLatitudes[sampleCount] = latitude;
+        sampleLongitudes[sampleCount] = longitude;
+        // Timestamps are local wall-clock time; the samples carry real instants
+        sampleTimestamps[sampleCount] = anchorTimestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        sampleMeters[sampleCount] = meters;
+        sampleSeconds[sampleCount] = seconds;
+        sampleCount++;
+    }
+
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_M * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Observed stretches of a trip as parallel arrays; timestamps are epoch milliseconds at the start
+     */
+    public record SpeedSamples(double[] latitudes, double[] longitudes, long[] timestamps,
+                               double[] distancesMeters, double[] durationsSeconds) {
+
+        public int size() {
+            return latitudes.length;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cabservice.ride;
+
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.repository.RideRepository;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base for tests that need real MySQL semantics (row locks, INSERT IGNORE, conditional updates
+ * racing each other), run against a throwaway MySQL container. Requires Docker.
+ * <p>
+ * Only the JPA layer is started, from its own configuration so the application's Feign and
+ * discovery setup stays out. Tests are not wrapped in a transaction: every repository call
+ * commits, as it does in the service.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = MySqlTestSupport.JpaConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+public abstract class MySqlTestSupport {
+
+    @Container
+    @ServiceConnection
+    protected static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @Configuration
+    @EntityScan(basePackageClasses = Ride.class)
+    @EnableJpaRepositories(basePackageClasses = RideRepository.class)
+    static class JpaConfig {
+    }
+}
@@ -0,0 +1,162 @@
+package com.cabservice.ride.repository;
+
+import com.cabservice.ride.MySqlTestSupport;
+import com.cabservice.ride.entity.Ride;
+import com.cabservice.ride.service.RideTransition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conditional ride transitions racing each other on MySQL. Each contender runs its guarded UPDATE
+ * in its own transaction, released together, as concurrent requests would.
+ */
+class RideTransitionConcurrencyTest extends MySqlTestSupport {
+
+    private static final int ROUNDS = 100;
+    private static final int DRIVERS = 8;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void exactlyOneOfManyDriversAccepts() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(DRIVERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Long rideId = searchingRide();
+                List<Callable<Integer>> accepts = new ArrayList<>();
+                for (long driver = 1; driver <= DRIVERS; driver++) {
+                    long driverId = driver;
+                    accepts.add(() -> accept(rideId, driverId));
+                }
+                List<Integer> updated = race(threads, accepts);
+
+                assertThat(updated.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1);
+                Ride ride = rideRepository.findById(rideId).orElseThrow();
+                long winner = updated.indexOf(1) + 1;
+                assertThat(ride.getStatus()).isEqualTo(Ride.RideStatus.ACCEPTED);
+                assertThat(ride.getDriverId()).isEqualTo(winner);
+                assertThat(ride.getVersion()).isEqualTo(1L);
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    void acceptAndCancelApplyInSomeSerialOrder() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Long rideId = searchingRide();
+                List<Integer> updated = race(threads, List.of(
+                        () -> accept(rideId, 7L),
+                        () -> cancel(rideId)));
+                int accepted = updated.get(0);
+                int cancelled = updated.get(1);
+                Ride ride = rideRepository.findById(rideId).orElseThrow();
+
+                // Cancelling is allowed from ACCEPTED, so the cancel always lands; the accept lands
+                // only if it committed first, and never on top of the cancel
+                assertThat(cancelled).isEqualTo(1);
+                assertThat(ride.getStatus()).isEqualTo(Ride.RideStatus.CANCELLED);
+                if (accepted == 1) {
+                    assertThat(ride.getDriverId()).isEqualTo(7L);
+                    assertThat(ride.getAcceptedAt()).isNotNull();
+                    assertThat(ride.getVersion()).isEqualTo(2L);
+                } else {
+                    assertThat(ride.getDriverId()).isNull();
+                    assertThat(ride.getAcceptedAt()).isNull();
+                    assertThat(ride.getVersion()).isEqualTo(1L);
+                }
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    void acceptLosesToCancelThatCommittedFirst() {
+        Long rideId = searchingRide();
+
+        assertThat(cancel(rideId)).isEqualTo(1);
+        assertThat(accept(rideId, 7L)).isZero();
+        Ride ride = rideRepository.findById(rideId).orElseThrow();
+        assertThat(ride.getStatus()).isEqualTo(Ride.RideStatus.CANCELLED);
+        assertThat(ride.getDriverId()).isNull();
+    }
+
+    private int accept(Long rideId, Long driverId) {
+        return inTransaction(() -> rideRepository.markAccepted(rideId, driverId, LocalDateTime.now(),
+                RideTransition.ACCEPT.target(), RideTransition.ACCEPT.sources()));
+    }
+
+    private int cancel(Long rideId) {
+        return inTransaction(() -> rideRepository.markCancelled(rideId, LocalDateTime.now(), "Changed plans",
+                "CUSTOMER", RideTransition.CANCEL.target(), RideTransition.CANCEL.sources()));
+    }
+
+    private int inTransaction(Callable<Integer> update) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return update.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Start every contender at once and collect how many rows each one updated, in order
+     */
+    private static List<Integer> race(ExecutorService threads, List<Callable<Integer>> contenders) throws Exception {
+        CountDownLatch ready = new CountDownLatch(contenders.size());
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (Callable<Integer> contender : contenders) {
+            results.add(threads.submit(() -> {
+                ready.countDown();
+                go.await();
+                return contender.call();
+            }));
+        }
+        ready.await();
+        go.countDown();
+        List<Integer> updated = new ArrayList<>();
+        for (Future<Integer> result : results) {
+            updated.add(result.get(30, TimeUnit.SECONDS));
+        }
+        return updated;
+    }
+
+    private Long searchingRide() {
+        return rideRepository.save(Ride.builder()
+                .customerId(1L)
+                .vehicleType("SEDAN")
+                .pickupLatitude(12.97)
+                .pickupLongitude(77.59)
+                .dropoffLatitude(12.93)
+                .dropoffLongitude(77.62)
+                .status(Ride.RideStatus.SEARCHING_DRIVER)
+                .estimatedFare(BigDecimal.valueOf(150))
+                .build()).getId();
+    }
+}
@@ -0,0 +1,173 @@
+package com.cabservice.ride.service;
+
+import com.cabservice.ride.MySqlTestSupport;
+import com.cabservice.ride.exception.IdempotencyConflictException;
+import com.cabservice.ride.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Idempotency under heavy retrying: two instances sharing one database, many clients retrying
+ * every key concurrently, and claims taken over from owners that stopped heartbeating.
+ */
+class IdempotencyServiceLoadTest extends MySqlTestSupport {
+
+    private static final TypeReference<Map<String, Object>> RESPONSE = new TypeReference<>() {};
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyService first;
+    private IdempotencyService second;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyRecordRepository.deleteAll();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS idempotency_effects (effect_key VARCHAR(200) NOT NULL)");
+        jdbcTemplate.execute("DELETE FROM idempotency_effects");
+        first = newInstance();
+        second = newInstance();
+    }
+
+    @Test
+    void highRetryLoadExecutesEachKeyOnce() throws Exception {
+        int keys = 200;
+        int clientsPerKey = 20;
+        Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+        Map<String, Set<Object>> responses = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+        List<Future<?>> calls = new ArrayList<>();
+        // Every client of a key is queued back to back, so its attempts overlap
+        for (int k = 0; k < keys; k++) {
+            String key = "key-" + k;
+            for (int client = 0; client < clientsPerKey; client++) {
+                IdempotencyService instance = client % 2 == 0 ? first : second;
+                calls.add(clients.submit(() -> {
+                    // Retry on 409 like a client would, until the stored result is replayed
+                    while (true) {
+                        try {
+                            Map<String, Object> response = instance.execute("load", 1L, key, Map.of("key", key),
+                                    RESPONSE, () -> {
+                                        executions.computeIfAbsent(key, ignored -> new AtomicInteger()).incrementAndGet();
+                                        jdbcTemplate.update("INSERT INTO idempotency_effects (effect_key) VALUES (?)", key);
+                                        return Map.of("key", key, "run", UUID.randomUUID().toString());
+                                    });
+                            responses.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(response.get("run"));
+                            return null;
+                        } catch (IdempotencyConflictException e) {
+                            conflicts.incrementAndGet();
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 5));
+                        }
+                    }
+                }));
+            }
+        }
+        for (Future<?> call : calls) {
+            call.get(2, TimeUnit.MINUTES);
+        }
+        clients.shutdown();
+
+        assertThat(executions).hasSize(keys);
+        assertThat(executions.values()).allMatch(count -> count.get() == 1);
+        assertThat(responses.values()).allMatch(runs -> runs.size() == 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_effects", Integer.class))
+                .isEqualTo(keys);
+        assertThat(conflicts.get()).isPositive();
+    }
+
+    @Test
+    void failedActionReleasesClaimForRetry() {
+        assertThatThrownBy(() -> first.execute("load", 1L, "retry", Map.of(), RESPONSE, () -> {
+            jdbcTemplate.update("INSERT INTO idempotency_effects (effect_key) VALUES ('retry')");
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        Map<String, Object> response = second.execute("load", 1L, "retry", Map.of(), RESPONSE, () -> Map.of("ok", true));
+        assertThat(response).containsEntry("ok", true);
+        assertThat(effects("retry")).isZero();
+    }
+
+    @Test
+    void liveLeaseIsNotTakenOver() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.tryClaim("load:1:busy", hashOfEmptyRequest(), "other-owner", now.plusMinutes(1), now.minusHours(1));
+
+        assertThatThrownBy(() -> first.execute("load", 1L, "busy", Map.of(), RESPONSE, () -> Map.of("ok", true)))
+                .isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.tryClaim("load:1:abandoned", hashOfEmptyRequest(), "dead-owner", now.minusSeconds(1), now);
+
+        Map<String, Object> response = first.execute("load", 1L, "abandoned", Map.of(), RESPONSE, () -> Map.of("ok", true));
+        assertThat(response).containsEntry("ok", true);
+    }
+
+    @Test
+    void ownerThatLostItsClaimRollsBack() {
+        TransactionTemplate separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThatThrownBy(() -> first.execute("load", 1L, "stolen", Map.of(), RESPONSE, () -> {
+            jdbcTemplate.update("INSERT INTO idempotency_effects (effect_key) VALUES ('stolen')");
+            // Another instance takes the claim over, as if this one's lease had expired
+            separate.executeWithoutResult(status -> {
+                idempotencyRecordRepository.deleteById("load:1:stolen");
+                idempotencyRecordRepository.tryClaim("load:1:stolen", hashOfEmptyRequest(), "new-owner",
+                        LocalDateTime.now().plusMinutes(1), LocalDateTime.now());
+            });
+            return Map.of("ok", true);
+        })).isInstanceOf(IdempotencyConflictException.class);
+
+        assertThat(effects("stolen")).isZero();
+        assertThat(idempotencyRecordRepository.findById("load:1:stolen"))
+                .hasValueSatisfying(record -> assertThat(record.getOwnerId()).isEqualTo("new-owner"));
+    }
+
+    private IdempotencyService newInstance() {
+        return new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), transactionManager, 10_000, 24, 30);
+    }
+
+    private int effects(String key) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_effects WHERE effect_key = ?", Integer.class, key);
+    }
+
+    private String hashOfEmptyRequest() {
+        // SHA-256 of "{}", the serialised empty request
+        return "44136fa355b3678a1146ad16f7e8649e94fb4fc21fe77e8310c060f61caaff8a";
+    }
+}
@@ -1,13 +1,17 @@
 package com.cabservice.routing.controller;
 
 import com.cabservice.routing.dto.*;
+import com.cabservice.routing.service.GeocodingService;
 import com.cabservice.routing.service.RoutingService;
+import com.cabservice.routing.service.SpeedProfileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Routing Controller
  */
@@ -17,9 +21,14 @@ import org.springframework.web.bind.annotation.*;
 public class RoutingController {
 
     private final RoutingService routingService;
+    private final SpeedProfileService speedProfileService;
+    private final GeocodingService geocodingService;
 
-    public RoutingController(RoutingService routingService) {
+    public RoutingController(RoutingService routingService, SpeedProfileService speedProfileService,
+                             GeocodingService geocodingService) {
         this.routingService = routingService;
+        this.speedProfileService = speedProfileService;
+        this.geocodingService = geocodingService;
     }
 
     @PostMapping("/calculate-distance")
@@ -43,6 +52,56 @@ public class RoutingController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/matrix")
+    @Operation(summary = "Distances and durations between every source and every target")
+    public ResponseEntity<MatrixResponse> calculateMatrix(@Valid @RequestBody MatrixRequest request) {
+        MatrixResponse response = routingService.calculateMatrix(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/map-match")
+    @Operation(summary = "Match a GPS track to the roads driven and measure its distance")
+    public ResponseEntity<MapMatchResponse> matchTrack(@Valid @RequestBody MapMatchRequest request) {
+        MapMatchResponse response = routingService.matchTrack(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/isochrone")
+    @Operation(summary = "Area reachable within a travel time, and which candidate positions lie in it")
+    public ResponseEntity<IsochroneResponse> isochrone(@Valid @RequestBody IsochroneRequest request) {
+        IsochroneResponse response = routingService.isochrone(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/speed-samples")
+    @Operation(summary = "Report observed travel from a completed trip for the speed profile")
+    public ResponseEntity<Void> recordSpeedSamples(@Valid @RequestBody SpeedSampleBatch batch) {
+        speedProfileService.record(batch);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/geocode/autocomplete")
+    @Operation(summary = "Suggest addresses for partly typed text")
+    public ResponseEntity<List<GeocodeResult>> autocomplete(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(geocodingService.autocomplete(query, limit));
+    }
+
+    @GetMapping("/geocode")
+    @Operation(summary = "Resolve an address to coordinates")
+    public ResponseEntity<GeocodeResult> geocode(@RequestParam String address) {
+        return ResponseEntity.of(geocodingService.geocode(address));
+    }
+
+    @GetMapping("/geocode/reverse")
+    @Operation(summary = "Nearest address to coordinates")
+    public ResponseEntity<GeocodeResult> reverseGeocode(
+            @RequestParam Double lat,
+            @RequestParam Double lon) {
+        return ResponseEntity.of(geocodingService.reverse(lat, lon));
+    }
+
     @GetMapping("/distance")
     @Operation(summary = "Calculate distance (GET)")
     public ResponseEntity<DistanceResponse> getDistance(
@@ -66,13 +125,15 @@ public class RoutingController {
             @RequestParam Double startLon,
             @RequestParam Double endLat,
             @RequestParam Double endLon,
-            @RequestParam(required = false) String vehicleType) {
+            @RequestParam(required = false) String vehicleType,
+            @RequestParam(required = false) Boolean approximate) {
         RouteRequest request = RouteRequest.builder()
                 .startLatitude(startLat)
                 .startLongitude(startLon)
                 .endLatitude(endLat)
                 .endLongitude(endLon)
                 .vehicleType(vehicleType)
+                .approximate(approximate)
                 .build();
         return ResponseEntity.ok(routingService.estimateEta(request));
     }
@@ -14,4 +14,6 @@ public class EtaResponse {
     private Integer durationMinutes;
     private String durationText;
     private String arrivalTime;
+    // Whether the duration came from the precomputed zone-to-zone table
+    private Boolean approximate;
 }
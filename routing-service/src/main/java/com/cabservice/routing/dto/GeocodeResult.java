@@ -0,0 +1,19 @@
+package com.cabservice.routing.dto;
+
+import lombok.*;
+
+/**
+ * Geocode Result DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GeocodeResult {
+
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    // From the queried point, for reverse lookups
+    private Double distanceMeters;
+}
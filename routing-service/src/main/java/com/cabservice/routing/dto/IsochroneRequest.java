@@ -0,0 +1,36 @@
+package com.cabservice.routing.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+/**
+ * Isochrone Request DTO - The area within a travel time of a point, optionally tested against
+ * candidate positions such as available drivers
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IsochroneRequest {
+
+    @NotNull
+    private Double latitude;
+
+    @NotNull
+    private Double longitude;
+
+    @NotNull
+    @Min(1)
+    @Max(60)
+    private Integer minutes;
+
+    // Whether to find where can reach the point, as for drivers heading to a pickup (the default),
+    // rather than where the point can reach
+    private Boolean inbound;
+
+    // Candidate positions as parallel arrays; the response lists the ones inside the area
+    private double[] latitudes;
+    private double[] longitudes;
+}
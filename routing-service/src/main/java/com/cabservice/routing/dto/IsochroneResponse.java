@@ -0,0 +1,33 @@
+package com.cabservice.routing.dto;
+
+import lombok.*;
+
+/**
+ * Isochrone Response DTO - Reachable grid cells as a bitset.
+ * <p>
+ * Cells are squares of {@code cellDegrees} in both latitude and longitude; the cell of a point is
+ * {@code row = floor(latitude / cellDegrees) - minRow} and
+ * {@code column = floor(longitude / cellDegrees) - minColumn}, and it is reachable when bit
+ * {@code row * columns + column} is set, counting from the least significant bit of the first byte
+ * of the Base64-decoded {@code cells}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IsochroneResponse {
+
+    private Integer minutes;
+    private Boolean inbound;
+    private Double cellDegrees;
+    private Long minRow;
+    private Long minColumn;
+    private Integer rows;
+    private Integer columns;
+    private String cells;
+    private Integer reachableCells;
+    // Indices of the candidate positions inside the area, when any were given
+    private int[] reachablePoints;
+    // ROAD for an area searched along the roads; STRAIGHT_LINE for a circle at average speed
+    private String model;
+}
@@ -0,0 +1,23 @@
+package com.cabservice.routing.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+/**
+ * Map Match Request DTO - A GPS track in time order, as parallel arrays
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MapMatchRequest {
+
+    @NotNull
+    private double[] latitudes;
+
+    @NotNull
+    private double[] longitudes;
+
+    // Whether to return the matched position of every matched point
+    private boolean includeGeometry;
+}
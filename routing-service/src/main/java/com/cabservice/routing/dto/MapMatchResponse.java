@@ -0,0 +1,25 @@
+package com.cabservice.routing.dto;
+
+import lombok.*;
+
+/**
+ * Map Match Response DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MapMatchResponse {
+
+    private Double distanceKm;
+    private Integer matchedPoints;
+    // Points with no road nearby, left out of the match
+    private Integer unmatchedPoints;
+    // Places where the roads do not connect consecutive points; the gap is counted in a straight line
+    private Integer breaks;
+    // ROAD when the track was snapped to roads; STRAIGHT_LINE when distanceKm is the raw track length
+    private String model;
+    // Matched positions, when requested
+    private double[] latitudes;
+    private double[] longitudes;
+}
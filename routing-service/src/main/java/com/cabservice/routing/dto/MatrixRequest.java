@@ -0,0 +1,42 @@
+package com.cabservice.routing.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Matrix Request DTO - Every source is paired with every target
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MatrixRequest {
+
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid @NotNull Location> sources;
+
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid @NotNull Location> targets;
+
+    private String vehicleType;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Location {
+
+        @NotNull
+        private Double latitude;
+
+        @NotNull
+        private Double longitude;
+    }
+}
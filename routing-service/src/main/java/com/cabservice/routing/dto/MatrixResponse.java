@@ -0,0 +1,23 @@
+package com.cabservice.routing.dto;
+
+import lombok.*;
+
+/**
+ * Matrix Response DTO - Row-major arrays: the cell for source i and target j is at
+ * {@code i * targetCount + j}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MatrixResponse {
+
+    private Integer sourceCount;
+    private Integer targetCount;
+    private double[] distancesKm;
+    private int[] durationsSeconds;
+    // ROAD when the road network was loaded, even if some cells fell back; STRAIGHT_LINE when none was
+    private String model;
+    // Cells estimated in a straight line because a point was off the road network or unreachable
+    private Integer straightLineCells;
+}
@@ -1,5 +1,7 @@
 package com.cabservice.routing.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
@@ -25,4 +27,19 @@ public class RouteRequest {
     private Double endLongitude;
 
     private String vehicleType;
+
+    // Accept a zone-level ETA from the precomputed table, e.g. for ranking or fare estimates
+    private Boolean approximate;
+
+    // Route geometry as a coordinate list (default) or an encoded polyline string
+    private PolylineFormat polylineFormat;
+
+    // Map zoom level to simplify the route geometry for; full resolution when absent
+    @Min(0)
+    @Max(22)
+    private Integer zoom;
+
+    public enum PolylineFormat {
+        COORDINATES, ENCODED
+    }
 }
@@ -19,6 +19,8 @@ public class RouteResponse {
     private String durationText;
     private String distanceText;
     private List<Coordinate> polyline;
+    // Set instead of polyline when the encoded format is requested
+    private String encodedPolyline;
 
     @Data
     @NoArgsConstructor
@@ -0,0 +1,31 @@
+package com.cabservice.routing.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+/**
+ * Speed Sample Batch DTO - Stretches of observed travel from a completed trip, as parallel arrays
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpeedSampleBatch {
+
+    // Midpoint of each stretch
+    @NotNull
+    private double[] latitudes;
+
+    @NotNull
+    private double[] longitudes;
+
+    // Epoch milliseconds at the start of each stretch
+    @NotNull
+    private long[] timestamps;
+
+    @NotNull
+    private double[] distancesMeters;
+
+    @NotNull
+    private double[] durationsSeconds;
+}
@@ -0,0 +1,311 @@
+package com.cabservice.routing.geocoding;
+
+import com.cabservice.routing.graph.GeoMath;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Address Index - Autocomplete and reverse geocoding over a local address dataset, read from a
+ * memory-mapped file written by {@link AddressIndexWriter}.
+ * <p>
+ * Addresses are numbered by rank, most popular first, so the best suggestions are always the
+ * lowest numbers. Autocomplete walks a radix trie over the normalised text of each address and of
+ * its first few word starts, each cut to {@link #MAX_KEY_BYTES}; every trie node covers a
+ * contiguous range of the sorted keys and, when that range is large, stores its best
+ * {@link #MAX_SUGGESTIONS} addresses, so a lookup costs one step per query byte plus at most
+ * {@link #SCAN_LIMIT} keys. Reverse geocoding searches a uniform grid stored as sorted cell keys
+ * with CSR offsets, like {@code NodeLocator}. Layout, big-endian:
+ * <pre>
+ *   int    magic
+ *   int    address count, int key count, int cell count, int label bytes
+ *   double cell size in degrees
+ *   long   build time, epoch milliseconds
+ *   int[addresses]      latitude, int[addresses] longitude, in units of 1e-7 degrees
+ *   int[addresses + 1]  label offsets, then byte[label bytes] UTF-8 labels
+ *   int[keys]           address of each key, in key order
+ *   long[cells]         cell keys, int[cells + 1] cell offsets, int[addresses] addresses by cell
+ *   trie nodes, children before parents, then int root node offset
+ * </pre>
+ * A trie node is: byte label length, label bytes, int first key, int key count, byte stored
+ * suggestions, int[] suggestions, short child count, the first label byte of each child ascending,
+ * then int[] child offsets from the start of the trie. Nothing is copied to the heap, so millions
+ * of addresses map in milliseconds and cost only the pages that lookups touch.
+ * <p>
+ * Autocomplete and reverse lookups from many request threads share one index: the trie walk and
+ * the grid search read the buffer by offset only and never move its position, so no lookup locks.
+ */
+public final class AddressIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    static final int MAGIC = 0x47454F31;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4 + 8 + 8;
+    static final int MAX_KEY_BYTES = 48;
+    static final int SCAN_LIMIT = 64;
+    static final double COORDINATE_SCALE = 1e7;
+    static final double METERS_PER_DEGREE = 111_320.0;
+
+    private static final int[] NONE = new int[0];
+
+    private final MappedByteBuffer buffer;
+    private final int addressCount;
+    private final int keyCount;
+    private final int cellCount;
+    private final double cellDegrees;
+    private final long builtAtMillis;
+    private final int latitudes;
+    private final int longitudes;
+    private final int labelOffsets;
+    private final int labels;
+    private final int keys;
+    private final int cellKeys;
+    private final int cellStarts;
+    private final int cellAddresses;
+    private final int trie;
+    private final int root;
+
+    private AddressIndex(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an address index");
+        }
+        this.addressCount = buffer.getInt(4);
+        this.keyCount = buffer.getInt(8);
+        this.cellCount = buffer.getInt(12);
+        int labelBytes = buffer.getInt(16);
+        this.cellDegrees = buffer.getDouble(20);
+        this.builtAtMillis = buffer.getLong(28);
+
+        long latitudesAt = HEADER_BYTES;
+        long longitudesAt = latitudesAt + 4L * addressCount;
+        long labelOffsetsAt = longitudesAt + 4L * addressCount;
+        long labelsAt = labelOffsetsAt + 4L * (addressCount + 1);
+        long keysAt = labelsAt + labelBytes;
+        long cellKeysAt = keysAt + 4L * keyCount;
+        long cellStartsAt = cellKeysAt + 8L * cellCount;
+        long cellAddressesAt = cellStartsAt + 4L * (cellCount + 1);
+        long trieAt = cellAddressesAt + 4L * addressCount;
+        if (addressCount < 0 || keyCount < 0 || cellCount < 0 || labelBytes < 0 || trieAt + 4 > buffer.capacity()) {
+            throw new IOException("Address index is " + buffer.capacity() + " bytes, too short for "
+                    + addressCount + " addresses");
+        }
+        this.latitudes = (int) latitudesAt;
+        this.longitudes = (int) longitudesAt;
+        this.labelOffsets = (int) labelOffsetsAt;
+        this.labels = (int) labelsAt;
+        this.keys = (int) keysAt;
+        this.cellKeys = (int) cellKeysAt;
+        this.cellStarts = (int) cellStartsAt;
+        this.cellAddresses = (int) cellAddressesAt;
+        this.trie = (int) trieAt;
+        this.root = buffer.getInt(buffer.capacity() - 4);
+    }
+
+    /**
+     * Map the index file read-only
+     */
+    public static AddressIndex map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Safe to close right away; AddressIndexWriter moves a new file into place rather than
+            // rewriting this one, so the pages mapped here never change under a lookup
+            return new AddressIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int addressCount() {
+        return addressCount;
+    }
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    public double latitude(int address) {
+        return buffer.getInt(latitudes + 4 * address) / COORDINATE_SCALE;
+    }
+
+    public double longitude(int address) {
+        return buffer.getInt(longitudes + 4 * address) / COORDINATE_SCALE;
+    }
+
+    public String label(int address) {
+        int start = buffer.getInt(labelOffsets + 4 * address);
+        byte[] bytes = new byte[buffer.getInt(labelOffsets + 4 * (address + 1)) - start];
+        buffer.get(labels + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Best addresses whose text, or one of its first word starts, begins with the query; up to
+     * {@link #MAX_SUGGESTIONS}, best first
+     */
+    public int[] autocomplete(String query, int limit) {
+        byte[] prefix = normalize(query);
+        if (prefix.length == 0 || limit <= 0) {
+            return NONE;
+        }
+        int length = Math.min(prefix.length, MAX_KEY_BYTES);
+        int node = trie + root;
+        int matched = 0;
+        while (true) {
+            int labelLength = buffer.get(node) & 0xff;
+            for (int i = 0; i < labelLength && matched < length; i++, matched++) {
+                if (buffer.get(node + 1 + i) != prefix[matched]) {
+                    return NONE;
+                }
+            }
+            if (matched == length) {
+                return suggestions(node + 1 + labelLength, Math.min(limit, MAX_SUGGESTIONS));
+            }
+            int position = node + 1 + labelLength + 8;
+            position += 1 + 4 * (buffer.get(position) & 0xff);
+            int children = buffer.getShort(position) & 0xffff;
+            int child = findChild(position + 2, children, prefix[matched] & 0xff);
+            if (child < 0) {
+                return NONE;
+            }
+            node = trie + buffer.getInt(position + 2 + children + 4 * child);
+        }
+    }
+
+    /**
+     * Nearest address within {@code maxMeters}, or -1 if there is none
+     */
+    public int nearest(double latitude, double longitude, double maxMeters) {
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        int latCells = (int) Math.ceil(maxMeters / METERS_PER_DEGREE / cellDegrees);
+        int lonCells = (int) Math.ceil(maxMeters / (METERS_PER_DEGREE * Math.max(0.01, cosLatitude)) / cellDegrees);
+        long row = (long) Math.floor(latitude / cellDegrees);
+        long column = (long) Math.floor(longitude / cellDegrees);
+
+        int best = -1;
+        double bestSquared = maxMeters * maxMeters;
+        for (long r = row - latCells; r <= row + latCells; r++) {
+            for (long c = column - lonCells; c <= column + lonCells; c++) {
+                int cell = findCell(cellKey(r, c));
+                if (cell < 0) {
+                    continue;
+                }
+                int end = buffer.getInt(cellStarts + 4 * (cell + 1));
+                for (int i = buffer.getInt(cellStarts + 4 * cell); i < end; i++) {
+                    int address = buffer.getInt(cellAddresses + 4 * i);
+                    double squared = GeoMath.approxDistanceSquared(latitude, longitude,
+                            latitude(address), longitude(address), cosLatitude);
+                    if (squared < bestSquared) {
+                        bestSquared = squared;
+                        best = address;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Suggestions of the node whose range fields start at {@code position}: the stored ones, or
+     * the best distinct addresses among its keys when the range is small enough to scan
+     */
+    private int[] suggestions(int position, int limit) {
+        int firstKey = buffer.getInt(position);
+        int count = buffer.getInt(position + 4);
+        int stored = buffer.get(position + 8) & 0xff;
+        if (stored > 0) {
+            int[] result = new int[Math.min(limit, stored)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buffer.getInt(position + 9 + 4 * i);
+            }
+            return result;
+        }
+        int[] addresses = new int[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = buffer.getInt(keys + 4 * (firstKey + i));
+        }
+        return best(addresses, count, limit);
+    }
+
+    private int findChild(int position, int children, int key) {
+        int low = 0;
+        int high = children - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = buffer.get(position + middle) & 0xff;
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int findCell(long key) {
+        int low = 0;
+        int high = cellCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = buffer.getLong(cellKeys + 8 * middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The lowest distinct addresses among the first {@code count}, which are best ranked; sorts
+     * the array in place
+     */
+    static int[] best(int[] addresses, int count, int limit) {
+        Arrays.sort(addresses, 0, count);
+        int[] result = new int[Math.min(count, limit)];
+        int size = 0;
+        for (int i = 0; i < count && size < result.length; i++) {
+            if (i == 0 || addresses[i] != addresses[i - 1]) {
+                result[size++] = addresses[i];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    static long cellKey(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    /**
+     * Text as matched by autocomplete: accents removed, lower case, and every run of characters
+     * other than letters and digits turned into one space, as UTF-8
+     */
+    static byte[] normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,416 @@
+package com.cabservice.routing.geocoding;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Address Index Writer - Builds the {@link AddressIndex} file from an address CSV.
+ * <p>
+ * Lines are {@code latitude,longitude,weight,address}: the address is the rest of the line and may
+ * contain commas or be quoted, and the weight ranks suggestions, higher first, such as the number
+ * of rides to the address; a blank weight counts as 0. Lines that do not start with a number
+ * (headers, comments) are skipped, as in {@code RoadGraphLoader}. The keys are sorted with a
+ * multikey quicksort, which compares each byte once per level rather than whole strings, and the
+ * trie is written in one pass over the sorted keys.
+ */
+public final class AddressIndexWriter {
+
+    private final double cellMeters;
+    private final int wordStarts;
+
+    /**
+     * @param wordStarts words of an address that autocomplete matches from, counting the first;
+     *                   later words only match as part of an earlier one
+     */
+    public AddressIndexWriter(double cellMeters, int wordStarts) {
+        if (cellMeters <= 0 || wordStarts < 1) {
+            throw new IllegalArgumentException("Address index needs a positive cell size and at least one word start");
+        }
+        this.cellMeters = cellMeters;
+        this.wordStarts = wordStarts;
+    }
+
+    /**
+     * Build the index for the addresses file and write it to the index file
+     *
+     * @return the number of addresses
+     */
+    public int write(Path addressesFile, Path file) throws IOException {
+        Addresses addresses = read(addressesFile);
+        int count = addresses.count;
+
+        // Number the addresses by rank, so suggestions need no other ordering
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byWeight = Integer.compare(addresses.weights[b], addresses.weights[a]);
+            return byWeight != 0 ? byWeight : Integer.compare(addresses.labelLength(a), addresses.labelLength(b));
+        });
+
+        Keys keys = new Keys(addresses, order, wordStarts);
+        keys.sort(0, keys.count, 0);
+
+        double cellDegrees = cellMeters / AddressIndex.METERS_PER_DEGREE;
+        long[] cellOf = new long[count];
+        Integer[] byCell = new Integer[count];
+        int cellCount = 0;
+        for (int address = 0; address < count; address++) {
+            int original = order[address];
+            cellOf[address] = AddressIndex.cellKey((long) Math.floor(addresses.latitudes[original] / cellDegrees),
+                    (long) Math.floor(addresses.longitudes[original] / cellDegrees));
+            byCell[address] = address;
+        }
+        Arrays.sort(byCell, (a, b) -> Long.compare(cellOf[a], cellOf[b]));
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || cellOf[byCell[i]] != cellOf[byCell[i - 1]]) {
+                cellCount++;
+            }
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(AddressIndex.MAGIC);
+            out.writeInt(count);
+            out.writeInt(keys.count);
+            out.writeInt(cellCount);
+            out.writeInt(addresses.labelBytes);
+            out.writeDouble(cellDegrees);
+            out.writeLong(System.currentTimeMillis());
+            for (int address = 0; address < count; address++) {
+                out.writeInt((int) Math.round(addresses.latitudes[order[address]] * AddressIndex.COORDINATE_SCALE));
+            }
+            for (int address = 0; address < count; address++) {
+                out.writeInt((int) Math.round(addresses.longitudes[order[address]] * AddressIndex.COORDINATE_SCALE));
+            }
+            int labelOffset = 0;
+            for (int address = 0; address < count; address++) {
+                out.writeInt(labelOffset);
+                labelOffset += addresses.labelLength(order[address]);
+            }
+            out.writeInt(labelOffset);
+            for (int address = 0; address < count; address++) {
+                int original = order[address];
+                out.write(addresses.labels, addresses.labelStarts[original], addresses.labelLength(original));
+            }
+            for (int i = 0; i < keys.count; i++) {
+                out.writeInt(keys.address[keys.order[i]]);
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || cellOf[byCell[i]] != cellOf[byCell[i - 1]]) {
+                    out.writeLong(cellOf[byCell[i]]);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || cellOf[byCell[i]] != cellOf[byCell[i - 1]]) {
+                    out.writeInt(i);
+                }
+            }
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(byCell[i]);
+            }
+
+            int trieStart = out.size();
+            Node root = keys.writeNode(out, trieStart, 0, keys.count, 0);
+            out.writeInt(root.offset());
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Address index for " + addressesFile + " exceeds 2 GB; split the dataset");
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static Addresses read(Path addressesFile) throws IOException {
+        Addresses addresses = new Addresses();
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(addressesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || !(Character.isDigit(line.charAt(0)) || line.charAt(0) == '-')) {
+                    continue;
+                }
+                int first = line.indexOf(',');
+                int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+                int third = second < 0 ? -1 : line.indexOf(',', second + 1);
+                if (third < 0) {
+                    throw new IOException("Malformed address at " + addressesFile + ":" + lineNumber);
+                }
+                double latitude = Double.parseDouble(line.substring(0, first).trim());
+                double longitude = Double.parseDouble(line.substring(first + 1, second).trim());
+                String weight = line.substring(second + 1, third).trim();
+                String label = line.substring(third + 1).trim();
+                if (label.length() >= 2 && label.startsWith("\"") && label.endsWith("\"")) {
+                    label = label.substring(1, label.length() - 1).replace("\"\"", "\"").trim();
+                }
+                if (label.isEmpty()) {
+                    continue;
+                }
+                addresses.add(latitude, longitude, weight.isEmpty() ? 0 : Integer.parseInt(weight),
+                        label.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * The parsed dataset in file order, labels packed into one array
+     */
+    private static final class Addresses {
+
+        private int count;
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private int[] weights = new int[1024];
+        private int[] labelStarts = new int[1025];
+        private byte[] labels = new byte[1 << 16];
+        private int labelBytes;
+
+        void add(double latitude, double longitude, int weight, byte[] label) throws IOException {
+            if (count + 1 == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, count * 2);
+                longitudes = Arrays.copyOf(longitudes, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+                labelStarts = Arrays.copyOf(labelStarts, count * 2 + 1);
+            }
+            if ((long) labelBytes + label.length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Address labels exceed 2 GB; split the dataset");
+            }
+            if (labelBytes + label.length > labels.length) {
+                labels = Arrays.copyOf(labels, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(2L * labels.length, labelBytes + label.length)));
+            }
+            latitudes[count] = latitude;
+            longitudes[count] = longitude;
+            weights[count] = weight;
+            labelStarts[count] = labelBytes;
+            System.arraycopy(label, 0, labels, labelBytes, label.length);
+            labelBytes += label.length;
+            count++;
+            labelStarts[count] = labelBytes;
+        }
+
+        int labelLength(int address) {
+            return labelStarts[address + 1] - labelStarts[address];
+        }
+    }
+
+    /**
+     * Autocomplete keys: the normalised text of each address from each of its first word starts,
+     * cut to {@link AddressIndex#MAX_KEY_BYTES}, sorted by {@link #order}
+     */
+    private static final class Keys {
+
+        private final byte[] text;
+        private final int[] address;
+        private final int[] start;
+        private final byte[] length;
+        private final int[] order;
+        private final int count;
+
+        Keys(Addresses addresses, Integer[] ranked, int wordStarts) throws IOException {
+            byte[][] normalized = new byte[addresses.count][];
+            long textBytes = 0;
+            long keyCount = 0;
+            for (int i = 0; i < addresses.count; i++) {
+                int original = ranked[i];
+                normalized[i] = AddressIndex.normalize(new String(addresses.labels, addresses.labelStarts[original],
+                        addresses.labelLength(original), StandardCharsets.UTF_8));
+                textBytes += normalized[i].length;
+                keyCount += Math.min(wordStarts, words(normalized[i]));
+            }
+            if (textBytes > Integer.MAX_VALUE - 8 || keyCount > Integer.MAX_VALUE - 8) {
+                throw new IOException("Address index keys exceed 2 GB; split the dataset");
+            }
+
+            this.text = new byte[(int) textBytes];
+            this.address = new int[(int) keyCount];
+            this.start = new int[(int) keyCount];
+            this.length = new byte[(int) keyCount];
+            this.order = new int[(int) keyCount];
+            int offset = 0;
+            int key = 0;
+            for (int i = 0; i < normalized.length; i++) {
+                byte[] bytes = normalized[i];
+                System.arraycopy(bytes, 0, text, offset, bytes.length);
+                int starts = 0;
+                for (int j = 0; j < bytes.length && starts < wordStarts; j++) {
+                    if (j == 0 || bytes[j - 1] == ' ') {
+                        address[key] = i;
+                        start[key] = offset + j;
+                        length[key] = (byte) Math.min(AddressIndex.MAX_KEY_BYTES, bytes.length - j);
+                        order[key] = key;
+                        key++;
+                        starts++;
+                    }
+                }
+                normalized[i] = null;
+                offset += bytes.length;
+            }
+            this.count = key;
+        }
+
+        private static int words(byte[] normalized) {
+            int words = normalized.length > 0 ? 1 : 0;
+            for (byte b : normalized) {
+                if (b == ' ') {
+                    words++;
+                }
+            }
+            return words;
+        }
+
+        private int byteAt(int key, int depth) {
+            return depth < length[key] ? text[start[key] + depth] & 0xff : -1;
+        }
+
+        /**
+         * Multikey quicksort of {@code order[low, high)}, whose keys share their first {@code depth} bytes
+         */
+        void sort(int low, int high, int depth) {
+            while (high - low > 1) {
+                if (high - low < 16) {
+                    insertionSort(low, high, depth);
+                    return;
+                }
+                int pivot = medianOfThree(byteAt(order[low], depth), byteAt(order[(low + high) >>> 1], depth),
+                        byteAt(order[high - 1], depth));
+                int less = low;
+                int greater = high - 1;
+                int i = low;
+                while (i <= greater) {
+                    int value = byteAt(order[i], depth);
+                    if (value < pivot) {
+                        swap(less++, i++);
+                    } else if (value > pivot) {
+                        swap(i, greater--);
+                    } else {
+                        i++;
+                    }
+                }
+                sort(low, less, depth);
+                if (pivot >= 0) {
+                    sort(less, greater + 1, depth + 1);
+                }
+                low = greater + 1;
+            }
+        }
+
+        private void insertionSort(int low, int high, int depth) {
+            for (int i = low + 1; i < high; i++) {
+                for (int j = i; j > low && compare(order[j - 1], order[j], depth) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private int compare(int a, int b, int depth) {
+            for (int d = depth; ; d++) {
+                int difference = byteAt(a, d) - byteAt(b, d);
+                if (difference != 0 || byteAt(a, d) < 0) {
+                    return difference;
+                }
+            }
+        }
+
+        private static int medianOfThree(int a, int b, int c) {
+            return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+        }
+
+        private void swap(int i, int j) {
+            int swapped = order[i];
+            order[i] = order[j];
+            order[j] = swapped;
+        }
+
+        /**
+         * Write the trie node for the sorted keys {@code [low, high)}, which share their first
+         * {@code depth} bytes, after its children
+         */
+        Node writeNode(DataOutputStream out, int trieStart, int low, int high, int depth) throws IOException {
+            int end = depth;
+            if (high > low) {
+                // In a sorted range the first and last keys share the prefix all keys share
+                int first = order[low];
+                int last = order[high - 1];
+                while (byteAt(first, end) >= 0 && byteAt(first, end) == byteAt(last, end)) {
+                    end++;
+                }
+            }
+            int terminal = low;
+            while (terminal < high && byteAt(order[terminal], end) < 0) {
+                terminal++;
+            }
+
+            int children = 0;
+            for (int i = terminal; i < high; i++) {
+                if (i == terminal || byteAt(order[i], end) != byteAt(order[i - 1], end)) {
+                    children++;
+                }
+            }
+            int[] childBytes = new int[children];
+            int[] childOffsets = new int[children];
+            int[] candidates = new int[terminal - low + children * AddressIndex.MAX_SUGGESTIONS];
+            int candidateCount = 0;
+            for (int i = low; i < terminal; i++) {
+                candidates[candidateCount++] = address[order[i]];
+            }
+            int child = 0;
+            for (int i = terminal; i < high; ) {
+                int value = byteAt(order[i], end);
+                int j = i + 1;
+                while (j < high && byteAt(order[j], end) == value) {
+                    j++;
+                }
+                Node written = writeNode(out, trieStart, i, j, end);
+                childBytes[child] = value;
+                childOffsets[child] = written.offset();
+                child++;
+                for (int suggestion : written.suggestions()) {
+                    candidates[candidateCount++] = suggestion;
+                }
+                i = j;
+            }
+            // The children's best include the best of every key below them
+            int[] suggestions = AddressIndex.best(candidates, candidateCount, AddressIndex.MAX_SUGGESTIONS);
+
+            int offset = out.size() - trieStart;
+            out.writeByte(end - depth);
+            if (high > low) {
+                out.write(text, start[order[low]] + depth, end - depth);
+            }
+            out.writeInt(low);
+            out.writeInt(high - low);
+            int stored = high - low > AddressIndex.SCAN_LIMIT ? suggestions.length : 0;
+            out.writeByte(stored);
+            for (int i = 0; i < stored; i++) {
+                out.writeInt(suggestions[i]);
+            }
+            out.writeShort(children);
+            for (int value : childBytes) {
+                out.writeByte(value);
+            }
+            for (int childOffset : childOffsets) {
+                out.writeInt(childOffset);
+            }
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Address index exceeds 2 GB; split the dataset");
+            }
+            return new Node(offset, suggestions);
+        }
+    }
+
+    private record Node(int offset, int[] suggestions) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.cabservice.routing.geometry;
+
+import com.cabservice.routing.graph.GeoMath;
+
+import java.util.Arrays;
+
+/**
+ * Polyline helpers: Douglas-Peucker simplification by map zoom level and the encoded polyline
+ * format (five decimal places, as used by the common web map SDKs)
+ */
+public final class Polylines {
+
+    // Ground resolution of zoom level 0 at the equator, in metres per pixel
+    private static final double METERS_PER_PIXEL_AT_ZOOM_0 = 156_543.03392;
+
+    private Polylines() {
+    }
+
+    /**
+     * Largest deviation from the true line that is still invisible at the zoom level, taken as one
+     * pixel at the given latitude
+     */
+    public static double toleranceMeters(int zoom, double latitude) {
+        return METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Indices of the points kept by Douglas-Peucker simplification, in order. The first and last
+     * points are always kept; any point further than the tolerance from the simplified line is kept.
+     */
+    public static int[] simplify(double[] latitudes, double[] longitudes, double toleranceMeters) {
+        int count = latitudes.length;
+        if (count <= 2) {
+            return identity(count);
+        }
+
+        // Local equirectangular projection; exact enough over the extent of one route
+        double cosLatitude = Math.cos(Math.toRadians(latitudes[0]));
+        double metersPerDegree = Math.toRadians(GeoMath.EARTH_RADIUS_METERS);
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = longitudes[i] * metersPerDegree * cosLatitude;
+            y[i] = latitudes[i] * metersPerDegree;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        double toleranceSquared = toleranceMeters * toleranceMeters;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxSquared = 0;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double squared = segmentDistanceSquared(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (squared > maxSquared) {
+                    maxSquared = squared;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxSquared > toleranceSquared) {
+                keep[farthest] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        int[] kept = new int[count];
+        int keptCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                kept[keptCount++] = i;
+            }
+        }
+        return Arrays.copyOf(kept, keptCount);
+    }
+
+    /**
+     * Encode the points at the given indices
+     */
+    public static String encode(double[] latitudes, double[] longitudes, int[] indices) {
+        StringBuilder encoded = new StringBuilder(indices.length * 8);
+        int previousLatitude = 0;
+        int previousLongitude = 0;
+        for (int index : indices) {
+            int latitude = (int) Math.round(latitudes[index] * 1e5);
+            int longitude = (int) Math.round(longitudes[index] * 1e5);
+            appendValue(encoded, latitude - previousLatitude);
+            appendValue(encoded, longitude - previousLongitude);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+        }
+        return encoded.toString();
+    }
+
+    public static int[] identity(int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    private static void appendValue(StringBuilder encoded, int delta) {
+        // Zig-zag the sign into the lowest bit, then emit five bits per character, low bits first
+        int value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            encoded.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>>= 5;
+        }
+        encoded.append((char) (value + 63));
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,466 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchy - Preprocessed road graph answering shortest-time queries in microseconds.
+ * <p>
+ * Every node has a rank, and every arc, original or shortcut, goes either up or down in rank. A
+ * query runs a Dijkstra upward from the source and another upward from the target over the
+ * reversed downward arcs; the fastest path is the best meeting node. Both searches only see a few
+ * hundred nodes on a city graph, so no query touches the rest of the network. Distances are carried
+ * on the arcs, so only route geometry requires unpacking shortcuts.
+ * <p>
+ * Immutable and thread safe; queries borrow search state from a bounded {@link WorkspacePool}.
+ */
+public final class ContractionHierarchy {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final int[] upFirst;
+    private final int[] upTarget;
+    private final int[] upWeight;
+    private final int[] upArc;
+    private final int[] downFirst;
+    private final int[] downTarget;
+    private final int[] downWeight;
+    private final int[] downArc;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final int[] arcDistance;
+    private final int[] arcChild1;
+    private final int[] arcChild2;
+    private final WorkspacePool<QueryState> states;
+
+    ContractionHierarchy(RoadGraph graph,
+                         int[] upFirst, int[] upTarget, int[] upWeight, int[] upArc,
+                         int[] downFirst, int[] downTarget, int[] downWeight, int[] downArc,
+                         int[] arcFrom, int[] arcTo, int[] arcDistance, int[] arcChild1, int[] arcChild2) {
+        this.graph = graph;
+        this.upFirst = upFirst;
+        this.upTarget = upTarget;
+        this.upWeight = upWeight;
+        this.upArc = upArc;
+        this.downFirst = downFirst;
+        this.downTarget = downTarget;
+        this.downWeight = downWeight;
+        this.downArc = downArc;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcDistance = arcDistance;
+        this.arcChild1 = arcChild1;
+        this.arcChild2 = arcChild2;
+        int nodeCount = graph.nodeCount();
+        this.states = new WorkspacePool<>(() -> new QueryState(nodeCount));
+    }
+
+    /**
+     * Contract the graph. Takes seconds to minutes depending on the graph size.
+     *
+     * @param witnessSettleLimit nodes a witness search may settle before a shortcut is added anyway;
+     *                           lower is faster to build but adds redundant shortcuts
+     */
+    public static ContractionHierarchy build(RoadGraph graph, int witnessSettleLimit) {
+        return new ContractionHierarchyBuilder(graph, witnessSettleLimit).build();
+    }
+
+    public RoadGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Original arcs plus shortcuts
+     */
+    public int arcCount() {
+        return arcFrom.length;
+    }
+
+    /**
+     * Fastest path between two nodes, or null if the target cannot be reached
+     *
+     * @param withPath whether to unpack the node sequence of the path
+     */
+    public Path route(int source, int target, boolean withPath) {
+        if (source == target) {
+            return new Path(0, 0, withPath ? new int[]{source} : null);
+        }
+        QueryState state = states.acquire();
+        try {
+            return search(state, source, target, withPath);
+        } finally {
+            state.reset();
+            states.release(state);
+        }
+    }
+
+    private Path search(QueryState state, int source, int target, boolean withPath) {
+        Direction forward = state.forward;
+        Direction backward = state.backward;
+        forward.visit(source, 0, -1, 0);
+        backward.visit(target, 0, -1, 0);
+
+        int best = INFINITY;
+        int meeting = -1;
+        boolean forwardTurn = true;
+        while (true) {
+            boolean forwardActive = !forward.heap.isEmpty() && forward.heap.peekKey() < best;
+            boolean backwardActive = !backward.heap.isEmpty() && backward.heap.peekKey() < best;
+            if (!forwardActive && !backwardActive) {
+                break;
+            }
+            boolean useForward = forwardActive && (forwardTurn || !backwardActive);
+            forwardTurn = !forwardTurn;
+
+            Direction current = useForward ? forward : backward;
+            Direction other = useForward ? backward : forward;
+            int node = current.heap.poll();
+            int distance = current.distance[node];
+            if (other.distance[node] != INFINITY && distance + other.distance[node] < best) {
+                best = distance + other.distance[node];
+                meeting = node;
+            }
+
+            int[] first = useForward ? upFirst : downFirst;
+            int[] targets = useForward ? upTarget : downTarget;
+            int[] weights = useForward ? upWeight : downWeight;
+            int[] arcs = useForward ? upArc : downArc;
+            if (stalled(current, node, distance, useForward ? downFirst : upFirst,
+                    useForward ? downTarget : upTarget, useForward ? downWeight : upWeight)) {
+                continue;
+            }
+            for (int slot = first[node]; slot < first[node + 1]; slot++) {
+                int next = targets[slot];
+                int candidate = distance + weights[slot];
+                if (candidate < current.distance[next]) {
+                    current.visit(next, candidate, arcs[slot], current.meters[node] + arcDistance[arcs[slot]]);
+                }
+            }
+        }
+        if (meeting < 0) {
+            return null;
+        }
+        // Distances ride on the arcs, shortcuts included
+        long distanceMeters = (long) forward.meters[meeting] + backward.meters[meeting];
+        return new Path(best, distanceMeters, withPath ? unpack(state, source, meeting) : null);
+    }
+
+    /**
+     * Travel times and distances from every source to every target.
+     * <p>
+     * Bucket-based many-to-many search: an upward search from each target over the reversed downward
+     * arcs leaves a (target, time, distance) entry in the bucket of every node it settles, then an
+     * upward search from each source scans the buckets of the nodes it settles. That is one search per
+     * source and per target instead of one query per pair. With {@code parallel} set, both phases are
+     * spread over the common fork-join pool.
+     */
+    public Matrix matrix(int[] sources, int[] targets, boolean parallel) {
+        SearchSpace[] targetSpaces = new SearchSpace[targets.length];
+        IntStream targetRange = IntStream.range(0, targets.length);
+        (parallel ? targetRange.parallel() : targetRange)
+                .forEach(t -> targetSpaces[t] = searchSpace(targets[t], false));
+        Buckets buckets = new Buckets(targetSpaces, parallel);
+
+        int[] times = new int[sources.length * targets.length];
+        int[] distances = new int[times.length];
+        Arrays.fill(times, INFINITY);
+        IntStream sourceRange = IntStream.range(0, sources.length);
+        // Each source owns one row of the result, so the rows can be filled concurrently
+        (parallel ? sourceRange.parallel() : sourceRange)
+                .forEach(s -> scan(searchSpace(sources[s], true), buckets, times, distances, s * targets.length));
+
+        for (int cell = 0; cell < times.length; cell++) {
+            if (times[cell] == INFINITY) {
+                times[cell] = -1;
+                distances[cell] = -1;
+            }
+        }
+        return new Matrix(sources.length, targets.length, times, distances);
+    }
+
+    /**
+     * Every node settled by an exhaustive upward search, with its time and distance from the start
+     */
+    private SearchSpace searchSpace(int start, boolean forward) {
+        QueryState state = states.acquire();
+        Direction direction = state.forward;
+        int[] first = forward ? upFirst : downFirst;
+        int[] targets = forward ? upTarget : downTarget;
+        int[] weights = forward ? upWeight : downWeight;
+        int[] arcs = forward ? upArc : downArc;
+        try {
+            direction.visit(start, 0, -1, 0);
+            int[] nodes = new int[64];
+            int count = 0;
+            while (!direction.heap.isEmpty()) {
+                int node = direction.heap.poll();
+                int distance = direction.distance[node];
+                // A stalled node's distance is not final, so it gets no bucket entry either
+                if (stalled(direction, node, distance, forward ? downFirst : upFirst,
+                        forward ? downTarget : upTarget, forward ? downWeight : upWeight)) {
+                    continue;
+                }
+                if (count == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, count * 2);
+                }
+                nodes[count++] = node;
+                for (int slot = first[node]; slot < first[node + 1]; slot++) {
+                    int next = targets[slot];
+                    int candidate = distance + weights[slot];
+                    if (candidate < direction.distance[next]) {
+                        direction.visit(next, candidate, arcs[slot], direction.meters[node] + arcDistance[arcs[slot]]);
+                    }
+                }
+            }
+
+            int[] times = new int[count];
+            int[] meters = new int[count];
+            for (int i = 0; i < count; i++) {
+                times[i] = direction.distance[nodes[i]];
+                meters[i] = direction.meters[nodes[i]];
+            }
+            return new SearchSpace(Arrays.copyOf(nodes, count), times, meters);
+        } finally {
+            state.reset();
+            states.release(state);
+        }
+    }
+
+    private static void scan(SearchSpace space, Buckets buckets, int[] times, int[] distances, int row) {
+        for (int i = 0; i < space.nodes().length; i++) {
+            int bucket = Arrays.binarySearch(buckets.nodes, space.nodes()[i]);
+            if (bucket < 0) {
+                continue;
+            }
+            for (int entry = buckets.start[bucket]; entry < buckets.start[bucket + 1]; entry++) {
+                int cell = row + buckets.target[entry];
+                int time = space.times()[i] + buckets.time[entry];
+                if (time < times[cell]) {
+                    times[cell] = time;
+                    distances[cell] = space.meters()[i] + buckets.meters[entry];
+                }
+            }
+        }
+    }
+
+    /**
+     * Stall-on-demand: a node reached more cheaply through a higher-ranked neighbour (via an arc the
+     * search cannot use) is not on any shortest path through this direction, so it is not expanded
+     */
+    private static boolean stalled(Direction direction, int node, int distance,
+                                   int[] first, int[] targets, int[] weights) {
+        for (int slot = first[node]; slot < first[node + 1]; slot++) {
+            int neighbour = direction.distance[targets[slot]];
+            if (neighbour != INFINITY && neighbour + weights[slot] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] unpack(QueryState state, int source, int meeting) {
+        // Arcs from the source up to the meeting node, then from the meeting node down to the target
+        int arcCount = 0;
+        int[] arcs = state.pathArcs;
+        for (int node = meeting; state.forward.parentArc[node] >= 0; node = arcFrom[state.forward.parentArc[node]]) {
+            arcs = ensure(state, arcs, arcCount);
+            arcs[arcCount++] = state.forward.parentArc[node];
+        }
+        reverse(arcs, arcCount);
+        for (int node = meeting; state.backward.parentArc[node] >= 0; node = arcTo[state.backward.parentArc[node]]) {
+            arcs = ensure(state, arcs, arcCount);
+            arcs[arcCount++] = state.backward.parentArc[node];
+        }
+
+        int[] nodes = new int[16];
+        int nodeCount = 0;
+        nodes[nodeCount++] = source;
+        int[] stack = state.unpackStack;
+        for (int i = 0; i < arcCount; i++) {
+            int top = 0;
+            stack[top++] = arcs[i];
+            while (top > 0) {
+                int arc = stack[--top];
+                if (arcChild1[arc] < 0) {
+                    if (nodeCount == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, nodeCount * 2);
+                    }
+                    nodes[nodeCount++] = arcTo[arc];
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = state.unpackStack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = arcChild2[arc];
+                    stack[top++] = arcChild1[arc];
+                }
+            }
+        }
+        return Arrays.copyOf(nodes, nodeCount);
+    }
+
+    private static int[] ensure(QueryState state, int[] arcs, int size) {
+        if (size == arcs.length) {
+            arcs = state.pathArcs = Arrays.copyOf(arcs, size * 2);
+        }
+        return arcs;
+    }
+
+    private static void reverse(int[] values, int size) {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    /**
+     * A fastest path: travel time in milliseconds, length in metres, and the node sequence if requested
+     */
+    public record Path(int timeMillis, long distanceMeters, int[] nodes) {
+    }
+
+    /**
+     * Row-major source-by-target travel times in milliseconds and distances in metres, -1 where the
+     * target cannot be reached from the source
+     */
+    public record Matrix(int sourceCount, int targetCount, int[] timesMillis, int[] distancesMeters) {
+
+        public int index(int source, int target) {
+            return source * targetCount + target;
+        }
+    }
+
+    private record SearchSpace(int[] nodes, int[] times, int[] meters) {
+    }
+
+    /**
+     * Target search spaces grouped by node: the distinct nodes in ascending order, with CSR offsets
+     * into parallel entry arrays
+     */
+    private static final class Buckets {
+
+        final int[] nodes;
+        final int[] start;
+        final int[] target;
+        final int[] time;
+        final int[] meters;
+
+        Buckets(SearchSpace[] spaces, boolean parallel) {
+            int total = 0;
+            for (SearchSpace space : spaces) {
+                total += space.nodes().length;
+            }
+            // Node in the high half, entry position in the low half: sorting groups entries by node
+            long[] keys = new long[total];
+            int[] entryTarget = new int[total];
+            int entry = 0;
+            for (int t = 0; t < spaces.length; t++) {
+                int[] spaceNodes = spaces[t].nodes();
+                for (int i = 0; i < spaceNodes.length; i++) {
+                    keys[entry] = ((long) spaceNodes[i] << 32) | entry;
+                    entryTarget[entry] = t;
+                    entry++;
+                }
+            }
+            if (parallel) {
+                Arrays.parallelSort(keys);
+            } else {
+                Arrays.sort(keys);
+            }
+
+            int[] entryTime = new int[total];
+            int[] entryMeters = new int[total];
+            entry = 0;
+            for (SearchSpace space : spaces) {
+                System.arraycopy(space.times(), 0, entryTime, entry, space.times().length);
+                System.arraycopy(space.meters(), 0, entryMeters, entry, space.meters().length);
+                entry += space.times().length;
+            }
+
+            int[] distinct = new int[total];
+            int[] starts = new int[total + 1];
+            int buckets = 0;
+            this.target = new int[total];
+            this.time = new int[total];
+            this.meters = new int[total];
+            for (int i = 0; i < total; i++) {
+                int node = (int) (keys[i] >>> 32);
+                int from = (int) keys[i];
+                if (buckets == 0 || distinct[buckets - 1] != node) {
+                    distinct[buckets] = node;
+                    starts[buckets] = i;
+                    buckets++;
+                }
+                target[i] = entryTarget[from];
+                time[i] = entryTime[from];
+                meters[i] = entryMeters[from];
+            }
+            starts[buckets] = total;
+            this.nodes = Arrays.copyOf(distinct, buckets);
+            this.start = Arrays.copyOf(starts, buckets + 1);
+        }
+    }
+
+    /**
+     * One search direction; arrays are sized for the graph once per pooled state and reset by touched list
+     */
+    private static final class Direction {
+
+        final int[] distance;
+        final int[] parentArc;
+        final int[] meters;
+        final IndexedMinHeap heap;
+        int[] touched = new int[256];
+        int touchedCount;
+
+        Direction(int nodeCount) {
+            distance = new int[nodeCount];
+            parentArc = new int[nodeCount];
+            meters = new int[nodeCount];
+            heap = new IndexedMinHeap(nodeCount);
+            Arrays.fill(distance, INFINITY);
+            Arrays.fill(parentArc, -1);
+        }
+
+        void visit(int node, int newDistance, int arc, int newMeters) {
+            if (distance[node] == INFINITY) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = node;
+            }
+            distance[node] = newDistance;
+            parentArc[node] = arc;
+            meters[node] = newMeters;
+            heap.offer(node, newDistance);
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                distance[touched[i]] = INFINITY;
+                parentArc[touched[i]] = -1;
+            }
+            touchedCount = 0;
+            heap.clear();
+        }
+    }
+
+    private static final class QueryState {
+
+        final Direction forward;
+        final Direction backward;
+        int[] pathArcs = new int[64];
+        int[] unpackStack = new int[64];
+
+        QueryState(int nodeCount) {
+            forward = new Direction(nodeCount);
+            backward = new Direction(nodeCount);
+        }
+
+        void reset() {
+            forward.reset();
+            backward.reset();
+        }
+    }
+}
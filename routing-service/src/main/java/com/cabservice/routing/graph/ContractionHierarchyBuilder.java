@@ -0,0 +1,317 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Contracts a {@link RoadGraph} into a {@link ContractionHierarchy}.
+ * <p>
+ * Nodes are contracted one at a time in order of a lazily updated priority: the edge difference
+ * (shortcuts added minus arcs removed), plus the number of already contracted neighbours and the
+ * node's depth in the hierarchy so far, which keep contraction spread evenly. Contracting
+ * node v adds a shortcut u->w for every pair of remaining neighbours whose only shortest path runs
+ * through v; a bounded local Dijkstra (the witness search) rules out pairs that have another path
+ * at least as short. Every arc, original or shortcut, keeps its two child arcs so query results can
+ * be unpacked back into road edges.
+ */
+final class ContractionHierarchyBuilder {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final int nodeCount;
+    private final int witnessSettleLimit;
+    private final int simulateSettleLimit;
+
+    // All arcs ever created; arcs replaced by a shorter one stay here as children of older shortcuts
+    private int[] arcFrom = new int[1024];
+    private int[] arcTo = new int[1024];
+    private int[] arcWeight = new int[1024];
+    private int[] arcDistance = new int[1024];
+    private int[] arcChild1 = new int[1024];
+    private int[] arcChild2 = new int[1024];
+    private int arcCount;
+
+    // Arcs per node by arc id. Once a node is contracted its arcs are removed from its neighbours'
+    // lists, so a node's own lists hold exactly its arcs to higher-ranked nodes.
+    private final int[][] out;
+    private final int[] outSize;
+    private final int[][] in;
+    private final int[] inSize;
+
+    private final int[] contractedNeighbours;
+    private final int[] level;
+
+    private final int[] witnessDistance;
+    private final int[] witnessTouched;
+    private int witnessTouchedCount;
+    private final int[] witnessTargetMark;
+    private int witnessRound;
+    private final IndexedMinHeap witnessHeap;
+
+    ContractionHierarchyBuilder(RoadGraph graph, int witnessSettleLimit) {
+        this.graph = graph;
+        this.nodeCount = graph.nodeCount();
+        this.witnessSettleLimit = witnessSettleLimit;
+        // Priorities only need an estimate; a tighter bound keeps the many simulations cheap
+        this.simulateSettleLimit = Math.max(1, witnessSettleLimit / 10);
+        this.out = new int[nodeCount][];
+        this.outSize = new int[nodeCount];
+        this.in = new int[nodeCount][];
+        this.inSize = new int[nodeCount];
+        this.contractedNeighbours = new int[nodeCount];
+        this.level = new int[nodeCount];
+        this.witnessDistance = new int[nodeCount];
+        this.witnessTouched = new int[nodeCount];
+        this.witnessHeap = new IndexedMinHeap(nodeCount);
+        this.witnessTargetMark = new int[nodeCount];
+        Arrays.fill(witnessDistance, INFINITY);
+    }
+
+    ContractionHierarchy build() {
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                // Parallel edges collapse into the fastest one
+                addOrImprove(node, graph.edgeTarget(edge), graph.edgeTime(edge), graph.edgeDistance(edge), -1, -1);
+            }
+        }
+
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            queue.offer(node, priority(node));
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            // Lazy update: the stored priority may be stale since neighbours were contracted
+            int current = priority(node);
+            if (!queue.isEmpty() && current > queue.peekKey()) {
+                queue.offer(node, current);
+                continue;
+            }
+            contract(node, false);
+            for (int i = 0; i < outSize[node]; i++) {
+                int arc = out[node][i];
+                remove(in, inSize, arcTo[arc], arc);
+            }
+            for (int i = 0; i < inSize[node]; i++) {
+                int arc = in[node][i];
+                remove(out, outSize, arcFrom[arc], arc);
+            }
+            for (int i = 0; i < outSize[node]; i++) {
+                touchNeighbour(node, arcTo[out[node][i]], queue);
+            }
+            for (int i = 0; i < inSize[node]; i++) {
+                touchNeighbour(node, arcFrom[in[node][i]], queue);
+            }
+        }
+        return pack();
+    }
+
+    private void touchNeighbour(int node, int neighbour, IndexedMinHeap queue) {
+        contractedNeighbours[neighbour]++;
+        level[neighbour] = Math.max(level[neighbour], level[node] + 1);
+        queue.update(neighbour, priority(neighbour));
+    }
+
+    private int priority(int node) {
+        int removed = outSize[node] + inSize[node];
+        int shortcuts = contract(node, true);
+        return 4 * (shortcuts - removed) + 2 * contractedNeighbours[node] + level[node];
+    }
+
+    /**
+     * Add the shortcuts needed to bypass the node, or only count them when simulating
+     */
+    private int contract(int node, boolean simulate) {
+        int shortcuts = 0;
+        for (int i = 0; i < inSize[node]; i++) {
+            int inArc = in[node][i];
+            int source = arcFrom[inArc];
+            int maxWeight = 0;
+            int targets = 0;
+            witnessRound++;
+            for (int j = 0; j < outSize[node]; j++) {
+                int target = arcTo[out[node][j]];
+                if (target != source && witnessTargetMark[target] != witnessRound) {
+                    witnessTargetMark[target] = witnessRound;
+                    targets++;
+                    maxWeight = Math.max(maxWeight, arcWeight[inArc] + arcWeight[out[node][j]]);
+                }
+            }
+            if (targets == 0) {
+                continue;
+            }
+
+            witnessSearch(source, node, maxWeight, targets, simulate ? simulateSettleLimit : witnessSettleLimit);
+            for (int j = 0; j < outSize[node]; j++) {
+                int outArc = out[node][j];
+                int target = arcTo[outArc];
+                if (target == source) {
+                    continue;
+                }
+                int viaWeight = arcWeight[inArc] + arcWeight[outArc];
+                if (witnessDistance[target] <= viaWeight) {
+                    continue;
+                }
+                shortcuts++;
+                if (!simulate) {
+                    addOrImprove(source, target, viaWeight, arcDistance[inArc] + arcDistance[outArc], inArc, outArc);
+                }
+            }
+            resetWitness();
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Bounded Dijkstra from the source over uncontracted nodes, avoiding the node being contracted
+     */
+    private void witnessSearch(int source, int avoided, int maxWeight, int targets, int settleLimit) {
+        witnessDistance[source] = 0;
+        witnessTouched[witnessTouchedCount++] = source;
+        witnessHeap.offer(source, 0);
+        int settled = 0;
+        while (!witnessHeap.isEmpty() && settled < settleLimit) {
+            if (witnessHeap.peekKey() > maxWeight) {
+                break;
+            }
+            int node = witnessHeap.poll();
+            settled++;
+            // Done once every target's distance is final
+            if (witnessTargetMark[node] == witnessRound && --targets == 0) {
+                break;
+            }
+            for (int i = 0; i < outSize[node]; i++) {
+                int arc = out[node][i];
+                int target = arcTo[arc];
+                if (target == avoided) {
+                    continue;
+                }
+                int distance = witnessDistance[node] + arcWeight[arc];
+                if (distance < witnessDistance[target]) {
+                    if (witnessDistance[target] == INFINITY) {
+                        witnessTouched[witnessTouchedCount++] = target;
+                    }
+                    witnessDistance[target] = distance;
+                    witnessHeap.offer(target, distance);
+                }
+            }
+        }
+    }
+
+    private void resetWitness() {
+        for (int i = 0; i < witnessTouchedCount; i++) {
+            witnessDistance[witnessTouched[i]] = INFINITY;
+        }
+        witnessTouchedCount = 0;
+        witnessHeap.clear();
+    }
+
+    /**
+     * Add an arc, or replace the existing arc between the same nodes if the new one is faster
+     */
+    private void addOrImprove(int from, int to, int weight, int distance, int child1, int child2) {
+        for (int i = 0; i < outSize[from]; i++) {
+            int existing = out[from][i];
+            if (arcTo[existing] == to) {
+                if (arcWeight[existing] <= weight) {
+                    return;
+                }
+                int arc = newArc(from, to, weight, distance, child1, child2);
+                out[from][i] = arc;
+                for (int j = 0; j < inSize[to]; j++) {
+                    if (in[to][j] == existing) {
+                        in[to][j] = arc;
+                        break;
+                    }
+                }
+                return;
+            }
+        }
+        int arc = newArc(from, to, weight, distance, child1, child2);
+        out[from] = append(out[from], outSize[from]++, arc);
+        in[to] = append(in[to], inSize[to]++, arc);
+    }
+
+    private int newArc(int from, int to, int weight, int distance, int child1, int child2) {
+        if (arcCount == arcFrom.length) {
+            int capacity = arcCount * 2;
+            arcFrom = Arrays.copyOf(arcFrom, capacity);
+            arcTo = Arrays.copyOf(arcTo, capacity);
+            arcWeight = Arrays.copyOf(arcWeight, capacity);
+            arcDistance = Arrays.copyOf(arcDistance, capacity);
+            arcChild1 = Arrays.copyOf(arcChild1, capacity);
+            arcChild2 = Arrays.copyOf(arcChild2, capacity);
+        }
+        arcFrom[arcCount] = from;
+        arcTo[arcCount] = to;
+        arcWeight[arcCount] = weight;
+        arcDistance[arcCount] = distance;
+        arcChild1[arcCount] = child1;
+        arcChild2[arcCount] = child2;
+        return arcCount++;
+    }
+
+    private static void remove(int[][] lists, int[] sizes, int node, int arc) {
+        int[] list = lists[node];
+        for (int i = 0; i < sizes[node]; i++) {
+            if (list[i] == arc) {
+                list[i] = list[--sizes[node]];
+                return;
+            }
+        }
+    }
+
+    private static int[] append(int[] list, int size, int value) {
+        if (list == null) {
+            list = new int[4];
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+        }
+        list[size] = value;
+        return list;
+    }
+
+    /**
+     * Pack each node's remaining arcs, all of which lead to higher-ranked nodes, into the upward
+     * graph used by the forward search and the reversed downward graph used by the backward search
+     */
+    private ContractionHierarchy pack() {
+        int[] upFirst = new int[nodeCount + 1];
+        int[] downFirst = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            upFirst[node + 1] = upFirst[node] + outSize[node];
+            downFirst[node + 1] = downFirst[node] + inSize[node];
+        }
+
+        int[] upTarget = new int[upFirst[nodeCount]];
+        int[] upWeight = new int[upTarget.length];
+        int[] upArc = new int[upTarget.length];
+        int[] downTarget = new int[downFirst[nodeCount]];
+        int[] downWeight = new int[downTarget.length];
+        int[] downArc = new int[downTarget.length];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = 0; i < outSize[node]; i++) {
+                int arc = out[node][i];
+                int slot = upFirst[node] + i;
+                upTarget[slot] = arcTo[arc];
+                upWeight[slot] = arcWeight[arc];
+                upArc[slot] = arc;
+            }
+            for (int i = 0; i < inSize[node]; i++) {
+                int arc = in[node][i];
+                int slot = downFirst[node] + i;
+                downTarget[slot] = arcFrom[arc];
+                downWeight[slot] = arcWeight[arc];
+                downArc[slot] = arc;
+            }
+        }
+
+        return new ContractionHierarchy(graph,
+                upFirst, upTarget, upWeight, upArc,
+                downFirst, downTarget, downWeight, downArc,
+                Arrays.copyOf(arcFrom, arcCount), Arrays.copyOf(arcTo, arcCount),
+                Arrays.copyOf(arcDistance, arcCount),
+                Arrays.copyOf(arcChild1, arcCount), Arrays.copyOf(arcChild2, arcCount));
+    }
+}
@@ -0,0 +1,234 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Edge Index - Finds the road edges nearest to a coordinate, for map matching.
+ * <p>
+ * Every edge is registered in each grid cell its bounding box touches. Cells are numbered relative
+ * to the graph's south-west corner so a cell key fits in an int, which lets the (cell, edge) pairs
+ * be packed into longs and sorted in one primitive sort. The index is then a sorted key array with
+ * CSR offsets into the edge list, like {@link NodeLocator}.
+ * <p>
+ * Immutable and thread safe; callers pass their own de-duplication scratch array.
+ */
+public final class EdgeIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int MAX_CELLS_PER_AXIS = 1 << 16;
+
+    private final RoadGraph graph;
+    private final int[] edgeSource;
+    private final double cellDegrees;
+    private final long minRow;
+    private final long minColumn;
+    private final int[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellEdges;
+
+    public EdgeIndex(RoadGraph graph, double cellMeters) {
+        this.graph = graph;
+        this.cellDegrees = cellMeters / METERS_PER_DEGREE;
+
+        int edgeCount = graph.edgeCount();
+        this.edgeSource = new int[edgeCount];
+        long lowRow = Long.MAX_VALUE;
+        long lowColumn = Long.MAX_VALUE;
+        long highRow = Long.MIN_VALUE;
+        long highColumn = Long.MIN_VALUE;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                edgeSource[edge] = node;
+            }
+            lowRow = Math.min(lowRow, row(graph.latitude(node)));
+            highRow = Math.max(highRow, row(graph.latitude(node)));
+            lowColumn = Math.min(lowColumn, column(graph.longitude(node)));
+            highColumn = Math.max(highColumn, column(graph.longitude(node)));
+        }
+        this.minRow = lowRow;
+        this.minColumn = lowColumn;
+        if (edgeCount > 0 && (highRow - lowRow >= MAX_CELLS_PER_AXIS || highColumn - lowColumn >= MAX_CELLS_PER_AXIS)) {
+            throw new IllegalArgumentException("Road graph spans more than " + MAX_CELLS_PER_AXIS
+                    + " cells of " + cellMeters + " m; use larger cells");
+        }
+
+        // Count entries first so the packed array is allocated once
+        int entries = 0;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            entries += cellSpan(edge);
+        }
+        long[] packed = new long[entries];
+        int entry = 0;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int from = edgeSource[edge];
+            int to = graph.edgeTarget(edge);
+            long rowLow = row(Math.min(graph.latitude(from), graph.latitude(to)));
+            long rowHigh = row(Math.max(graph.latitude(from), graph.latitude(to)));
+            long columnLow = column(Math.min(graph.longitude(from), graph.longitude(to)));
+            long columnHigh = column(Math.max(graph.longitude(from), graph.longitude(to)));
+            for (long r = rowLow; r <= rowHigh; r++) {
+                for (long c = columnLow; c <= columnHigh; c++) {
+                    packed[entry++] = ((long) key(r, c) << 32) | edge;
+                }
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] keys = new int[entries];
+        int[] starts = new int[entries + 1];
+        this.cellEdges = new int[entries];
+        int cells = 0;
+        for (int i = 0; i < entries; i++) {
+            int key = (int) (packed[i] >>> 32);
+            cellEdges[i] = (int) packed[i];
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = entries;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStart = Arrays.copyOf(starts, cells + 1);
+    }
+
+    public RoadGraph graph() {
+        return graph;
+    }
+
+    public int edgeSource(int edge) {
+        return edgeSource[edge];
+    }
+
+    /**
+     * Find up to {@code candidates.capacity()} edges within {@code radiusMeters} of the point, nearest
+     * first, with the point projected onto each
+     *
+     * @param seen  per-caller scratch array of {@link RoadGraph#edgeCount()} stamps
+     * @param stamp a value not yet used in {@code seen}
+     */
+    public void nearest(double latitude, double longitude, double radiusMeters,
+                        Candidates candidates, int[] seen, int stamp) {
+        candidates.clear();
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double metersPerDegree = Math.toRadians(GeoMath.EARTH_RADIUS_METERS);
+        double metersPerDegreeLongitude = metersPerDegree * cosLatitude;
+        double radiusSquared = radiusMeters * radiusMeters;
+        int latCells = (int) Math.ceil(radiusMeters / METERS_PER_DEGREE / cellDegrees);
+        int lonCells = (int) Math.ceil(radiusMeters / (METERS_PER_DEGREE * Math.max(0.01, cosLatitude)) / cellDegrees);
+        long row = row(latitude);
+        long column = column(longitude);
+
+        for (long r = row - latCells; r <= row + latCells; r++) {
+            for (long c = column - lonCells; c <= column + lonCells; c++) {
+                int key = key(r, c);
+                int cell = key < 0 ? -1 : Arrays.binarySearch(cellKeys, key);
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int edge = cellEdges[i];
+                    if (seen[edge] == stamp) {
+                        continue;
+                    }
+                    seen[edge] = stamp;
+
+                    // Project the point onto the edge in metres relative to the point
+                    int from = edgeSource[edge];
+                    int to = graph.edgeTarget(edge);
+                    double x1 = (graph.longitude(from) - longitude) * metersPerDegreeLongitude;
+                    double y1 = (graph.latitude(from) - latitude) * metersPerDegree;
+                    double dx = (graph.longitude(to) - longitude) * metersPerDegreeLongitude - x1;
+                    double dy = (graph.latitude(to) - latitude) * metersPerDegree - y1;
+                    double lengthSquared = dx * dx + dy * dy;
+                    double fraction = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(x1 * dx + y1 * dy) / lengthSquared));
+                    double px = x1 + fraction * dx;
+                    double py = y1 + fraction * dy;
+                    double squared = px * px + py * py;
+                    if (squared <= radiusSquared) {
+                        candidates.offer(edge, fraction, Math.sqrt(squared),
+                                graph.latitude(from) + fraction * (graph.latitude(to) - graph.latitude(from)),
+                                graph.longitude(from) + fraction * (graph.longitude(to) - graph.longitude(from)));
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellSpan(int edge) {
+        int from = edgeSource[edge];
+        int to = graph.edgeTarget(edge);
+        long rows = Math.abs(row(graph.latitude(from)) - row(graph.latitude(to))) + 1;
+        long columns = Math.abs(column(graph.longitude(from)) - column(graph.longitude(to))) + 1;
+        return (int) (rows * columns);
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor(longitude / cellDegrees);
+    }
+
+    /**
+     * Cell key relative to the graph's corner, or -1 outside the graph's extent
+     */
+    private int key(long row, long column) {
+        long r = row - minRow;
+        long c = column - minColumn;
+        if (r < 0 || c < 0 || r >= MAX_CELLS_PER_AXIS || c >= MAX_CELLS_PER_AXIS) {
+            return -1;
+        }
+        return (int) (r << 16 | c);
+    }
+
+    /**
+     * The nearest edges found for one point, kept sorted by distance in parallel arrays
+     */
+    public static final class Candidates {
+
+        final int[] edge;
+        final double[] fraction;
+        final double[] distance;
+        final double[] latitude;
+        final double[] longitude;
+        int size;
+
+        public Candidates(int capacity) {
+            edge = new int[capacity];
+            fraction = new double[capacity];
+            distance = new double[capacity];
+            latitude = new double[capacity];
+            longitude = new double[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void offer(int edgeId, double edgeFraction, double meters, double lat, double lon) {
+            if (size == edge.length && meters >= distance[size - 1]) {
+                return;
+            }
+            int position = size < edge.length ? size++ : size - 1;
+            while (position > 0 && distance[position - 1] > meters) {
+                edge[position] = edge[position - 1];
+                fraction[position] = fraction[position - 1];
+                distance[position] = distance[position - 1];
+                latitude[position] = latitude[position - 1];
+                longitude[position] = longitude[position - 1];
+                position--;
+            }
+            edge[position] = edgeId;
+            fraction[position] = edgeFraction;
+            distance[position] = meters;
+            latitude[position] = lat;
+            longitude[position] = lon;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cabservice.routing.graph;
+
+/**
+ * Distance helpers shared by the road graph code
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Great-circle distance in metres
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_METERS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Squared equirectangular distance in square metres, for ranking nearby points without trigonometry
+     * per comparison. {@code cosLatitude} is the cosine of the reference latitude.
+     */
+    public static double approxDistanceSquared(double lat1, double lon1, double lat2, double lon2, double cosLatitude) {
+        double dLat = Math.toRadians(lat2 - lat1) * EARTH_RADIUS_METERS;
+        double dLon = Math.toRadians(lon2 - lon1) * EARTH_RADIUS_METERS * cosLatitude;
+        return dLat * dLat + dLon * dLon;
+    }
+}
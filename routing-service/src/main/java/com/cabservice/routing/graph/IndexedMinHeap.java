@@ -0,0 +1,133 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node ids keyed by int, with decrease-key.
+ * <p>
+ * Sized for the whole graph once and reused across searches; {@link #clear()} only touches the
+ * nodes still queued, so a short search does not pay for the graph size.
+ */
+final class IndexedMinHeap {
+
+    private final int[] nodes;
+    private final int[] keys;
+    private final int[] positions;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        this.nodes = new int[capacity];
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int peekKey() {
+        return keys[nodes[0]];
+    }
+
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    /**
+     * Insert the node, or lower its key if it is queued with a larger one
+     */
+    void offer(int node, int key) {
+        int position = positions[node];
+        if (position < 0) {
+            position = size++;
+            nodes[position] = node;
+            positions[node] = position;
+        } else if (key >= keys[node]) {
+            return;
+        }
+        keys[node] = key;
+        siftUp(position);
+    }
+
+    /**
+     * Set the key of a queued node, in either direction, or insert it
+     */
+    void update(int node, int key) {
+        int position = positions[node];
+        if (position < 0) {
+            offer(node, key);
+            return;
+        }
+        int previous = keys[node];
+        keys[node] = key;
+        if (key < previous) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    int poll() {
+        int min = nodes[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = nodes[size];
+            nodes[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[nodes[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int node = nodes[position];
+        int key = keys[node];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentNode = nodes[parent];
+            if (keys[parentNode] <= key) {
+                break;
+            }
+            nodes[position] = parentNode;
+            positions[parentNode] = position;
+            position = parent;
+        }
+        nodes[position] = node;
+        positions[node] = position;
+    }
+
+    private void siftDown(int position) {
+        int node = nodes[position];
+        int key = keys[node];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[nodes[right]] < keys[nodes[child]]) {
+                child = right;
+            }
+            int childNode = nodes[child];
+            if (key <= keys[childNode]) {
+                break;
+            }
+            nodes[position] = childNode;
+            positions[childNode] = position;
+            position = child;
+        }
+        nodes[position] = node;
+        positions[node] = position;
+    }
+}
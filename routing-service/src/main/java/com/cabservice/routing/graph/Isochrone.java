@@ -0,0 +1,297 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Isochrone - The area within a travel-time budget of a point, found by a bounded Dijkstra.
+ * <p>
+ * Outbound searches follow edges away from the origin to find where it can reach; inbound searches
+ * follow them backwards, over a reversed copy of the adjacency, to find everywhere that can reach
+ * the origin, such as drivers heading to a pickup. The search stops at the budget, so its cost
+ * depends on the area covered rather than the graph size. Each edge the search reaches is walked
+ * as far as the remaining budget allows, and the grid cells it crosses are marked in a bitset over
+ * the bounding box of the area.
+ * <p>
+ * Thread safe; searches borrow scratch arrays from a bounded {@link WorkspacePool}.
+ */
+public final class Isochrone {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final double cellMeters;
+    private final int[] edgeSource;
+    private final int[] firstIncoming;
+    private final int[] incomingEdges;
+    private final WorkspacePool<Workspace> workspaces;
+
+    public Isochrone(RoadGraph graph, double cellMeters) {
+        this.graph = graph;
+        this.cellMeters = cellMeters;
+
+        int nodeCount = graph.nodeCount();
+        int edgeCount = graph.edgeCount();
+        this.edgeSource = new int[edgeCount];
+        this.firstIncoming = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                edgeSource[edge] = node;
+                firstIncoming[graph.edgeTarget(edge) + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            firstIncoming[node + 1] += firstIncoming[node];
+        }
+        this.incomingEdges = new int[edgeCount];
+        int[] next = Arrays.copyOf(firstIncoming, nodeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            incomingEdges[next[graph.edgeTarget(edge)]++] = edge;
+        }
+        this.workspaces = new WorkspacePool<>(() -> new Workspace(nodeCount));
+    }
+
+    /**
+     * Cells within the budget of a node
+     *
+     * @param inbound    whether to find where can reach the node, rather than where it can reach
+     * @param congestion multiplier on the free-flow time of the edges at each node
+     */
+    public Area reach(int origin, int budgetMillis, boolean inbound, IntToDoubleFunction congestion) {
+        Workspace workspace = workspaces.acquire();
+        try {
+            return reach(workspace, origin, budgetMillis, inbound, congestion);
+        } finally {
+            workspace.reset();
+            workspaces.release(workspace);
+        }
+    }
+
+    private Area reach(Workspace workspace, int origin, int budgetMillis, boolean inbound,
+                       IntToDoubleFunction congestion) {
+        int[] time = workspace.time;
+        IndexedMinHeap heap = workspace.heap;
+
+        time[origin] = 0;
+        workspace.touch(origin);
+        heap.offer(origin, 0);
+        while (!heap.isEmpty() && heap.peekKey() <= budgetMillis) {
+            int node = heap.poll();
+            double factor = congestion.applyAsDouble(node);
+            workspace.settle(node, factor);
+            int first = inbound ? firstIncoming[node] : graph.firstEdge(node);
+            int end = inbound ? firstIncoming[node + 1] : graph.firstEdge(node + 1);
+            for (int i = first; i < end; i++) {
+                int edge = inbound ? incomingEdges[i] : i;
+                int other = inbound ? edgeSource[edge] : graph.edgeTarget(edge);
+                long reached = time[node] + Math.round(graph.edgeTime(edge) * factor);
+                if (reached <= budgetMillis && reached < time[other]) {
+                    if (time[other] == INFINITY) {
+                        workspace.touch(other);
+                    }
+                    time[other] = (int) reached;
+                    heap.offer(other, (int) reached);
+                }
+            }
+        }
+        heap.clear();
+
+        // Bounding box of the settled nodes and of the parts of their edges within the budget
+        double originLatitude = graph.latitude(origin);
+        double cellDegrees = cellMeters / METERS_PER_DEGREE;
+        double cosLatitude = Math.cos(Math.toRadians(originLatitude));
+        double minLatitude = originLatitude;
+        double maxLatitude = originLatitude;
+        double minLongitude = graph.longitude(origin);
+        double maxLongitude = minLongitude;
+        for (int s = 0; s < workspace.settledCount; s++) {
+            int node = workspace.settled[s];
+            double fromLatitude = graph.latitude(node);
+            double fromLongitude = graph.longitude(node);
+            int first = inbound ? firstIncoming[node] : graph.firstEdge(node);
+            int end = inbound ? firstIncoming[node + 1] : graph.firstEdge(node + 1);
+            for (int i = first; i < end; i++) {
+                int edge = inbound ? incomingEdges[i] : i;
+                int other = inbound ? edgeSource[edge] : graph.edgeTarget(edge);
+                double fraction = fraction(edge, budgetMillis - time[node], workspace.factors[s]);
+                double latitude = fromLatitude + (graph.latitude(other) - fromLatitude) * fraction;
+                double longitude = fromLongitude + (graph.longitude(other) - fromLongitude) * fraction;
+                minLatitude = Math.min(minLatitude, Math.min(fromLatitude, latitude));
+                maxLatitude = Math.max(maxLatitude, Math.max(fromLatitude, latitude));
+                minLongitude = Math.min(minLongitude, Math.min(fromLongitude, longitude));
+                maxLongitude = Math.max(maxLongitude, Math.max(fromLongitude, longitude));
+            }
+        }
+        Grid grid = new Grid(cellDegrees, minLatitude, minLongitude, maxLatitude, maxLongitude);
+
+        // Walk each reached edge in steps of half the narrower side of a cell
+        double stepMeters = cellMeters * Math.max(0.01, cosLatitude) / 2;
+        grid.mark(originLatitude, graph.longitude(origin));
+        for (int s = 0; s < workspace.settledCount; s++) {
+            int node = workspace.settled[s];
+            double fromLatitude = graph.latitude(node);
+            double fromLongitude = graph.longitude(node);
+            grid.mark(fromLatitude, fromLongitude);
+            int first = inbound ? firstIncoming[node] : graph.firstEdge(node);
+            int end = inbound ? firstIncoming[node + 1] : graph.firstEdge(node + 1);
+            for (int i = first; i < end; i++) {
+                int edge = inbound ? incomingEdges[i] : i;
+                int other = inbound ? edgeSource[edge] : graph.edgeTarget(edge);
+                double fraction = fraction(edge, budgetMillis - time[node], workspace.factors[s]);
+                double dLatitude = (graph.latitude(other) - fromLatitude) * fraction;
+                double dLongitude = (graph.longitude(other) - fromLongitude) * fraction;
+                double meters = Math.sqrt(GeoMath.approxDistanceSquared(fromLatitude, fromLongitude,
+                        fromLatitude + dLatitude, fromLongitude + dLongitude, cosLatitude));
+                int steps = (int) Math.ceil(meters / stepMeters);
+                for (int step = 1; step <= steps; step++) {
+                    double along = (double) step / steps;
+                    grid.mark(fromLatitude + dLatitude * along, fromLongitude + dLongitude * along);
+                }
+            }
+        }
+        return grid.area(workspace.settledCount);
+    }
+
+    /**
+     * Cells whose centre lies within a radius of a point, for estimates without a road network
+     */
+    public static Area circle(double latitude, double longitude, double radiusMeters, double cellMeters) {
+        double cellDegrees = cellMeters / METERS_PER_DEGREE;
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double latitudeDegrees = radiusMeters / METERS_PER_DEGREE;
+        double longitudeDegrees = radiusMeters / (METERS_PER_DEGREE * Math.max(0.01, cosLatitude));
+        Grid grid = new Grid(cellDegrees, latitude - latitudeDegrees, longitude - longitudeDegrees,
+                latitude + latitudeDegrees, longitude + longitudeDegrees);
+        grid.mark(latitude, longitude);
+        double radiusSquared = radiusMeters * radiusMeters;
+        for (int row = 0; row < grid.rows; row++) {
+            double centreLatitude = (grid.minRow + row + 0.5) * cellDegrees;
+            for (int column = 0; column < grid.columns; column++) {
+                double centreLongitude = (grid.minColumn + column + 0.5) * cellDegrees;
+                if (GeoMath.approxDistanceSquared(latitude, longitude, centreLatitude, centreLongitude,
+                        cosLatitude) <= radiusSquared) {
+                    grid.mark(centreLatitude, centreLongitude);
+                }
+            }
+        }
+        return grid.area(0);
+    }
+
+    /**
+     * How far along an edge the remaining budget gets, from 0 to 1
+     */
+    private double fraction(int edge, int remainingMillis, double factor) {
+        double millis = graph.edgeTime(edge) * factor;
+        return millis <= remainingMillis ? 1 : remainingMillis / millis;
+    }
+
+    /**
+     * Reachable grid cells: square cells of {@code cellDegrees} numbered from {@code (minRow,
+     * minColumn)}, with cell {@code (row, column)} at bit {@code row * columns + column} of
+     * {@code cells}
+     *
+     * @param nodes road graph nodes reached, 0 for estimates without a road network
+     */
+    public record Area(double cellDegrees, long minRow, long minColumn, int rows, int columns, long[] cells, int nodes) {
+
+        public boolean contains(double latitude, double longitude) {
+            long row = (long) Math.floor(latitude / cellDegrees) - minRow;
+            long column = (long) Math.floor(longitude / cellDegrees) - minColumn;
+            if (row < 0 || column < 0 || row >= rows || column >= columns) {
+                return false;
+            }
+            int bit = (int) (row * columns + column);
+            return (cells[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        public int cellCount() {
+            int count = 0;
+            for (long word : cells) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+
+    private static final class Grid {
+
+        final double cellDegrees;
+        final long minRow;
+        final long minColumn;
+        final int rows;
+        final int columns;
+        final long[] cells;
+
+        Grid(double cellDegrees, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            this.cellDegrees = cellDegrees;
+            this.minRow = (long) Math.floor(minLatitude / cellDegrees);
+            this.minColumn = (long) Math.floor(minLongitude / cellDegrees);
+            long rowCount = (long) Math.floor(maxLatitude / cellDegrees) - minRow + 1;
+            long columnCount = (long) Math.floor(maxLongitude / cellDegrees) - minColumn + 1;
+            if (rowCount * columnCount > Integer.MAX_VALUE / 2) {
+                throw new IllegalArgumentException("Isochrone spans " + rowCount * columnCount + " cells; use larger cells");
+            }
+            this.rows = (int) rowCount;
+            this.columns = (int) columnCount;
+            this.cells = new long[(rows * columns + 63) >>> 6];
+        }
+
+        void mark(double latitude, double longitude) {
+            long row = (long) Math.floor(latitude / cellDegrees) - minRow;
+            long column = (long) Math.floor(longitude / cellDegrees) - minColumn;
+            // Rounding can put a point on the far edge of the box just outside it
+            int bit = (int) (Math.min(rows - 1, Math.max(0, row)) * columns + Math.min(columns - 1, Math.max(0, column)));
+            cells[bit >>> 6] |= 1L << bit;
+        }
+
+        Area area(int nodes) {
+            return new Area(cellDegrees, minRow, minColumn, rows, columns, cells, nodes);
+        }
+    }
+
+    /**
+     * Pooled scratch state sized for the graph, reset through the touched list
+     */
+    private static final class Workspace {
+
+        final int[] time;
+        final IndexedMinHeap heap;
+        int[] touched = new int[256];
+        int touchedCount;
+        int[] settled = new int[256];
+        double[] factors = new double[256];
+        int settledCount;
+
+        Workspace(int nodeCount) {
+            time = new int[nodeCount];
+            heap = new IndexedMinHeap(nodeCount);
+            Arrays.fill(time, INFINITY);
+        }
+
+        void touch(int node) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = node;
+        }
+
+        void settle(int node, double factor) {
+            if (settledCount == settled.length) {
+                settled = Arrays.copyOf(settled, settledCount * 2);
+                factors = Arrays.copyOf(factors, settledCount * 2);
+            }
+            settled[settledCount] = node;
+            factors[settledCount++] = factor;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                time[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            settledCount = 0;
+            heap.clear();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Map Matcher - Snaps a GPS track to the roads most likely driven, with a hidden Markov model.
+ * <p>
+ * Each GPS point's hidden state is a position on one of its nearest road edges. A candidate's
+ * emission score falls with its distance from the point (Gaussian GPS noise), and the transition
+ * score between candidates of consecutive points falls with the difference between their road
+ * distance and the straight-line distance between the points (exponential), so detours and jumps
+ * between parallel roads are unlikely. Road distances come from a bounded Dijkstra over edge
+ * lengths, one per candidate of the previous point. Viterbi keeps the best path to each candidate.
+ * <p>
+ * The track is processed in one pass. Only an open window of undecided points is kept: as soon as
+ * the best paths to every candidate of the latest point share an ancestor, everything up to that
+ * ancestor is final and is emitted. If the window fills without that happening, the best path so
+ * far is taken. A point with no reachable candidate breaks the track: the matched part before it
+ * is closed and matching restarts, with the gap counted in a straight line.
+ * <p>
+ * Thread safe; matches borrow search state from a bounded {@link WorkspacePool}.
+ */
+public final class MapMatcher {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int MAX_CANDIDATES = 16;
+
+    private final EdgeIndex index;
+    private final RoadGraph graph;
+    private final double sigmaMeters;
+    private final double betaMeters;
+    private final double radiusMeters;
+    private final int maxCandidates;
+    private final int window;
+    private final WorkspacePool<Workspace> workspaces;
+
+    /**
+     * @param sigmaMeters   standard deviation of GPS noise
+     * @param betaMeters    scale of the road-versus-straight-line distance difference
+     * @param radiusMeters  how far from a point to look for road edges
+     * @param maxCandidates edges considered per point, at most 16
+     * @param window        undecided points kept before the best path so far is taken
+     */
+    public MapMatcher(EdgeIndex index, double sigmaMeters, double betaMeters, double radiusMeters,
+                      int maxCandidates, int window) {
+        if (maxCandidates < 1 || maxCandidates > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("Candidates per point must be between 1 and " + MAX_CANDIDATES);
+        }
+        this.index = index;
+        this.graph = index.graph();
+        this.sigmaMeters = sigmaMeters;
+        this.betaMeters = betaMeters;
+        this.radiusMeters = radiusMeters;
+        this.maxCandidates = maxCandidates;
+        this.window = Math.max(2, window);
+        this.workspaces = new WorkspacePool<>(() -> new Workspace(graph.nodeCount(), graph.edgeCount()));
+    }
+
+    /**
+     * Match a track given as parallel coordinate arrays in time order
+     *
+     * @param withGeometry whether to return the matched position of every matched point
+     */
+    public Match match(double[] latitudes, double[] longitudes, boolean withGeometry) {
+        Workspace workspace = workspaces.acquire();
+        try {
+            Run run = new Run(workspace, withGeometry);
+            for (int i = 0; i < latitudes.length; i++) {
+                run.add(latitudes[i], longitudes[i]);
+            }
+            return run.finish();
+        } finally {
+            workspace.reset();
+            workspaces.release(workspace);
+        }
+    }
+
+    /**
+     * Result of matching a track. Distance is along the matched roads plus any straight-line gaps
+     * at breaks; positions are given for matched points only.
+     */
+    public record Match(double distanceMeters, int matchedPoints, int unmatchedPoints, int breaks,
+                        double[] latitudes, double[] longitudes) {
+    }
+
+    /**
+     * State of matching one track. Layers (one per kept point) live in ring arrays of
+     * {@code window} slots, {@code maxCandidates} entries each.
+     */
+    private final class Run {
+
+        private final Workspace workspace;
+        private final boolean withGeometry;
+
+        private final int[] count;
+        private final double[] pointLatitude;
+        private final double[] pointLongitude;
+        private final int[] edge;
+        private final double[] fraction;
+        private final double[] latitude;
+        private final double[] longitude;
+        private final double[] score;
+        private final int[] back;
+        private final double[] step;
+        private final int[] chain;
+
+        // Layers [oldest, newest] are undecided; layer numbers grow without bound, slots wrap
+        private long oldest;
+        private long newest = -1;
+        private boolean segmentOpen;
+
+        private double distanceMeters;
+        private int matchedPoints;
+        private int unmatchedPoints;
+        private int breaks;
+        private double[] matchedLatitudes = new double[0];
+        private double[] matchedLongitudes = new double[0];
+
+        Run(Workspace workspace, boolean withGeometry) {
+            this.workspace = workspace;
+            this.withGeometry = withGeometry;
+            int entries = window * maxCandidates;
+            count = new int[window];
+            pointLatitude = new double[window];
+            pointLongitude = new double[window];
+            edge = new int[entries];
+            fraction = new double[entries];
+            latitude = new double[entries];
+            longitude = new double[entries];
+            score = new double[entries];
+            back = new int[entries];
+            step = new double[entries];
+            chain = new int[window];
+        }
+
+        void add(double pointLat, double pointLon) {
+            double straight = 0;
+            if (segmentOpen) {
+                int previous = slot(newest);
+                straight = GeoMath.distanceMeters(pointLatitude[previous], pointLongitude[previous], pointLat, pointLon);
+                // Points closer than the noise add nothing but ambiguity
+                if (straight < 2 * sigmaMeters) {
+                    return;
+                }
+            }
+
+            EdgeIndex.Candidates candidates = workspace.candidates;
+            index.nearest(pointLat, pointLon, radiusMeters, candidates, workspace.seenEdges, ++workspace.edgeStamp);
+            if (candidates.size() == 0) {
+                unmatchedPoints++;
+                return;
+            }
+            if (segmentOpen && newest - oldest + 1 == window) {
+                // No convergence within the window: take the best path so far
+                commitBest();
+            }
+
+            long layer = newest + 1;
+            int current = slot(layer);
+            int base = current * maxCandidates;
+            count[current] = candidates.size();
+            pointLatitude[current] = pointLat;
+            pointLongitude[current] = pointLon;
+            for (int b = 0; b < candidates.size(); b++) {
+                edge[base + b] = candidates.edge[b];
+                fraction[base + b] = candidates.fraction[b];
+                latitude[base + b] = candidates.latitude[b];
+                longitude[base + b] = candidates.longitude[b];
+                score[base + b] = emission(candidates.distance[b]);
+                back[base + b] = -1;
+                step[base + b] = 0;
+            }
+
+            if (segmentOpen && transition(slot(newest), current, straight)) {
+                newest = layer;
+                commitConverged();
+                return;
+            }
+            if (segmentOpen) {
+                // Nothing on the road network connects the previous point to this one
+                commitBest();
+                breaks++;
+                distanceMeters += straight;
+            }
+            for (int b = 0; b < count[current]; b++) {
+                score[base + b] = emission(candidates.distance[b]);
+            }
+            newest = layer;
+            oldest = layer;
+            segmentOpen = true;
+        }
+
+        private double emission(double meters) {
+            double z = meters / sigmaMeters;
+            return -0.5 * z * z;
+        }
+
+        Match finish() {
+            if (segmentOpen) {
+                commitBest();
+            }
+            return new Match(distanceMeters, matchedPoints, unmatchedPoints, breaks,
+                    withGeometry ? Arrays.copyOf(matchedLatitudes, matchedPoints) : null,
+                    withGeometry ? Arrays.copyOf(matchedLongitudes, matchedPoints) : null);
+        }
+
+        /**
+         * Viterbi step from the previous layer into the current one; false if no candidate is reachable
+         */
+        private boolean transition(int previous, int current, double straight) {
+            int previousBase = previous * maxCandidates;
+            int base = current * maxCandidates;
+            int targets = workspace.markTargets(this, base, count[current]);
+            int limit = (int) Math.min(INFINITY - 1L, (long) (2 * straight + 2 * radiusMeters));
+
+            double[] best = workspace.bestScore;
+            Arrays.fill(best, 0, count[current], Double.NEGATIVE_INFINITY);
+            for (int a = 0; a < count[previous]; a++) {
+                double fromScore = score[previousBase + a];
+                if (fromScore == Double.NEGATIVE_INFINITY) {
+                    continue;
+                }
+                int fromEdge = edge[previousBase + a];
+                double fromFraction = fraction[previousBase + a];
+                int fromLength = graph.edgeDistance(fromEdge);
+                workspace.search(graph.edgeTarget(fromEdge), limit, targets);
+
+                for (int b = 0; b < count[current]; b++) {
+                    int toEdge = edge[base + b];
+                    double toFraction = fraction[base + b];
+                    double road;
+                    double along = (toFraction - fromFraction) * fromLength;
+                    if (toEdge == fromEdge && along >= -sigmaMeters) {
+                        // A small step back along the same edge is GPS noise, not a lap of the block
+                        road = Math.max(0, along);
+                    } else {
+                        int between = workspace.distance[index.edgeSource(toEdge)];
+                        if (between == INFINITY) {
+                            continue;
+                        }
+                        road = (1 - fromFraction) * fromLength + between + toFraction * graph.edgeDistance(toEdge);
+                    }
+                    double candidate = fromScore - Math.abs(road - straight) / betaMeters;
+                    if (candidate > best[b]) {
+                        best[b] = candidate;
+                        back[base + b] = a;
+                        step[base + b] = road;
+                    }
+                }
+                workspace.resetSearch();
+            }
+
+            boolean reachable = false;
+            double top = Double.NEGATIVE_INFINITY;
+            for (int b = 0; b < count[current]; b++) {
+                score[base + b] = best[b] == Double.NEGATIVE_INFINITY ? best[b] : best[b] + score[base + b];
+                top = Math.max(top, score[base + b]);
+                reachable |= best[b] != Double.NEGATIVE_INFINITY;
+            }
+            // Keep scores near zero over long tracks
+            for (int b = 0; reachable && b < count[current]; b++) {
+                score[base + b] -= top;
+            }
+            return reachable;
+        }
+
+        /**
+         * Emit the layers every surviving path agrees on
+         */
+        private void commitConverged() {
+            int mask = 0;
+            int base = slot(newest) * maxCandidates;
+            for (int b = 0; b < count[slot(newest)]; b++) {
+                if (score[base + b] != Double.NEGATIVE_INFINITY) {
+                    mask |= 1 << b;
+                }
+            }
+            for (long layer = newest; layer > oldest; layer--) {
+                int layerBase = slot(layer) * maxCandidates;
+                int previousMask = 0;
+                for (int bits = mask; bits != 0; bits &= bits - 1) {
+                    previousMask |= 1 << back[layerBase + Integer.numberOfTrailingZeros(bits)];
+                }
+                mask = previousMask;
+                if (Integer.bitCount(mask) == 1) {
+                    commit(layer - 1, Integer.numberOfTrailingZeros(mask));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Emit every undecided layer along the best path to the newest one, keeping only that
+         * path's candidate in the newest layer
+         */
+        private void commitBest() {
+            int current = slot(newest);
+            int base = current * maxCandidates;
+            int best = 0;
+            for (int b = 1; b < count[current]; b++) {
+                if (score[base + b] > score[base + best]) {
+                    best = b;
+                }
+            }
+            commit(newest, best);
+            if (best != 0) {
+                edge[base] = edge[base + best];
+                fraction[base] = fraction[base + best];
+                latitude[base] = latitude[base + best];
+                longitude[base] = longitude[base + best];
+            }
+            count[current] = 1;
+            score[base] = 0;
+        }
+
+        /**
+         * Emit layers [oldest, last] along the path ending at the given candidate of the last layer
+         */
+        private void commit(long last, int candidate) {
+            int length = (int) (last - oldest + 1);
+            for (int i = length - 1; i >= 0; i--) {
+                chain[i] = candidate;
+                if (i > 0) {
+                    candidate = back[slot(oldest + i) * maxCandidates + candidate];
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                int entry = slot(oldest + i) * maxCandidates + chain[i];
+                distanceMeters += step[entry];
+                if (withGeometry) {
+                    if (matchedPoints == matchedLatitudes.length) {
+                        int capacity = Math.max(64, matchedPoints * 2);
+                        matchedLatitudes = Arrays.copyOf(matchedLatitudes, capacity);
+                        matchedLongitudes = Arrays.copyOf(matchedLongitudes, capacity);
+                    }
+                    matchedLatitudes[matchedPoints] = latitude[entry];
+                    matchedLongitudes[matchedPoints] = longitude[entry];
+                }
+                matchedPoints++;
+            }
+            oldest = last + 1;
+        }
+
+        private int slot(long layer) {
+            return (int) (layer % window);
+        }
+    }
+
+    /**
+     * Pooled scratch state sized for the graph, reset through touched lists
+     */
+    private final class Workspace {
+
+        final int[] distance;
+        final IndexedMinHeap heap;
+        final int[] targetMark;
+        final int[] seenEdges;
+        final EdgeIndex.Candidates candidates = new EdgeIndex.Candidates(maxCandidates);
+        final double[] bestScore = new double[MAX_CANDIDATES];
+        int[] touched = new int[256];
+        int touchedCount;
+        int targetStamp;
+        int edgeStamp;
+
+        Workspace(int nodeCount, int edgeCount) {
+            distance = new int[nodeCount];
+            heap = new IndexedMinHeap(nodeCount);
+            targetMark = new int[nodeCount];
+            seenEdges = new int[edgeCount];
+            Arrays.fill(distance, INFINITY);
+        }
+
+        /**
+         * Mark the start nodes of the layer's candidate edges; returns how many distinct nodes there are
+         */
+        int markTargets(Run run, int base, int size) {
+            targetStamp++;
+            int targets = 0;
+            for (int b = 0; b < size; b++) {
+                int node = index.edgeSource(run.edge[base + b]);
+                if (targetMark[node] != targetStamp) {
+                    targetMark[node] = targetStamp;
+                    targets++;
+                }
+            }
+            return targets;
+        }
+
+        /**
+         * Dijkstra over edge lengths from the node, up to the limit or until every marked node is settled
+         */
+        void search(int start, int limit, int targets) {
+            visit(start, 0);
+            while (!heap.isEmpty() && heap.peekKey() <= limit) {
+                int node = heap.poll();
+                if (targetMark[node] == targetStamp && --targets == 0) {
+                    return;
+                }
+                int settled = distance[node];
+                for (int e = graph.firstEdge(node); e < graph.firstEdge(node + 1); e++) {
+                    int next = graph.edgeTarget(e);
+                    int candidate = settled + graph.edgeDistance(e);
+                    if (candidate <= limit && candidate < distance[next]) {
+                        visit(next, candidate);
+                    }
+                }
+            }
+        }
+
+        private void visit(int node, int newDistance) {
+            if (distance[node] == INFINITY) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = node;
+            }
+            distance[node] = newDistance;
+            heap.offer(node, newDistance);
+        }
+
+        void resetSearch() {
+            for (int i = 0; i < touchedCount; i++) {
+                distance[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            heap.clear();
+        }
+
+        void reset() {
+            resetSearch();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Node Locator - Snaps coordinates to the nearest road graph node.
+ * <p>
+ * Nodes are bucketed into a uniform grid stored as sorted cell keys with CSR offsets, so the index
+ * is three primitive arrays and a lookup binary-searches the few cells around the point.
+ */
+public final class NodeLocator {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final RoadGraph graph;
+    private final double cellDegrees;
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    public NodeLocator(RoadGraph graph, double cellMeters) {
+        this.graph = graph;
+        this.cellDegrees = cellMeters / METERS_PER_DEGREE;
+
+        int nodeCount = graph.nodeCount();
+        long[] keyed = new long[nodeCount];
+        Integer[] order = new Integer[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            keyed[node] = key(row(graph.latitude(node)), column(graph.longitude(node)));
+            order[node] = node;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyed[a], keyed[b]));
+
+        long[] keys = new long[nodeCount];
+        int[] starts = new int[nodeCount + 1];
+        int cells = 0;
+        this.cellNodes = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            int node = order[i];
+            cellNodes[i] = node;
+            if (cells == 0 || keys[cells - 1] != keyed[node]) {
+                keys[cells] = keyed[node];
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = nodeCount;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStart = Arrays.copyOf(starts, cells + 1);
+    }
+
+    /**
+     * Nearest node within {@code maxMeters}, or -1 if there is none
+     */
+    public int nearest(double latitude, double longitude, double maxMeters) {
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        int latCells = (int) Math.ceil(maxMeters / METERS_PER_DEGREE / cellDegrees);
+        int lonCells = (int) Math.ceil(maxMeters / (METERS_PER_DEGREE * Math.max(0.01, cosLatitude)) / cellDegrees);
+        long row = row(latitude);
+        long column = column(longitude);
+
+        int best = -1;
+        double bestSquared = maxMeters * maxMeters;
+        for (long r = row - latCells; r <= row + latCells; r++) {
+            for (long c = column - lonCells; c <= column + lonCells; c++) {
+                int cell = Arrays.binarySearch(cellKeys, key(r, c));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int node = cellNodes[i];
+                    double squared = GeoMath.approxDistanceSquared(latitude, longitude,
+                            graph.latitude(node), graph.longitude(node), cosLatitude);
+                    if (squared < bestSquared) {
+                        bestSquared = squared;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+}
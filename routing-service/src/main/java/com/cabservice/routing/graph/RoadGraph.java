@@ -0,0 +1,151 @@
+package com.cabservice.routing.graph;
+
+import java.util.Arrays;
+
+/**
+ * Road Graph - Directed road network in compressed sparse row form.
+ * <p>
+ * Nodes are dense ints with their coordinates; the outgoing edges of node {@code n} are
+ * {@code firstEdge(n) .. firstEdge(n + 1) - 1}, each with a target node, a length in metres and a
+ * free-flow travel time in milliseconds. Everything lives in a handful of primitive arrays so a
+ * city-sized graph takes tens of megabytes and traversal stays cache friendly. Immutable once built.
+ */
+public final class RoadGraph {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final int[] edgeDistance;
+    private final int[] edgeTime;
+
+    private RoadGraph(double[] latitudes, double[] longitudes, int[] firstEdge,
+                      int[] edgeTarget, int[] edgeDistance, int[] edgeTime) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeDistance = edgeDistance;
+        this.edgeTime = edgeTime;
+    }
+
+    public int nodeCount() {
+        return latitudes.length;
+    }
+
+    public int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double latitude(int node) {
+        return latitudes[node];
+    }
+
+    public double longitude(int node) {
+        return longitudes[node];
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    /**
+     * Edge length in metres
+     */
+    public int edgeDistance(int edge) {
+        return edgeDistance[edge];
+    }
+
+    /**
+     * Free-flow edge travel time in milliseconds
+     */
+    public int edgeTime(int edge) {
+        return edgeTime[edge];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects nodes and edges in any order and packs them into CSR form
+     */
+    public static final class Builder {
+
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+        private int nodeCount;
+        private int[] from = new int[4096];
+        private int[] to = new int[4096];
+        private int[] distance = new int[4096];
+        private int[] time = new int[4096];
+        private int edgeCount;
+
+        private Builder() {
+        }
+
+        public int addNode(double latitude, double longitude) {
+            if (nodeCount == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, nodeCount * 2);
+                longitudes = Arrays.copyOf(longitudes, nodeCount * 2);
+            }
+            latitudes[nodeCount] = latitude;
+            longitudes[nodeCount] = longitude;
+            return nodeCount++;
+        }
+
+        public double latitude(int node) {
+            return latitudes[node];
+        }
+
+        public double longitude(int node) {
+            return longitudes[node];
+        }
+
+        public Builder addEdge(int fromNode, int toNode, int distanceMeters, int timeMillis) {
+            if (fromNode == toNode) {
+                return this;
+            }
+            if (edgeCount == from.length) {
+                int capacity = edgeCount * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                distance = Arrays.copyOf(distance, capacity);
+                time = Arrays.copyOf(time, capacity);
+            }
+            from[edgeCount] = fromNode;
+            to[edgeCount] = toNode;
+            distance[edgeCount] = Math.max(0, distanceMeters);
+            time[edgeCount] = Math.max(1, timeMillis);
+            edgeCount++;
+            return this;
+        }
+
+        public RoadGraph build() {
+            // Counting sort of the edges by source node
+            int[] firstEdge = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                firstEdge[from[e] + 1]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                firstEdge[n + 1] += firstEdge[n];
+            }
+            int[] next = Arrays.copyOf(firstEdge, nodeCount);
+            int[] edgeTarget = new int[edgeCount];
+            int[] edgeDistance = new int[edgeCount];
+            int[] edgeTime = new int[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int slot = next[from[e]]++;
+                edgeTarget[slot] = to[e];
+                edgeDistance[slot] = distance[e];
+                edgeTime[slot] = time[e];
+            }
+            return new RoadGraph(Arrays.copyOf(latitudes, nodeCount), Arrays.copyOf(longitudes, nodeCount),
+                    firstEdge, edgeTarget, edgeDistance, edgeTime);
+        }
+    }
+}
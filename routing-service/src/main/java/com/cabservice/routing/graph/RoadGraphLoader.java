@@ -0,0 +1,96 @@
+package com.cabservice.routing.graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Road Graph Loader - Reads a road network from two CSV files.
+ * <p>
+ * Nodes: {@code id,latitude,longitude}. Edges: {@code from_id,to_id,distance_m,speed_kmh,oneway},
+ * where {@code oneway} follows the OSM convention (1 forward only, -1 backward only, anything else
+ * both ways), a blank distance is taken as the straight line between the nodes and a blank speed
+ * as the default speed. Node ids may be arbitrary longs such as OSM ids; lines that do not start
+ * with a number (headers, comments) are skipped. Both files can be exported from an OSM extract
+ * with standard tooling.
+ */
+public final class RoadGraphLoader {
+
+    private final double defaultSpeedKmh;
+
+    public RoadGraphLoader(double defaultSpeedKmh) {
+        this.defaultSpeedKmh = defaultSpeedKmh;
+    }
+
+    public RoadGraph load(Path nodesFile, Path edgesFile) throws IOException {
+        RoadGraph.Builder builder = RoadGraph.builder();
+        Map<Long, Integer> nodeIds = new HashMap<>();
+        int lineNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(nodesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!isDataLine(line)) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 3) {
+                    throw new IOException("Malformed node at " + nodesFile + ":" + lineNumber);
+                }
+                double latitude = Double.parseDouble(fields[1].trim());
+                double longitude = Double.parseDouble(fields[2].trim());
+                nodeIds.put(Long.parseLong(fields[0].trim()), builder.addNode(latitude, longitude));
+            }
+        }
+
+        lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(edgesFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!isDataLine(line)) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 2) {
+                    throw new IOException("Malformed edge at " + edgesFile + ":" + lineNumber);
+                }
+                Integer from = nodeIds.get(Long.parseLong(fields[0].trim()));
+                Integer to = nodeIds.get(Long.parseLong(fields[1].trim()));
+                if (from == null || to == null) {
+                    continue;
+                }
+                double distance = fields.length > 2 && !fields[2].isBlank()
+                        ? Double.parseDouble(fields[2].trim())
+                        : GeoMath.distanceMeters(builder.latitude(from), builder.longitude(from),
+                                builder.latitude(to), builder.longitude(to));
+                double speedKmh = fields.length > 3 && !fields[3].isBlank()
+                        ? Double.parseDouble(fields[3].trim()) : defaultSpeedKmh;
+                String oneway = fields.length > 4 ? fields[4].trim() : "";
+
+                int distanceMeters = (int) Math.round(distance);
+                int timeMillis = (int) Math.round(distance / (speedKmh / 3.6) * 1000);
+                if (!"-1".equals(oneway)) {
+                    builder.addEdge(from, to, distanceMeters, timeMillis);
+                }
+                if (!"1".equals(oneway)) {
+                    builder.addEdge(to, from, distanceMeters, timeMillis);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static boolean isDataLine(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        char first = line.charAt(0);
+        return Character.isDigit(first) || first == '-';
+    }
+}
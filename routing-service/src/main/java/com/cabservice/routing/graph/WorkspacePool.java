@@ -0,0 +1,70 @@
+package com.cabservice.routing.graph;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Workspace Pool - A fixed number of reusable scratch states for graph searches.
+ * <p>
+ * Scratch arrays are sized for the whole graph, so keeping one per thread would cost a graph-sized
+ * allocation for every request, fork-join or benchmark thread that ever ran a query. The pool
+ * creates states on demand up to its capacity, one per processor by default since the searches are
+ * CPU-bound, and a query that finds them all in use waits for one to be released.
+ */
+final class WorkspacePool<T> {
+
+    private final Supplier<T> factory;
+    private final int capacity;
+    private final ArrayBlockingQueue<T> idle;
+    private final AtomicInteger created = new AtomicInteger();
+
+    WorkspacePool(Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    WorkspacePool(Supplier<T> factory, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Workspace pool capacity must be positive");
+        }
+        this.factory = factory;
+        this.capacity = capacity;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Take an idle state, create one while under capacity, or wait for one to be released
+     */
+    T acquire() {
+        T workspace = idle.poll();
+        if (workspace != null) {
+            return workspace;
+        }
+        if (created.incrementAndGet() <= capacity) {
+            try {
+                return factory.get();
+            } catch (RuntimeException | Error e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+        created.decrementAndGet();
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a search workspace", e);
+        }
+    }
+
+    /**
+     * Return a state, already reset, for the next query
+     */
+    void release(T workspace) {
+        idle.offer(workspace);
+    }
+
+    int created() {
+        return created.get();
+    }
+}
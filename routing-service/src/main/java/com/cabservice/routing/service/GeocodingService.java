@@ -0,0 +1,155 @@
+package com.cabservice.routing.service;
+
+import com.cabservice.routing.dto.GeocodeResult;
+import com.cabservice.routing.geocoding.AddressIndex;
+import com.cabservice.routing.geocoding.AddressIndexWriter;
+import com.cabservice.routing.graph.GeoMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Geocoding Service - Address autocomplete, forward and reverse geocoding from a local dataset.
+ * <p>
+ * The address CSV is compiled into an {@link AddressIndex} file, which is mapped on startup; it is
+ * rebuilt on a background thread first when it is missing or older than the CSV. An index file can
+ * also be shipped on its own. Until an index is mapped, or if none is configured, lookups find
+ * nothing.
+ */
+@Service
+public class GeocodingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeocodingService.class);
+
+    private volatile AddressIndex index;
+
+    @Value("${routing.geocoding.addresses-file:}")
+    private String addressesFile;
+
+    @Value("${routing.geocoding.index-file:}")
+    private String indexFile;
+
+    @Value("${routing.geocoding.word-starts:4}")
+    private int wordStarts;
+
+    @Value("${routing.geocoding.cell-meters:100}")
+    private double cellMeters;
+
+    @Value("${routing.geocoding.max-reverse-meters:250}")
+    private double maxReverseMeters;
+
+    /**
+     * Map the address index, building it first if the dataset is newer
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Path file = indexPath();
+        if (file == null) {
+            logger.info("No address dataset configured, geocoding is disabled");
+            return;
+        }
+        try {
+            if (addressesFile.isBlank() || (Files.exists(file)
+                    && !Files.getLastModifiedTime(file).toInstant().isBefore(
+                            Files.getLastModifiedTime(Path.of(addressesFile)).toInstant()))) {
+                map(file);
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Rebuilding address index {}: {}", file, e.getMessage());
+        }
+        Thread builder = new Thread(() -> build(file), "address-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    public boolean isAvailable() {
+        return index != null;
+    }
+
+    /**
+     * Best addresses starting with the query, or with one of its words, best first
+     */
+    public List<GeocodeResult> autocomplete(String query, int limit) {
+        AddressIndex current = index;
+        List<GeocodeResult> results = new ArrayList<>();
+        if (current == null) {
+            return results;
+        }
+        for (int address : current.autocomplete(query, limit)) {
+            results.add(result(current, address, null));
+        }
+        return results;
+    }
+
+    /**
+     * Coordinates of the best address matching the query
+     */
+    public Optional<GeocodeResult> geocode(String query) {
+        List<GeocodeResult> results = autocomplete(query, 1);
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
+    /**
+     * Nearest address to a point, within the configured distance
+     */
+    public Optional<GeocodeResult> reverse(double latitude, double longitude) {
+        AddressIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        int address = current.nearest(latitude, longitude, maxReverseMeters);
+        if (address < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(result(current, address, GeoMath.distanceMeters(latitude, longitude,
+                current.latitude(address), current.longitude(address))));
+    }
+
+    private void build(Path file) {
+        try {
+            long started = System.currentTimeMillis();
+            int addresses = new AddressIndexWriter(cellMeters, wordStarts).write(Path.of(addressesFile), file);
+            logger.info("Built address index of {} addresses in {} ms", addresses, System.currentTimeMillis() - started);
+            map(file);
+        } catch (Exception e) {
+            logger.error("Failed to build address index from {}: {}", addressesFile, e.getMessage());
+        }
+    }
+
+    private void map(Path file) {
+        try {
+            AddressIndex mapped = AddressIndex.map(file);
+            index = mapped;
+            logger.info("Mapped address index of {} addresses from {}", mapped.addressCount(), file);
+        } catch (IOException e) {
+            logger.warn("Ignoring address index {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path indexPath() {
+        if (!indexFile.isBlank()) {
+            return Path.of(indexFile);
+        }
+        return addressesFile.isBlank() ? null : Path.of(addressesFile + ".idx");
+    }
+
+    private static GeocodeResult result(AddressIndex index, int address, Double distanceMeters) {
+        return GeocodeResult.builder()
+                .address(index.label(address))
+                .latitude(index.latitude(address))
+                .longitude(index.longitude(address))
+                .distanceMeters(distanceMeters)
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.cabservice.routing.service;
+
+/**
+ * A route as cached: length, free-flow travel time over the roads, and the full-resolution
+ * geometry, which is simplified and formatted per request. Nothing here depends on the time of day;
+ * the traffic-adjusted duration is worked out per request from the current speed profile.
+ * {@code road} is false for the straight-line fallback, whose free-flow time is not used.
+ */
+public record PlannedRoute(double distanceKm, double freeFlowSeconds, boolean road,
+                           double[] latitudes, double[] longitudes) {
+}
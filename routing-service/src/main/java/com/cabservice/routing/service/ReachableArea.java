@@ -0,0 +1,10 @@
+package com.cabservice.routing.service;
+
+import com.cabservice.routing.graph.Isochrone;
+
+/**
+ * An isochrone as cached: the reachable cells and the model that produced them, ROAD or
+ * STRAIGHT_LINE
+ */
+public record ReachableArea(Isochrone.Area area, String model) {
+}
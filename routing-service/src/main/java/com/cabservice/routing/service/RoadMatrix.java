@@ -0,0 +1,8 @@
+package com.cabservice.routing.service;
+
+/**
+ * Road distances and free-flow travel times between every source and target, row-major, with NaN
+ * where a point is off the network or the target cannot be reached
+ */
+public record RoadMatrix(int sourceCount, int targetCount, double[] distancesMeters, double[] durationsSeconds) {
+}
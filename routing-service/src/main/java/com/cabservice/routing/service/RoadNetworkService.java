@@ -0,0 +1,330 @@
+package com.cabservice.routing.service;
+
+import com.cabservice.routing.graph.ContractionHierarchy;
+import com.cabservice.routing.graph.EdgeIndex;
+import com.cabservice.routing.graph.GeoMath;
+import com.cabservice.routing.graph.Isochrone;
+import com.cabservice.routing.graph.MapMatcher;
+import com.cabservice.routing.graph.NodeLocator;
+import com.cabservice.routing.graph.RoadGraph;
+import com.cabservice.routing.graph.RoadGraphLoader;
+import com.cabservice.routing.traffic.SpeedProfile;
+import com.cabservice.routing.traffic.ZoneEtaTableWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Road Network Service - Point-to-point routes, distance matrices, isochrones and map matching
+ * over the configured road graph.
+ * <p>
+ * The graph is loaded from the configured CSV files and contracted into a contraction hierarchy
+ * on a background thread after startup; until it is ready, or if no graph is configured, callers
+ * get an empty result and fall back to the straight-line model. Endpoints are snapped to the
+ * nearest graph node, and the legs between the requested points and their nodes are added at the
+ * access speed.
+ */
+@Service
+public class RoadNetworkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoadNetworkService.class);
+
+    private final RouteCache routeCache;
+    private volatile Network network;
+
+    @Value("${routing.graph.nodes-file:}")
+    private String nodesFile;
+
+    @Value("${routing.graph.edges-file:}")
+    private String edgesFile;
+
+    @Value("${routing.graph.default-speed-kmh:30}")
+    private double defaultSpeedKmh;
+
+    @Value("${routing.graph.witness-settle-limit:500}")
+    private int witnessSettleLimit;
+
+    @Value("${routing.graph.snap-cell-meters:250}")
+    private double snapCellMeters;
+
+    @Value("${routing.graph.max-snap-meters:500}")
+    private double maxSnapMeters;
+
+    @Value("${routing.graph.access-speed-kmh:15}")
+    private double accessSpeedKmh;
+
+    @Value("${routing.matching.cell-meters:100}")
+    private double matchingCellMeters;
+
+    @Value("${routing.matching.gps-sigma-meters:10}")
+    private double gpsSigmaMeters;
+
+    @Value("${routing.matching.beta-meters:10}")
+    private double matchingBetaMeters;
+
+    @Value("${routing.matching.search-radius-meters:50}")
+    private double matchingRadiusMeters;
+
+    @Value("${routing.matching.candidates:8}")
+    private int matchingCandidates;
+
+    @Value("${routing.matching.window:64}")
+    private int matchingWindow;
+
+    @Value("${routing.isochrone.cell-meters:200}")
+    private double isochroneCellMeters;
+
+    public RoadNetworkService(RouteCache routeCache) {
+        this.routeCache = routeCache;
+    }
+
+    /**
+     * Start building the road network, if one is configured
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (nodesFile.isBlank() || edgesFile.isBlank()) {
+            logger.info("No road graph configured, routing uses straight-line estimates");
+            return;
+        }
+        Thread loader = new Thread(this::build, "road-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isAvailable() {
+        return network != null;
+    }
+
+    /**
+     * Fastest road route between two points, or empty if there is no road network or no route
+     *
+     * @param withGeometry whether to include the route's coordinates
+     */
+    public Optional<RoadRoute> route(double fromLatitude, double fromLongitude,
+                                     double toLatitude, double toLongitude, boolean withGeometry) {
+        Network current = network;
+        if (current == null) {
+            return Optional.empty();
+        }
+        RoadGraph graph = current.hierarchy().graph();
+        int source = current.locator().nearest(fromLatitude, fromLongitude, maxSnapMeters);
+        int target = current.locator().nearest(toLatitude, toLongitude, maxSnapMeters);
+        if (source < 0 || target < 0) {
+            return Optional.empty();
+        }
+        ContractionHierarchy.Path path = current.hierarchy().route(source, target, withGeometry);
+        if (path == null) {
+            return Optional.empty();
+        }
+
+        double accessMeters = GeoMath.distanceMeters(fromLatitude, fromLongitude,
+                graph.latitude(source), graph.longitude(source))
+                + GeoMath.distanceMeters(graph.latitude(target), graph.longitude(target), toLatitude, toLongitude);
+        double distanceMeters = path.distanceMeters() + accessMeters;
+        double durationSeconds = path.timeMillis() / 1000.0 + accessMeters / (accessSpeedKmh / 3.6);
+
+        double[] latitudes = null;
+        double[] longitudes = null;
+        if (withGeometry) {
+            int[] nodes = path.nodes();
+            latitudes = new double[nodes.length + 2];
+            longitudes = new double[nodes.length + 2];
+            latitudes[0] = fromLatitude;
+            longitudes[0] = fromLongitude;
+            for (int i = 0; i < nodes.length; i++) {
+                latitudes[i + 1] = graph.latitude(nodes[i]);
+                longitudes[i + 1] = graph.longitude(nodes[i]);
+            }
+            latitudes[nodes.length + 1] = toLatitude;
+            longitudes[nodes.length + 1] = toLongitude;
+        }
+        return Optional.of(new RoadRoute(distanceMeters, durationSeconds, latitudes, longitudes));
+    }
+
+    /**
+     * Road distances and travel times between every source and every target, or empty if there is
+     * no road network. Points off the network and unreachable pairs are NaN in the result.
+     *
+     * @param parallel whether to spread the searches over all cores
+     */
+    public Optional<RoadMatrix> matrix(double[] sourceLatitudes, double[] sourceLongitudes,
+                                       double[] targetLatitudes, double[] targetLongitudes, boolean parallel) {
+        Network current = network;
+        if (current == null) {
+            return Optional.empty();
+        }
+        int sourceCount = sourceLatitudes.length;
+        int targetCount = targetLatitudes.length;
+        int[] sourceNodes = snap(current.locator(), sourceLatitudes, sourceLongitudes);
+        int[] targetNodes = snap(current.locator(), targetLatitudes, targetLongitudes);
+        int[] snappedSources = snapped(sourceNodes);
+        int[] snappedTargets = snapped(targetNodes);
+
+        double[] distances = new double[sourceCount * targetCount];
+        double[] durations = new double[distances.length];
+        Arrays.fill(distances, Double.NaN);
+        Arrays.fill(durations, Double.NaN);
+        if (snappedSources.length == 0 || snappedTargets.length == 0) {
+            return Optional.of(new RoadMatrix(sourceCount, targetCount, distances, durations));
+        }
+
+        RoadGraph graph = current.hierarchy().graph();
+        ContractionHierarchy.Matrix matrix = current.hierarchy().matrix(
+                nodes(sourceNodes, snappedSources), nodes(targetNodes, snappedTargets), parallel);
+        double accessSpeed = accessSpeedKmh / 3.6;
+        double[] targetAccess = new double[snappedTargets.length];
+        for (int j = 0; j < snappedTargets.length; j++) {
+            int target = snappedTargets[j];
+            int node = targetNodes[target];
+            targetAccess[j] = GeoMath.distanceMeters(graph.latitude(node), graph.longitude(node),
+                    targetLatitudes[target], targetLongitudes[target]);
+        }
+        for (int i = 0; i < snappedSources.length; i++) {
+            int source = snappedSources[i];
+            int node = sourceNodes[source];
+            double sourceAccess = GeoMath.distanceMeters(sourceLatitudes[source], sourceLongitudes[source],
+                    graph.latitude(node), graph.longitude(node));
+            for (int j = 0; j < snappedTargets.length; j++) {
+                int cell = matrix.index(i, j);
+                if (matrix.timesMillis()[cell] < 0) {
+                    continue;
+                }
+                double accessMeters = sourceAccess + targetAccess[j];
+                int result = source * targetCount + snappedTargets[j];
+                distances[result] = matrix.distancesMeters()[cell] + accessMeters;
+                durations[result] = matrix.timesMillis()[cell] / 1000.0 + accessMeters / accessSpeed;
+            }
+        }
+        return Optional.of(new RoadMatrix(sourceCount, targetCount, distances, durations));
+    }
+
+    /**
+     * Snap a GPS track to the roads driven, or empty if there is no road network
+     *
+     * @param withGeometry whether to include the matched position of every matched point
+     */
+    public Optional<MapMatcher.Match> match(double[] latitudes, double[] longitudes, boolean withGeometry) {
+        Network current = network;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.matcher().match(latitudes, longitudes, withGeometry));
+    }
+
+    /**
+     * Area within a travel time of a point, or empty if there is no road network or the point is
+     * off it. Roads are timed at the profile's learned speeds in the slot, or at their free-flow
+     * speeds times the fallback factor where nothing is learned; the leg between the point and the
+     * road is taken at the access speed.
+     *
+     * @param inbound whether to find where can reach the point, rather than where it can reach
+     */
+    public Optional<Isochrone.Area> isochrone(double latitude, double longitude, int seconds, boolean inbound,
+                                              SpeedProfile profile, int slot, double fallbackFactor) {
+        Network current = network;
+        if (current == null) {
+            return Optional.empty();
+        }
+        RoadGraph graph = current.hierarchy().graph();
+        int origin = current.locator().nearest(latitude, longitude, maxSnapMeters);
+        if (origin < 0) {
+            return Optional.empty();
+        }
+        double accessSeconds = GeoMath.distanceMeters(latitude, longitude,
+                graph.latitude(origin), graph.longitude(origin)) / (accessSpeedKmh / 3.6);
+        int budgetMillis = (int) Math.max(0, Math.round((seconds - accessSeconds) * 1000));
+        return Optional.of(current.isochrone().reach(origin, budgetMillis, inbound, node -> {
+            double meters = 0;
+            double millis = 0;
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                meters += graph.edgeDistance(edge);
+                millis += graph.edgeTime(edge);
+            }
+            double freeFlow = millis > 0 ? meters / millis * 3600 : Double.NaN;
+            return SpeedProfile.congestion(freeFlow,
+                    profile.speedKmh(graph.latitude(node), graph.longitude(node), slot), fallbackFactor);
+        }));
+    }
+
+    /**
+     * Compute the zone-to-zone ETA table over the current network and write it to the file
+     *
+     * @return the number of zones, or empty if there is no road network yet
+     */
+    public Optional<Integer> writeZoneEtaTable(ZoneEtaTableWriter writer, SpeedProfile profile,
+                                               IntToDoubleFunction hourlyFactor, Path file) throws IOException {
+        Network current = network;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(writer.write(current.hierarchy(), profile, hourlyFactor, file));
+    }
+
+    private int[] snap(NodeLocator locator, double[] latitudes, double[] longitudes) {
+        int[] nodes = new int[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            nodes[i] = locator.nearest(latitudes[i], longitudes[i], maxSnapMeters);
+        }
+        return nodes;
+    }
+
+    /**
+     * Positions of the points that snapped to a node
+     */
+    private static int[] snapped(int[] nodes) {
+        int[] positions = new int[nodes.length];
+        int count = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] >= 0) {
+                positions[count++] = i;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    private static int[] nodes(int[] nodes, int[] positions) {
+        int[] selected = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            selected[i] = nodes[positions[i]];
+        }
+        return selected;
+    }
+
+    private void build() {
+        try {
+            long started = System.currentTimeMillis();
+            RoadGraph graph = new RoadGraphLoader(defaultSpeedKmh).load(Path.of(nodesFile), Path.of(edgesFile));
+            logger.info("Loaded road graph with {} nodes and {} edges in {} ms",
+                    graph.nodeCount(), graph.edgeCount(), System.currentTimeMillis() - started);
+
+            started = System.currentTimeMillis();
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, witnessSettleLimit);
+            logger.info("Contracted road graph into {} arcs in {} ms",
+                    hierarchy.arcCount(), System.currentTimeMillis() - started);
+
+            MapMatcher matcher = new MapMatcher(new EdgeIndex(graph, matchingCellMeters), gpsSigmaMeters,
+                    matchingBetaMeters, matchingRadiusMeters, matchingCandidates, matchingWindow);
+            network = new Network(hierarchy, new NodeLocator(graph, snapCellMeters), matcher,
+                    new Isochrone(graph, isochroneCellMeters));
+
+            // Drop straight-line results cached while the network was being built
+            routeCache.invalidateAll();
+        } catch (Exception e) {
+            logger.error("Failed to build road graph from {} and {}: {}", nodesFile, edgesFile, e.getMessage());
+        }
+    }
+
+    private record Network(ContractionHierarchy hierarchy, NodeLocator locator, MapMatcher matcher,
+                           Isochrone isochrone) {
+    }
+}
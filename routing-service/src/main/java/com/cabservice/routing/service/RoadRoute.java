@@ -0,0 +1,12 @@
+package com.cabservice.routing.service;
+
+/**
+ * A route over the road network: length, free-flow travel time, and the coordinates along the
+ * roads when requested (null otherwise)
+ */
+public record RoadRoute(double distanceMeters, double durationSeconds, double[] latitudes, double[] longitudes) {
+
+    public double distanceKm() {
+        return distanceMeters / 1000.0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.cabservice.routing.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Route Cache - Routing results keyed by the grid cells of their endpoints.
+ * <p>
+ * Endpoints are snapped to square cells of the configured size and packed into primitive long cell
+ * ids, so a lookup builds one small key instead of formatting four doubles into a string, and
+ * requests a few metres apart share an entry. Each cache is bounded by the estimated memory of its
+ * entries rather than by count, since a route with a road polyline is far larger than a distance.
+ * Hit ratio and estimated memory are published per cache alongside the standard cache meters.
+ */
+@Component
+public class RouteCache {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // Key plus the cache's own node and table slot
+    private static final int ENTRY_OVERHEAD_BYTES = 120;
+    private static final int BOXED_VALUE_BYTES = 16;
+    // Route record and its two array headers
+    private static final int ROUTE_BYTES = 64;
+    // One latitude and one longitude
+    private static final int POLYLINE_POINT_BYTES = 16;
+    // Area record, its bitset header and the model
+    private static final int AREA_BYTES = 96;
+
+    private final double cellDegrees;
+    private final Cache<RouteKey, Double> distances;
+    private final Cache<RouteKey, PlannedRoute> routes;
+    private final Cache<IsochroneKey, ReachableArea> isochrones;
+
+    public RouteCache(MeterRegistry meterRegistry,
+                      @Value("${routing.cache.cell-meters:50}") double cellMeters,
+                      @Value("${routing.cache.max-megabytes:32}") long maxMegabytes,
+                      @Value("${routing.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.cellDegrees = cellMeters / METERS_PER_DEGREE;
+        long maxBytes = maxMegabytes * BYTES_PER_MEGABYTE;
+        Weigher<RouteKey, Object> boxed = (key, value) -> ENTRY_OVERHEAD_BYTES + BOXED_VALUE_BYTES;
+        Weigher<RouteKey, PlannedRoute> route = (key, value) -> ENTRY_OVERHEAD_BYTES + ROUTE_BYTES
+                + value.latitudes().length * POLYLINE_POINT_BYTES;
+
+        this.distances = monitor(meterRegistry, "distances",
+                Caffeine.newBuilder().<RouteKey, Double>weigher(boxed), maxBytes, Duration.ofMinutes(ttlMinutes));
+        // Geometry and free-flow time only; ETAs are timed from them per request, so they follow
+        // the current slot and speed profile
+        this.routes = monitor(meterRegistry, "routes",
+                Caffeine.newBuilder().<RouteKey, PlannedRoute>weigher(route), maxBytes, Duration.ofMinutes(ttlMinutes));
+        // Keyed by time slot, so they only go stale as the learned speeds change
+        this.isochrones = monitor(meterRegistry, "isochrones",
+                Caffeine.newBuilder().<IsochroneKey, ReachableArea>weigher((key, value) -> ENTRY_OVERHEAD_BYTES
+                        + AREA_BYTES + value.area().cells().length * Long.BYTES), maxBytes, Duration.ofMinutes(ttlMinutes));
+    }
+
+    /**
+     * Key for a pair of endpoints
+     */
+    public RouteKey key(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        return new RouteKey(cell(fromLatitude, fromLongitude), cell(toLatitude, toLongitude));
+    }
+
+    /**
+     * Road or straight-line distance in kilometres
+     */
+    public double distanceKm(RouteKey key, Function<RouteKey, Double> loader) {
+        return distances.get(key, loader);
+    }
+
+    public PlannedRoute route(RouteKey key, Function<RouteKey, PlannedRoute> loader) {
+        return routes.get(key, loader);
+    }
+
+    /**
+     * Key for an isochrone from or to the cell of a point, in a speed profile slot
+     */
+    public IsochroneKey isochroneKey(double latitude, double longitude, int slot, int minutes, boolean inbound) {
+        return new IsochroneKey(cell(latitude, longitude), slot, minutes, inbound);
+    }
+
+    public ReachableArea isochrone(IsochroneKey key, Function<IsochroneKey, ReachableArea> loader) {
+        return isochrones.get(key, loader);
+    }
+
+    /**
+     * Drop every cached result, e.g. once a road network replaces the straight-line model
+     */
+    public void invalidateAll() {
+        distances.invalidateAll();
+        routes.invalidateAll();
+        isochrones.invalidateAll();
+    }
+
+    private long cell(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / cellDegrees);
+        long column = (long) Math.floor(longitude / cellDegrees);
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private static <K, V> Cache<K, V> monitor(MeterRegistry meterRegistry, String name,
+                                              Caffeine<K, V> builder, long maxBytes, Duration ttl) {
+        Cache<K, V> cache = builder
+                .maximumWeight(maxBytes)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("routing.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("routing.cache.memory", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .description("Estimated memory held by the cache's entries")
+                .register(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * Packed cells of both endpoints
+     */
+    public record RouteKey(long fromCell, long toCell) {
+    }
+
+    /**
+     * Packed cell of the origin, speed profile slot, budget and direction of an isochrone
+     */
+    public record IsochroneKey(long cell, int slot, int minutes, boolean inbound) {
+    }
+}
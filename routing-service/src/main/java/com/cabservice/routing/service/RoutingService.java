@@ -1,27 +1,42 @@
 package com.cabservice.routing.service;
 
 import com.cabservice.routing.dto.*;
+import com.cabservice.routing.geometry.Polylines;
+import com.cabservice.routing.graph.GeoMath;
+import com.cabservice.routing.graph.Isochrone;
+import com.cabservice.routing.graph.MapMatcher;
+import com.cabservice.routing.traffic.SpeedProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
 
 /**
- * Routing Service - Handles distance calculation, ETA, and routing
+ * Routing Service - Handles distance calculation, ETA, and routing.
+ * Uses the road network when one is loaded, and the straight-line model otherwise.
+ * Travel times follow the speed profile learned from completed trips where it has data.
  */
 @Service
 public class RoutingService {
 
     private static final Logger logger = LoggerFactory.getLogger(RoutingService.class);
     private static final double EARTH_RADIUS_KM = 6371;
+    // Road distance over straight-line distance
+    private static final double ROAD_FACTOR = 1.3;
 
     // Average speeds by vehicle type (km/h) in city traffic
     private static final Map<String, Double> AVERAGE_SPEEDS = Map.of(
@@ -31,19 +46,41 @@ public class RoutingService {
             "PREMIUM", 30.0
     );
 
+    private final RoadNetworkService roadNetworkService;
+    private final RouteCache routeCache;
+    private final SpeedProfileService speedProfileService;
+    private final ZoneEtaService zoneEtaService;
+
+    // Matrices with at least this many cells are computed on all cores
+    @Value("${routing.matrix.parallel-threshold:10000}")
+    private int matrixParallelThreshold;
+
+    @Value("${routing.isochrone.cell-meters:200}")
+    private double isochroneCellMeters;
+
+    public RoutingService(RoadNetworkService roadNetworkService, RouteCache routeCache,
+                          SpeedProfileService speedProfileService, ZoneEtaService zoneEtaService) {
+        this.roadNetworkService = roadNetworkService;
+        this.routeCache = routeCache;
+        this.speedProfileService = speedProfileService;
+        this.zoneEtaService = zoneEtaService;
+    }
+
     /**
-     * Calculate distance between two points using Haversine formula
+     * Calculate road distance between two points, or the Haversine estimate without a road network
      */
-    @Cacheable(value = "distances", key = "#request.startLatitude + '-' + #request.startLongitude + '-' + #request.endLatitude + '-' + #request.endLongitude")
     public DistanceResponse calculateDistance(RouteRequest request) {
-        logger.info("Calculating distance from ({},{}) to ({},{})",
-                request.getStartLatitude(), request.getStartLongitude(),
-                request.getEndLatitude(), request.getEndLongitude());
-
-        double distance = haversineDistance(
-                request.getStartLatitude(), request.getStartLongitude(),
-                request.getEndLatitude(), request.getEndLongitude()
-        );
+        double distance = routeCache.distanceKm(cacheKey(request), key -> {
+            logger.info("Calculating distance from ({},{}) to ({},{})",
+                    request.getStartLatitude(), request.getStartLongitude(),
+                    request.getEndLatitude(), request.getEndLongitude());
+            return roadRoute(request, false)
+                    .map(RoadRoute::distanceKm)
+                    .orElseGet(() -> haversineDistance(
+                            request.getStartLatitude(), request.getStartLongitude(),
+                            request.getEndLatitude(), request.getEndLongitude()
+                    ));
+        });
 
         BigDecimal distanceKm = BigDecimal.valueOf(distance).setScale(2, RoundingMode.HALF_UP);
         String distanceText = formatDistance(distance);
@@ -59,24 +96,18 @@ public class RoutingService {
     }
 
     /**
-     * Estimate ETA based on distance and traffic conditions
+     * Estimate ETA based on distance and traffic conditions. Approximate requests are answered from
+     * the zone-to-zone table where it applies; others time the cached route with the current speed
+     * profile.
      */
     public EtaResponse estimateEta(RouteRequest request) {
-        double distance = haversineDistance(
-                request.getStartLatitude(), request.getStartLongitude(),
-                request.getEndLatitude(), request.getEndLongitude()
-        );
-
-        String vehicleType = request.getVehicleType() != null ? request.getVehicleType().toUpperCase() : "SEDAN";
-        double avgSpeed = AVERAGE_SPEEDS.getOrDefault(vehicleType, 28.0);
-
-        // Apply traffic factor based on time of day
-        double trafficFactor = getTrafficFactor();
-        double adjustedSpeed = avgSpeed / trafficFactor;
-
-        // Calculate duration in minutes
-        double hours = distance / adjustedSpeed;
-        int durationMinutes = Math.max(1, (int) Math.ceil(hours * 60));
+        Optional<Integer> approximateSeconds = Boolean.TRUE.equals(request.getApproximate())
+                ? zoneEtaService.approximateSeconds(request.getStartLatitude(), request.getStartLongitude(),
+                        request.getEndLatitude(), request.getEndLongitude(), System.currentTimeMillis())
+                : Optional.empty();
+        int durationMinutes = approximateSeconds.isPresent()
+                ? Math.max(1, (int) Math.ceil(approximateSeconds.get() / 60.0))
+                : durationMinutes(plannedRoute(request), request);
 
         // Calculate arrival time
         LocalDateTime arrivalTime = LocalDateTime.now().plusMinutes(durationMinutes);
@@ -86,45 +117,326 @@ public class RoutingService {
                 .durationMinutes(durationMinutes)
                 .durationText(formatDuration(durationMinutes))
                 .arrivalTime(arrivalTimeStr)
+                .approximate(approximateSeconds.isPresent())
                 .build();
     }
 
     /**
-     * Get full route with polyline and duration
+     * Get full route with polyline and duration. The geometry is deterministic, simplified for the
+     * requested zoom level and returned as coordinates or as an encoded polyline; the duration is
+     * timed per request, so it follows the current speed profile slot.
      */
-    @Cacheable(value = "routes", key = "#request.startLatitude + '-' + #request.startLongitude + '-' + #request.endLatitude + '-' + #request.endLongitude")
     public RouteResponse getRoute(RouteRequest request) {
+        PlannedRoute route = plannedRoute(request);
+        int durationMinutes = durationMinutes(route, request);
+
+        int[] points = request.getZoom() != null
+                ? Polylines.simplify(route.latitudes(), route.longitudes(),
+                        Polylines.toleranceMeters(request.getZoom(), route.latitudes()[0]))
+                : Polylines.identity(route.latitudes().length);
+        RouteResponse.RouteResponseBuilder response = RouteResponse.builder()
+                .distanceKm(BigDecimal.valueOf(route.distanceKm()).setScale(2, RoundingMode.HALF_UP))
+                .durationMinutes(durationMinutes)
+                .durationText(formatDuration(durationMinutes))
+                .distanceText(formatDistance(route.distanceKm()));
+        if (request.getPolylineFormat() == RouteRequest.PolylineFormat.ENCODED) {
+            response.encodedPolyline(Polylines.encode(route.latitudes(), route.longitudes(), points));
+        } else {
+            response.polyline(coordinates(route, points));
+        }
+        return response.build();
+    }
+
+    private PlannedRoute plannedRoute(RouteRequest request) {
+        return routeCache.route(cacheKey(request), key -> planRoute(request));
+    }
+
+    private PlannedRoute planRoute(RouteRequest request) {
+        Optional<RoadRoute> road = roadRoute(request, true);
+        if (road.isPresent()) {
+            return new PlannedRoute(road.get().distanceKm(), road.get().durationSeconds(), true,
+                    road.get().latitudes(), road.get().longitudes());
+        }
+
         double distance = haversineDistance(
                 request.getStartLatitude(), request.getStartLongitude(),
                 request.getEndLatitude(), request.getEndLongitude()
         );
+        // Straight line interpolation; without road geometry there is nothing better to draw
+        int segments = 10;
+        double[] latitudes = new double[segments + 1];
+        double[] longitudes = new double[segments + 1];
+        for (int i = 0; i <= segments; i++) {
+            double fraction = (double) i / segments;
+            latitudes[i] = request.getStartLatitude() + (request.getEndLatitude() - request.getStartLatitude()) * fraction;
+            longitudes[i] = request.getStartLongitude() + (request.getEndLongitude() - request.getStartLongitude()) * fraction;
+        }
+        return new PlannedRoute(distance, Double.NaN, false, latitudes, longitudes);
+    }
 
-        String vehicleType = request.getVehicleType() != null ? request.getVehicleType().toUpperCase() : "SEDAN";
-        double avgSpeed = AVERAGE_SPEEDS.getOrDefault(vehicleType, 28.0);
+    /**
+     * Distances and travel times between every source and every target. Uses the road network when
+     * one is loaded; pairs it cannot answer, and every pair without one, get the straight-line estimate.
+     */
+    public MatrixResponse calculateMatrix(MatrixRequest request) {
+        int sourceCount = request.getSources().size();
+        int targetCount = request.getTargets().size();
+        double[] sourceLatitudes = new double[sourceCount];
+        double[] sourceLongitudes = new double[sourceCount];
+        double[] targetLatitudes = new double[targetCount];
+        double[] targetLongitudes = new double[targetCount];
+        for (int i = 0; i < sourceCount; i++) {
+            sourceLatitudes[i] = request.getSources().get(i).getLatitude();
+            sourceLongitudes[i] = request.getSources().get(i).getLongitude();
+        }
+        for (int j = 0; j < targetCount; j++) {
+            targetLatitudes[j] = request.getTargets().get(j).getLatitude();
+            targetLongitudes[j] = request.getTargets().get(j).getLongitude();
+        }
+        boolean parallel = (long) sourceCount * targetCount >= matrixParallelThreshold;
+        logger.info("Calculating {}x{} distance matrix", sourceCount, targetCount);
+
+        double[] distancesKm = new double[sourceCount * targetCount];
+        int[] durationsSeconds = new int[distancesKm.length];
         double trafficFactor = getTrafficFactor();
-        double adjustedSpeed = avgSpeed / trafficFactor;
-        int durationMinutes = Math.max(1, (int) Math.ceil((distance / adjustedSpeed) * 60));
+        Optional<RoadMatrix> road = roadNetworkService.matrix(
+                sourceLatitudes, sourceLongitudes, targetLatitudes, targetLongitudes, parallel);
+        boolean[] missing = new boolean[distancesKm.length];
+        int missingCount = distancesKm.length;
+        if (road.isPresent()) {
+            missingCount = 0;
+            for (int cell = 0; cell < distancesKm.length; cell++) {
+                double meters = road.get().distancesMeters()[cell];
+                if (Double.isNaN(meters)) {
+                    missing[cell] = true;
+                    missingCount++;
+                    continue;
+                }
+                distancesKm[cell] = Math.round(meters / 10.0) / 100.0;
+                durationsSeconds[cell] = (int) Math.ceil(road.get().durationsSeconds()[cell] * trafficFactor);
+            }
+        } else {
+            Arrays.fill(missing, true);
+        }
+        if (missingCount > 0) {
+            String vehicleType = request.getVehicleType() != null ? request.getVehicleType().toUpperCase() : "SEDAN";
+            double speedKmPerSecond = AVERAGE_SPEEDS.getOrDefault(vehicleType, 28.0) / trafficFactor / 3600;
+            straightLineMatrix(sourceLatitudes, sourceLongitudes, targetLatitudes, targetLongitudes,
+                    missing, speedKmPerSecond, distancesKm, durationsSeconds, parallel);
+        }
 
-        // Generate simplified polyline (straight line interpolation)
-        List<RouteResponse.Coordinate> polyline = generatePolyline(
-                request.getStartLatitude(), request.getStartLongitude(),
-                request.getEndLatitude(), request.getEndLongitude(),
-                10 // number of points
-        );
+        return MatrixResponse.builder()
+                .sourceCount(sourceCount)
+                .targetCount(targetCount)
+                .distancesKm(distancesKm)
+                .durationsSeconds(durationsSeconds)
+                .model(road.isPresent() ? "ROAD" : "STRAIGHT_LINE")
+                .straightLineCells(missingCount)
+                .build();
+    }
 
-        return RouteResponse.builder()
-                .distanceKm(BigDecimal.valueOf(distance).setScale(2, RoundingMode.HALF_UP))
-                .durationMinutes(durationMinutes)
-                .durationText(formatDuration(durationMinutes))
-                .distanceText(formatDistance(distance))
-                .polyline(polyline)
+    /**
+     * Distance driven along a GPS track, matched to the roads when the road network is loaded.
+     * Without it, the track's own length is used, which GPS noise tends to overstate.
+     */
+    public MapMatchResponse matchTrack(MapMatchRequest request) {
+        double[] latitudes = request.getLatitudes();
+        double[] longitudes = request.getLongitudes();
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Track latitudes and longitudes differ in length");
+        }
+        logger.info("Matching track of {} points", latitudes.length);
+
+        Optional<MapMatcher.Match> match = roadNetworkService.match(latitudes, longitudes, request.isIncludeGeometry());
+        if (match.isPresent()) {
+            MapMatcher.Match result = match.get();
+            return MapMatchResponse.builder()
+                    .distanceKm(Math.round(result.distanceMeters() / 10.0) / 100.0)
+                    .matchedPoints(result.matchedPoints())
+                    .unmatchedPoints(result.unmatchedPoints())
+                    .breaks(result.breaks())
+                    .model("ROAD")
+                    .latitudes(result.latitudes())
+                    .longitudes(result.longitudes())
+                    .build();
+        }
+
+        double meters = 0;
+        for (int i = 1; i < latitudes.length; i++) {
+            meters += GeoMath.distanceMeters(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return MapMatchResponse.builder()
+                .distanceKm(Math.round(meters / 10.0) / 100.0)
+                .matchedPoints(0)
+                .unmatchedPoints(latitudes.length)
+                .breaks(0)
+                .model("STRAIGHT_LINE")
+                .build();
+    }
+
+    /**
+     * Area within the requested travel time of a point, cached per origin cell and speed profile
+     * slot, and which of the given candidate positions lie inside it. Without a road network the
+     * area is a circle at the average sedan speed.
+     */
+    public IsochroneResponse isochrone(IsochroneRequest request) {
+        double[] latitudes = request.getLatitudes() != null ? request.getLatitudes() : new double[0];
+        double[] longitudes = request.getLongitudes() != null ? request.getLongitudes() : new double[0];
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Candidate latitudes and longitudes differ in length");
+        }
+        double latitude = request.getLatitude();
+        double longitude = request.getLongitude();
+        int minutes = request.getMinutes();
+        boolean inbound = !Boolean.FALSE.equals(request.getInbound());
+        SpeedProfile profile = speedProfileService.current();
+        int slot = SpeedProfile.slot(System.currentTimeMillis(), profile.zone());
+
+        ReachableArea reachable = routeCache.isochrone(
+                routeCache.isochroneKey(latitude, longitude, slot, minutes, inbound), key -> {
+                    logger.info("Computing {}-minute isochrone {} ({},{})",
+                            minutes, inbound ? "to" : "from", latitude, longitude);
+                    double factor = trafficFactor((slot % SpeedProfile.SLOTS_PER_DAY) * 24 / SpeedProfile.SLOTS_PER_DAY);
+                    return roadNetworkService.isochrone(latitude, longitude, minutes * 60, inbound, profile, slot, factor)
+                            .map(area -> new ReachableArea(area, "ROAD"))
+                            .orElseGet(() -> {
+                                double radiusMeters = AVERAGE_SPEEDS.get("SEDAN") / factor * minutes / 60
+                                        / ROAD_FACTOR * 1000;
+                                return new ReachableArea(Isochrone.circle(latitude, longitude, radiusMeters,
+                                        isochroneCellMeters), "STRAIGHT_LINE");
+                            });
+                });
+
+        Isochrone.Area area = reachable.area();
+        int[] inside = new int[latitudes.length];
+        int insideCount = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (area.contains(latitudes[i], longitudes[i])) {
+                inside[insideCount++] = i;
+            }
+        }
+        // Little-endian words put bit i at bit i % 8 of byte i / 8
+        ByteBuffer bits = ByteBuffer.allocate(area.cells().length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bits.asLongBuffer().put(area.cells());
+        byte[] cells = Arrays.copyOf(bits.array(), (area.rows() * area.columns() + 7) / 8);
+
+        return IsochroneResponse.builder()
+                .minutes(minutes)
+                .inbound(inbound)
+                .cellDegrees(area.cellDegrees())
+                .minRow(area.minRow())
+                .minColumn(area.minColumn())
+                .rows(area.rows())
+                .columns(area.columns())
+                .cells(Base64.getEncoder().encodeToString(cells))
+                .reachableCells(area.cellCount())
+                .reachablePoints(latitudes.length > 0 ? Arrays.copyOf(inside, insideCount) : null)
+                .model(reachable.model())
                 .build();
     }
 
+    /**
+     * Cached geometry and distances never depend on the vehicle type; only durations do, and they
+     * are not cached
+     */
+    private RouteCache.RouteKey cacheKey(RouteRequest request) {
+        return routeCache.key(request.getStartLatitude(), request.getStartLongitude(),
+                request.getEndLatitude(), request.getEndLongitude());
+    }
+
+    private Optional<RoadRoute> roadRoute(RouteRequest request, boolean withGeometry) {
+        return roadNetworkService.route(request.getStartLatitude(), request.getStartLongitude(),
+                request.getEndLatitude(), request.getEndLongitude(), withGeometry);
+    }
+
+    private int durationMinutes(PlannedRoute route, RouteRequest request) {
+        return route.road() ? trafficDurationMinutes(route) : straightLineDurationMinutes(request);
+    }
+
+    /**
+     * Time the route with the learned speed profile. Road travel times are free-flow, so where the
+     * profile has no speed the route's own pace is scaled by the time-of-day traffic factor.
+     */
+    private int trafficDurationMinutes(PlannedRoute route) {
+        double fallbackSeconds = route.freeFlowSeconds() * getTrafficFactor();
+        double distanceMeters = route.distanceKm() * 1000;
+        if (distanceMeters <= 0 || fallbackSeconds <= 0) {
+            return Math.max(1, (int) Math.ceil(fallbackSeconds / 60));
+        }
+        double seconds = speedProfileService.current().travelSeconds(route.latitudes(), route.longitudes(),
+                1.0, System.currentTimeMillis(), distanceMeters / fallbackSeconds);
+        return Math.max(1, (int) Math.ceil(seconds / 60));
+    }
+
+    /**
+     * Time the straight line with the learned speed profile; where it has no speed, use the
+     * vehicle's average speed adjusted by the time-of-day traffic factor
+     */
+    private int straightLineDurationMinutes(RouteRequest request) {
+        String vehicleType = request.getVehicleType() != null ? request.getVehicleType().toUpperCase() : "SEDAN";
+        double avgSpeed = AVERAGE_SPEEDS.getOrDefault(vehicleType, 28.0);
+        double adjustedSpeed = avgSpeed / getTrafficFactor();
+
+        double seconds = speedProfileService.current().travelSeconds(
+                new double[]{request.getStartLatitude(), request.getEndLatitude()},
+                new double[]{request.getStartLongitude(), request.getEndLongitude()},
+                ROAD_FACTOR, System.currentTimeMillis(), adjustedSpeed / 3.6);
+        return Math.max(1, (int) Math.ceil(seconds / 60));
+    }
+
+    private List<RouteResponse.Coordinate> coordinates(PlannedRoute route, int[] points) {
+        List<RouteResponse.Coordinate> coordinates = new ArrayList<>(points.length);
+        for (int point : points) {
+            coordinates.add(RouteResponse.Coordinate.builder()
+                    .latitude(Math.round(route.latitudes()[point] * 100000.0) / 100000.0)
+                    .longitude(Math.round(route.longitudes()[point] * 100000.0) / 100000.0)
+                    .build());
+        }
+        return coordinates;
+    }
+
+    /**
+     * Haversine over the flagged cells of a matrix. The trigonometry of each point is computed once
+     * rather than once per pair, leaving a few multiplications, a square root and an arcsine per cell.
+     */
+    private void straightLineMatrix(double[] sourceLatitudes, double[] sourceLongitudes,
+                                    double[] targetLatitudes, double[] targetLongitudes,
+                                    boolean[] cells, double speedKmPerSecond,
+                                    double[] distancesKm, int[] durationsSeconds, boolean parallel) {
+        int targetCount = targetLatitudes.length;
+        double[] targetLatRad = new double[targetCount];
+        double[] targetLonRad = new double[targetCount];
+        double[] targetCos = new double[targetCount];
+        for (int j = 0; j < targetCount; j++) {
+            targetLatRad[j] = Math.toRadians(targetLatitudes[j]);
+            targetLonRad[j] = Math.toRadians(targetLongitudes[j]);
+            targetCos[j] = Math.cos(targetLatRad[j]);
+        }
+
+        IntStream rows = IntStream.range(0, sourceLatitudes.length);
+        (parallel ? rows.parallel() : rows).forEach(i -> {
+            double latRad = Math.toRadians(sourceLatitudes[i]);
+            double lonRad = Math.toRadians(sourceLongitudes[i]);
+            double cos = Math.cos(latRad);
+            int row = i * targetCount;
+            for (int j = 0; j < targetCount; j++) {
+                if (!cells[row + j]) {
+                    continue;
+                }
+                double sinLat = Math.sin((targetLatRad[j] - latRad) / 2);
+                double sinLon = Math.sin((targetLonRad[j] - lonRad) / 2);
+                double a = sinLat * sinLat + cos * targetCos[j] * sinLon * sinLon;
+                double distance = EARTH_RADIUS_KM * 2 * Math.asin(Math.min(1, Math.sqrt(a))) * ROAD_FACTOR;
+                distancesKm[row + j] = Math.round(distance * 100) / 100.0;
+                durationsSeconds[row + j] = (int) Math.ceil(distance / speedKmPerSecond);
+            }
+        });
+    }
+
     /**
      * Calculate distance between two coordinates using Haversine formula
      */
-    private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
+    double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
 
@@ -135,15 +447,20 @@ public class RoutingService {
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
         // Apply road factor (1.3x to account for actual road distance vs straight line)
-        return EARTH_RADIUS_KM * c * 1.3;
+        return EARTH_RADIUS_KM * c * ROAD_FACTOR;
     }
 
     /**
      * Get traffic factor based on time of day
      */
     private double getTrafficFactor() {
-        int hour = LocalDateTime.now().getHour();
+        return trafficFactor(LocalDateTime.now().getHour());
+    }
 
+    /**
+     * Traffic factor for an hour of the day
+     */
+    static double trafficFactor(int hour) {
         // Peak hours: 8-10am and 5-8pm
         if ((hour >= 8 && hour <= 10) || (hour >= 17 && hour <= 20)) {
             return 1.5; // 50% slower
@@ -156,33 +473,6 @@ public class RoutingService {
         return 1.0;
     }
 
-    /**
-     * Generate polyline points between two coordinates
-     */
-    private List<RouteResponse.Coordinate> generatePolyline(
-            double startLat, double startLon, double endLat, double endLon, int numPoints) {
-        List<RouteResponse.Coordinate> points = new ArrayList<>();
-
-        for (int i = 0; i <= numPoints; i++) {
-            double fraction = (double) i / numPoints;
-            double lat = startLat + (endLat - startLat) * fraction;
-            double lon = startLon + (endLon - startLon) * fraction;
-
-            // Add slight variation to simulate actual road
-            if (i > 0 && i < numPoints) {
-                lat += (Math.random() - 0.5) * 0.002;
-                lon += (Math.random() - 0.5) * 0.002;
-            }
-
-            points.add(RouteResponse.Coordinate.builder()
-                    .latitude(Math.round(lat * 100000.0) / 100000.0)
-                    .longitude(Math.round(lon * 100000.0) / 100000.0)
-                    .build());
-        }
-
-        return points;
-    }
-
     private String formatDistance(double distanceKm) {
         if (distanceKm < 1) {
             return String.format("%d m", (int) (distanceKm * 1000));
@@ -0,0 +1,148 @@
+package com.cabservice.routing.service;
+
+import com.cabservice.routing.dto.SpeedSampleBatch;
+import com.cabservice.routing.traffic.SpeedProfile;
+import com.cabservice.routing.traffic.SpeedProfileLearner;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+
+/**
+ * Speed Profile Service - Learns traffic speeds from completed ride tracks.
+ * <p>
+ * Ride-service reports the filtered stretches of every completed trip, and they are folded into
+ * the learner as they arrive. A new {@link SpeedProfile} is built on a fixed interval and swapped in
+ * through a volatile reference, so ETA requests always read a complete profile and never wait on
+ * learning. The learned totals are saved to the configured file after each publish and loaded
+ * again on startup.
+ */
+@Service
+public class SpeedProfileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeedProfileService.class);
+
+    private final double cellMeters;
+    private final ZoneId zone;
+    private final double minObservedSeconds;
+    private final double windowSeconds;
+    private final String profileFile;
+
+    private SpeedProfileLearner learner;
+    private volatile SpeedProfile profile;
+    private volatile long publishedAt;
+    private long publishedObservations;
+
+    public SpeedProfileService(@Value("${routing.speed-profile.cell-meters:500}") double cellMeters,
+                               @Value("${routing.speed-profile.zone:}") String zone,
+                               @Value("${routing.speed-profile.min-observed-seconds:60}") double minObservedSeconds,
+                               @Value("${routing.speed-profile.window-seconds:3600}") double windowSeconds,
+                               @Value("${routing.speed-profile.file:}") String profileFile) {
+        this.cellMeters = cellMeters;
+        this.zone = zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        this.minObservedSeconds = minObservedSeconds;
+        this.windowSeconds = windowSeconds;
+        this.profileFile = profileFile;
+        this.learner = new SpeedProfileLearner(cellMeters, this.zone, minObservedSeconds, windowSeconds);
+        this.profile = SpeedProfile.empty(cellMeters, this.zone);
+    }
+
+    /**
+     * Resume learning from the saved totals, if any
+     */
+    @PostConstruct
+    public void load() {
+        if (profileFile.isBlank() || !Files.exists(Path.of(profileFile))) {
+            return;
+        }
+        SpeedProfileLearner loaded = new SpeedProfileLearner(cellMeters, zone, minObservedSeconds, windowSeconds);
+        long savedAt;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(profileFile))))) {
+            loaded.readFrom(in);
+            savedAt = Files.getLastModifiedTime(Path.of(profileFile)).toMillis();
+        } catch (IOException e) {
+            logger.warn("Ignoring speed profile {}: {}", profileFile, e.getMessage());
+            return;
+        }
+        learner = loaded;
+        profile = loaded.snapshot();
+        publishedAt = savedAt;
+        publishedObservations = loaded.observations();
+        logger.info("Loaded speed profile with {} cells from {} observations",
+                profile.cellCount(), publishedObservations);
+    }
+
+    /**
+     * The latest published profile
+     */
+    public SpeedProfile current() {
+        return profile;
+    }
+
+    /**
+     * Epoch millis the current profile was published, or saved when it was loaded from the file;
+     * zero while nothing has been learned
+     */
+    public long publishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * Fold a batch of observed stretches into the learner
+     */
+    public void record(SpeedSampleBatch batch) {
+        int count = batch.getLatitudes().length;
+        if (batch.getLongitudes().length != count || batch.getTimestamps().length != count
+                || batch.getDistancesMeters().length != count || batch.getDurationsSeconds().length != count) {
+            throw new IllegalArgumentException("Speed sample arrays must all have the same length");
+        }
+        for (int i = 0; i < count; i++) {
+            learner.observe(batch.getLatitudes()[i], batch.getLongitudes()[i], batch.getTimestamps()[i],
+                    batch.getDistancesMeters()[i], batch.getDurationsSeconds()[i]);
+        }
+    }
+
+    /**
+     * Swap in a profile built from everything learned so far
+     */
+    @Scheduled(fixedDelayString = "${routing.speed-profile.publish-interval-ms:60000}")
+    public void publish() {
+        long observations = learner.observations();
+        if (observations == publishedObservations) {
+            return;
+        }
+        profile = learner.snapshot();
+        publishedAt = System.currentTimeMillis();
+        publishedObservations = observations;
+        logger.debug("Published speed profile with {} cells from {} observations", profile.cellCount(), observations);
+        save();
+    }
+
+    private void save() {
+        if (profileFile.isBlank()) {
+            return;
+        }
+        Path target = Path.of(profileFile);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                learner.writeTo(out);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to save speed profile to {}: {}", profileFile, e.getMessage());
+        }
+    }
+}
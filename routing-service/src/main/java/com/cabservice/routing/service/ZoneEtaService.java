@@ -0,0 +1,140 @@
+package com.cabservice.routing.service;
+
+import com.cabservice.routing.graph.GeoMath;
+import com.cabservice.routing.traffic.SpeedProfile;
+import com.cabservice.routing.traffic.ZoneEtaTable;
+import com.cabservice.routing.traffic.ZoneEtaTableWriter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zone ETA Service - Approximate ETAs from the precomputed zone-to-zone table.
+ * <p>
+ * A scheduled job rebuilds the {@link ZoneEtaTable} from the road network and the learned speed
+ * profile, writes it to the configured file and maps it in place of the previous one; the file is
+ * mapped again on startup. Between nightly rebuilds the table is also rebuilt once the road network
+ * is up if the file is missing, and when a speed profile newer than the table has been published,
+ * at most once per configured interval since the profile is republished every minute. Pairs the table describes poorly are left to exact routing: points in
+ * the same or neighbouring zones, trips longer than the configured distance, and pairs outside the
+ * table or without a route.
+ */
+@Service
+public class ZoneEtaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZoneEtaService.class);
+
+    private final RoadNetworkService roadNetworkService;
+    private final SpeedProfileService speedProfileService;
+    private volatile ZoneEtaTable table;
+    // Epoch millis the mapped table was built; a table built before the current profile is stale
+    private volatile long builtAt;
+
+    @Value("${routing.zone-eta.file:}")
+    private String tableFile;
+
+    @Value("${routing.zone-eta.zone-meters:1000}")
+    private double zoneMeters;
+
+    @Value("${routing.zone-eta.max-zones:1500}")
+    private int maxZones;
+
+    @Value("${routing.zone-eta.max-distance-km:30}")
+    private double maxDistanceKm;
+
+    @Value("${routing.zone-eta.min-rebuild-interval-minutes:60}")
+    private long minRebuildIntervalMinutes;
+
+    public ZoneEtaService(RoadNetworkService roadNetworkService, SpeedProfileService speedProfileService) {
+        this.roadNetworkService = roadNetworkService;
+        this.speedProfileService = speedProfileService;
+    }
+
+    /**
+     * Map the table built by an earlier run, if any
+     */
+    @PostConstruct
+    public void load() {
+        if (tableFile.isBlank() || !Files.exists(Path.of(tableFile))) {
+            return;
+        }
+        try {
+            table = ZoneEtaTable.map(Path.of(tableFile));
+            builtAt = Files.getLastModifiedTime(Path.of(tableFile)).toMillis();
+            logger.info("Mapped zone ETA table with {} zones from {}", table.zoneCount(), tableFile);
+        } catch (IOException e) {
+            logger.warn("Ignoring zone ETA table {}: {}", tableFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the table from the current road network and speed profile
+     */
+    @Scheduled(cron = "${routing.zone-eta.rebuild-cron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        if (tableFile.isBlank()) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Optional<Integer> zones = roadNetworkService.writeZoneEtaTable(new ZoneEtaTableWriter(zoneMeters, maxZones),
+                    speedProfileService.current(), RoutingService::trafficFactor, Path.of(tableFile));
+            if (zones.isEmpty()) {
+                logger.info("No road network loaded, zone ETA table not rebuilt");
+                return;
+            }
+            table = ZoneEtaTable.map(Path.of(tableFile));
+            builtAt = started;
+            logger.info("Rebuilt zone ETA table with {} zones in {} ms", zones.get(), System.currentTimeMillis() - started);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to rebuild zone ETA table {}: {}", tableFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild a missing table, or one older than the published speed profile once the minimum
+     * rebuild interval has passed
+     */
+    @Scheduled(fixedDelayString = "${routing.zone-eta.stale-check-ms:60000}")
+    public void rebuildIfStale() {
+        if (tableFile.isBlank() || !roadNetworkService.isAvailable()) {
+            return;
+        }
+        long sinceBuilt = System.currentTimeMillis() - builtAt;
+        if (table == null || (speedProfileService.publishedAt() > builtAt
+                && sinceBuilt >= TimeUnit.MINUTES.toMillis(minRebuildIntervalMinutes))) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Approximate travel time in seconds departing at the given time, or empty if exact routing
+     * should answer instead
+     */
+    public Optional<Integer> approximateSeconds(double fromLatitude, double fromLongitude,
+                                                double toLatitude, double toLongitude, long departureMillis) {
+        ZoneEtaTable current = table;
+        if (current == null) {
+            return Optional.empty();
+        }
+        int fromCell = current.cell(fromLatitude, fromLongitude);
+        int toCell = current.cell(toLatitude, toLongitude);
+        if (fromCell < 0 || toCell < 0 || current.adjacent(fromCell, toCell)
+                || GeoMath.distanceMeters(fromLatitude, fromLongitude, toLatitude, toLongitude) > maxDistanceKm * 1000) {
+            return Optional.empty();
+        }
+        SpeedProfile profile = speedProfileService.current();
+        int seconds = current.seconds(fromCell, toCell,
+                ZoneEtaTable.slot(SpeedProfile.slot(departureMillis, profile.zone())));
+        return seconds < 0 ? Optional.empty() : Optional.of(seconds);
+    }
+}
@@ -0,0 +1,145 @@
+package com.cabservice.routing.traffic;
+
+import com.cabservice.routing.graph.GeoMath;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Speed Profile - Learned road speeds by location, time of day and day type.
+ * <p>
+ * The city is divided into square cells, and every cell with observations has a row of
+ * {@link #SLOTS} slots: 96 quarter hours for weekdays followed by 96 for weekends. Each slot holds
+ * the observed speed in whole km/h, or 0 where there is too little data. All rows live in one byte
+ * array ordered by cell key, so thousands of cells take a few hundred kilobytes and a lookup is a
+ * binary search. A city-wide row answers for cells without data of their own.
+ * <p>
+ * Immutable; {@link SpeedProfileLearner} publishes a new profile to replace it.
+ */
+public final class SpeedProfile {
+
+    public static final int SLOTS_PER_DAY = 96;
+    public static final int SLOTS = 2 * SLOTS_PER_DAY;
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final double MIN_CONGESTION = 0.5;
+    private static final double MAX_CONGESTION = 4.0;
+    private static final int SLOT_SECONDS = 24 * 60 * 60 / SLOTS_PER_DAY;
+
+    private final double cellMeters;
+    private final double cellDegrees;
+    private final ZoneId zone;
+    private final long[] cellKeys;
+    private final byte[] speeds;
+    private final byte[] citySpeeds;
+
+    SpeedProfile(double cellMeters, ZoneId zone, long[] cellKeys, byte[] speeds, byte[] citySpeeds) {
+        this.cellMeters = cellMeters;
+        this.cellDegrees = cellDegrees(cellMeters);
+        this.zone = zone;
+        this.cellKeys = cellKeys;
+        this.speeds = speeds;
+        this.citySpeeds = citySpeeds;
+    }
+
+    /**
+     * A profile without observations; every lookup falls through to the caller's fallback
+     */
+    public static SpeedProfile empty(double cellMeters, ZoneId zone) {
+        return new SpeedProfile(cellMeters, zone, new long[0], new byte[0], new byte[SLOTS]);
+    }
+
+    public ZoneId zone() {
+        return zone;
+    }
+
+    public int cellCount() {
+        return cellKeys.length;
+    }
+
+    /**
+     * Learned speed at a point in a slot, or NaN if neither the cell nor the city has one
+     */
+    public double speedKmh(double latitude, double longitude, int slot) {
+        int row = Arrays.binarySearch(cellKeys, cellKey(latitude, longitude, cellDegrees));
+        if (row >= 0) {
+            int speed = speeds[row * SLOTS + slot] & 0xff;
+            if (speed > 0) {
+                return speed;
+            }
+        }
+        int city = citySpeeds[slot] & 0xff;
+        return city > 0 ? city : Double.NaN;
+    }
+
+    /**
+     * Travel time along a polyline departing at the given time. The line is walked in pieces of
+     * about one cell, each timed at the learned speed of its cell in the slot the vehicle reaches
+     * it, so a trip that runs into the evening peak slows down on the way. Pieces without a
+     * learned speed are timed at the fallback speed.
+     *
+     * @param lengthFactor multiplier from the polyline's length to the road distance
+     */
+    public double travelSeconds(double[] latitudes, double[] longitudes, double lengthFactor,
+                                long departureMillis, double fallbackMetersPerSecond) {
+        int offsetSeconds = zone.getRules().getOffset(Instant.ofEpochMilli(departureMillis)).getTotalSeconds();
+        long departureSeconds = Math.floorDiv(departureMillis, 1000) + offsetSeconds;
+        double seconds = 0;
+        for (int i = 1; i < latitudes.length; i++) {
+            double meters = GeoMath.distanceMeters(latitudes[i - 1], longitudes[i - 1],
+                    latitudes[i], longitudes[i]) * lengthFactor;
+            int pieces = Math.max(1, (int) Math.ceil(meters / cellMeters));
+            double pieceMeters = meters / pieces;
+            for (int piece = 0; piece < pieces; piece++) {
+                double fraction = (piece + 0.5) / pieces;
+                double latitude = latitudes[i - 1] + (latitudes[i] - latitudes[i - 1]) * fraction;
+                double longitude = longitudes[i - 1] + (longitudes[i] - longitudes[i - 1]) * fraction;
+                double speed = speedKmh(latitude, longitude, localSlot(departureSeconds + (long) seconds));
+                seconds += Double.isNaN(speed) ? pieceMeters / fallbackMetersPerSecond : pieceMeters / (speed / 3.6);
+            }
+        }
+        return seconds;
+    }
+
+    /**
+     * Multiplier on free-flow travel time for a learned speed, bounded so a few slow observations
+     * cannot stall a whole area; the fallback where there is no learned speed or free-flow speed
+     */
+    public static double congestion(double freeFlowKmh, double learnedKmh, double fallback) {
+        if (Double.isNaN(learnedKmh) || !(freeFlowKmh > 0)) {
+            return fallback;
+        }
+        return Math.max(MIN_CONGESTION, Math.min(MAX_CONGESTION, freeFlowKmh / learnedKmh));
+    }
+
+    /**
+     * Slot of an instant in the given zone
+     */
+    public static int slot(long epochMillis, ZoneId zone) {
+        int offsetSeconds = zone.getRules().getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds();
+        return localSlot(Math.floorDiv(epochMillis, 1000) + offsetSeconds);
+    }
+
+    /**
+     * Slot of a local time given as seconds since the epoch in local wall-clock time
+     */
+    private static int localSlot(long localSeconds) {
+        long day = Math.floorDiv(localSeconds, 86_400);
+        int secondOfDay = (int) Math.floorMod(localSeconds, 86_400);
+        // Monday is 0; the epoch fell on a Thursday
+        int dayOfWeek = (int) Math.floorMod(day + 3, 7);
+        int dayType = dayOfWeek >= 5 ? 1 : 0;
+        return dayType * SLOTS_PER_DAY + secondOfDay / SLOT_SECONDS;
+    }
+
+    static long cellKey(double latitude, double longitude, double cellDegrees) {
+        long row = (long) Math.floor(latitude / cellDegrees);
+        long column = (long) Math.floor(longitude / cellDegrees);
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    static double cellDegrees(double cellMeters) {
+        return cellMeters / METERS_PER_DEGREE;
+    }
+}
@@ -0,0 +1,179 @@
+package com.cabservice.routing.traffic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Speed Profile Learner - Accumulates observed travel into per-cell, per-slot totals.
+ * <p>
+ * Every observation adds its distance and duration to the slot of its cell and to the city-wide
+ * slot, so a slot's speed is total distance over total time, which weights slow traffic correctly.
+ * When a slot's observed time exceeds the window, both totals are halved: the ratio is kept while
+ * newer observations gain weight, so the profile follows lasting changes in traffic. Totals live in
+ * flat float arrays, one row of {@link SpeedProfile#SLOTS} per cell.
+ * <p>
+ * Thread safe. Updates are cheap and {@link #snapshot()} builds a separate immutable profile,
+ * so readers of the previous profile are never blocked.
+ */
+public final class SpeedProfileLearner {
+
+    private static final int FILE_MAGIC = 0x53504431;
+    private static final int SLOTS = SpeedProfile.SLOTS;
+
+    private final double cellMeters;
+    private final double cellDegrees;
+    private final ZoneId zone;
+    private final double minObservedSeconds;
+    private final double windowSeconds;
+
+    private final Map<Long, Integer> rows = new HashMap<>();
+    private long[] rowKeys = new long[64];
+    private float[] meters = new float[64 * SLOTS];
+    private float[] seconds = new float[64 * SLOTS];
+    private final double[] cityMeters = new double[SLOTS];
+    private final double[] citySeconds = new double[SLOTS];
+    private long observations;
+
+    /**
+     * @param minObservedSeconds travel time a slot needs before its speed is trusted
+     * @param windowSeconds      travel time a slot keeps at full weight before older data is halved
+     */
+    public SpeedProfileLearner(double cellMeters, ZoneId zone, double minObservedSeconds, double windowSeconds) {
+        this.cellMeters = cellMeters;
+        this.cellDegrees = SpeedProfile.cellDegrees(cellMeters);
+        this.zone = zone;
+        this.minObservedSeconds = minObservedSeconds;
+        this.windowSeconds = windowSeconds;
+    }
+
+    /**
+     * Fold in one stretch of observed travel, located at its midpoint and timed at its start
+     */
+    public synchronized void observe(double latitude, double longitude, long epochMillis,
+                                     double distanceMeters, double durationSeconds) {
+        if (!(distanceMeters > 0) || !(durationSeconds > 0)) {
+            return;
+        }
+        int slot = SpeedProfile.slot(epochMillis, zone);
+        int index = row(SpeedProfile.cellKey(latitude, longitude, cellDegrees)) * SLOTS + slot;
+        meters[index] += (float) distanceMeters;
+        seconds[index] += (float) durationSeconds;
+        if (seconds[index] > windowSeconds) {
+            meters[index] /= 2;
+            seconds[index] /= 2;
+        }
+
+        cityMeters[slot] += distanceMeters;
+        citySeconds[slot] += durationSeconds;
+        // The city sees every cell's traffic, so it keeps a proportionally longer window
+        if (citySeconds[slot] > windowSeconds * 100) {
+            cityMeters[slot] /= 2;
+            citySeconds[slot] /= 2;
+        }
+        observations++;
+    }
+
+    public synchronized long observations() {
+        return observations;
+    }
+
+    /**
+     * Immutable profile of the current totals
+     */
+    public synchronized SpeedProfile snapshot() {
+        int cellCount = rows.size();
+        long[] keys = Arrays.copyOf(rowKeys, cellCount);
+        Arrays.sort(keys);
+        byte[] speeds = new byte[cellCount * SLOTS];
+        for (int i = 0; i < cellCount; i++) {
+            int row = rows.get(keys[i]);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                int index = row * SLOTS + slot;
+                speeds[i * SLOTS + slot] = speed(meters[index], seconds[index]);
+            }
+        }
+        byte[] citySpeeds = new byte[SLOTS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            citySpeeds[slot] = speed(cityMeters[slot], citySeconds[slot]);
+        }
+        return new SpeedProfile(cellMeters, zone, keys, speeds, citySpeeds);
+    }
+
+    /**
+     * Write the totals so learning survives a restart
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeDouble(cellMeters);
+        out.writeLong(observations);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            out.writeDouble(cityMeters[slot]);
+            out.writeDouble(citySeconds[slot]);
+        }
+        out.writeInt(rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            out.writeLong(rowKeys[row]);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                out.writeFloat(meters[row * SLOTS + slot]);
+                out.writeFloat(seconds[row * SLOTS + slot]);
+            }
+        }
+    }
+
+    /**
+     * Add totals written by {@link #writeTo}
+     *
+     * @throws IOException if the data is not a profile or was learned with another cell size
+     */
+    public synchronized void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not a speed profile");
+        }
+        double storedCellMeters = in.readDouble();
+        if (storedCellMeters != cellMeters) {
+            throw new IOException("Speed profile uses " + storedCellMeters + " m cells, expected " + cellMeters);
+        }
+        observations += in.readLong();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            cityMeters[slot] += in.readDouble();
+            citySeconds[slot] += in.readDouble();
+        }
+        int cellCount = in.readInt();
+        for (int i = 0; i < cellCount; i++) {
+            int row = row(in.readLong());
+            for (int slot = 0; slot < SLOTS; slot++) {
+                meters[row * SLOTS + slot] += in.readFloat();
+                seconds[row * SLOTS + slot] += in.readFloat();
+            }
+        }
+    }
+
+    private byte speed(double totalMeters, double totalSeconds) {
+        if (totalSeconds < minObservedSeconds) {
+            return 0;
+        }
+        long kmh = Math.round(totalMeters / totalSeconds * 3.6);
+        return (byte) Math.max(1, Math.min(255, kmh));
+    }
+
+    private int row(long key) {
+        Integer existing = rows.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int row = rows.size();
+        if (row == rowKeys.length) {
+            rowKeys = Arrays.copyOf(rowKeys, row * 2);
+            meters = Arrays.copyOf(meters, row * 2 * SLOTS);
+            seconds = Arrays.copyOf(seconds, row * 2 * SLOTS);
+        }
+        rowKeys[row] = key;
+        rows.put(key, row);
+        return row;
+    }
+}
@@ -0,0 +1,135 @@
+package com.cabservice.routing.traffic;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Zone ETA Table - Precomputed travel times between zones of the city by hour, read from a
+ * memory-mapped file.
+ * <p>
+ * The city is divided into square zones, and the file holds the travel time in whole seconds from
+ * every zone to every zone for each of {@link #SLOTS} hourly slots: 24 for weekdays followed by 24
+ * for weekends. Layout, big-endian:
+ * <pre>
+ *   int    magic
+ *   int    slots
+ *   double zone size in degrees
+ *   long   first zone row, long first zone column
+ *   int    rows, int columns
+ *   int    zone count
+ *   long   build time, epoch milliseconds
+ *   int[rows * columns]                 zone number of each grid cell, -1 where there are no roads
+ *   short[slots * zones * zones]        seconds, unsigned, {@link #UNKNOWN} where there is no route
+ * </pre>
+ * A lookup reads the two zone numbers from the grid and one entry, straight from the page cache,
+ * so the table costs no heap and is shared by every process that maps the same file.
+ * <p>
+ * The table never changes once mapped; a rebuild maps a new one. Lookups are plain indexed reads
+ * that leave the buffer's position alone, so concurrent ETA requests need no lock.
+ */
+public final class ZoneEtaTable {
+
+    public static final int SLOTS = 48;
+    static final int MAGIC = 0x5A455431;
+    static final int UNKNOWN = 0xFFFF;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4 + 8;
+
+    private final MappedByteBuffer buffer;
+    private final double zoneDegrees;
+    private final long minRow;
+    private final long minColumn;
+    private final int rows;
+    private final int columns;
+    private final int zoneCount;
+    private final long builtAtMillis;
+    private final long entriesOffset;
+
+    private ZoneEtaTable(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a zone ETA table");
+        }
+        if (buffer.getInt(4) != SLOTS) {
+            throw new IOException("Zone ETA table has " + buffer.getInt(4) + " slots, expected " + SLOTS);
+        }
+        this.zoneDegrees = buffer.getDouble(8);
+        this.minRow = buffer.getLong(16);
+        this.minColumn = buffer.getLong(24);
+        this.rows = buffer.getInt(32);
+        this.columns = buffer.getInt(36);
+        this.zoneCount = buffer.getInt(40);
+        this.builtAtMillis = buffer.getLong(44);
+        this.entriesOffset = HEADER_BYTES + 4L * rows * columns;
+        long expected = entriesOffset + 2L * SLOTS * zoneCount * zoneCount;
+        if (buffer.capacity() != expected) {
+            throw new IOException("Zone ETA table is " + buffer.capacity() + " bytes, expected " + expected);
+        }
+    }
+
+    /**
+     * Map the table file read-only
+     */
+    public static ZoneEtaTable map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The channel is not needed once mapped. A nightly rebuild renames a new file over this
+            // path, and ETA requests still holding this table keep reading the old, unlinked pages
+            return new ZoneEtaTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int zoneCount() {
+        return zoneCount;
+    }
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    /**
+     * Grid cell of a point, as a row-major index, or -1 outside the table's extent
+     */
+    public int cell(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / zoneDegrees) - minRow;
+        long column = (long) Math.floor(longitude / zoneDegrees) - minColumn;
+        if (row < 0 || column < 0 || row >= rows || column >= columns) {
+            return -1;
+        }
+        return (int) (row * columns + column);
+    }
+
+    /**
+     * Whether two cells are the same or touch, where zone-level times say little about the trip
+     */
+    public boolean adjacent(int fromCell, int toCell) {
+        return Math.abs(fromCell / columns - toCell / columns) <= 1
+                && Math.abs(fromCell % columns - toCell % columns) <= 1;
+    }
+
+    /**
+     * Travel time in seconds between the zones of two grid cells in an hourly slot, or -1 if either
+     * cell has no zone or there is no route
+     */
+    public int seconds(int fromCell, int toCell, int slot) {
+        if (fromCell < 0 || toCell < 0) {
+            return -1;
+        }
+        int from = buffer.getInt(HEADER_BYTES + 4 * fromCell);
+        int to = buffer.getInt(HEADER_BYTES + 4 * toCell);
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        long entry = entriesOffset + 2 * (((long) slot * zoneCount + from) * zoneCount + to);
+        int seconds = buffer.getShort((int) entry) & 0xffff;
+        return seconds == UNKNOWN ? -1 : seconds;
+    }
+
+    /**
+     * Hourly slot of a speed profile slot
+     */
+    public static int slot(int profileSlot) {
+        return profileSlot / (SpeedProfile.SLOTS / SLOTS);
+    }
+}
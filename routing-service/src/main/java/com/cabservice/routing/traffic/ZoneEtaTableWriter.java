@@ -0,0 +1,173 @@
+package com.cabservice.routing.traffic;
+
+import com.cabservice.routing.graph.ContractionHierarchy;
+import com.cabservice.routing.graph.RoadGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Zone ETA Table Writer - Computes the {@link ZoneEtaTable} for a road network.
+ * <p>
+ * Every grid cell containing road nodes becomes a zone, represented by its node nearest to the
+ * zone's centroid. Free-flow times between all representatives come from one many-to-many search.
+ * Each hourly slot then scales them by the congestion at both ends: the zone's free-flow speed over
+ * its learned speed in the middle of the hour, or the time-of-day factor where nothing is learned.
+ */
+public final class ZoneEtaTableWriter {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int MAX_GRID_CELLS = 1 << 24;
+
+    private final double zoneMeters;
+    private final int maxZones;
+
+    public ZoneEtaTableWriter(double zoneMeters, int maxZones) {
+        // Keeps the entries addressable by the int offsets of a mapped buffer
+        long maxEntryBytes = 2L * ZoneEtaTable.SLOTS * maxZones * maxZones;
+        if (maxZones < 1 || maxEntryBytes >= Integer.MAX_VALUE - (long) ZoneEtaTable.HEADER_BYTES - 4L * MAX_GRID_CELLS) {
+            throw new IllegalArgumentException("Zone ETA table cannot hold " + maxZones + " zones");
+        }
+        this.zoneMeters = zoneMeters;
+        this.maxZones = maxZones;
+    }
+
+    /**
+     * Compute the table and write it to the file
+     *
+     * @param hourlyFactor time-of-day multiplier on free-flow time by hour, for zones without learned speeds
+     * @return the number of zones
+     */
+    public int write(ContractionHierarchy hierarchy, SpeedProfile profile, IntToDoubleFunction hourlyFactor,
+                     Path file) throws IOException {
+        RoadGraph graph = hierarchy.graph();
+        int nodeCount = graph.nodeCount();
+        if (nodeCount == 0) {
+            throw new IllegalArgumentException("Road graph has no nodes");
+        }
+        double zoneDegrees = zoneMeters / METERS_PER_DEGREE;
+
+        long minRow = Long.MAX_VALUE;
+        long minColumn = Long.MAX_VALUE;
+        long maxRow = Long.MIN_VALUE;
+        long maxColumn = Long.MIN_VALUE;
+        for (int node = 0; node < nodeCount; node++) {
+            long row = (long) Math.floor(graph.latitude(node) / zoneDegrees);
+            long column = (long) Math.floor(graph.longitude(node) / zoneDegrees);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        }
+        long gridCells = (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (gridCells > MAX_GRID_CELLS) {
+            throw new IllegalArgumentException("Road graph spans " + gridCells + " zones of " + zoneMeters
+                    + " m; use larger zones");
+        }
+        int rows = (int) (maxRow - minRow + 1);
+        int columns = (int) (maxColumn - minColumn + 1);
+
+        // Number the cells that have roads, in grid order
+        int[] nodeCell = new int[nodeCount];
+        int[] zoneOfCell = new int[rows * columns];
+        Arrays.fill(zoneOfCell, -1);
+        int zoneCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int cell = (int) (((long) Math.floor(graph.latitude(node) / zoneDegrees) - minRow) * columns
+                    + ((long) Math.floor(graph.longitude(node) / zoneDegrees) - minColumn));
+            nodeCell[node] = cell;
+            zoneOfCell[cell] = 0;
+        }
+        for (int cell = 0; cell < zoneOfCell.length; cell++) {
+            if (zoneOfCell[cell] == 0) {
+                zoneOfCell[cell] = zoneCount++;
+            }
+        }
+        if (zoneCount > maxZones) {
+            throw new IllegalArgumentException("Road graph has " + zoneCount + " zones of " + zoneMeters
+                    + " m, more than the " + maxZones + " allowed; use larger zones");
+        }
+
+        // Centroids and free-flow speeds of the roads leaving each zone
+        double[] latitudeSum = new double[zoneCount];
+        double[] longitudeSum = new double[zoneCount];
+        int[] nodesInZone = new int[zoneCount];
+        double[] zoneMetersDriven = new double[zoneCount];
+        double[] zoneSecondsDriven = new double[zoneCount];
+        for (int node = 0; node < nodeCount; node++) {
+            int zone = zoneOfCell[nodeCell[node]];
+            latitudeSum[zone] += graph.latitude(node);
+            longitudeSum[zone] += graph.longitude(node);
+            nodesInZone[zone]++;
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                zoneMetersDriven[zone] += graph.edgeDistance(edge);
+                zoneSecondsDriven[zone] += graph.edgeTime(edge) / 1000.0;
+            }
+        }
+        int[] representative = new int[zoneCount];
+        double[] representativeSquared = new double[zoneCount];
+        Arrays.fill(representative, -1);
+        for (int node = 0; node < nodeCount; node++) {
+            int zone = zoneOfCell[nodeCell[node]];
+            double dLat = graph.latitude(node) - latitudeSum[zone] / nodesInZone[zone];
+            double dLon = graph.longitude(node) - longitudeSum[zone] / nodesInZone[zone];
+            double squared = dLat * dLat + dLon * dLon;
+            if (representative[zone] < 0 || squared < representativeSquared[zone]) {
+                representative[zone] = node;
+                representativeSquared[zone] = squared;
+            }
+        }
+
+        ContractionHierarchy.Matrix matrix = hierarchy.matrix(representative, representative, true);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(ZoneEtaTable.MAGIC);
+            out.writeInt(ZoneEtaTable.SLOTS);
+            out.writeDouble(zoneDegrees);
+            out.writeLong(minRow);
+            out.writeLong(minColumn);
+            out.writeInt(rows);
+            out.writeInt(columns);
+            out.writeInt(zoneCount);
+            out.writeLong(System.currentTimeMillis());
+            for (int zone : zoneOfCell) {
+                out.writeInt(zone);
+            }
+
+            double[] congestion = new double[zoneCount];
+            int slotsPerDay = ZoneEtaTable.SLOTS / 2;
+            int profileSlotsPerSlot = SpeedProfile.SLOTS / ZoneEtaTable.SLOTS;
+            for (int slot = 0; slot < ZoneEtaTable.SLOTS; slot++) {
+                int hour = slot % slotsPerDay;
+                int profileSlot = slot * profileSlotsPerSlot + profileSlotsPerSlot / 2;
+                for (int zone = 0; zone < zoneCount; zone++) {
+                    int node = representative[zone];
+                    double learned = profile.speedKmh(graph.latitude(node), graph.longitude(node), profileSlot);
+                    double freeFlow = zoneSecondsDriven[zone] > 0
+                            ? zoneMetersDriven[zone] / zoneSecondsDriven[zone] * 3.6 : Double.NaN;
+                    congestion[zone] = SpeedProfile.congestion(freeFlow, learned, hourlyFactor.applyAsDouble(hour));
+                }
+                for (int from = 0; from < zoneCount; from++) {
+                    for (int to = 0; to < zoneCount; to++) {
+                        int millis = matrix.timesMillis()[matrix.index(from, to)];
+                        if (millis < 0) {
+                            out.writeShort(ZoneEtaTable.UNKNOWN);
+                            continue;
+                        }
+                        double seconds = millis / 1000.0 * (congestion[from] + congestion[to]) / 2;
+                        out.writeShort((int) Math.min(ZoneEtaTable.UNKNOWN - 1, Math.round(seconds)));
+                    }
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return zoneCount;
+    }
+}